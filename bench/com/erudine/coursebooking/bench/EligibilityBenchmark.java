@@ -0,0 +1,197 @@
+package com.erudine.coursebooking.bench;
+
+import com.erudine.coursebooking.Course;
+import com.erudine.coursebooking.CourseCatalog;
+import com.erudine.coursebooking.persons.Student;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Micro-benchmark comparing the ways of checking whether a student has taken
+ * every prerequisite of a course: the original scan of the transcript for each
+ * prerequisite, a hash lookup per prerequisite, and the single bitset
+ * comparison over catalog ordinals. Run with {@code ant bench}.
+ *
+ * @author Adam Harries
+ * @version 31 Jul 2013
+ */
+public class EligibilityBenchmark {
+
+    /**
+     * The number of courses in the synthetic catalog.
+     */
+    private static final int CATALOG_SIZE = 2000;
+    /**
+     * The number of prerequisites of the course being booked.
+     */
+    private static final int PRE_REQUISITES = 8;
+    /**
+     * The transcript lengths to measure.
+     */
+    private static final int[] TRANSCRIPT_LENGTHS = {10, 50, 200, 1000};
+    /**
+     * The number of checks timed per measurement.
+     */
+    private static final int ITERATIONS = 200000;
+
+    /**
+     * Runs the benchmark and prints a table of nanoseconds per check.
+     *
+     * @param args Unused.
+     */
+    public static void main(String[] args) {
+        Random random = new Random(42);
+        CourseCatalog catalog = new CourseCatalog();
+        List<Course> courses = new ArrayList<Course>();
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            courses.add(catalog.intern("Course " + i));
+        }
+        Course target = catalog.intern("Target");
+        for (int i = 0; i < PRE_REQUISITES; i++) {
+            target.addPreRequisite(courses.get(i * 7));
+        }
+        catalog.publish();
+
+        System.out.println("transcript  scan(ns)  lookup(ns)  bitset(ns)  speedup");
+        for (int length : TRANSCRIPT_LENGTHS) {
+            //Every student has taken the prerequisites plus filler courses, so
+            //each check has to confirm all of them
+            Student student = new Student("Student " + length);
+            for (Course preRequisite : target.getPreRequisites()) {
+                student.addCourseTaken(preRequisite);
+            }
+            while (student.getCoursesTaken().size() < length) {
+                student.addCourseTaken(courses.get(random.nextInt(CATALOG_SIZE)));
+            }
+
+            double scan = 0;
+            double lookup = 0;
+            double bitset = 0;
+            //The first rounds warm the JIT up and are discarded
+            for (int round = 0; round < 5; round++) {
+                scan = time(new ScanCheck(student, target));
+                lookup = time(new LookupCheck(student, target));
+                bitset = time(new BitsetCheck(student, target));
+            }
+            System.out.printf("%10d  %8.1f  %10.1f  %10.1f  %6.0fx%n",
+                    length, scan, lookup, bitset, scan / bitset);
+        }
+    }
+
+    /**
+     * Times a check.
+     *
+     * @param check The check to time.
+     * @return The mean nanoseconds per check.
+     */
+    private static double time(Check check) {
+        int eligible = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            if (check.isEligible()) {
+                eligible++;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        if (eligible != ITERATIONS) {
+            throw new IllegalStateException("Every check should have passed.");
+        }
+        return (double) elapsed / ITERATIONS;
+    }
+
+    /**
+     * A way of checking prerequisites.
+     */
+    private abstract static class Check {
+
+        /**
+         * The student booking.
+         */
+        final Student student;
+        /**
+         * The course being booked.
+         */
+        final Course course;
+
+        /**
+         * Constructor.
+         *
+         * @param student The student booking.
+         * @param course The course being booked.
+         */
+        Check(Student student, Course course) {
+            this.student = student;
+            this.course = course;
+        }
+
+        /**
+         * Checks the student against the course's prerequisites.
+         *
+         * @return The boolean result of the check.
+         */
+        abstract boolean isEligible();
+    }
+
+    /**
+     * The original check: a scan of the transcript for each prerequisite.
+     */
+    private static final class ScanCheck extends Check {
+
+        ScanCheck(Student student, Course course) {
+            super(student, course);
+        }
+
+        @Override
+        boolean isEligible() {
+            for (Course preRequisite : course.getPreRequisites()) {
+                boolean taken = false;
+                for (Course courseTaken : student.getCoursesTaken()) {
+                    if (courseTaken.equals(preRequisite)) {
+                        taken = true;
+                        break;
+                    }
+                }
+                if (!taken) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * A hash lookup of each prerequisite in the transcript.
+     */
+    private static final class LookupCheck extends Check {
+
+        LookupCheck(Student student, Course course) {
+            super(student, course);
+        }
+
+        @Override
+        boolean isEligible() {
+            for (Course preRequisite : course.getPreRequisites()) {
+                if (!student.hasTakenCourse(preRequisite)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * The bitset comparison over catalog ordinals.
+     */
+    private static final class BitsetCheck extends Check {
+
+        BitsetCheck(Student student, Course course) {
+            super(student, course);
+        }
+
+        @Override
+        boolean isEligible() {
+            return student.hasTakenPreRequisites(course);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.erudine.coursebooking.bench;
+
+/**
+ * Histogram of latencies in nanoseconds with a bounded relative error. Values
+ * below 128 are counted exactly; above that each power of two is split into 64
+ * buckets, so a reported percentile is within about 1.6% of the true value
+ * and a histogram covers every long in a fixed 30KB. Not thread safe: each
+ * thread should record into its own histogram, merged with {@link
+ * LatencyHistogram#add(LatencyHistogram) add} afterwards.
+ *
+ * @author Adam Harries
+ * @version 31 Jul 2013
+ */
+public class LatencyHistogram {
+
+    /**
+     * The number of buckets per power of two.
+     */
+    private static final int SUB_BUCKETS = 64;
+    /**
+     * log2 of {@link LatencyHistogram#SUB_BUCKETS SUB_BUCKETS}.
+     */
+    private static final int SUB_BUCKET_BITS = 6;
+    /**
+     * Enough buckets for the largest long.
+     */
+    private static final int BUCKETS = (63 - SUB_BUCKET_BITS) * SUB_BUCKETS + SUB_BUCKETS;
+    /**
+     * The count in each bucket.
+     */
+    private final long[] counts;
+    /**
+     * The number of values recorded.
+     */
+    private long count;
+    /**
+     * The sum of the values recorded.
+     */
+    private long sum;
+    /**
+     * The largest value recorded.
+     */
+    private long max;
+
+    /**
+     * Constructor.
+     */
+    public LatencyHistogram() {
+        counts = new long[BUCKETS];
+    }
+
+    /**
+     * Records a value.
+     *
+     * @param nanos The value, negative values being counted as 0.
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts[indexOf(value)]++;
+        count++;
+        sum += value;
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Adds the values recorded by another histogram to this one.
+     *
+     * @param other The histogram to add.
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Returns the value below which a percentage of the recorded values fall.
+     *
+     * @param percentile The percentage, from 0 to 100.
+     * @return The highest value of the bucket holding the percentile, or 0 if
+     * nothing has been recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("The percentile must be from 0 to 100.");
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(highestValueOf(i), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Returns the number of values recorded.
+     *
+     * @return {@link LatencyHistogram#count count}.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the mean of the values recorded.
+     *
+     * @return The mean, or 0 if nothing has been recorded.
+     */
+    public double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * Returns the largest value recorded.
+     *
+     * @return {@link LatencyHistogram#max max}.
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Returns the bucket counting a value.
+     *
+     * @param value The non-negative value.
+     * @return The index of the bucket.
+     */
+    static int indexOf(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    /**
+     * Returns the highest value counted by a bucket.
+     *
+     * @param index The index of the bucket.
+     * @return The highest value.
+     */
+    static long highestValueOf(int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long lowest = (long) (index % SUB_BUCKETS + SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,642 @@
+package com.erudine.coursebooking.bench;
+
+import com.erudine.coursebooking.BookingEvent;
+import com.erudine.coursebooking.BookingListener;
+import com.erudine.coursebooking.BookingResult;
+import com.erudine.coursebooking.CancellationResult;
+import com.erudine.coursebooking.Course;
+import com.erudine.coursebooking.CourseCatalog;
+import com.erudine.coursebooking.CourseSchedule;
+import com.erudine.coursebooking.persons.Student;
+import com.erudine.coursebooking.persons.Teacher;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Simulation of registration day: at the moment registration opens, every
+ * student rushes to book onto courses at once. A synthetic catalog is built
+ * in year levels, each course having prerequisites from the levels below, and
+ * each student a transcript of courses taken in earlier years. Course
+ * popularity follows a Zipf distribution, so a few schedules take most of the
+ * traffic and build long waiting lists while the rest stay part empty.
+ * <p>
+ * Each thread drives its own share of the students, booking courses and now
+ * and then cancelling one, and times every call. The timed phase runs with no
+ * listener attached, so bookings taking a free seat go down the same lock-free
+ * path as in production. Once all threads finish the throughput and latency
+ * percentiles are reported, and the schedules are checked against the
+ * bookings the threads made: no course is overbooked, no one is both
+ * registered and waiting, every successful booking is held and every
+ * cancelled one is gone.
+ * <p>
+ * Promotion order can only be watched by a {@link BookingListener}, which
+ * sends every booking through the schedule's lock, so it is checked in a
+ * second, untimed phase: the same threads carry on with a further share of
+ * operations while a listener audits that every waiting list is served first
+ * come, first served, and the schedules are checked again afterwards.
+ * <p>
+ * Run with {@code ant simulate}, optionally passing
+ * {@code -Dsimulate.args="students courses threads bookingsPerStudent"}; the
+ * defaults are 200000 students, 300 courses, one thread per processor and 5
+ * bookings per student. Throws an IllegalStateException if any check fails.
+ *
+ * @author Adam Harries
+ * @version 31 Jul 2013
+ */
+public class RegistrationDaySimulation {
+
+    /**
+     * The number of year levels in the catalog.
+     */
+    private static final int LEVELS = 4;
+    /**
+     * The most prerequisites of a course.
+     */
+    private static final int MAX_PRE_REQUISITES = 3;
+    /**
+     * The chance of a student having taken each course they were eligible for
+     * in an earlier year.
+     */
+    private static final double TAKEN_RATE = 0.4;
+    /**
+     * The smallest course capacity.
+     */
+    private static final int MIN_CAPACITY = 20;
+    /**
+     * The largest course capacity.
+     */
+    private static final int MAX_CAPACITY = 200;
+    /**
+     * The Zipf exponent of course popularity.
+     */
+    private static final double POPULARITY_SKEW = 1.0;
+    /**
+     * The chance of an operation being the cancellation of an existing
+     * booking rather than a new booking.
+     */
+    private static final double CANCEL_RATE = 0.15;
+    /**
+     * The operations of the audited phase, as a fraction of those timed.
+     */
+    private static final double AUDITED_SHARE = 0.25;
+
+    /**
+     * Runs the simulation and prints its report.
+     *
+     * @param args Optionally the number of students, courses, threads and
+     * bookings per student, in that order.
+     * @throws InterruptedException If interrupted waiting for the threads.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int studentCount = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        int courseCount = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+        int threadCount = args.length > 2 ? Integer.parseInt(args[2])
+                : Runtime.getRuntime().availableProcessors();
+        int bookingsPerStudent = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+        if (studentCount < threadCount || courseCount < LEVELS || threadCount < 1 || bookingsPerStudent < 1) {
+            throw new IllegalArgumentException("Need at least one student per thread and one course per level.");
+        }
+        Random random = new Random(42);
+
+        long buildStart = System.nanoTime();
+        List<Course> courses = buildCatalog(courseCount, random);
+        List<Student> students = buildStudents(studentCount, courses, random);
+        CourseSchedule[] schedules = buildSchedules(courses, random);
+        double[] popularity = zipf(schedules.length);
+        System.out.printf("Built %d courses, %d students and %d seats in %d ms%n", courseCount, studentCount,
+                seats(schedules), (System.nanoTime() - buildStart) / 1000000);
+
+        //Give each thread its own share of the students, so each knows
+        //exactly what its students should hold at the end
+        Rusher[] rushers = new Rusher[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            List<Student> share = students.subList(i * studentCount / threadCount,
+                    (i + 1) * studentCount / threadCount);
+            rushers[i] = new Rusher(share, schedules, popularity, random.nextLong());
+        }
+        int operations = studentCount / threadCount * bookingsPerStudent;
+        long elapsed = runPhase(rushers, operations, true);
+        report(rushers, elapsed, threadCount);
+        int failures = check(rushers, schedules, null);
+
+        WaitListAudit audit = new WaitListAudit();
+        for (CourseSchedule schedule : schedules) {
+            audit.attach(schedule);
+        }
+        elapsed = runPhase(rushers, (int) (operations * AUDITED_SHARE), false);
+        System.out.printf("Audited phase of %d operations in %d ms%n",
+                (int) (operations * AUDITED_SHARE) * threadCount, elapsed / 1000000);
+        failures += check(rushers, schedules, audit);
+        if (failures > 0) {
+            throw new IllegalStateException(failures + " consistency checks failed.");
+        }
+        System.out.println("All consistency checks passed.");
+    }
+
+    /**
+     * Runs every thread through a number of operations, released together.
+     *
+     * @param rushers The threads' work.
+     * @param operations The number of operations each thread makes.
+     * @param timed Whether to time each operation.
+     * @return The wall clock nanoseconds taken.
+     * @throws InterruptedException If interrupted waiting for the threads.
+     */
+    private static long runPhase(Rusher[] rushers, int operations, boolean timed) throws InterruptedException {
+        CountDownLatch opening = new CountDownLatch(1);
+        Thread[] threads = new Thread[rushers.length];
+        for (int i = 0; i < rushers.length; i++) {
+            rushers[i].prepare(operations, opening, timed);
+            threads[i] = new Thread(rushers[i], "Rusher " + i);
+            threads[i].start();
+        }
+        long start = System.nanoTime();
+        opening.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Builds a catalog in year levels, each course above the first having
+     * prerequisites from the level below.
+     *
+     * @param courseCount The number of courses.
+     * @param random The source of randomness.
+     * @return The published courses, lowest level first.
+     */
+    private static List<Course> buildCatalog(int courseCount, Random random) {
+        CourseCatalog catalog = new CourseCatalog();
+        List<Course> courses = new ArrayList<Course>();
+        int perLevel = courseCount / LEVELS;
+        for (int i = 0; i < courseCount; i++) {
+            int level = Math.min(i / perLevel, LEVELS - 1);
+            Course course = catalog.intern("Course " + (level + 1) + "-" + i);
+            if (level > 0) {
+                int preRequisites = 1 + random.nextInt(MAX_PRE_REQUISITES);
+                for (int p = 0; p < preRequisites; p++) {
+                    course.addPreRequisite(courses.get((level - 1) * perLevel + random.nextInt(perLevel)));
+                }
+            }
+            courses.add(course);
+        }
+        catalog.publish();
+        return courses;
+    }
+
+    /**
+     * Builds students in each year, with transcripts of courses taken in
+     * earlier years. A course is only taken once its prerequisites have been.
+     *
+     * @param studentCount The number of students.
+     * @param courses The catalog, lowest level first.
+     * @param random The source of randomness.
+     * @return The students.
+     */
+    private static List<Student> buildStudents(int studentCount, List<Course> courses, Random random) {
+        List<Student> students = new ArrayList<Student>(studentCount);
+        int perLevel = courses.size() / LEVELS;
+        for (int i = 0; i < studentCount; i++) {
+            Student student = new Student("Student " + i);
+            int completedCourses = random.nextInt(LEVELS) * perLevel;
+            for (int c = 0; c < completedCourses; c++) {
+                Course course = courses.get(c);
+                if (random.nextDouble() < TAKEN_RATE && student.hasTakenPreRequisites(course)) {
+                    student.addCourseTaken(course);
+                }
+            }
+            students.add(student);
+        }
+        return students;
+    }
+
+    /**
+     * Builds one schedule of each course in a random order, which becomes the
+     * order of popularity.
+     *
+     * @param courses The catalog.
+     * @param random The source of randomness.
+     * @return The schedules, most popular first.
+     */
+    private static CourseSchedule[] buildSchedules(List<Course> courses, Random random) {
+        List<Course> shuffled = new ArrayList<Course>(courses);
+        Collections.shuffle(shuffled, random);
+        Teacher teacher = new Teacher("Teacher");
+        CourseSchedule[] schedules = new CourseSchedule[shuffled.size()];
+        for (int i = 0; i < schedules.length; i++) {
+            int capacity = MIN_CAPACITY + random.nextInt(MAX_CAPACITY - MIN_CAPACITY + 1);
+            schedules[i] = new CourseSchedule(shuffled.get(i), capacity, new Date(0), new Date(1000), teacher);
+        }
+        return schedules;
+    }
+
+    /**
+     * Returns the cumulative Zipf distribution over ranks.
+     *
+     * @param size The number of ranks.
+     * @return The cumulative probability of each rank, ending at 1.
+     */
+    private static double[] zipf(int size) {
+        double[] cumulative = new double[size];
+        double total = 0;
+        for (int i = 0; i < size; i++) {
+            total += 1 / Math.pow(i + 1, POPULARITY_SKEW);
+            cumulative[i] = total;
+        }
+        for (int i = 0; i < size; i++) {
+            cumulative[i] /= total;
+        }
+        return cumulative;
+    }
+
+    /**
+     * Returns the total capacity of the schedules.
+     *
+     * @param schedules The schedules.
+     * @return The number of seats.
+     */
+    private static long seats(CourseSchedule[] schedules) {
+        long seats = 0;
+        for (CourseSchedule schedule : schedules) {
+            seats += schedule.getCourseCapacity();
+        }
+        return seats;
+    }
+
+    /**
+     * Prints the throughput, the latency percentiles and the outcomes.
+     *
+     * @param rushers The finished threads.
+     * @param elapsed The wall clock nanoseconds taken.
+     * @param threadCount The number of threads.
+     */
+    private static void report(Rusher[] rushers, long elapsed, int threadCount) {
+        LatencyHistogram bookings = new LatencyHistogram();
+        LatencyHistogram cancellations = new LatencyHistogram();
+        Map<BookingResult, Long> bookingResults = new EnumMap<BookingResult, Long>(BookingResult.class);
+        Map<CancellationResult, Long> cancellationResults =
+                new EnumMap<CancellationResult, Long>(CancellationResult.class);
+        for (Rusher rusher : rushers) {
+            bookings.add(rusher.bookingLatencies);
+            cancellations.add(rusher.cancellationLatencies);
+            for (BookingResult result : BookingResult.values()) {
+                long count = rusher.bookingResults[result.ordinal()];
+                if (count > 0) {
+                    bookingResults.put(result, count + (bookingResults.containsKey(result)
+                            ? bookingResults.get(result) : 0));
+                }
+            }
+            for (CancellationResult result : CancellationResult.values()) {
+                long count = rusher.cancellationResults[result.ordinal()];
+                if (count > 0) {
+                    cancellationResults.put(result, count + (cancellationResults.containsKey(result)
+                            ? cancellationResults.get(result) : 0));
+                }
+            }
+        }
+        LatencyHistogram all = new LatencyHistogram();
+        all.add(bookings);
+        all.add(cancellations);
+
+        System.out.printf("%d operations on %d threads in %d ms: %.0f operations/s%n", all.getCount(),
+                threadCount, elapsed / 1000000, all.getCount() * 1e9 / elapsed);
+        System.out.println("operation        count   mean(ns)   p50(ns)   p99(ns)  p999(ns)   max(ns)");
+        printLatencies("book", bookings);
+        printLatencies("cancel", cancellations);
+        printLatencies("all", all);
+        System.out.println("Bookings: " + bookingResults);
+        System.out.println("Cancellations: " + cancellationResults);
+    }
+
+    /**
+     * Prints a row of latencies.
+     *
+     * @param operation The operation timed.
+     * @param histogram Its latencies.
+     */
+    private static void printLatencies(String operation, LatencyHistogram histogram) {
+        System.out.printf("%-9s %12d %10.0f %9d %9d %9d %9d%n", operation, histogram.getCount(),
+                histogram.getMean(), histogram.getValueAtPercentile(50), histogram.getValueAtPercentile(99),
+                histogram.getValueAtPercentile(99.9), histogram.getMax());
+    }
+
+    /**
+     * Checks the schedules against the bookings the threads made and the
+     * waiting list audit, printing each failure.
+     *
+     * @param rushers The finished threads.
+     * @param schedules The schedules.
+     * @param audit The waiting list audit, or null to leave queue order
+     * unchecked.
+     * @return The number of failures.
+     */
+    private static int check(Rusher[] rushers, CourseSchedule[] schedules, WaitListAudit audit) {
+        int failures = 0;
+        Map<CourseSchedule, Set<Student>> expected = new HashMap<CourseSchedule, Set<Student>>();
+        for (CourseSchedule schedule : schedules) {
+            expected.put(schedule, new HashSet<Student>());
+        }
+        for (Rusher rusher : rushers) {
+            failures += rusher.unexpectedResults;
+            rusher.unexpectedResults = 0;
+            for (Map.Entry<Student, List<CourseSchedule>> entry : rusher.bookings.entrySet()) {
+                for (CourseSchedule schedule : entry.getValue()) {
+                    expected.get(schedule).add(entry.getKey());
+                }
+            }
+        }
+        if (failures > 0) {
+            System.out.println(failures + " bookings or cancellations had unexpected results.");
+        }
+        if (audit != null && audit.violations > 0) {
+            failures += audit.violations;
+            System.out.println(audit.violations + " promotions were out of queue order.");
+        }
+
+        for (CourseSchedule schedule : schedules) {
+            String name = schedule.getCourse().getName();
+            Set<Student> registered = schedule.getRegisteredStudents();
+            List<Student> waiting = new ArrayList<Student>(schedule.getWaitListedStudents());
+            if (registered.size() > schedule.getCourseCapacity()
+                    || schedule.getNumberOfRegisteredStudents() != registered.size()) {
+                System.out.printf("%s is overbooked: %d registered, %d counted, capacity %d%n", name,
+                        registered.size(), schedule.getNumberOfRegisteredStudents(),
+                        schedule.getCourseCapacity());
+                failures++;
+            }
+            if (!waiting.isEmpty() && registered.size() < schedule.getCourseCapacity()) {
+                System.out.printf("%s has free seats while %d students wait%n", name, waiting.size());
+                failures++;
+            }
+            Set<Student> held = new HashSet<Student>(registered);
+            for (Student student : waiting) {
+                if (!held.add(student)) {
+                    System.out.printf("%s holds %s twice%n", name, student.getName());
+                    failures++;
+                }
+            }
+            if (!held.equals(expected.get(schedule))) {
+                System.out.printf("%s holds %d students where %d were booked%n", name, held.size(),
+                        expected.get(schedule).size());
+                failures++;
+            }
+            if (audit != null && !waiting.equals(audit.queueOf(schedule))) {
+                System.out.printf("%s has its waiting list out of order%n", name);
+                failures++;
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * A thread booking and cancelling on behalf of its share of the students.
+     */
+    private static final class Rusher implements Runnable {
+
+        /**
+         * The students this thread books for.
+         */
+        private final Student[] students;
+        /**
+         * The schedules, most popular first.
+         */
+        private final CourseSchedule[] schedules;
+        /**
+         * The cumulative popularity of the schedules.
+         */
+        private final double[] popularity;
+        /**
+         * The number of operations to make in the current phase.
+         */
+        private int operations;
+        /**
+         * Released when the current phase opens.
+         */
+        private CountDownLatch opening;
+        /**
+         * Whether the current phase is timed.
+         */
+        private boolean timed;
+        /**
+         * This thread's source of randomness.
+         */
+        private final Random random;
+        /**
+         * The schedules each student holds a booking on, registered or waiting.
+         */
+        final Map<Student, List<CourseSchedule>> bookings;
+        /**
+         * The latencies of the bookings.
+         */
+        final LatencyHistogram bookingLatencies;
+        /**
+         * The latencies of the cancellations.
+         */
+        final LatencyHistogram cancellationLatencies;
+        /**
+         * The number of each booking result.
+         */
+        final long[] bookingResults;
+        /**
+         * The number of each cancellation result.
+         */
+        final long[] cancellationResults;
+        /**
+         * The number of results which disagreed with the bookings held.
+         */
+        int unexpectedResults;
+
+        /**
+         * Constructor.
+         *
+         * @param students The students this thread books for.
+         * @param schedules The schedules, most popular first.
+         * @param popularity The cumulative popularity of the schedules.
+         * @param seed The seed of this thread's randomness.
+         */
+        Rusher(List<Student> students, CourseSchedule[] schedules, double[] popularity, long seed) {
+            this.students = students.toArray(new Student[students.size()]);
+            this.schedules = schedules;
+            this.popularity = popularity;
+            this.random = new Random(seed);
+            bookings = new HashMap<Student, List<CourseSchedule>>();
+            bookingLatencies = new LatencyHistogram();
+            cancellationLatencies = new LatencyHistogram();
+            bookingResults = new long[BookingResult.values().length];
+            cancellationResults = new long[CancellationResult.values().length];
+        }
+
+        /**
+         * Sets up the next phase, before the thread running it is started.
+         *
+         * @param operations The number of operations to make.
+         * @param opening Released when the phase opens.
+         * @param timed Whether to time each operation.
+         */
+        void prepare(int operations, CountDownLatch opening, boolean timed) {
+            this.operations = operations;
+            this.opening = opening;
+            this.timed = timed;
+        }
+
+        @Override
+        public void run() {
+            try {
+                opening.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            for (int i = 0; i < operations; i++) {
+                Student student = students[random.nextInt(students.length)];
+                List<CourseSchedule> held = bookings.get(student);
+                if (held != null && random.nextDouble() < CANCEL_RATE) {
+                    cancel(student, held);
+                } else {
+                    book(student, schedules[pickSchedule()]);
+                }
+            }
+        }
+
+        /**
+         * Books a student onto a schedule.
+         *
+         * @param student The student.
+         * @param schedule The schedule.
+         */
+        private void book(Student student, CourseSchedule schedule) {
+            long start = System.nanoTime();
+            BookingResult result = schedule.book(student);
+            if (timed) {
+                bookingLatencies.record(System.nanoTime() - start);
+                bookingResults[result.ordinal()]++;
+            }
+
+            List<CourseSchedule> held = bookings.get(student);
+            boolean wasHeld = held != null && held.contains(schedule);
+            if (result == BookingResult.REGISTERED || result == BookingResult.WAIT_LISTED) {
+                if (wasHeld) {
+                    unexpectedResults++;
+                } else {
+                    if (held == null) {
+                        held = new ArrayList<CourseSchedule>(2);
+                        bookings.put(student, held);
+                    }
+                    held.add(schedule);
+                }
+            } else if (result == BookingResult.ALREADY_BOOKED && !wasHeld) {
+                unexpectedResults++;
+            }
+        }
+
+        /**
+         * Cancels one of a student's bookings at random.
+         *
+         * @param student The student.
+         * @param held The schedules the student holds a booking on.
+         */
+        private void cancel(Student student, List<CourseSchedule> held) {
+            CourseSchedule schedule = held.remove(random.nextInt(held.size()));
+            if (held.isEmpty()) {
+                bookings.remove(student);
+            }
+            long start = System.nanoTime();
+            CancellationResult result = schedule.cancel(student);
+            if (timed) {
+                cancellationLatencies.record(System.nanoTime() - start);
+                cancellationResults[result.ordinal()]++;
+            }
+            if (result == CancellationResult.NOT_BOOKED) {
+                unexpectedResults++;
+            }
+        }
+
+        /**
+         * Picks a schedule by popularity.
+         *
+         * @return The index of the schedule.
+         */
+        private int pickSchedule() {
+            int index = Arrays.binarySearch(popularity, random.nextDouble());
+            return Math.min(index < 0 ? -index - 1 : index, popularity.length - 1);
+        }
+    }
+
+    /**
+     * Listener keeping its own copy of each waiting list from the events
+     * reported, and counting each promotion of anyone but the head.
+     */
+    private static final class WaitListAudit implements BookingListener {
+
+        /**
+         * The copy of each schedule's waiting list.
+         */
+        private final Map<CourseSchedule, LinkedHashSet<Student>> queues =
+                new HashMap<CourseSchedule, LinkedHashSet<Student>>();
+        /**
+         * The number of promotions out of queue order.
+         */
+        int violations;
+
+        /**
+         * Starts auditing a schedule, copying the waiting list it already
+         * has. Must be called while no thread is booking on the schedule.
+         *
+         * @param schedule The schedule.
+         */
+        synchronized void attach(CourseSchedule schedule) {
+            queues.put(schedule, new LinkedHashSet<Student>(schedule.getWaitListedStudents()));
+            schedule.addBookingListener(this);
+        }
+
+        @Override
+        public synchronized void bookingChanged(CourseSchedule schedule, BookingEvent event, Student student) {
+            LinkedHashSet<Student> queue = queues.get(schedule);
+            if (queue == null) {
+                queue = new LinkedHashSet<Student>();
+                queues.put(schedule, queue);
+            }
+            switch (event) {
+                case WAIT_LISTED:
+                    queue.add(student);
+                    break;
+                case PROMOTED:
+                    Iterator<Student> head = queue.iterator();
+                    if (!head.hasNext() || !head.next().equals(student)) {
+                        violations++;
+                    }
+                    queue.remove(student);
+                    break;
+                case LEFT_WAITING_LIST:
+                    queue.remove(student);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        /**
+         * Returns the copy of a schedule's waiting list.
+         *
+         * @param schedule The schedule.
+         * @return The students in queue order.
+         */
+        synchronized List<Student> queueOf(CourseSchedule schedule) {
+            LinkedHashSet<Student> queue = queues.get(schedule);
+            return queue == null ? Collections.<Student>emptyList() : new ArrayList<Student>(queue);
+        }
+    }
+}
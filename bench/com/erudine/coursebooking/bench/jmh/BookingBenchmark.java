@@ -0,0 +1,251 @@
+package com.erudine.coursebooking.bench.jmh;
+
+import com.erudine.coursebooking.BookingResult;
+import com.erudine.coursebooking.CancellationResult;
+import com.erudine.coursebooking.Course;
+import com.erudine.coursebooking.CourseSchedule;
+import com.erudine.coursebooking.persons.Student;
+import com.erudine.coursebooking.persons.Teacher;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks of the booking and cancellation paths of {@link
+ * CourseSchedule}. Every benchmark leaves the schedule as it found it, so the
+ * roster size and wait-list depth stay at their parameter values however many
+ * operations are measured:
+ * <ul>
+ * <li>a booking onto a free seat is measured together with its cancellation;
+ * <li>a booking onto a full course joins the waiting list and then leaves it;
+ * <li>a registered student cancelling promotes the head of the waiting list
+ * and then rebooks onto the end of it;
+ * <li>duplicate and ineligible bookings change nothing.
+ * </ul>
+ * Each benchmark thread books its own students onto one shared schedule, so
+ * running with {@code -t} greater than one measures contention. Run with
+ * {@code ant jmh}.
+ *
+ * @author Adam Harries
+ * @version 31 Jul 2013
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BookingBenchmark {
+
+    /**
+     * The seats left free on the open course, enough for two students of
+     * each of that many benchmark threads.
+     */
+    private static final int OPEN_SEATS = 1024;
+
+    /**
+     * The schedule shared by every benchmark thread.
+     */
+    @State(Scope.Benchmark)
+    public static class ScheduleState {
+
+        /**
+         * The number of students registered before measuring; the course
+         * capacity for the full-course benchmarks.
+         */
+        @Param({"16", "1024"})
+        public int rosterSize;
+        /**
+         * The number of students on the waiting list before measuring.
+         */
+        @Param({"0", "1024"})
+        public int waitListDepth;
+        /**
+         * A course with free seats.
+         */
+        CourseSchedule open;
+        /**
+         * A full course with a waiting list.
+         */
+        CourseSchedule full;
+        /**
+         * A course requiring a prerequisite.
+         */
+        CourseSchedule advanced;
+        /**
+         * The students of the full course in the order the promotion
+         * benchmark cancels them: the registered students, then the waiting
+         * list in queue order. Cancelling a registered student promotes the
+         * head of the queue and rebooking sends them to its end, so each
+         * student in turn is registered when their turn comes.
+         */
+        Student[] cycle;
+        /**
+         * The position in {@link ScheduleState#cycle cycle}.
+         */
+        final AtomicInteger cursor = new AtomicInteger();
+        /**
+         * Numbers each benchmark thread so that their students differ.
+         */
+        final AtomicInteger threads = new AtomicInteger();
+
+        /**
+         * Fills the schedules.
+         */
+        @Setup(Level.Trial)
+        public void setUp() {
+            Teacher teacher = new Teacher("Bench Teacher");
+            Course advancedCourse = new Course("Advanced");
+            advancedCourse.addPreRequisite(new Course("Basic"));
+            advanced = new CourseSchedule(advancedCourse, 10, new Date(0), new Date(1000), teacher);
+            open = new CourseSchedule(new Course("Open"), rosterSize + OPEN_SEATS, new Date(0), new Date(1000),
+                    teacher);
+            full = new CourseSchedule(new Course("Full"), rosterSize, new Date(0), new Date(1000), teacher);
+            for (int i = 0; i < rosterSize; i++) {
+                Student student = new Student("Registered " + i);
+                open.book(student);
+                full.book(student);
+            }
+            for (int i = 0; i < waitListDepth; i++) {
+                full.book(new Student("Waiting " + i));
+            }
+            List<Student> order = new ArrayList<Student>(full.getRegisteredStudents());
+            order.addAll(full.getWaitListedStudents());
+            cycle = order.toArray(new Student[order.size()]);
+        }
+    }
+
+    /**
+     * The students booked by one benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class StudentState {
+
+        /**
+         * Students not yet booked onto anything.
+         */
+        Student[] newcomers;
+        /**
+         * A student registered on the open course.
+         */
+        Student booked;
+        /**
+         * A student without the prerequisite of the advanced course.
+         */
+        Student ineligible;
+        /**
+         * The next newcomer to use.
+         */
+        int next;
+
+        /**
+         * Creates and books this thread's students.
+         *
+         * @param schedules The shared schedules.
+         */
+        @Setup(Level.Trial)
+        public void setUp(ScheduleState schedules) {
+            int thread = schedules.threads.getAndIncrement();
+            newcomers = new Student[1024];
+            for (int i = 0; i < newcomers.length; i++) {
+                newcomers[i] = new Student("Newcomer " + thread + "-" + i);
+            }
+            booked = new Student("Booked " + thread);
+            schedules.open.book(booked);
+            ineligible = new Student("Ineligible " + thread);
+        }
+
+        /**
+         * Returns the next newcomer.
+         *
+         * @return A student not booked onto anything.
+         */
+        Student nextNewcomer() {
+            Student student = newcomers[next];
+            next = (next + 1) & (newcomers.length - 1);
+            return student;
+        }
+    }
+
+    /**
+     * Books a free seat and cancels it again.
+     *
+     * @param schedules The shared schedules.
+     * @param students This thread's students.
+     * @return The cancellation result, consumed by JMH.
+     */
+    @Benchmark
+    public CancellationResult bookFreeSeat(ScheduleState schedules, StudentState students) {
+        Student student = students.nextNewcomer();
+        schedules.open.book(student);
+        return schedules.open.cancel(student);
+    }
+
+    /**
+     * Books onto a full course, joining the waiting list, and leaves it again.
+     *
+     * @param schedules The shared schedules.
+     * @param students This thread's students.
+     * @return The cancellation result, consumed by JMH.
+     */
+    @Benchmark
+    public CancellationResult bookFullCourse(ScheduleState schedules, StudentState students) {
+        Student student = students.nextNewcomer();
+        schedules.full.book(student);
+        return schedules.full.cancel(student);
+    }
+
+    /**
+     * Books a student who is already registered.
+     *
+     * @param schedules The shared schedules.
+     * @param students This thread's students.
+     * @return The booking result, consumed by JMH.
+     */
+    @Benchmark
+    public BookingResult bookDuplicate(ScheduleState schedules, StudentState students) {
+        return schedules.open.book(students.booked);
+    }
+
+    /**
+     * Books a student missing a prerequisite.
+     *
+     * @param schedules The shared schedules.
+     * @param students This thread's students.
+     * @return The booking result, consumed by JMH.
+     */
+    @Benchmark
+    public BookingResult bookIneligible(ScheduleState schedules, StudentState students) {
+        return schedules.advanced.book(students.ineligible);
+    }
+
+    /**
+     * Cancels a registration on the full course, promoting the head of the
+     * waiting list, and rebooks the student onto the end of the list. With
+     * several threads the cycle order is only approximately kept, so some
+     * cancellations leave the waiting list instead.
+     *
+     * @param schedules The shared schedules.
+     * @return The booking result, consumed by JMH.
+     */
+    @Benchmark
+    public BookingResult cancelWithPromotion(ScheduleState schedules) {
+        Student[] cycle = schedules.cycle;
+        Student student = cycle[(schedules.cursor.getAndIncrement() & Integer.MAX_VALUE) % cycle.length];
+        schedules.full.cancel(student);
+        return schedules.full.book(student);
+    }
+}
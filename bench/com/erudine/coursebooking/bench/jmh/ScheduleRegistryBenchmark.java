@@ -0,0 +1,106 @@
+package com.erudine.coursebooking.bench.jmh;
+
+import com.erudine.coursebooking.Course;
+import com.erudine.coursebooking.CourseSchedule;
+import com.erudine.coursebooking.ScheduleRegistry;
+import com.erudine.coursebooking.persons.Teacher;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmark of {@link ScheduleRegistry#get} against the number of
+ * schedules registered. The time per lookup should stay flat from a thousand
+ * schedules to a million, and run with {@code -prof gc} it should show no
+ * allocation. Run with {@code ant jmh}.
+ *
+ * @author Adam Harries
+ * @version 31 Jul 2013
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScheduleRegistryBenchmark {
+
+    /**
+     * The number of courses, each scheduled in {@link ScheduleRegistryBenchmark#TERMS TERMS}
+     * terms.
+     */
+    @Param({"100", "10000", "100000"})
+    public int courses;
+    /**
+     * The number of terms each course is scheduled in.
+     */
+    private static final int TERMS = 10;
+    /**
+     * The registry.
+     */
+    private ScheduleRegistry registry;
+    /**
+     * The names of the courses.
+     */
+    private String[] names;
+    /**
+     * The start dates of the terms.
+     */
+    private Date[] terms;
+
+    /**
+     * Registers the schedules.
+     */
+    @Setup
+    public void setUp() {
+        Teacher teacher = new Teacher("Bench Teacher");
+        registry = new ScheduleRegistry();
+        names = new String[courses];
+        terms = new Date[TERMS];
+        for (int t = 0; t < TERMS; t++) {
+            terms[t] = new Date(1000L * (t + 1));
+        }
+        for (int c = 0; c < courses; c++) {
+            Course course = new Course("Course " + c);
+            names[c] = course.getName();
+            for (int t = 0; t < TERMS; t++) {
+                registry.register(new CourseSchedule(course, 10, terms[t], new Date(1000L * (TERMS + 1)),
+                        teacher));
+            }
+        }
+    }
+
+    /**
+     * Per-thread position in the key sequence.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        /**
+         * The next key to look up.
+         */
+        int next;
+    }
+
+    /**
+     * Looks up schedules in turn.
+     *
+     * @param cursor The thread's position in the key sequence.
+     * @return The schedule found.
+     */
+    @Benchmark
+    public CourseSchedule get(Cursor cursor) {
+        int key = cursor.next = (cursor.next + 7919) % (courses * TERMS);
+        return registry.get(names[key / TERMS], terms[key % TERMS]);
+    }
+}
@@ -0,0 +1,117 @@
+package com.erudine.coursebooking.bench.jmh;
+
+import com.erudine.coursebooking.Course;
+import com.erudine.coursebooking.CourseCatalog;
+import com.erudine.coursebooking.persons.Student;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks of the eligibility checks: {@link Student#hasTakenCourse}
+ * and {@link Student#hasTakenPreRequisites} against the length of the
+ * student's transcript, and {@link Course#isPreRequisite} against the number
+ * of prerequisites. Each check is made for a course found last, so the
+ * whole transcript or prerequisite set is in play. Run with {@code ant jmh}.
+ *
+ * @author Adam Harries
+ * @version 31 Jul 2013
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TranscriptBenchmark {
+
+    /**
+     * The number of courses on the student's transcript, and the number of
+     * prerequisites of the course checked.
+     */
+    @Param({"1", "16", "256"})
+    public int transcriptLength;
+    /**
+     * The student whose transcript is searched.
+     */
+    private Student student;
+    /**
+     * The last course the student took.
+     */
+    private Course lastTaken;
+    /**
+     * A course the student has not taken.
+     */
+    private Course notTaken;
+    /**
+     * A published course with {@link TranscriptBenchmark#transcriptLength}
+     * prerequisites, all of which the student has taken.
+     */
+    private Course target;
+
+    /**
+     * Builds the catalog and transcript.
+     */
+    @Setup
+    public void setUp() {
+        CourseCatalog catalog = new CourseCatalog();
+        student = new Student("Bench Student");
+        target = catalog.intern("Target");
+        for (int i = 0; i < transcriptLength; i++) {
+            lastTaken = catalog.intern("Course " + i);
+            student.addCourseTaken(lastTaken);
+            target.addPreRequisite(lastTaken);
+        }
+        notTaken = catalog.intern("Not Taken");
+        catalog.publish();
+    }
+
+    /**
+     * Looks up a course the student has taken.
+     *
+     * @return The result of the check, consumed by JMH.
+     */
+    @Benchmark
+    public boolean hasTakenCourse() {
+        return student.hasTakenCourse(lastTaken);
+    }
+
+    /**
+     * Looks up a course the student has not taken.
+     *
+     * @return The result of the check, consumed by JMH.
+     */
+    @Benchmark
+    public boolean hasNotTakenCourse() {
+        return student.hasTakenCourse(notTaken);
+    }
+
+    /**
+     * Checks every prerequisite of the target course against the transcript.
+     *
+     * @return The result of the check, consumed by JMH.
+     */
+    @Benchmark
+    public boolean hasTakenPreRequisites() {
+        return student.hasTakenPreRequisites(target);
+    }
+
+    /**
+     * Checks whether a course is a prerequisite of the target.
+     *
+     * @return The result of the check, consumed by JMH.
+     */
+    @Benchmark
+    public boolean isPreRequisite() {
+        return target.isPreRequisite(notTaken);
+    }
+}
@@ -0,0 +1,33 @@
+package com.erudine.coursebooking;
+
+/**
+ * A change to the roster or waiting list of a {@link CourseSchedule}, as
+ * reported to {@link BookingListener BookingListeners}.
+ *
+ * @author Adam Harries
+ * @version 31 Jul 2013
+ */
+public enum BookingEvent {
+
+    /**
+     * The student took a free seat on the course.
+     */
+    REGISTERED,
+    /**
+     * The student joined the end of the waiting list.
+     */
+    WAIT_LISTED,
+    /**
+     * The student at the head of the waiting list was given a released seat.
+     */
+    PROMOTED,
+    /**
+     * The registered student gave up their seat. Any resulting promotion is
+     * reported as a separate event.
+     */
+    REGISTRATION_CANCELLED,
+    /**
+     * The student was removed from the waiting list.
+     */
+    LEFT_WAITING_LIST
+}
@@ -0,0 +1,597 @@
+package com.erudine.coursebooking;
+
+import com.erudine.coursebooking.persons.Student;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead journal of the changes made to a set of {@link CourseSchedule
+ * CourseSchedules}, so that rosters and the order of waiting lists survive a
+ * restart. The journal is attached to each schedule as a {@link
+ * BookingListener} and appends one record per change to a memory-mapped
+ * segment file, moving on to a new segment file when the current one is full.
+ * <p>
+ * An append is a copy into the mapped segment, so a record survives the
+ * process crashing as soon as the change it describes becomes visible. To
+ * survive the machine crashing the segment must also be forced to disk, which
+ * {@link BookingJournal#sync() sync} does by group commit: a background thread
+ * forces the segment once for every record appended since the previous force,
+ * so that many bookings share the cost of one disk flush.
+ * <p>
+ * Each record is a length, a CRC32 of the payload, and a payload holding the
+ * event, the schedule's course name and start time, and the student's name;
+ * or, for a change of capacity, a marker in place of the event and the new
+ * capacity in place of the student's name. Capacity records come before the
+ * promotions they cause, so replaying them in order never overbooks.
+ * Replay stops at the first record which is zero or fails its checksum, which
+ * is where a crash interrupted the last append.
+ *
+ * @author Adam Harries
+ * @version 31 Jul 2013
+ */
+public class BookingJournal implements BookingListener, AutoCloseable {
+
+    /**
+     * The default size of a segment file in bytes.
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    /**
+     * The number of bytes before each record's payload: its length and CRC.
+     */
+    private static final int HEADER_SIZE = 8;
+    /**
+     * The events, indexed by the ordinal written to the journal.
+     */
+    private static final BookingEvent[] EVENTS = BookingEvent.values();
+    /**
+     * Written in place of an event's ordinal to mark a change of capacity.
+     */
+    private static final byte CAPACITY_CHANGED = -1;
+    /**
+     * The directory holding the segment files.
+     */
+    private final File directory;
+    /**
+     * The size of each segment file in bytes.
+     */
+    private final int segmentSize;
+    /**
+     * Serialises appends, so each record is copied into the segment whole.
+     */
+    private final ReentrantLock appendLock;
+    /**
+     * Guards the group commit state and is waited on by callers of {@link
+     * BookingJournal#sync() sync}.
+     */
+    private final Object commitMonitor;
+    /**
+     * The thread forcing the segment to disk.
+     */
+    private final Thread committer;
+    /**
+     * The index of the current segment file.
+     */
+    private int segmentIndex;
+    /**
+     * The current segment file.
+     */
+    private RandomAccessFile segmentFile;
+    /**
+     * The current segment, mapped into memory.
+     */
+    private volatile MappedByteBuffer segment;
+    /**
+     * The journal position after the last appended record, counting each
+     * earlier segment as full.
+     */
+    private volatile long appendedPosition;
+    /**
+     * The journal position up to which records are known to be on disk.
+     */
+    private long durablePosition;
+    /**
+     * Whether a caller is waiting for the committer to force the segment.
+     */
+    private boolean commitRequested;
+    /**
+     * The first failure to write to the journal, reported by {@link
+     * BookingJournal#sync() sync} since listeners must not throw.
+     */
+    private volatile IOException failure;
+    /**
+     * Whether the journal has been closed.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Constructor. Opens the journal in a directory, appending after the last
+     * complete record of any journal already there.
+     *
+     * @param directory The directory holding the segment files.
+     * @throws IOException if the journal cannot be opened.
+     */
+    public BookingJournal(File directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Constructor. Opens the journal in a directory, appending after the last
+     * complete record of any journal already there.
+     *
+     * @param directory The directory holding the segment files.
+     * @param segmentSize The size of each segment file in bytes.
+     * @throws IOException if the journal cannot be opened.
+     */
+    public BookingJournal(File directory, int segmentSize) throws IOException {
+        if (segmentSize < 1024) {
+            throw new IllegalArgumentException("The segment size must be at least 1024 bytes.");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create journal directory " + directory + ".");
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.appendLock = new ReentrantLock();
+        this.commitMonitor = new Object();
+
+        File[] existing = segmentFiles(directory);
+        segmentIndex = existing.length == 0 ? 0 : segmentIndexOf(existing[existing.length - 1]);
+        openSegment();
+        int offset = endOfRecords(segment);
+        //Clear anything a crash left after the last complete record, so that
+        //new records are never followed by stale bytes. A torn record's length
+        //starts with a zero byte, and pages may reach the disk out of order,
+        //so the whole rest of the segment is cleared
+        boolean cleared = false;
+        for (int i = offset; i < segmentSize; i++) {
+            if (segment.get(i) != 0) {
+                segment.put(i, (byte) 0);
+                cleared = true;
+            }
+        }
+        if (cleared) {
+            segment.force();
+        }
+        segment.position(offset);
+        appendedPosition = (long) segmentIndex * segmentSize + offset;
+        durablePosition = appendedPosition;
+
+        committer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                commitLoop();
+            }
+        }, "BookingJournal-" + directory.getName());
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    /**
+     * Starts journalling the changes to a schedule.
+     *
+     * @param schedule The schedule to journal.
+     */
+    public void attach(CourseSchedule schedule) {
+        schedule.addBookingListener(this);
+    }
+
+    /**
+     * Appends a record of a change. Never throws: a failure to write is kept
+     * and reported by the next {@link BookingJournal#sync() sync}.
+     *
+     * @param schedule The schedule which changed.
+     * @param event The change.
+     * @param student The student concerned.
+     */
+    @Override
+    public void bookingChanged(CourseSchedule schedule, BookingEvent event, Student student) {
+        append(encode(schedule, (byte) event.ordinal(), student.getName().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Appends a record of a change of capacity.
+     *
+     * @param schedule The schedule which changed.
+     * @param courseCapacity The new capacity.
+     */
+    @Override
+    public void capacityChanged(CourseSchedule schedule, int courseCapacity) {
+        append(encode(schedule, CAPACITY_CHANGED, ByteBuffer.allocate(4).putInt(courseCapacity).array()));
+    }
+
+    /**
+     * Appends a record, keeping any failure for the next {@link
+     * BookingJournal#sync() sync}.
+     *
+     * @param record The record, header included.
+     */
+    private void append(byte[] record) {
+        appendLock.lock();
+        try {
+            if (closed || failure != null) {
+                return;
+            }
+            if (record.length > segmentSize) {
+                throw new IOException("A record of " + record.length + " bytes does not fit in a segment.");
+            }
+            if (segment.remaining() < record.length) {
+                nextSegment();
+            }
+            segment.put(record);
+            appendedPosition = (long) segmentIndex * segmentSize + segment.position();
+        } catch (IOException e) {
+            failure = e;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Waits until every record appended so far is on disk. Records appended
+     * by other threads while waiting are forced at the same time.
+     *
+     * @throws IOException if the journal could not be written.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public void sync() throws IOException, InterruptedException {
+        long target = appendedPosition;
+        synchronized (commitMonitor) {
+            while (durablePosition < target && failure == null && !closed) {
+                commitRequested = true;
+                commitMonitor.notifyAll();
+                commitMonitor.wait();
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Forces the journal to disk and closes it. Later changes are not
+     * recorded. An interrupt does not cut short the wait for the committer to
+     * finish, but is kept set on the calling thread.
+     *
+     * @throws IOException if the journal could not be written.
+     */
+    @Override
+    public void close() throws IOException {
+        appendLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            segment.force();
+            segmentFile.close();
+        } finally {
+            appendLock.unlock();
+        }
+        synchronized (commitMonitor) {
+            commitMonitor.notifyAll();
+        }
+        boolean interrupted = false;
+        while (committer.isAlive()) {
+            try {
+                committer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Replays a journal onto a set of freshly created schedules, rebuilding
+     * their rosters and waiting lists in their journalled order. Records for
+     * schedules not in the set are skipped. Students are looked up by name in
+     * each schedule's registry, and created if not found. Should be run before
+     * a journal is attached to the schedules.
+     *
+     * @param directory The directory holding the segment files.
+     * @param schedules The schedules to restore.
+     * @return The number of records applied.
+     * @throws IOException if the journal cannot be read.
+     */
+    public static int replay(File directory, Collection<CourseSchedule> schedules) throws IOException {
+        Map<CourseSchedule, Long> fromPositions = new HashMap<CourseSchedule, Long>();
+        for (CourseSchedule schedule : schedules) {
+            fromPositions.put(schedule, 0L);
+        }
+        return replay(directory, fromPositions);
+    }
+
+    /**
+     * Replays the tail of a journal onto a set of schedules restored from a
+     * {@link ScheduleSnapshot}, applying only each schedule's records from the
+     * journal position its snapshot was taken at.
+     *
+     * @param directory The directory holding the segment files.
+     * @param fromPositions The schedules to restore, each with the journal
+     * position to replay it from.
+     * @return The number of records applied.
+     * @throws IOException if the journal cannot be read.
+     */
+    public static int replay(File directory, Map<CourseSchedule, Long> fromPositions) throws IOException {
+        Map<String, CourseSchedule> byKey = new HashMap<String, CourseSchedule>();
+        for (CourseSchedule schedule : fromPositions.keySet()) {
+            byKey.put(keyOf(schedule.getCourse().getName(), schedule.getStartDate().getTime()), schedule);
+        }
+        Set<CourseSchedule> restored = new HashSet<CourseSchedule>();
+        int applied = 0;
+        for (File file : segmentFiles(directory)) {
+            RandomAccessFile raf = new RandomAccessFile(file, "r");
+            try {
+                long segmentStart = segmentIndexOf(file) * raf.length();
+                MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+                int end = endOfRecords(buffer);
+                buffer.position(0);
+                while (buffer.position() < end) {
+                    long position = segmentStart + buffer.position();
+                    buffer.getLong();
+                    byte type = buffer.get();
+                    long startMillis = buffer.getLong();
+                    String courseName = readString(buffer);
+                    byte[] subject = new byte[buffer.getShort() & 0xFFFF];
+                    buffer.get(subject);
+                    CourseSchedule schedule = byKey.get(keyOf(courseName, startMillis));
+                    if (schedule != null && position >= fromPositions.get(schedule)) {
+                        if (type == CAPACITY_CHANGED) {
+                            schedule.restoreCapacity(ByteBuffer.wrap(subject).getInt());
+                        } else {
+                            String studentName = new String(subject, StandardCharsets.UTF_8);
+                            Student student = schedule.getStudentRegistry().getStudent(studentName);
+                            schedule.restore(EVENTS[type], student == null ? new Student(studentName) : student);
+                        }
+                        restored.add(schedule);
+                        applied++;
+                    }
+                }
+            } finally {
+                raf.close();
+            }
+        }
+        for (CourseSchedule schedule : restored) {
+            schedule.promoteWaitingStudents();
+        }
+        return applied;
+    }
+
+    /**
+     * Deletes the segment files holding only records before a journal
+     * position, such as the oldest position a snapshot replays from.
+     *
+     * @param position The journal position.
+     * @return The number of segment files deleted.
+     * @throws IOException if a segment file cannot be deleted.
+     */
+    public int deleteSegmentsBefore(long position) throws IOException {
+        int deleted = 0;
+        appendLock.lock();
+        try {
+            for (File file : segmentFiles(directory)) {
+                int index = segmentIndexOf(file);
+                if (index < segmentIndex && (long) (index + 1) * segmentSize <= position) {
+                    if (!file.delete()) {
+                        throw new IOException("Cannot delete journal segment " + file + ".");
+                    }
+                    deleted++;
+                }
+            }
+        } finally {
+            appendLock.unlock();
+        }
+        return deleted;
+    }
+
+    /**
+     * Returns the journal position after the last appended record. A record
+     * appended later has a greater position.
+     *
+     * @return {@link BookingJournal#appendedPosition appended position}.
+     */
+    public long getPosition() {
+        return appendedPosition;
+    }
+
+    /**
+     * Returns the directory holding the segment files.
+     *
+     * @return {@link BookingJournal#directory directory}.
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Forces the segment to disk whenever asked, until closed.
+     */
+    private void commitLoop() {
+        for (;;) {
+            synchronized (commitMonitor) {
+                while (!commitRequested && !closed) {
+                    try {
+                        commitMonitor.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (closed) {
+                    commitMonitor.notifyAll();
+                    return;
+                }
+                commitRequested = false;
+            }
+            long target;
+            MappedByteBuffer current;
+            appendLock.lock();
+            try {
+                target = appendedPosition;
+                current = segment;
+            } finally {
+                appendLock.unlock();
+            }
+            //Force outside the append lock so appends carry on meanwhile;
+            //earlier segments were forced when they were rolled over
+            current.force();
+            synchronized (commitMonitor) {
+                if (target > durablePosition) {
+                    durablePosition = target;
+                }
+                commitMonitor.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Forces and closes the current segment and opens the next one.
+     *
+     * @throws IOException if the next segment cannot be created.
+     */
+    private void nextSegment() throws IOException {
+        segment.force();
+        segmentFile.close();
+        segmentIndex++;
+        openSegment();
+        appendedPosition = (long) segmentIndex * segmentSize;
+    }
+
+    /**
+     * Opens and maps the segment file for {@link BookingJournal#segmentIndex
+     * segment index}, creating it if needed.
+     *
+     * @throws IOException if the segment cannot be opened.
+     */
+    private void openSegment() throws IOException {
+        File file = new File(directory, String.format("segment-%08d.journal", segmentIndex));
+        segmentFile = new RandomAccessFile(file, "rw");
+        segmentFile.setLength(segmentSize);
+        segment = segmentFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+    }
+
+    /**
+     * Encodes the record of a change.
+     *
+     * @param schedule The schedule which changed.
+     * @param type The event's ordinal, or {@link BookingJournal#CAPACITY_CHANGED
+     * CAPACITY_CHANGED}.
+     * @param subject The student's name, or the new capacity.
+     * @return The record, header included.
+     */
+    private static byte[] encode(CourseSchedule schedule, byte type, byte[] subject) {
+        byte[] courseName = schedule.getCourse().getName().getBytes(StandardCharsets.UTF_8);
+        int length = 1 + 8 + 2 + courseName.length + 2 + subject.length;
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + length);
+        record.putInt(length);
+        record.putInt(0);
+        record.put(type);
+        record.putLong(schedule.getStartDate().getTime());
+        record.putShort((short) courseName.length);
+        record.put(courseName);
+        record.putShort((short) subject.length);
+        record.put(subject);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), HEADER_SIZE, length);
+        record.putInt(4, (int) crc.getValue());
+        return record.array();
+    }
+
+    /**
+     * Finds the end of the complete records in a segment.
+     *
+     * @param buffer The segment.
+     * @return The offset after the last complete record.
+     */
+    private static int endOfRecords(ByteBuffer buffer) {
+        int offset = 0;
+        int limit = buffer.limit();
+        CRC32 crc = new CRC32();
+        byte[] payload = new byte[0];
+        while (offset + HEADER_SIZE <= limit) {
+            int length = buffer.getInt(offset);
+            if (length <= 0 || length > limit - offset - HEADER_SIZE) {
+                break;
+            }
+            if (payload.length < length) {
+                payload = new byte[length];
+            }
+            ByteBuffer slice = buffer.duplicate();
+            slice.position(offset + HEADER_SIZE);
+            slice.get(payload, 0, length);
+            crc.reset();
+            crc.update(payload, 0, length);
+            if ((int) crc.getValue() != buffer.getInt(offset + 4)) {
+                break;
+            }
+            offset += HEADER_SIZE + length;
+        }
+        return offset;
+    }
+
+    /**
+     * Reads a length-prefixed UTF-8 string.
+     *
+     * @param buffer The buffer to read from.
+     * @return The string.
+     */
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the key identifying a schedule in the journal.
+     *
+     * @param courseName The name of the schedule's course.
+     * @param startMillis The schedule's start time.
+     * @return The key.
+     */
+    private static String keyOf(String courseName, long startMillis) {
+        return courseName + '@' + startMillis;
+    }
+
+    /**
+     * Lists the segment files in a directory in order.
+     *
+     * @param directory The directory to list.
+     * @return The segment files, oldest first.
+     */
+    private static File[] segmentFiles(File directory) {
+        File[] files = directory.listFiles((dir, name) -> name.startsWith("segment-") && name.endsWith(".journal"));
+        if (files == null) {
+            return new File[0];
+        }
+        Arrays.sort(files);
+        return files;
+    }
+
+    /**
+     * Returns the index of a segment file from its name.
+     *
+     * @param file The segment file.
+     * @return The index.
+     */
+    private static int segmentIndexOf(File file) {
+        String name = file.getName();
+        return Integer.parseInt(name.substring("segment-".length(), name.length() - ".journal".length()));
+    }
+}
@@ -0,0 +1,50 @@
+package com.erudine.coursebooking;
+
+import com.erudine.coursebooking.persons.Student;
+import java.util.List;
+
+/**
+ * Receives the changes made to a {@link CourseSchedule}.
+ * <p>
+ * Listeners are called on the thread making the change, under the schedule's
+ * lock and as the change is made, so events arrive in the order the changes
+ * were made and a copy of the schedule taken under its lock reflects exactly
+ * the events reported before it. Listeners must therefore be quick and must
+ * not throw. While no listener is attached, registrations taking a free seat
+ * skip the lock altogether.
+ *
+ * @author Adam Harries
+ * @version 31 Jul 2013
+ */
+public interface BookingListener {
+
+    /**
+     * Called when a student's booking on a schedule changes.
+     *
+     * @param schedule The schedule which changed.
+     * @param event The change.
+     * @param student The student concerned.
+     */
+    void bookingChanged(CourseSchedule schedule, BookingEvent event, Student student);
+
+    /**
+     * Called when a schedule's capacity changes, before any promotions the
+     * change causes are reported. Does nothing unless overridden.
+     *
+     * @param schedule The schedule which changed.
+     * @param courseCapacity The new capacity.
+     */
+    default void capacityChanged(CourseSchedule schedule, int courseCapacity) {
+    }
+
+    /**
+     * Called when a schedule's waiting list is re-ordered under a new {@link
+     * WaitListPolicy}. Does nothing unless overridden.
+     *
+     * @param schedule The schedule which changed.
+     * @param waitListedStudents The waiting students in their new order,
+     * first offered a place first.
+     */
+    default void waitListReordered(CourseSchedule schedule, List<Student> waitListedStudents) {
+    }
+}
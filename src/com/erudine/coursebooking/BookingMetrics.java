@@ -0,0 +1,399 @@
+package com.erudine.coursebooking;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Enables metrics on course schedules and publishes them through JMX: one
+ * {@link ScheduleMetricsMBean} per schedule, named
+ * {@code <domain>:type=CourseSchedule,course=<name>,id=<n>}, and this object
+ * as a {@link BookingMetricsMBean} summing them all, named
+ * {@code <domain>:type=BookingMetrics,id=<n>}. Ids are unique within the
+ * process, so any number of instances can publish to the same domain.
+ * <p>
+ * Metrics cost nothing until a schedule is {@link
+ * BookingMetrics#attach(CourseSchedule) attached}, and stop being counted
+ * once it is {@link BookingMetrics#detach(CourseSchedule) detached} or this
+ * object is {@link BookingMetrics#close() closed}.
+ *
+ * @author Adam Harries
+ * @version 31 Jul 2013
+ */
+public class BookingMetrics implements BookingMetricsMBean, AutoCloseable {
+
+    /**
+     * The JMX domain used by the no-argument constructor.
+     */
+    public static final String DEFAULT_DOMAIN = "com.erudine.coursebooking";
+    /**
+     * The number of schedules listed by {@link
+     * BookingMetrics#getBusiestSchedules() getBusiestSchedules}.
+     */
+    private static final int BUSIEST_SCHEDULES = 10;
+    /**
+     * Numbers the aggregates and schedules, keeping their names unique.
+     */
+    private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+    /**
+     * The server the MBeans are registered with, or null if they are not
+     * published.
+     */
+    private final MBeanServer server;
+    /**
+     * The JMX domain of the MBeans.
+     */
+    private final String domain;
+    /**
+     * The JMX name of this object.
+     */
+    private final ObjectName name;
+    /**
+     * The metrics of each attached schedule, with their JMX names.
+     */
+    private final ConcurrentHashMap<CourseSchedule, Published> published;
+
+    /**
+     * Constructor publishing to the platform MBean server under the {@link
+     * BookingMetrics#DEFAULT_DOMAIN default domain}.
+     */
+    public BookingMetrics() {
+        this(ManagementFactory.getPlatformMBeanServer(), DEFAULT_DOMAIN);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param server The server to register the MBeans with, or null to count
+     * without publishing.
+     * @param domain The JMX domain of the MBeans.
+     */
+    public BookingMetrics(MBeanServer server, String domain) {
+        this.server = server;
+        this.domain = domain;
+        published = new ConcurrentHashMap<CourseSchedule, Published>();
+        name = name("type=BookingMetrics,id=" + NEXT_ID.getAndIncrement());
+        register(this, name);
+    }
+
+    /**
+     * Starts counting a schedule's metrics and publishes them.
+     *
+     * @param schedule The schedule.
+     * @return The schedule's metrics.
+     */
+    public synchronized ScheduleMetrics attach(CourseSchedule schedule) {
+        if (schedule.getMetrics() != null) {
+            throw new IllegalArgumentException("The schedule already has metrics attached.");
+        }
+        ScheduleMetrics metrics = new ScheduleMetrics(schedule);
+        ObjectName name = name("type=CourseSchedule,course=" + ObjectName.quote(schedule.getCourse().getName())
+                + ",id=" + NEXT_ID.getAndIncrement());
+        register(metrics, name);
+        published.put(schedule, new Published(metrics, name));
+        schedule.setMetrics(metrics);
+        return metrics;
+    }
+
+    /**
+     * Stops counting a schedule's metrics and withdraws them.
+     *
+     * @param schedule The schedule.
+     * @return false if the schedule was not attached.
+     */
+    public synchronized boolean detach(CourseSchedule schedule) {
+        Published entry = published.remove(schedule);
+        if (entry == null) {
+            return false;
+        }
+        schedule.setMetrics(null);
+        unregister(entry.name);
+        return true;
+    }
+
+    /**
+     * Detaches every schedule and withdraws this object from the server.
+     */
+    @Override
+    public synchronized void close() {
+        for (CourseSchedule schedule : new ArrayList<CourseSchedule>(published.keySet())) {
+            detach(schedule);
+        }
+        unregister(name);
+    }
+
+    /**
+     * Returns the JMX name of this object.
+     *
+     * @return {@link BookingMetrics#name name}.
+     */
+    public ObjectName getObjectName() {
+        return name;
+    }
+
+    /**
+     * Returns the metrics of an attached schedule.
+     *
+     * @param schedule The schedule.
+     * @return The metrics, or null if the schedule is not attached.
+     */
+    public ScheduleMetrics getMetrics(CourseSchedule schedule) {
+        Published entry = published.get(schedule);
+        return entry == null ? null : entry.metrics;
+    }
+
+    /**
+     * Returns the JMX name of an attached schedule's metrics.
+     *
+     * @param schedule The schedule.
+     * @return The name, or null if the schedule is not attached.
+     */
+    public ObjectName getObjectName(CourseSchedule schedule) {
+        Published entry = published.get(schedule);
+        return entry == null ? null : entry.name;
+    }
+
+    /**
+     * Returns the metrics of every attached schedule.
+     *
+     * @return A snapshot of the metrics.
+     */
+    private List<ScheduleMetrics> metrics() {
+        List<ScheduleMetrics> metrics = new ArrayList<ScheduleMetrics>();
+        for (Published entry : published.values()) {
+            metrics.add(entry.metrics);
+        }
+        return metrics;
+    }
+
+    /**
+     * Sums the attempts with a booking result over every schedule.
+     *
+     * @param result The result.
+     * @return The total.
+     */
+    private long sum(BookingResult result) {
+        long sum = 0;
+        for (ScheduleMetrics metrics : metrics()) {
+            sum += metrics.getBookings(result);
+        }
+        return sum;
+    }
+
+    /**
+     * Sums the cancellations with a result over every schedule.
+     *
+     * @param result The result.
+     * @return The total.
+     */
+    private long sum(CancellationResult result) {
+        long sum = 0;
+        for (ScheduleMetrics metrics : metrics()) {
+            sum += metrics.getCancellations(result);
+        }
+        return sum;
+    }
+
+    @Override
+    public int getScheduleCount() {
+        return published.size();
+    }
+
+    @Override
+    public String[] getBusiestSchedules() {
+        List<ScheduleMetrics> metrics = metrics();
+        final long[] attempts = new long[metrics.size()];
+        List<Integer> order = new ArrayList<Integer>();
+        for (int i = 0; i < attempts.length; i++) {
+            attempts[i] = metrics.get(i).getBookingAttempts();
+            order.add(i);
+        }
+        Collections.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Long.compare(attempts[b], attempts[a]);
+            }
+        });
+        String[] busiest = new String[Math.min(BUSIEST_SCHEDULES, order.size())];
+        for (int i = 0; i < busiest.length; i++) {
+            ScheduleMetrics schedule = metrics.get(order.get(i));
+            busiest[i] = String.format("%s from %tF: %d attempts, %d/%d registered, %d waiting",
+                    schedule.getCourseName(), schedule.getStartDate(), attempts[order.get(i)],
+                    schedule.getRegisteredStudents(), schedule.getCapacity(), schedule.getWaitListDepth());
+        }
+        return busiest;
+    }
+
+    @Override
+    public long getRegisteredStudents() {
+        long sum = 0;
+        for (ScheduleMetrics metrics : metrics()) {
+            sum += metrics.getRegisteredStudents();
+        }
+        return sum;
+    }
+
+    @Override
+    public long getWaitListDepth() {
+        long sum = 0;
+        for (ScheduleMetrics metrics : metrics()) {
+            sum += metrics.getWaitListDepth();
+        }
+        return sum;
+    }
+
+    @Override
+    public long getBookingAttempts() {
+        long sum = 0;
+        for (ScheduleMetrics metrics : metrics()) {
+            sum += metrics.getBookingAttempts();
+        }
+        return sum;
+    }
+
+    @Override
+    public long getRegistrations() {
+        return sum(BookingResult.REGISTERED);
+    }
+
+    @Override
+    public long getWaitListed() {
+        return sum(BookingResult.WAIT_LISTED);
+    }
+
+    @Override
+    public long getDuplicates() {
+        return sum(BookingResult.ALREADY_BOOKED);
+    }
+
+    @Override
+    public long getMissingPreRequisites() {
+        return sum(BookingResult.MISSING_PREREQUISITES);
+    }
+
+    @Override
+    public long getClashes() {
+        return sum(BookingResult.CLASH);
+    }
+
+    @Override
+    public long getRegistrationsClosed() {
+        return sum(BookingResult.REGISTRATION_CLOSED);
+    }
+
+    @Override
+    public long getCancellations() {
+        return sum(CancellationResult.REGISTRATION_CANCELLED);
+    }
+
+    @Override
+    public long getWaitListWithdrawals() {
+        return sum(CancellationResult.LEFT_WAITING_LIST);
+    }
+
+    @Override
+    public long getPromotions() {
+        long sum = 0;
+        for (ScheduleMetrics metrics : metrics()) {
+            sum += metrics.getPromotions();
+        }
+        return sum;
+    }
+
+    @Override
+    public long getLockContentions() {
+        long sum = 0;
+        for (ScheduleMetrics metrics : metrics()) {
+            sum += metrics.getLockContentions();
+        }
+        return sum;
+    }
+
+    @Override
+    public void reset() {
+        for (ScheduleMetrics metrics : metrics()) {
+            metrics.reset();
+        }
+    }
+
+    /**
+     * Builds a name in the domain.
+     *
+     * @param properties The key properties of the name.
+     * @return The name.
+     */
+    private ObjectName name(String properties) {
+        try {
+            return new ObjectName(domain + ":" + properties);
+        } catch (JMException ex) {
+            throw new IllegalArgumentException("Invalid JMX name for domain " + domain + ".", ex);
+        }
+    }
+
+    /**
+     * Registers an MBean, if publishing.
+     *
+     * @param mbean The MBean.
+     * @param name Its name.
+     */
+    private void register(Object mbean, ObjectName name) {
+        if (server == null) {
+            return;
+        }
+        try {
+            server.registerMBean(mbean, name);
+        } catch (JMException ex) {
+            throw new IllegalStateException("Could not register " + name + ".", ex);
+        }
+    }
+
+    /**
+     * Unregisters an MBean, if publishing and still registered.
+     *
+     * @param name Its name.
+     */
+    private void unregister(ObjectName name) {
+        if (server == null || !server.isRegistered(name)) {
+            return;
+        }
+        try {
+            server.unregisterMBean(name);
+        } catch (JMException ex) {
+            throw new IllegalStateException("Could not unregister " + name + ".", ex);
+        }
+    }
+
+    /**
+     * The metrics of an attached schedule with their JMX name.
+     */
+    private static final class Published {
+
+        /**
+         * The schedule's metrics.
+         */
+        final ScheduleMetrics metrics;
+        /**
+         * Their JMX name.
+         */
+        final ObjectName name;
+
+        /**
+         * Constructor.
+         *
+         * @param metrics The schedule's metrics.
+         * @param name Their JMX name.
+         */
+        Published(ScheduleMetrics metrics, ObjectName name) {
+            this.metrics = metrics;
+            this.name = name;
+        }
+    }
+}
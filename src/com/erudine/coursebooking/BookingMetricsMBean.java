@@ -0,0 +1,124 @@
+package com.erudine.coursebooking;
+
+/**
+ * Management interface of the metrics of every {@link CourseSchedule}
+ * attached to a {@link BookingMetrics}, summed together.
+ *
+ * @author Adam Harries
+ * @version 31 Jul 2013
+ */
+public interface BookingMetricsMBean {
+
+    /**
+     * Returns the number of schedules counted.
+     *
+     * @return The number of schedules.
+     */
+    int getScheduleCount();
+
+    /**
+     * Describes the schedules with the most booking attempts, busiest first.
+     *
+     * @return One line per schedule, at most ten.
+     */
+    String[] getBusiestSchedules();
+
+    /**
+     * Returns the number of students registered now.
+     *
+     * @return The number of registrations held.
+     */
+    long getRegisteredStudents();
+
+    /**
+     * Returns the number of students on waiting lists now.
+     *
+     * @return The total depth of the waiting lists.
+     */
+    long getWaitListDepth();
+
+    /**
+     * Returns the number of booking attempts, whatever their outcome.
+     *
+     * @return The number of attempts.
+     */
+    long getBookingAttempts();
+
+    /**
+     * Returns the number of bookings given a seat straight away.
+     *
+     * @return The number of registrations.
+     */
+    long getRegistrations();
+
+    /**
+     * Returns the number of bookings which found the course full and joined
+     * the waiting list.
+     *
+     * @return The number of wait-listed bookings.
+     */
+    long getWaitListed();
+
+    /**
+     * Returns the number of bookings rejected as the student was already
+     * registered or waiting.
+     *
+     * @return The number of duplicate bookings.
+     */
+    long getDuplicates();
+
+    /**
+     * Returns the number of bookings rejected for missing prerequisites.
+     *
+     * @return The number of ineligible bookings.
+     */
+    long getMissingPreRequisites();
+
+    /**
+     * Returns the number of bookings rejected for clashing dates.
+     *
+     * @return The number of clashing bookings.
+     */
+    long getClashes();
+
+    /**
+     * Returns the number of bookings rejected outside the registration window.
+     *
+     * @return The number of late or early bookings.
+     */
+    long getRegistrationsClosed();
+
+    /**
+     * Returns the number of registered students who cancelled.
+     *
+     * @return The number of cancelled registrations.
+     */
+    long getCancellations();
+
+    /**
+     * Returns the number of students who left a waiting list.
+     *
+     * @return The number of withdrawals from waiting lists.
+     */
+    long getWaitListWithdrawals();
+
+    /**
+     * Returns the number of students promoted from a waiting list.
+     *
+     * @return The number of promotions.
+     */
+    long getPromotions();
+
+    /**
+     * Returns the number of times a wait list lock was found held by another
+     * thread.
+     *
+     * @return The number of contended lock acquisitions.
+     */
+    long getLockContentions();
+
+    /**
+     * Sets every counter of every schedule back to zero.
+     */
+    void reset();
+}
@@ -0,0 +1,35 @@
+package com.erudine.coursebooking;
+
+/**
+ * The outcome of an attempt to book a place on a {@link CourseSchedule}.
+ *
+ * @author Adam Harries
+ * @version 31 Jul 2013
+ */
+public enum BookingResult {
+
+    /**
+     * The student was given a seat on the course.
+     */
+    REGISTERED,
+    /**
+     * The course was full, so the student joined the end of the waiting list.
+     */
+    WAIT_LISTED,
+    /**
+     * The student was already registered or on the waiting list.
+     */
+    ALREADY_BOOKED,
+    /**
+     * The student has not taken every prerequisite of the course.
+     */
+    MISSING_PREREQUISITES,
+    /**
+     * The course's dates overlap a schedule the student has already booked.
+     */
+    CLASH,
+    /**
+     * The booking was made outside the schedule's registration window.
+     */
+    REGISTRATION_CLOSED
+}
@@ -0,0 +1,457 @@
+package com.erudine.coursebooking;
+
+import com.erudine.coursebooking.persons.Student;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Front end owning a set of {@link CourseSchedule}s. Every booking,
+ * cancellation and query is run as its own task on the service's executor,
+ * which by default starts one virtual thread per task when the runtime
+ * supports them, so that a very large number of requests can be in flight at
+ * once without sizing a thread pool. On older runtimes a cached pool of
+ * platform threads is used instead.
+ * <p>
+ * Bookings and cancellations on each schedule pass through a first come,
+ * first served admission queue: a burst of requests for a popular course is
+ * admitted in arrival order and cannot starve requests for other courses,
+ * which have their own queues. A request waiting for admission holds no
+ * thread; it is handed to the executor only when admitted, so on a pool of
+ * platform threads the number of threads busy with bookings never exceeds
+ * the permits in use. Queries read the schedules' lock-free state and are
+ * not throttled.
+ *
+ * @author Adam Harries
+ * @version 31 Jul 2013
+ */
+public class BookingService implements AutoCloseable {
+
+    /**
+     * The schedules owned by the service, each with the queue admitting
+     * bookings and cancellations on it.
+     */
+    private final ConcurrentHashMap<CourseSchedule, Admission> schedules;
+    /**
+     * The executor running each request.
+     */
+    private final ExecutorService executor;
+    /**
+     * The number of bookings and cancellations admitted to one schedule at
+     * a time.
+     */
+    private final int permitsPerSchedule;
+    /**
+     * Whether the service has stopped accepting requests.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Constructor. Requests run on virtual threads where available, and each
+     * schedule admits as many concurrent bookings as there are processors.
+     */
+    public BookingService() {
+        this(newDefaultExecutor(), Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param executor The executor to run requests on. It is shut down when
+     * the service is closed.
+     * @param permitsPerSchedule The number of bookings and cancellations
+     * admitted to one schedule at a time; 1 gives strict arrival order.
+     */
+    public BookingService(ExecutorService executor, int permitsPerSchedule) {
+        if (permitsPerSchedule < 1) {
+            throw new IllegalArgumentException("At least one permit per schedule is required.");
+        }
+        this.schedules = new ConcurrentHashMap<CourseSchedule, Admission>();
+        this.executor = executor;
+        this.permitsPerSchedule = permitsPerSchedule;
+    }
+
+    /**
+     * Adds a schedule to those owned by the service.
+     *
+     * @param schedule The schedule to add.
+     * @return false if the service already owned the schedule.
+     */
+    public boolean addSchedule(CourseSchedule schedule) {
+        return schedules.putIfAbsent(schedule, new Admission(permitsPerSchedule)) == null;
+    }
+
+    /**
+     * Returns the schedules owned by the service.
+     *
+     * @return A read-only view of the schedules.
+     */
+    public Collection<CourseSchedule> getSchedules() {
+        return Collections.unmodifiableSet(schedules.keySet());
+    }
+
+    /**
+     * Returns the schedules owned by the service for a course.
+     *
+     * @param course The course to look up.
+     * @return The schedules running the course.
+     */
+    public List<CourseSchedule> getSchedules(Course course) {
+        List<CourseSchedule> matching = new ArrayList<CourseSchedule>();
+        for (CourseSchedule schedule : schedules.keySet()) {
+            if (schedule.getCourse().equals(course)) {
+                matching.add(schedule);
+            }
+        }
+        return matching;
+    }
+
+    /**
+     * Books a student onto a schedule, waiting for the outcome.
+     *
+     * @param schedule The schedule to book.
+     * @param student The prospective student.
+     * @return The outcome of the booking.
+     */
+    public BookingResult book(CourseSchedule schedule, Student student) {
+        return await(bookAsync(schedule, student));
+    }
+
+    /**
+     * Books a student onto a schedule.
+     *
+     * @param schedule The schedule to book.
+     * @param student The prospective student.
+     * @return A future completed with the outcome of the booking.
+     */
+    public CompletableFuture<BookingResult> bookAsync(final CourseSchedule schedule, final Student student) {
+        return admitAsync(schedule, s -> s.book(student));
+    }
+
+    /**
+     * Cancels a student's booking on a schedule, waiting for the outcome.
+     *
+     * @param schedule The schedule to cancel.
+     * @param student The student to de-register.
+     * @return The outcome of the cancellation.
+     */
+    public CancellationResult cancel(CourseSchedule schedule, Student student) {
+        return await(cancelAsync(schedule, student));
+    }
+
+    /**
+     * Cancels a student's booking on a schedule.
+     *
+     * @param schedule The schedule to cancel.
+     * @param student The student to de-register.
+     * @return A future completed with the outcome of the cancellation.
+     */
+    public CompletableFuture<CancellationResult> cancelAsync(final CourseSchedule schedule, final Student student) {
+        return admitAsync(schedule, s -> s.cancel(student));
+    }
+
+    /**
+     * Runs a read-only query against a schedule, waiting for the result.
+     *
+     * @param <T> The type of the result.
+     * @param schedule The schedule to query.
+     * @param query The query, which must not book or cancel.
+     * @return The result of the query.
+     */
+    public <T> T query(CourseSchedule schedule, Function<CourseSchedule, T> query) {
+        return await(queryAsync(schedule, query));
+    }
+
+    /**
+     * Runs a read-only query against a schedule.
+     *
+     * @param <T> The type of the result.
+     * @param schedule The schedule to query.
+     * @param query The query, which must not book or cancel.
+     * @return A future completed with the result of the query.
+     */
+    public <T> CompletableFuture<T> queryAsync(final CourseSchedule schedule, final Function<CourseSchedule, T> query) {
+        checkOwned(schedule);
+        if (closed) {
+            CompletableFuture<T> refused = new CompletableFuture<T>();
+            refused.completeExceptionally(new RejectedExecutionException("The service is closed."));
+            return refused;
+        }
+        return CompletableFuture.supplyAsync(() -> query.apply(schedule), executor);
+    }
+
+    /**
+     * Stops accepting requests and waits for those in flight to finish,
+     * including those still waiting for admission, before shutting the
+     * executor down. Requests made after closing are failed with a {@link
+     * RejectedExecutionException}. An interrupt does not cut the wait short,
+     * but is kept set on the calling thread.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        boolean interrupted = false;
+        for (Admission admission : schedules.values()) {
+            interrupted |= admission.awaitDrained();
+        }
+        executor.shutdown();
+        while (!executor.isTerminated()) {
+            try {
+                executor.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                //Keep waiting for in-flight requests
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Runs a booking or cancellation once admitted by the schedule's queue.
+     *
+     * @param <T> The type of the result.
+     * @param schedule The schedule to change.
+     * @param operation The booking or cancellation.
+     * @return A future completed with the result of the operation.
+     */
+    private <T> CompletableFuture<T> admitAsync(final CourseSchedule schedule, final Function<CourseSchedule, T> operation) {
+        Admission admission = checkOwned(schedule);
+        Request<T> request = new Request<T>(admission, schedule, operation);
+        admission.submit(request);
+        return request.future;
+    }
+
+    /**
+     * Checks that the service owns a schedule.
+     *
+     * @param schedule The schedule to check.
+     * @return The schedule's admission queue.
+     * @throws IllegalArgumentException if the service does not own it.
+     */
+    private Admission checkOwned(CourseSchedule schedule) {
+        Admission admission = schedules.get(schedule);
+        if (admission == null) {
+            throw new IllegalArgumentException("The schedule is not owned by this service.");
+        }
+        return admission;
+    }
+
+    /**
+     * Waits for a future, rethrowing an unchecked failure as itself.
+     *
+     * @param <T> The type of the result.
+     * @param future The future to wait for.
+     * @return The result.
+     */
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Creates the default executor: one virtual thread per task where the
+     * runtime provides them, otherwise a cached pool of daemon threads.
+     *
+     * @return The executor.
+     */
+    static ExecutorService newDefaultExecutor() {
+        try {
+            //Looked up reflectively so that the service still builds and runs
+            //on runtimes without virtual threads
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            final AtomicInteger count = new AtomicInteger();
+            return Executors.newCachedThreadPool(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "BookingService-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+    }
+
+    /**
+     * The admission queue of one schedule: runs up to a number of requests
+     * at a time on the executor and holds the rest, in arrival order,
+     * without a thread.
+     */
+    private final class Admission {
+
+        /**
+         * The number of requests run at a time.
+         */
+        private final int permits;
+        /**
+         * The requests waiting for admission, oldest first.
+         */
+        private final ArrayDeque<Request<?>> waiting;
+        /**
+         * The number of requests admitted and not yet finished.
+         */
+        private int running;
+
+        /**
+         * Constructor.
+         *
+         * @param permits The number of requests run at a time.
+         */
+        Admission(int permits) {
+            this.permits = permits;
+            this.waiting = new ArrayDeque<Request<?>>();
+        }
+
+        /**
+         * Runs a request now if a permit is free, otherwise queues it.
+         *
+         * @param request The request.
+         */
+        void submit(Request<?> request) {
+            synchronized (this) {
+                if (closed) {
+                    request.future.completeExceptionally(new RejectedExecutionException("The service is closed."));
+                    return;
+                }
+                if (running == permits) {
+                    waiting.add(request);
+                    return;
+                }
+                running++;
+            }
+            execute(request);
+        }
+
+        /**
+         * Hands a finished request's permit to the oldest waiting request, or
+         * frees it.
+         */
+        void finished() {
+            Request<?> next = next();
+            if (next != null) {
+                execute(next);
+            }
+        }
+
+        /**
+         * Takes the oldest waiting request, passing it a finished request's
+         * permit, or frees the permit if none is waiting.
+         *
+         * @return The request, or null if none was waiting.
+         */
+        private synchronized Request<?> next() {
+            Request<?> next = waiting.poll();
+            if (next == null && --running == 0) {
+                notifyAll();
+            }
+            return next;
+        }
+
+        /**
+         * Waits until no request is running or waiting. Must be called once
+         * the service is closed, so that no more requests arrive.
+         *
+         * @return Whether the wait was interrupted.
+         */
+        synchronized boolean awaitDrained() {
+            boolean interrupted = false;
+            while (running > 0) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            return interrupted;
+        }
+
+        /**
+         * Hands an admitted request to the executor. If the executor refuses
+         * it, the request is failed and its permit passed on, in a loop rather
+         * than by recursion so that a long queue cannot overflow the stack.
+         *
+         * @param request The request.
+         */
+        private void execute(Request<?> request) {
+            while (request != null) {
+                try {
+                    executor.execute(request);
+                    return;
+                } catch (RejectedExecutionException e) {
+                    request.future.completeExceptionally(e);
+                    request = next();
+                }
+            }
+        }
+    }
+
+    /**
+     * A booking or cancellation with the future for its result.
+     *
+     * @param <T> The type of the result.
+     */
+    private static final class Request<T> implements Runnable {
+
+        /**
+         * The queue which admitted the request.
+         */
+        private final Admission admission;
+        /**
+         * The schedule to change.
+         */
+        private final CourseSchedule schedule;
+        /**
+         * The booking or cancellation.
+         */
+        private final Function<CourseSchedule, T> operation;
+        /**
+         * The future completed with the result.
+         */
+        private final CompletableFuture<T> future;
+
+        /**
+         * Constructor.
+         *
+         * @param admission The queue admitting the request.
+         * @param schedule The schedule to change.
+         * @param operation The booking or cancellation.
+         */
+        Request(Admission admission, CourseSchedule schedule, Function<CourseSchedule, T> operation) {
+            this.admission = admission;
+            this.schedule = schedule;
+            this.operation = operation;
+            this.future = new CompletableFuture<T>();
+        }
+
+        @Override
+        public void run() {
+            try {
+                future.complete(operation.apply(schedule));
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            } finally {
+                admission.finished();
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.erudine.coursebooking;
+
+/**
+ * The outcome of an attempt to cancel a booking on a {@link CourseSchedule}.
+ *
+ * @author Adam Harries
+ * @version 31 Jul 2013
+ */
+public enum CancellationResult {
+
+    /**
+     * The student's seat was released, and given to the first wait-listed
+     * student if there was one.
+     */
+    REGISTRATION_CANCELLED,
+    /**
+     * The student was removed from the waiting list.
+     */
+    LEFT_WAITING_LIST,
+    /**
+     * The student was neither registered nor on the waiting list.
+     */
+    NOT_BOOKED
+}
@@ -0,0 +1,22 @@
+package com.erudine.coursebooking;
+
+/**
+ * What a {@link CourseSchedule} does when its capacity is lowered below the
+ * number of students already registered.
+ *
+ * @author Adam Harries
+ * @version 31 Jul 2013
+ */
+public enum CapacityOverflowRule {
+
+    /**
+     * The capacity is left unchanged and the change fails.
+     */
+    REJECT,
+    /**
+     * Every registered student keeps their seat. The course stays over
+     * capacity, with seats given up by cancellations withdrawn rather than
+     * offered to the waiting list, until it is back within capacity.
+     */
+    KEEP_REGISTERED
+}
@@ -0,0 +1,110 @@
+package com.erudine.coursebooking;
+
+import com.erudine.coursebooking.persons.Student;
+import com.erudine.coursebooking.util.IntervalSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stops students booking schedules which overlap in time. Shared by the
+ * schedules it should check between, it keeps an {@link IntervalSet} per
+ * student of the dates of every schedule they are registered or wait-listed
+ * on, so a new booking is checked against all of them in logarithmic time
+ * however many years of courses the student carries. A student's timetable is
+ * dropped as soon as it holds no schedules. A schedule runs from its start
+ * date up to but not including its end date.
+ *
+ * @author Adam Harries
+ * @version 31 Jul 2013
+ */
+public class ClashDetector {
+
+    /**
+     * The booked dates of each student with at least one booking.
+     */
+    private final ConcurrentHashMap<Student, IntervalSet<CourseSchedule>> timetables;
+
+    /**
+     * Constructor.
+     */
+    public ClashDetector() {
+        timetables = new ConcurrentHashMap<Student, IntervalSet<CourseSchedule>>();
+    }
+
+    /**
+     * Reserves a schedule's dates in a student's timetable unless they clash
+     * with a schedule already booked.
+     *
+     * @param student The student.
+     * @param schedule The schedule being booked.
+     * @return The schedule clashed with, or null if the dates were reserved.
+     */
+    public CourseSchedule reserve(Student student, CourseSchedule schedule) {
+        long start = schedule.getStartDate().getTime();
+        long end = schedule.getEndDate().getTime();
+        for (;;) {
+            IntervalSet<CourseSchedule> timetable = timetables.get(student);
+            if (timetable == null) {
+                IntervalSet<CourseSchedule> created = new IntervalSet<CourseSchedule>();
+                timetable = timetables.putIfAbsent(student, created);
+                if (timetable == null) {
+                    timetable = created;
+                }
+            }
+            synchronized (timetable) {
+                if (timetables.get(student) != timetable) {
+                    //Emptied and dropped meanwhile: start a new one
+                    continue;
+                }
+                CourseSchedule clash = timetable.findOverlap(start, end);
+                if (clash == null) {
+                    timetable.add(start, end, schedule);
+                }
+                return clash;
+            }
+        }
+    }
+
+    /**
+     * Releases a schedule's dates from a student's timetable.
+     *
+     * @param student The student.
+     * @param schedule The schedule no longer booked.
+     */
+    public void release(Student student, CourseSchedule schedule) {
+        IntervalSet<CourseSchedule> timetable = timetables.get(student);
+        if (timetable != null) {
+            synchronized (timetable) {
+                timetable.remove(schedule.getStartDate().getTime(), schedule);
+                if (timetable.isEmpty()) {
+                    timetables.remove(student, timetable);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the schedule a booking would clash with, without reserving it.
+     *
+     * @param student The student.
+     * @param schedule The schedule to check.
+     * @return The schedule clashed with, or null if there is no clash.
+     */
+    public CourseSchedule findClash(Student student, CourseSchedule schedule) {
+        IntervalSet<CourseSchedule> timetable = timetables.get(student);
+        if (timetable == null) {
+            return null;
+        }
+        synchronized (timetable) {
+            return timetable.findOverlap(schedule.getStartDate().getTime(), schedule.getEndDate().getTime());
+        }
+    }
+
+    /**
+     * Returns the number of students with at least one schedule booked.
+     *
+     * @return The number of timetables held.
+     */
+    public int size() {
+        return timetables.size();
+    }
+}
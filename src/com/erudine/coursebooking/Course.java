@@ -1,6 +1,8 @@
 package com.erudine.coursebooking;
 
+import com.erudine.coursebooking.util.ImmutableBitSet;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -8,6 +10,11 @@ import java.util.Set;
  * Class representation of a single college course which contains an course name
  * and a collection of prerequisite courses that students must have already
  * taken before enrolling.
+ * <p>
+ * Courses are usually interned in a {@link CourseCatalog}, which gives each
+ * one a dense ordinal. Once the catalog is published the prerequisite set of
+ * each of its courses is frozen, and new prerequisites are added through the
+ * catalog so that its transitive prerequisites stay up to date.
  *
  * @author Adam Harries
  * @version 31 Jul 2013
@@ -21,7 +28,29 @@ public class Course {
     /**
      * A set of prerequisite courses that have been taken before enrolling.
      */
-    private Set<Course> preRequisites;
+    private volatile Set<Course> preRequisites;
+    /**
+     * The hash code, computed once from the immutable name.
+     */
+    private final int hash;
+    /**
+     * The catalog which has interned this course, or null if none has.
+     */
+    private volatile CourseCatalog catalog;
+    /**
+     * The ordinal given to this course by {@link Course#catalog catalog}, or
+     * -1 if it has not been interned.
+     */
+    private int ordinal;
+    /**
+     * Whether the prerequisite set has been frozen by publishing the catalog.
+     */
+    private volatile boolean published;
+    /**
+     * The ordinals of the prerequisite courses, or null until the catalog is
+     * published.
+     */
+    private volatile ImmutableBitSet preRequisiteBits;
 
     /**
      * Constructor.
@@ -31,6 +60,10 @@ public class Course {
     public Course(String name) {
         this.name = name;
         this.preRequisites = new HashSet<Course>();
+        int h = 3;
+        h = 29 * h + (name != null ? name.hashCode() : 0);
+        this.hash = h;
+        this.ordinal = -1;
     }
 
     /**
@@ -50,8 +83,13 @@ public class Course {
      *
      * @param preRequisiteCourse The prerequisite course to add to the set.
      * @return The boolean result of attempting to add the prerequisite course.
+     * @throws IllegalArgumentException if the course's catalog has been
+     * published and the prerequisite would create a cycle.
      */
     public final boolean addPreRequisite(Course preRequisiteCourse) {
+        if (published) {
+            return catalog.addPreRequisite(this, preRequisiteCourse);
+        }
         return preRequisites.add(preRequisiteCourse);
     }
 
@@ -60,8 +98,17 @@ public class Course {
      *
      * @param preRequisites The collection of prerequisite courses to add.
      * @return The boolean result of attempting to add the prerequisite courses.
+     * @throws IllegalArgumentException if the course's catalog has been
+     * published and a prerequisite would create a cycle.
      */
     public final boolean addPreRequisites(Collection<Course> preRequisites) {
+        if (published) {
+            boolean changed = false;
+            for (Course preRequisite : preRequisites) {
+                changed |= catalog.addPreRequisite(this, preRequisite);
+            }
+            return changed;
+        }
         return this.preRequisites.addAll(preRequisites);
     }
 
@@ -92,7 +139,8 @@ public class Course {
     }
 
     /**
-     * Returns the set of prerequisite courses.
+     * Returns the set of prerequisite courses. The set is read-only once the
+     * course's catalog has been published.
      *
      * @return {@link Course#preRequisites preRequisites}.
      */
@@ -100,6 +148,74 @@ public class Course {
         return preRequisites;
     }
 
+    /**
+     * Returns the ordinal given to this course by its catalog.
+     *
+     * @return {@link Course#ordinal ordinal}, or -1 if the course has not been
+     * interned.
+     */
+    public int getOrdinal() {
+        return catalog == null ? -1 : ordinal;
+    }
+
+    /**
+     * Returns the catalog which has interned this course.
+     *
+     * @return {@link Course#catalog catalog}, or null.
+     */
+    public CourseCatalog getCatalog() {
+        return catalog;
+    }
+
+    /**
+     * Returns the catalog ordinals of the prerequisite courses, for checking
+     * eligibility with a single bitset comparison.
+     *
+     * @return {@link Course#preRequisiteBits preRequisiteBits}, or null if the
+     * prerequisites have not been frozen.
+     */
+    public ImmutableBitSet getPreRequisiteBits() {
+        return preRequisiteBits;
+    }
+
+    /**
+     * Checks whether the prerequisite set has been frozen.
+     *
+     * @return {@link Course#published published}.
+     */
+    public boolean isPublished() {
+        return published;
+    }
+
+    /**
+     * Records the ordinal given to this course by a catalog.
+     *
+     * @param catalog The catalog interning the course.
+     * @param ordinal The ordinal it gave the course.
+     */
+    void setCatalog(CourseCatalog catalog, int ordinal) {
+        //Write the ordinal before publishing the catalog through the volatile
+        this.ordinal = ordinal;
+        this.catalog = catalog;
+    }
+
+    /**
+     * Freezes the prerequisite set.
+     *
+     * @param canonicalPreRequisites The prerequisites, as interned by the
+     * course's catalog.
+     */
+    void publish(Set<Course> canonicalPreRequisites) {
+        int[] ordinals = new int[canonicalPreRequisites.size()];
+        int i = 0;
+        for (Course preRequisite : canonicalPreRequisites) {
+            ordinals[i++] = preRequisite.getOrdinal();
+        }
+        preRequisites = Collections.unmodifiableSet(canonicalPreRequisites);
+        preRequisiteBits = ImmutableBitSet.of(ordinals);
+        published = true;
+    }
+
     /**
      * Overridden equality method: Course are considered equal if they have the
      * same name.
@@ -126,11 +242,15 @@ public class Course {
         return true;
     }
 
+    /**
+     * Overridden hash method: consistent with {@link Course#equals(Object)
+     * equals}, so only the immutable name contributes and the hash is computed
+     * once rather than walking the prerequisites on every call.
+     *
+     * @return The hash code.
+     */
     @Override
     public int hashCode() {
-        int hash = 3;
-        hash = 29 * hash + (this.name != null ? this.name.hashCode() : 0);
-        hash = 29 * hash + (this.preRequisites != null ? this.preRequisites.hashCode() : 0);
         return hash;
     }
 }
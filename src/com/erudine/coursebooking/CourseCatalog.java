@@ -0,0 +1,359 @@
+package com.erudine.coursebooking;
+
+import com.erudine.coursebooking.util.ImmutableBitSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Catalog of every {@link Course} offered by the college. Each course is
+ * interned by name, so there is a single canonical Course instance per name,
+ * and is given a dense ordinal starting from 0. Publishing the catalog
+ * freezes the prerequisite set of every course in it, rejects prerequisite
+ * cycles and computes the transitive prerequisites of every course. After
+ * publication, new courses and prerequisites are checked for cycles and
+ * folded into the transitive prerequisites as they are added.
+ *
+ * @author Adam Harries
+ * @version 31 Jul 2013
+ */
+public class CourseCatalog {
+
+    /**
+     * Index from course name to the canonical course.
+     */
+    private final ConcurrentHashMap<String, Course> coursesByName;
+    /**
+     * The canonical courses, indexed by ordinal. Replaced with a larger copy
+     * when full, so readers never need the lock.
+     */
+    private volatile Course[] coursesByOrdinal;
+    /**
+     * The number of ordinals handed out.
+     */
+    private volatile int size;
+    /**
+     * Whether the catalog has been published.
+     */
+    private volatile boolean published;
+    /**
+     * The prerequisite graph, or null until the catalog is published.
+     */
+    private volatile PrerequisiteGraph graph;
+
+    /**
+     * Constructor.
+     */
+    public CourseCatalog() {
+        coursesByName = new ConcurrentHashMap<String, Course>();
+        coursesByOrdinal = new Course[64];
+    }
+
+    /**
+     * Returns the canonical course with the given name, creating it with no
+     * prerequisites if it has not been seen before.
+     *
+     * @param name The course name.
+     * @return The canonical course.
+     */
+    public Course intern(String name) {
+        Course course = coursesByName.get(name);
+        return course != null ? course : intern(new Course(name));
+    }
+
+    /**
+     * Returns the canonical course equal to the given one. If the catalog has
+     * no course with that name the given course becomes the canonical one,
+     * and its prerequisites are interned along with it.
+     *
+     * @param course The course to intern.
+     * @return The canonical course.
+     */
+    public Course intern(Course course) {
+        if (course.getCatalog() == this) {
+            return course;
+        }
+        Course existing = coursesByName.get(course.getName());
+        if (existing != null) {
+            return existing;
+        }
+        synchronized (this) {
+            existing = coursesByName.get(course.getName());
+            if (existing != null) {
+                return existing;
+            }
+            Map<String, Course> pending = uncatalogued(Collections.singletonList(course));
+            if (!published) {
+                for (Course newCourse : pending.values()) {
+                    add(newCourse);
+                }
+                return course;
+            }
+            //Reject a cycle among the new courses before adding any of them,
+            //then add them prerequisites first so closures can be built
+            List<Course> ordered = PrerequisiteGraph.topologicalOrder(pending.values());
+            for (Course newCourse : ordered) {
+                add(newCourse);
+            }
+            for (Course newCourse : ordered) {
+                newCourse.publish(canonicalise(newCourse.getPreRequisites()));
+                graph.add(newCourse);
+            }
+            return course;
+        }
+    }
+
+    /**
+     * Gathers the courses not yet in the catalog among some courses and their
+     * direct and indirect prerequisites, walking the graph iteratively so that
+     * long prerequisite chains cannot overflow the stack. Must be called
+     * holding the lock.
+     *
+     * @param from The courses to start from.
+     * @return The new courses by name, in the order they were reached.
+     * @throws IllegalArgumentException if a new course belongs to another
+     * catalog.
+     */
+    private Map<String, Course> uncatalogued(Collection<Course> from) {
+        Map<String, Course> pending = new LinkedHashMap<String, Course>();
+        for (Course course : from) {
+            if (!coursesByName.containsKey(course.getName())) {
+                pending.put(course.getName(), course);
+            }
+        }
+        List<Course> walk = new ArrayList<Course>(from);
+        for (int i = 0; i < walk.size(); i++) {
+            for (Course preRequisite : walk.get(i).getPreRequisites()) {
+                if (!coursesByName.containsKey(preRequisite.getName())
+                        && !pending.containsKey(preRequisite.getName())) {
+                    pending.put(preRequisite.getName(), preRequisite);
+                    walk.add(preRequisite);
+                }
+            }
+        }
+        for (Course newCourse : pending.values()) {
+            if (newCourse.getCatalog() != null) {
+                throw new IllegalArgumentException(newCourse.getName() + " belongs to another catalog.");
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * Adds a course to the catalog under the next ordinal unless a course
+     * with the same name is already present. Must be called holding the lock.
+     *
+     * @param course The course to add.
+     * @return The canonical course.
+     */
+    private Course add(Course course) {
+        Course existing = coursesByName.get(course.getName());
+        if (existing != null) {
+            return existing;
+        }
+        int ordinal = size;
+        if (ordinal == coursesByOrdinal.length) {
+            coursesByOrdinal = Arrays.copyOf(coursesByOrdinal, ordinal * 2);
+        }
+        coursesByOrdinal[ordinal] = course;
+        course.setCatalog(this, ordinal);
+        coursesByName.put(course.getName(), course);
+        size = ordinal + 1;
+        return course;
+    }
+
+    /**
+     * Freezes the prerequisite set of every course in the catalog, replacing
+     * any prerequisite which is not the canonical instance with the one that
+     * is, and computes the transitive prerequisites of every course.
+     *
+     * @throws IllegalStateException if the prerequisites form a cycle, in which
+     * case the catalog is left unpublished and unchanged.
+     */
+    public synchronized void publish() {
+        if (published) {
+            return;
+        }
+        //Prerequisites added since interning may not be in the catalog yet:
+        //check the whole graph for a cycle before adding any of them
+        List<Course> courses = getCourses();
+        Map<String, Course> pending = uncatalogued(courses);
+        List<Course> batch = new ArrayList<Course>(courses);
+        batch.addAll(pending.values());
+        List<Course> ordered = PrerequisiteGraph.topologicalOrder(batch);
+        for (Course newCourse : pending.values()) {
+            add(newCourse);
+        }
+        PrerequisiteGraph newGraph = new PrerequisiteGraph();
+        for (Course course : ordered) {
+            course.publish(canonicalise(course.getPreRequisites()));
+            newGraph.add(course);
+        }
+        graph = newGraph;
+        published = true;
+    }
+
+    /**
+     * Adds a prerequisite to a published course, extending the transitive
+     * prerequisites of the course and of every course which depends on it.
+     * Called by {@link Course#addPreRequisite(Course)} once the course's
+     * prerequisites are frozen.
+     *
+     * @param course The course gaining the prerequisite, which must belong to
+     * this catalog.
+     * @param preRequisite The new prerequisite, interned if necessary.
+     * @return false if the course already had the prerequisite.
+     * @throws IllegalArgumentException if the prerequisite would create a
+     * cycle.
+     */
+    synchronized boolean addPreRequisite(Course course, Course preRequisite) {
+        Course canonical = intern(preRequisite);
+        if (course.getPreRequisites().contains(canonical)) {
+            return false;
+        }
+        if (graph.wouldCreateCycle(course, canonical)) {
+            throw new IllegalArgumentException("Making " + canonical.getName() + " a prerequisite of "
+                    + course.getName() + " would create a cycle.");
+        }
+        Set<Course> preRequisites = new HashSet<Course>(course.getPreRequisites());
+        preRequisites.add(canonical);
+        course.publish(preRequisites);
+        graph.addEdge(course, canonical);
+        return true;
+    }
+
+    /**
+     * Returns every course which must be taken, directly or indirectly,
+     * before the given course.
+     *
+     * @param course A course in this catalog.
+     * @return A read-only set of the transitive prerequisites.
+     */
+    public Set<Course> getTransitivePreRequisites(Course course) {
+        Set<Course> result = new HashSet<Course>();
+        for (int ordinal : getTransitivePreRequisiteBits(course).toArray()) {
+            result.add(coursesByOrdinal[ordinal]);
+        }
+        return Collections.unmodifiableSet(result);
+    }
+
+    /**
+     * Returns the ordinals of every course which must be taken, directly or
+     * indirectly, before the given course.
+     *
+     * @param course A course in this catalog.
+     * @return The transitive prerequisites as a bitset over ordinals.
+     */
+    public ImmutableBitSet getTransitivePreRequisiteBits(Course course) {
+        return checkedGraph(course).closureOf(course.getOrdinal());
+    }
+
+    /**
+     * Checks whether one course must be taken, directly or indirectly, before
+     * another.
+     *
+     * @param course A course in this catalog.
+     * @param preRequisite The possible prerequisite.
+     * @return The boolean result of the check.
+     */
+    public boolean isTransitivePreRequisite(Course course, Course preRequisite) {
+        Course canonical = coursesByName.get(preRequisite.getName());
+        return canonical != null && checkedGraph(course).closureOf(course.getOrdinal()).get(canonical.getOrdinal());
+    }
+
+    /**
+     * Returns the prerequisite graph after checking that a course can be
+     * looked up in it.
+     *
+     * @param course The course to be looked up.
+     * @return {@link CourseCatalog#graph graph}.
+     */
+    private PrerequisiteGraph checkedGraph(Course course) {
+        PrerequisiteGraph current = graph;
+        if (current == null) {
+            throw new IllegalStateException("The catalog has not been published.");
+        }
+        if (course.getCatalog() != this) {
+            throw new IllegalArgumentException(course.getName() + " is not in this catalog.");
+        }
+        return current;
+    }
+
+    /**
+     * Checks whether the catalog has been published.
+     *
+     * @return {@link CourseCatalog#published published}.
+     */
+    public boolean isPublished() {
+        return published;
+    }
+
+    /**
+     * Returns the canonical course with the given name.
+     *
+     * @param name The course name.
+     * @return The course, or null if the catalog has no course with that name.
+     */
+    public Course getCourse(String name) {
+        return coursesByName.get(name);
+    }
+
+    /**
+     * Returns the course with the given ordinal.
+     *
+     * @param ordinal The ordinal.
+     * @return The course.
+     */
+    public Course getCourse(int ordinal) {
+        if (ordinal < 0 || ordinal >= size) {
+            throw new IllegalArgumentException("Unknown course ordinal " + ordinal + ".");
+        }
+        return coursesByOrdinal[ordinal];
+    }
+
+    /**
+     * Returns every course in the catalog in ordinal order.
+     *
+     * @return A read-only list of the courses.
+     */
+    public List<Course> getCourses() {
+        int count = size;
+        Course[] courses = coursesByOrdinal;
+        List<Course> result = new ArrayList<Course>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(courses[i]);
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Returns the number of courses in the catalog.
+     *
+     * @return {@link CourseCatalog#size size}.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Maps each course in a collection to its canonical instance. Every course
+     * must already be in the catalog.
+     *
+     * @param courses The courses to map.
+     * @return A new set of the canonical courses.
+     */
+    private Set<Course> canonicalise(Collection<Course> courses) {
+        Set<Course> canonical = new HashSet<Course>();
+        for (Course course : courses) {
+            canonical.add(coursesByName.get(course.getName()));
+        }
+        return canonical;
+    }
+}
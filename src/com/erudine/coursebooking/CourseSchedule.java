@@ -1,17 +1,41 @@
 package com.erudine.coursebooking;
 
 import com.erudine.coursebooking.persons.Student;
+import com.erudine.coursebooking.persons.StudentRegistry;
 import com.erudine.coursebooking.persons.Teacher;
-import java.util.ArrayDeque;
+import com.erudine.coursebooking.util.CoarseClock;
+import com.erudine.coursebooking.util.EpochClock;
+import com.erudine.coursebooking.util.StripedIntSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Class defining the schedule for a single college course. Parameters defined
  * include the maximum capacity of the course, the start and end dates, the
  * teacher taking the course, the students which are registered, and a queue of
  * students wishing to register but are unable to due to the course being full.
+ * <p>
+ * Instances are safe for use by many threads at once. Seats are handed out
+ * through an atomic counter so that bookings on a course with free places never
+ * block; only the wait list transitions (joining the queue when the course is
+ * full, and promotion when a registered student withdraws) take a short lock.
+ * Students are held in the roster by their {@link StudentRegistry} id, so
+ * roster lookups are allocation-free primitive set operations.
+ * <p>
+ * The roster and waiting list are handed out as immutable {@link
+ * RosterSnapshot snapshots}. Every change to either is counted as it starts
+ * and as it finishes; a snapshot is copied without locking while no change is
+ * in progress, and kept if nothing starts meanwhile. The copy is versioned by
+ * the count of changes, so a snapshot of an unchanged schedule is handed out
+ * again rather than copied.
  *
  * @author Adam Harries
  * @version 31 Jul 2013
@@ -19,13 +43,20 @@ import java.util.Set;
 public class CourseSchedule {
 
     /**
-     * The course being scheduled.
+     * The listener array held while no listeners are attached.
      */
-    private final Course course;
+    private static final BookingListener[] NO_LISTENERS = new BookingListener[0];
     /**
-     * The maximum capacity of the course.
+     * The number of attempts at a snapshot without locking before taking the
+     * wait list lock, which leaves only registrations of free seats to wait
+     * for.
      */
-    private final int courseCapacity;
+    private static final int OPTIMISTIC_READS = 4;
+
+    /**
+     * The course being scheduled.
+     */
+    private final Course course;
     /**
      * The start date of the course.
      */
@@ -39,13 +70,79 @@ public class CourseSchedule {
      */
     private final Teacher teacher;
     /**
-     * The set of students registered on the course.
+     * The registry used to map students to the ids held in the roster.
+     */
+    private final StudentRegistry studentRegistry;
+    /**
+     * The ids of the students registered on the course.
+     */
+    private final StripedIntSet registeredStudents;
+    /**
+     * The queue of students wishing to register on the course, replaced only
+     * under the lock when the policy changes.
+     */
+    private volatile WaitList waitListedStudents;
+    /**
+     * The order in which students on the waiting list are offered a place.
+     */
+    private volatile WaitListPolicy waitListPolicy;
+    /**
+     * The ids of the students either registered or wait-listed on the course.
+     * A student is added here before being given a seat or a place in the
+     * queue, so concurrent duplicate booking attempts are rejected atomically.
+     */
+    private final StripedIntSet enrolledStudents;
+    /**
+     * The maximum capacity of the course in the high 32 bits and the number of
+     * seats handed out in the low 32 bits, so that a seat taken without the
+     * lock and a change of capacity are ordered by a single compare-and-set.
+     * Seats are only ever taken up to the capacity without the lock, and only
+     * given back under the lock when the waiting list is empty or the course
+     * is over capacity, so the waiting list is only ever non-empty while the
+     * course is full.
+     */
+    private final AtomicLong seats;
+    /**
+     * Guards joining and leaving the waiting list.
+     */
+    private final ReentrantLock waitListLock;
+    /**
+     * The listeners told of each change, replaced with a new array whenever a
+     * listener is added or removed.
      */
-    private Set<Student> registeredStudents;
+    private volatile BookingListener[] listeners;
     /**
-     * The queue of students wishing to register on the course.
+     * Checks bookings for clashing dates, or null if clashes are allowed.
      */
-    private ArrayDeque<Student> waitListedStudents;
+    private volatile ClashDetector clashDetector;
+    /**
+     * The period during which bookings are accepted, or null if they are
+     * accepted at any time.
+     */
+    private volatile RegistrationWindow registrationWindow;
+    /**
+     * The clock the registration window is checked against, or null for the
+     * shared {@link CoarseClock}.
+     */
+    private volatile EpochClock clock;
+    /**
+     * Counts the bookings, cancellations and lock contention of the schedule,
+     * or null while metrics are disabled.
+     */
+    private volatile ScheduleMetrics metrics;
+    /**
+     * The number of changes to the roster or waiting list begun.
+     */
+    private final AtomicLong changesStarted;
+    /**
+     * The number of changes to the roster or waiting list completed.
+     */
+    private final AtomicLong changesFinished;
+    /**
+     * The latest snapshot of the roster and waiting list, or null if none has
+     * been taken.
+     */
+    private volatile RosterSnapshot roster;
 
     /**
      * Constructor.
@@ -57,6 +154,21 @@ public class CourseSchedule {
      * @param teacher The teacher of the course.
      */
     public CourseSchedule(Course course, int courseCapacity, Date startDate, Date endDate, Teacher teacher) {
+        this(course, courseCapacity, startDate, endDate, teacher, StudentRegistry.getDefault());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param course The course.
+     * @param courseCapacity The maximum capacity of the course.
+     * @param startDate The start date of the course.
+     * @param endDate The end date of the course.
+     * @param teacher The teacher of the course.
+     * @param studentRegistry The registry used to give students their ids.
+     */
+    public CourseSchedule(Course course, int courseCapacity, Date startDate, Date endDate, Teacher teacher,
+            StudentRegistry studentRegistry) {
         //Error checks
         if (courseCapacity <= 0) {
             throw new IllegalArgumentException("The maximum capacity of the course must be greater than 0.");
@@ -65,12 +177,19 @@ public class CourseSchedule {
             throw new IllegalArgumentException("The course start date MUST be before the end date.");
         }
         this.course = course;
-        this.courseCapacity = courseCapacity;
         this.startDate = startDate;
         this.endDate = endDate;
         this.teacher = teacher;
-        registeredStudents = new HashSet<Student>();
-        waitListedStudents = new ArrayDeque<Student>();
+        this.studentRegistry = studentRegistry;
+        registeredStudents = new StripedIntSet(courseCapacity);
+        waitListPolicy = WaitListPolicy.FIRST_COME_FIRST_SERVED;
+        waitListedStudents = WaitList.create(this, waitListPolicy);
+        enrolledStudents = new StripedIntSet(courseCapacity);
+        seats = new AtomicLong(seats(courseCapacity, 0));
+        waitListLock = new ReentrantLock();
+        listeners = NO_LISTENERS;
+        changesStarted = new AtomicLong();
+        changesFinished = new AtomicLong();
     }
 
     /**
@@ -79,7 +198,7 @@ public class CourseSchedule {
      * @return The boolean result of the check.
      */
     public boolean isCourseFull() {
-        if (getNumberOfRegisteredStudents() < courseCapacity) {
+        if (getNumberOfRegisteredStudents() < getCourseCapacity()) {
             return false;
         }
         return true;
@@ -92,8 +211,8 @@ public class CourseSchedule {
      * @return The boolean result of the check.
      */
     public boolean isStudentRegistered(Student student) {
-        //Note that the overridden equals method of Student is called here.
-        return registeredStudents.contains(student);
+        int id = studentRegistry.idOf(student);
+        return id >= 0 && registeredStudents.contains(id);
     }
 
     /**
@@ -113,12 +232,8 @@ public class CourseSchedule {
      * @return The boolean result of the check.
      */
     private boolean isValidRegistrationPeriod() {
-        Date currentDate = new Date();
-
-        if (currentDate.before(startDate)) {
-            return true;
-        }
-        return false;
+        RegistrationWindow window = registrationWindow;
+        return window == null || window.isOpen(getClock().millis());
     }
 
     /**
@@ -129,58 +244,672 @@ public class CourseSchedule {
      * @return true if the student is successfully registered.
      */
     public boolean bookCourse(Student studentWantingToJoinCourse) {
+        return book(studentWantingToJoinCourse) == BookingResult.REGISTERED;
+    }
+
+    /**
+     * Attempts to register a student on the course, reporting what happened.
+     *
+     * @param studentWantingToJoinCourse The prospective student.
+     * @return The outcome of the booking attempt.
+     */
+    public BookingResult book(Student studentWantingToJoinCourse) {
+        BookingResult result = tryBook(studentWantingToJoinCourse, true);
+        ScheduleMetrics current = metrics;
+        if (current != null) {
+            current.recordBooking(result);
+        }
+        return result;
+    }
+
+    /**
+     * Attempts to register a student on the course without joining the
+     * waiting list, as used by a {@link SectionGroup} keeping its own.
+     *
+     * @param studentWantingToJoinCourse The prospective student.
+     * @return The outcome of the booking attempt, or null if the course was
+     * full.
+     */
+    BookingResult bookIfFree(Student studentWantingToJoinCourse) {
+        BookingResult result = tryBook(studentWantingToJoinCourse, false);
+        ScheduleMetrics current = metrics;
+        if (current != null && result != null) {
+            current.recordBooking(result);
+        }
+        return result;
+    }
+
+    /**
+     * Attempts to register a student on the course.
+     *
+     * @param studentWantingToJoinCourse The prospective student.
+     * @param joinWaitList Whether to join the waiting list if the course is
+     * full.
+     * @return The outcome of the booking attempt, or null if the course was
+     * full and the student did not join the waiting list.
+     */
+    private BookingResult tryBook(Student studentWantingToJoinCourse, boolean joinWaitList) {
         //Optional functionality: ensure that the registration attempt occurs at
         //a valid time.
-//        if (!isValidRegistrationPeriod()) {
-//            return false;
-//        }
+        if (!isValidRegistrationPeriod()) {
+            return BookingResult.REGISTRATION_CLOSED;
+        }
+
+        int id = studentRegistry.intern(studentWantingToJoinCourse);
 
         //Check that the student is not already registered or waiting
-        if (isStudentRegistered(studentWantingToJoinCourse)
-                || isStudentOnWaitingList(studentWantingToJoinCourse)) {
+        if (enrolledStudents.contains(id)) {
             //This result is debatable - could arguably return true since the 
             //student is ALREADY registered / waiting
-            return false;
+            return BookingResult.ALREADY_BOOKED;
         }
 
         //Check that the student has completed the required prerequisites
-        for (Course preRequisite : course.getPreRequisites()) {
-            if (!studentWantingToJoinCourse.hasTakenCourse(preRequisite)) {
-                return false;
+        if (!studentWantingToJoinCourse.hasTakenPreRequisites(course)) {
+            return BookingResult.MISSING_PREREQUISITES;
+        }
+
+        //Student is eligible - claim them so a concurrent duplicate attempt fails
+        if (!enrolledStudents.add(id)) {
+            return BookingResult.ALREADY_BOOKED;
+        }
+
+        //Reserve the course dates in the student's timetable if clashes are checked
+        ClashDetector detector = clashDetector;
+        if (detector != null && detector.reserve(studentWantingToJoinCourse, this) != null) {
+            enrolledStudents.remove(id);
+            return BookingResult.CLASH;
+        }
+
+        //Fast path: there is space on the course so no lock is needed
+        if (tryTakeSeat()) {
+            boolean added = false;
+            if (listeners.length == 0) {
+                beginChange();
+                registeredStudents.add(id);
+                endChange();
+                if (listeners.length == 0) {
+                    return BookingResult.REGISTERED;
+                }
+                //A listener was attached meanwhile and may have missed the
+                //registration - report it below unless already cancelled
+                added = true;
+            }
+            //Report under the lock so listeners see every change to the
+            //schedule in the order it was made
+            lockWaitList();
+            try {
+                if (!added) {
+                    fireBookingChanged(BookingEvent.REGISTERED, studentWantingToJoinCourse);
+                    beginChange();
+                    registeredStudents.add(id);
+                    endChange();
+                } else if (registeredStudents.contains(id)) {
+                    fireBookingChanged(BookingEvent.REGISTERED, studentWantingToJoinCourse);
+                }
+            } finally {
+                waitListLock.unlock();
             }
+            return BookingResult.REGISTERED;
         }
 
-        //Student is eligible - attempt to register
-        if (isCourseFull()) {
-            //The course is full so add student to end of waiting list
-            waitListedStudents.addLast(studentWantingToJoinCourse);
-            return false;
-        } else {
-            //There is space on the course - attempt to register the student
-            return registeredStudents.add(studentWantingToJoinCourse);
+        if (!joinWaitList) {
+            //Give up the claim made above
+            releaseDates(studentWantingToJoinCourse);
+            enrolledStudents.remove(id);
+            return null;
+        }
+
+        lockWaitList();
+        try {
+            //Re-check under the lock as a seat may have been released
+            beginChange();
+            try {
+                if (tryTakeSeat()) {
+                    fireBookingChanged(BookingEvent.REGISTERED, studentWantingToJoinCourse);
+                    registeredStudents.add(id);
+                    return BookingResult.REGISTERED;
+                }
+                //The course is full so add student to end of waiting list
+                fireBookingChanged(BookingEvent.WAIT_LISTED, studentWantingToJoinCourse);
+                waitListedStudents.add(studentWantingToJoinCourse);
+                return BookingResult.WAIT_LISTED;
+            } finally {
+                endChange();
+            }
+        } finally {
+            waitListLock.unlock();
         }
     }
 
+    /**
+     * Attempts to register a batch of students on the course, such as a whole
+     * cohort, under a single acquisition of the wait list lock. Students are
+     * processed in the iteration order of the collection, so those who miss
+     * out on a seat join the waiting list in that order.
+     *
+     * @param studentsWantingToJoinCourse The prospective students.
+     * @return The outcome for each student, in iteration order.
+     */
+    public BookingResult[] bookCourses(Collection<Student> studentsWantingToJoinCourse) {
+        BookingResult[] results = new BookingResult[studentsWantingToJoinCourse.size()];
+        int i = 0;
+        lockWaitList();
+        try {
+            //The lock is re-entrant, so each booking's own acquisition is
+            //just a hold count increment
+            for (Student student : studentsWantingToJoinCourse) {
+                results[i++] = book(student);
+            }
+        } finally {
+            waitListLock.unlock();
+        }
+        return results;
+    }
+
     /**
      * Removes a student from the course register or waiting list.
      *
      * @param student The student to de-register.
      */
     public void cancelBooking(Student student) {
-        if (isStudentRegistered(student)) {
-            //Remove the student if registered
-            registeredStudents.remove(student);
-            //Add the firt student in the queue if there is one
-            if (isWaitingList()) {
+        cancel(student);
+    }
+
+    /**
+     * Removes a student from the course register or waiting list, reporting
+     * what happened.
+     *
+     * @param student The student to de-register.
+     * @return The outcome of the cancellation.
+     */
+    public CancellationResult cancel(Student student) {
+        CancellationResult result = tryCancel(student);
+        ScheduleMetrics current = metrics;
+        if (current != null) {
+            current.recordCancellation(result);
+        }
+        return result;
+    }
+
+    /**
+     * Removes a student from the course register or waiting list.
+     *
+     * @param student The student to de-register.
+     * @return The outcome of the cancellation.
+     */
+    private CancellationResult tryCancel(Student student) {
+        int id = studentRegistry.idOf(student);
+        if (id < 0) {
+            //The student has never booked anything
+            return CancellationResult.NOT_BOOKED;
+        }
+        if (!enrolledStudents.contains(id)) {
+            //The student holds no booking on this course
+            return CancellationResult.NOT_BOOKED;
+        }
+        CancellationResult result;
+        lockWaitList();
+        try {
+            //The seat is handed on under the same lock and change as its
+            //release, so no snapshot sees the seat free while others wait
+            beginChange();
+            try {
+                if (registeredStudents.remove(id)) {
+                    //The student was registered - hand their seat on
+                    releaseSeat(student);
+                    result = CancellationResult.REGISTRATION_CANCELLED;
+                } else if (waitListedStudents.remove(student)) {
+                    //The wait list index makes this constant time wherever
+                    //the student is queued
+                    fireBookingChanged(BookingEvent.LEFT_WAITING_LIST, student);
+                    result = CancellationResult.LEFT_WAITING_LIST;
+                } else {
+                    //The booking is still being made on another thread
+                    return CancellationResult.NOT_BOOKED;
+                }
+            } finally {
+                endChange();
+            }
+        } finally {
+            waitListLock.unlock();
+        }
+        releaseDates(student);
+        enrolledStudents.remove(id);
+        return result;
+    }
+
+    /**
+     * Removes a batch of students from the course register or waiting list
+     * under a single acquisition of the wait list lock. Seats released by the
+     * batch are handed to wait-listed students in queue order.
+     *
+     * @param students The students to de-register.
+     * @return The outcome for each student, in iteration order.
+     */
+    public CancellationResult[] cancelBookings(Collection<Student> students) {
+        CancellationResult[] results = new CancellationResult[students.size()];
+        int i = 0;
+        lockWaitList();
+        try {
+            for (Student student : students) {
+                results[i++] = cancel(student);
+            }
+        } finally {
+            waitListLock.unlock();
+        }
+        return results;
+    }
+
+    /**
+     * Runs a task while holding the wait list lock, so that a batch of
+     * bookings and cancellations made by the task acquires the lock once.
+     *
+     * @param task The task to run.
+     */
+    void runExclusively(Runnable task) {
+        lockWaitList();
+        try {
+            task.run();
+        } finally {
+            waitListLock.unlock();
+        }
+    }
+
+    /**
+     * Acquires the wait list lock, counting the acquisition as contended if
+     * another thread holds it and metrics are enabled.
+     */
+    private void lockWaitList() {
+        if (!waitListLock.tryLock()) {
+            ScheduleMetrics current = metrics;
+            if (current != null) {
+                current.recordLockContention();
+            }
+            waitListLock.lock();
+        }
+    }
+
+    /**
+     * Adds a listener to be told of each change to the roster and waiting
+     * list. A listener which seeds itself from the schedule's current state
+     * should do so under {@link CourseSchedule#runExclusively the lock} after
+     * being added, and treat a registration reported again as harmless: one
+     * racing with the attachment may be both seen and reported.
+     *
+     * @param listener The listener to add.
+     */
+    public synchronized void addBookingListener(BookingListener listener) {
+        BookingListener[] current = listeners;
+        BookingListener[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = listener;
+        listeners = updated;
+    }
+
+    /**
+     * Removes a listener.
+     *
+     * @param listener The listener to remove.
+     * @return false if the listener was not attached.
+     */
+    public synchronized boolean removeBookingListener(BookingListener listener) {
+        BookingListener[] current = listeners;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == listener) {
+                BookingListener[] updated = new BookingListener[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                listeners = updated;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tells each listener of a change.
+     *
+     * @param event The change.
+     * @param student The student concerned.
+     */
+    private void fireBookingChanged(BookingEvent event, Student student) {
+        for (BookingListener listener : listeners) {
+            listener.bookingChanged(this, event, student);
+        }
+    }
+
+    /**
+     * Re-applies a change recorded by a listener, such as one read back from a
+     * {@link BookingJournal}, without checking prerequisites or notifying
+     * listeners. Applying a change which has already been applied does
+     * nothing, so a record replayed twice is harmless.
+     *
+     * @param event The change.
+     * @param student The student concerned.
+     */
+    void restore(BookingEvent event, Student student) {
+        int id = studentRegistry.intern(student);
+        lockWaitList();
+        beginChange();
+        try {
+            switch (event) {
+                case REGISTERED:
+                    if (enrolledStudents.add(id)) {
+                        reserveDates(student);
+                        seats.incrementAndGet();
+                        registeredStudents.add(id);
+                    }
+                    break;
+                case WAIT_LISTED:
+                    if (enrolledStudents.add(id)) {
+                        reserveDates(student);
+                        waitListedStudents.add(student);
+                    }
+                    break;
+                case PROMOTED:
+                    if (waitListedStudents.remove(student)) {
+                        seats.incrementAndGet();
+                        registeredStudents.add(id);
+                    }
+                    break;
+                case REGISTRATION_CANCELLED:
+                    if (registeredStudents.remove(id)) {
+                        seats.decrementAndGet();
+                        releaseDates(student);
+                        enrolledStudents.remove(id);
+                    }
+                    break;
+                case LEFT_WAITING_LIST:
+                    if (waitListedStudents.remove(student)) {
+                        releaseDates(student);
+                        enrolledStudents.remove(id);
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown event " + event + ".");
+            }
+        } finally {
+            endChange();
+            waitListLock.unlock();
+        }
+    }
+
+    /**
+     * Re-applies a change of capacity recorded by a listener, without
+     * promoting anyone: the promotions it caused are restored as changes of
+     * their own.
+     *
+     * @param courseCapacity The capacity.
+     */
+    void restoreCapacity(int courseCapacity) {
+        lockWaitList();
+        try {
+            long current;
+            do {
+                current = seats.get();
+            } while (!seats.compareAndSet(current, seats(courseCapacity, taken(current))));
+        } finally {
+            waitListLock.unlock();
+        }
+    }
+
+    /**
+     * Records a restored booking in the student's timetable. A clash is not
+     * rejected, since the booking was accepted when first made.
+     *
+     * @param student The student.
+     */
+    private void reserveDates(Student student) {
+        ClashDetector detector = clashDetector;
+        if (detector != null) {
+            detector.reserve(student, this);
+        }
+    }
+
+    /**
+     * Frees the course dates in the student's timetable, if clashes are
+     * checked.
+     *
+     * @param student The student.
+     */
+    private void releaseDates(Student student) {
+        ClashDetector detector = clashDetector;
+        if (detector != null) {
+            detector.release(student, this);
+        }
+    }
+
+    /**
+     * Gives any free seats to the head of the waiting list, as after a replay
+     * which stopped between a cancellation and the promotion it caused.
+     */
+    void promoteWaitingStudents() {
+        lockWaitList();
+        beginChange();
+        try {
+            while (!waitListedStudents.isEmpty() && tryTakeSeat()) {
                 Student waitingStudent = waitListedStudents.poll();
-                registeredStudents.add(waitingStudent);
+                fireBookingChanged(BookingEvent.PROMOTED, waitingStudent);
+                registeredStudents.add(studentRegistry.intern(waitingStudent));
+                recordPromotion();
             }
-        } else if (isStudentOnWaitingList(student)) {
-            //Remove the student from the waiting list if they are on it
-            waitListedStudents.remove(student);
+        } finally {
+            endChange();
+            waitListLock.unlock();
+        }
+    }
+
+    /**
+     * Counts a promotion from the waiting list if metrics are enabled.
+     */
+    private void recordPromotion() {
+        ScheduleMetrics current = metrics;
+        if (current != null) {
+            current.recordPromotion();
         }
     }
 
+    /**
+     * Attempts to take one of the free seats on the course without locking.
+     *
+     * @return true if a seat was taken.
+     */
+    private boolean tryTakeSeat() {
+        for (;;) {
+            long current = seats.get();
+            if (taken(current) >= capacity(current)) {
+                return false;
+            }
+            if (seats.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Hands a released seat to the first student in the queue if there is one,
+     * otherwise returns it to the pool of free seats. Must be called holding
+     * the wait list lock.
+     *
+     * @param student The student who gave up the seat.
+     */
+    private void releaseSeat(Student student) {
+        fireBookingChanged(BookingEvent.REGISTRATION_CANCELLED, student);
+        //Add the first student in the queue if there is one, unless the
+        //capacity has been lowered below the seats taken
+        long current = seats.get();
+        Student waitingStudent = taken(current) > capacity(current) ? null : waitListedStudents.poll();
+        if (waitingStudent != null) {
+            fireBookingChanged(BookingEvent.PROMOTED, waitingStudent);
+            registeredStudents.add(studentRegistry.intern(waitingStudent));
+            recordPromotion();
+        } else {
+            seats.decrementAndGet();
+        }
+    }
+
+    /**
+     * Changes the maximum capacity of the course, atomically with respect to
+     * bookings and cancellations. Raising it promotes as many students from
+     * the waiting list as there are new seats, in one pass under the lock:
+     * the seats are claimed for them with the change of capacity itself, so
+     * no concurrent booking can take them first. Lowering it below the number
+     * of students registered is handled by the overflow rule.
+     *
+     * @param courseCapacity The new maximum capacity.
+     * @param overflowRule What to do if more students are registered than the
+     * new capacity allows.
+     * @return The number of students promoted from the waiting list.
+     */
+    public int setCourseCapacity(int courseCapacity, CapacityOverflowRule overflowRule) {
+        if (courseCapacity <= 0) {
+            throw new IllegalArgumentException("The maximum capacity of the course must be greater than 0.");
+        }
+        lockWaitList();
+        beginChange();
+        try {
+            long current;
+            int promotions;
+            do {
+                current = seats.get();
+                int taken = taken(current);
+                if (taken > courseCapacity && overflowRule == CapacityOverflowRule.REJECT) {
+                    throw new IllegalStateException("The course has " + taken
+                            + " students registered, more than the new capacity of " + courseCapacity + ".");
+                }
+                //The waiting list only changes under the lock, so its size
+                //is fixed while the seats are claimed
+                promotions = Math.max(0, Math.min(courseCapacity - taken, waitListedStudents.size()));
+            } while (!seats.compareAndSet(current, seats(courseCapacity, taken(current) + promotions)));
+
+            for (BookingListener listener : listeners) {
+                listener.capacityChanged(this, courseCapacity);
+            }
+            for (int i = 0; i < promotions; i++) {
+                Student waitingStudent = waitListedStudents.poll();
+                fireBookingChanged(BookingEvent.PROMOTED, waitingStudent);
+                registeredStudents.add(studentRegistry.intern(waitingStudent));
+            }
+            ScheduleMetrics counters = metrics;
+            if (counters != null && promotions > 0) {
+                counters.recordPromotions(promotions);
+            }
+            return promotions;
+        } finally {
+            endChange();
+            waitListLock.unlock();
+        }
+    }
+
+    /**
+     * Packs a capacity and a number of seats taken.
+     *
+     * @param capacity The capacity.
+     * @param taken The number of seats taken.
+     * @return The packed value.
+     */
+    private static long seats(int capacity, int taken) {
+        return ((long) capacity << 32) | taken;
+    }
+
+    /**
+     * Unpacks the capacity from {@link CourseSchedule#seats seats}.
+     *
+     * @param seats The packed value.
+     * @return The capacity.
+     */
+    private static int capacity(long seats) {
+        return (int) (seats >>> 32);
+    }
+
+    /**
+     * Unpacks the number of seats taken from {@link CourseSchedule#seats
+     * seats}.
+     *
+     * @param seats The packed value.
+     * @return The number of seats taken.
+     */
+    private static int taken(long seats) {
+        return (int) seats;
+    }
+
+    /**
+     * Counts the start of a change to the roster or waiting list, which
+     * holds off snapshots until it finishes.
+     */
+    private void beginChange() {
+        changesStarted.incrementAndGet();
+    }
+
+    /**
+     * Counts the end of a change to the roster or waiting list.
+     */
+    private void endChange() {
+        changesFinished.incrementAndGet();
+    }
+
+    /**
+     * Returns an immutable snapshot of the roster and waiting list, taken
+     * without blocking bookings. A snapshot is first copied optimistically
+     * while no change is in progress; if changes keep interrupting the copy it
+     * is taken under the wait list lock, where only registrations of free
+     * seats, of which there are at most as many as seats, can still interrupt
+     * it.
+     *
+     * @return The snapshot, the same object as last time if nothing has
+     * changed since.
+     */
+    public RosterSnapshot getRoster() {
+        for (int attempt = 0; attempt < OPTIMISTIC_READS; attempt++) {
+            RosterSnapshot snapshot = tryReadRoster();
+            if (snapshot != null) {
+                return snapshot;
+            }
+            Thread.yield();
+        }
+        lockWaitList();
+        try {
+            for (;;) {
+                RosterSnapshot snapshot = tryReadRoster();
+                if (snapshot != null) {
+                    return snapshot;
+                }
+                Thread.yield();
+            }
+        } finally {
+            waitListLock.unlock();
+        }
+    }
+
+    /**
+     * Attempts to copy the roster and waiting list while no change is in
+     * progress, reusing the last snapshot if nothing has changed.
+     *
+     * @return The snapshot, or null if a change interrupted the copy.
+     */
+    private RosterSnapshot tryReadRoster() {
+        long version = changesStarted.get();
+        if (changesFinished.get() != version) {
+            return null;
+        }
+        RosterSnapshot last = roster;
+        if (last != null && last.getVersion() == version) {
+            return last;
+        }
+        int[] ids = registeredStudents.toArray();
+        List<Student> waiting = new ArrayList<Student>(waitListedStudents.view());
+        if (changesStarted.get() != version) {
+            return null;
+        }
+        Set<Student> registered = new LinkedHashSet<Student>(ids.length * 2);
+        for (int id : ids) {
+            registered.add(studentRegistry.getStudent(id));
+        }
+        RosterSnapshot snapshot = new RosterSnapshot(version, registered, waiting);
+        roster = snapshot;
+        return snapshot;
+    }
+
     /**
      * Checks whether there are students on the waiting list.
      *
@@ -202,6 +931,26 @@ public class CourseSchedule {
         return registeredStudents.size();
     }
 
+    /**
+     * Returns the number of students currently on the waiting list.
+     *
+     * @return The number of wait-listed students.
+     */
+    public int getNumberOfWaitListedStudents() {
+        return waitListedStudents.size();
+    }
+
+    /**
+     * Returns the number of seats not yet handed out.
+     *
+     * @return The number of free seats, 0 if the course is full or over
+     * capacity.
+     */
+    public int getNumberOfFreeSeats() {
+        long current = seats.get();
+        return Math.max(0, capacity(current) - taken(current));
+    }
+
     /**
      * Returns the course being scheduled.
      *
@@ -214,10 +963,10 @@ public class CourseSchedule {
     /**
      * Returns the maximum capacity of the course.
      *
-     * @return {@link CourseSchedule#courseCapacity course capacity}
+     * @return The capacity held in {@link CourseSchedule#seats seats}.
      */
     public int getCourseCapacity() {
-        return courseCapacity;
+        return capacity(seats.get());
     }
 
     /**
@@ -230,12 +979,148 @@ public class CourseSchedule {
     }
 
     /**
-     * Returns the set of students registered on the course.
+     * Sets the period during which bookings are accepted, such as {@link
+     * RegistrationWindow#until(Date) until the course starts}.
+     *
+     * @param registrationWindow The window, or null to accept bookings at any
+     * time.
+     */
+    public void setRegistrationWindow(RegistrationWindow registrationWindow) {
+        this.registrationWindow = registrationWindow;
+    }
+
+    /**
+     * Returns the period during which bookings are accepted.
+     *
+     * @return {@link CourseSchedule#registrationWindow registration window},
+     * or null if bookings are accepted at any time.
+     */
+    public RegistrationWindow getRegistrationWindow() {
+        return registrationWindow;
+    }
+
+    /**
+     * Sets the clock the registration window is checked against.
+     *
+     * @param clock The clock, or null for the shared {@link CoarseClock}.
+     */
+    public void setClock(EpochClock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the clock the registration window is checked against.
+     *
+     * @return {@link CourseSchedule#clock clock}, or the shared {@link
+     * CoarseClock} if none has been set.
+     */
+    public EpochClock getClock() {
+        EpochClock current = clock;
+        return current != null ? current : CoarseClock.getDefault();
+    }
+
+    /**
+     * Sets the detector used to reject bookings whose dates clash with the
+     * student's other bookings. Should be set before the schedule takes
+     * bookings, and shared with every schedule to be checked against.
+     *
+     * @param clashDetector The detector, or null to allow clashes.
+     */
+    public void setClashDetector(ClashDetector clashDetector) {
+        this.clashDetector = clashDetector;
+    }
+
+    /**
+     * Returns the detector used to reject clashing bookings.
+     *
+     * @return {@link CourseSchedule#clashDetector clash detector}, or null if
+     * clashes are allowed.
+     */
+    public ClashDetector getClashDetector() {
+        return clashDetector;
+    }
+
+    /**
+     * Enables or disables the schedule's metrics. Use {@link
+     * BookingMetrics#attach(CourseSchedule)} to enable them.
+     *
+     * @param metrics The metrics to count into, or null to disable them.
+     */
+    void setMetrics(ScheduleMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns the schedule's metrics.
+     *
+     * @return {@link CourseSchedule#metrics metrics}, or null if metrics are
+     * disabled.
+     */
+    public ScheduleMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Sets the order in which students on the waiting list are offered a
+     * place. Students already waiting are re-ordered by the new policy, those
+     * of equal rank keeping their current order.
+     *
+     * @param waitListPolicy The policy.
+     */
+    public void setWaitListPolicy(WaitListPolicy waitListPolicy) {
+        if (waitListPolicy == null) {
+            throw new IllegalArgumentException("The waiting list policy must not be null.");
+        }
+        lockWaitList();
+        beginChange();
+        try {
+            WaitList reordered = WaitList.create(this, waitListPolicy);
+            for (Student student : waitListedStudents.view()) {
+                reordered.add(student);
+            }
+            this.waitListPolicy = waitListPolicy;
+            waitListedStudents = reordered;
+            BookingListener[] current = listeners;
+            if (current.length > 0) {
+                List<Student> order = Collections.unmodifiableList(new ArrayList<Student>(reordered.view()));
+                for (BookingListener listener : current) {
+                    listener.waitListReordered(this, order);
+                }
+            }
+        } finally {
+            endChange();
+            waitListLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the order in which students on the waiting list are offered a
+     * place.
+     *
+     * @return {@link CourseSchedule#waitListPolicy wait list policy}
+     */
+    public WaitListPolicy getWaitListPolicy() {
+        return waitListPolicy;
+    }
+
+    /**
+     * Returns the registry used to give students their ids.
+     *
+     * @return {@link CourseSchedule#studentRegistry student registry}
+     */
+    public StudentRegistry getStudentRegistry() {
+        return studentRegistry;
+    }
+
+    /**
+     * Returns an immutable snapshot of the set of students registered on the
+     * course.
      *
-     * @return {@link CourseSchedule#registeredStudents registered students}
+     * @return The registered students of the current {@link
+     * CourseSchedule#getRoster() roster}.
      */
     public Set<Student> getRegisteredStudents() {
-        return registeredStudents;
+        return getRoster().getRegisteredStudents();
     }
 
     /**
@@ -257,11 +1142,13 @@ public class CourseSchedule {
     }
 
     /**
-     * Returns the waiting list of students for the course.
+     * Returns an immutable snapshot of the waiting list of students for the
+     * course, in the order they will be offered a place.
      *
-     * @return {@link CourseSchedule#waitListedStudents wait listed students}
+     * @return The waiting list of the current {@link CourseSchedule#getRoster()
+     * roster}.
      */
-    public ArrayDeque<Student> getWaitListedStudents() {
-        return waitListedStudents;
+    public Collection<Student> getWaitListedStudents() {
+        return getRoster().getWaitListedStudents();
     }
 }
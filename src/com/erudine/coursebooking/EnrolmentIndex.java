@@ -0,0 +1,430 @@
+package com.erudine.coursebooking;
+
+import com.erudine.coursebooking.persons.Student;
+import com.erudine.coursebooking.util.FenwickTree;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reverse index from each student to the schedules they are registered or
+ * wait-listed on, so that a student's courses can be listed without scanning
+ * every schedule. The index is attached to each schedule as a {@link
+ * BookingListener}, so it follows bookings, cancellations and promotions as
+ * they happen.
+ * <p>
+ * Each student's entry is an immutable record replaced on every change, so
+ * lookups never lock and cost time in proportion to the student's own
+ * courses. Wait-list positions are kept per schedule as a {@link FenwickTree}
+ * over join tickets: joining the queue takes the next ticket, leaving it
+ * clears the ticket, and a student's position is the number of tickets still
+ * held up to and including theirs. Tickets start again from zero whenever a
+ * waiting list empties, and are renumbered once most of those handed out have
+ * been given back, so the tree stays in proportion to the queue even when it
+ * never empties. Tickets are renumbered in the schedule's order whenever its
+ * {@link WaitListPolicy} changes, but new tickets follow the order students
+ * joined, so on a schedule with any policy other than {@link
+ * WaitListPolicy#FIRST_COME_FIRST_SERVED} a position is instead found in the
+ * schedule's {@link CourseSchedule#getRoster() roster}, in time proportional
+ * to the queue.
+ *
+ * @author Adam Harries
+ * @version 31 Jul 2013
+ */
+public class EnrolmentIndex implements BookingListener {
+
+    /**
+     * The enrolments of each student with at least one booking.
+     */
+    private final ConcurrentHashMap<Student, Enrolments> enrolments;
+    /**
+     * The ticket queue of each attached schedule.
+     */
+    private final ConcurrentHashMap<CourseSchedule, TicketQueue> queues;
+
+    /**
+     * Constructor.
+     */
+    public EnrolmentIndex() {
+        enrolments = new ConcurrentHashMap<Student, Enrolments>();
+        queues = new ConcurrentHashMap<CourseSchedule, TicketQueue>();
+    }
+
+    /**
+     * Starts indexing a schedule, including the bookings it already holds.
+     *
+     * @param schedule The schedule to index.
+     */
+    public void attach(final CourseSchedule schedule) {
+        queues.putIfAbsent(schedule, new TicketQueue());
+        schedule.runExclusively(new Runnable() {
+            @Override
+            public void run() {
+                schedule.addBookingListener(EnrolmentIndex.this);
+                RosterSnapshot roster = schedule.getRoster();
+                for (Student student : roster.getRegisteredStudents()) {
+                    bookingChanged(schedule, BookingEvent.REGISTERED, student);
+                }
+                for (Student student : roster.getWaitListedStudents()) {
+                    bookingChanged(schedule, BookingEvent.WAIT_LISTED, student);
+                }
+            }
+        });
+    }
+
+    /**
+     * Updates the index for a change to a schedule.
+     *
+     * @param schedule The schedule which changed.
+     * @param event The change.
+     * @param student The student concerned.
+     */
+    @Override
+    public void bookingChanged(CourseSchedule schedule, BookingEvent event, Student student) {
+        TicketQueue queue = queues.get(schedule);
+        if (queue == null) {
+            //Not attached through this index
+            return;
+        }
+        switch (event) {
+            case REGISTERED:
+                update(student, schedule, true, null);
+                break;
+            case WAIT_LISTED:
+                synchronized (queue) {
+                    if (ticketOf(student, schedule) == null) {
+                        update(student, schedule, false, queue.join(student));
+                    }
+                }
+                break;
+            case PROMOTED:
+                synchronized (queue) {
+                    leave(queue, student, schedule);
+                    update(student, schedule, true, null);
+                }
+                break;
+            case REGISTRATION_CANCELLED:
+                update(student, schedule, false, null);
+                break;
+            case LEFT_WAITING_LIST:
+                synchronized (queue) {
+                    leave(queue, student, schedule);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown event " + event + ".");
+        }
+    }
+
+    /**
+     * Renumbers a schedule's tickets in the order of its re-ordered waiting
+     * list.
+     *
+     * @param schedule The schedule which changed.
+     * @param waitListedStudents The waiting students in their new order.
+     */
+    @Override
+    public void waitListReordered(CourseSchedule schedule, List<Student> waitListedStudents) {
+        TicketQueue queue = queues.get(schedule);
+        if (queue == null) {
+            return;
+        }
+        synchronized (queue) {
+            renumber(queue, schedule, waitListedStudents);
+        }
+    }
+
+    /**
+     * Returns the schedules a student is registered on.
+     *
+     * @param student The student to look up.
+     * @return A read-only set of schedules.
+     */
+    public Set<CourseSchedule> getRegistrations(Student student) {
+        Enrolments entry = enrolments.get(student);
+        return entry == null ? Collections.<CourseSchedule>emptySet() : entry.registered;
+    }
+
+    /**
+     * Returns the schedules a student is wait-listed on, each with the
+     * student's position in its waiting list.
+     *
+     * @param student The student to look up.
+     * @return Read-only map from schedule to 1-based position.
+     */
+    public Map<CourseSchedule, Integer> getWaitListPositions(Student student) {
+        Enrolments entry = enrolments.get(student);
+        if (entry == null || entry.waitListTickets.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<CourseSchedule, Integer> positions = new LinkedHashMap<CourseSchedule, Integer>();
+        for (CourseSchedule schedule : entry.waitListTickets.keySet()) {
+            int position = getWaitListPosition(student, schedule);
+            if (position > 0) {
+                positions.put(schedule, position);
+            }
+        }
+        return Collections.unmodifiableMap(positions);
+    }
+
+    /**
+     * Returns a student's position in the waiting list of a schedule.
+     *
+     * @param student The student to look up.
+     * @param schedule The schedule.
+     * @return The 1-based position, or 0 if the student is not waiting.
+     */
+    public int getWaitListPosition(Student student, CourseSchedule schedule) {
+        TicketQueue queue = queues.get(schedule);
+        if (queue == null) {
+            return 0;
+        }
+        if (schedule.getWaitListPolicy() != WaitListPolicy.FIRST_COME_FIRST_SERVED) {
+            return schedule.getRoster().getWaitListedStudents().indexOf(student) + 1;
+        }
+        synchronized (queue) {
+            //Read the ticket under the queue's monitor so it cannot be reused
+            //by a later generation of the queue meanwhile
+            Integer ticket = ticketOf(student, schedule);
+            return ticket == null ? 0 : queue.tickets.prefixSum(ticket);
+        }
+    }
+
+    /**
+     * Returns a student's ticket in a schedule's queue.
+     *
+     * @param student The student.
+     * @param schedule The schedule.
+     * @return The ticket, or null if the student is not waiting.
+     */
+    private Integer ticketOf(Student student, CourseSchedule schedule) {
+        Enrolments entry = enrolments.get(student);
+        return entry == null ? null : entry.waitListTickets.get(schedule);
+    }
+
+    /**
+     * Takes a student out of a schedule's queue. Must be called holding the
+     * queue's monitor.
+     *
+     * @param queue The schedule's queue.
+     * @param student The student.
+     * @param schedule The schedule.
+     */
+    private void leave(TicketQueue queue, Student student, CourseSchedule schedule) {
+        Integer ticket = ticketOf(student, schedule);
+        if (ticket != null) {
+            queue.leave(ticket);
+            update(student, schedule, false, null);
+            if (queue.isSparse()) {
+                renumber(queue, schedule, queue.waiting());
+            }
+        }
+    }
+
+    /**
+     * Hands out fresh tickets, from zero, to the students holding a ticket in
+     * a schedule's queue, in the given order. Students missing from the order
+     * lose their ticket. Must be called holding the queue's monitor.
+     *
+     * @param queue The schedule's queue.
+     * @param schedule The schedule.
+     * @param order The waiting students, first in the queue first.
+     */
+    private void renumber(TicketQueue queue, CourseSchedule schedule, List<Student> order) {
+        Set<Student> dropped = new HashSet<Student>(queue.waiting());
+        queue.reset();
+        for (Student student : order) {
+            if (dropped.remove(student)) {
+                update(student, schedule, false, queue.join(student));
+            }
+        }
+        for (Student student : dropped) {
+            update(student, schedule, false, null);
+        }
+    }
+
+    /**
+     * Replaces a student's entry with one recording their new state on a
+     * schedule, removing the entry if they have no bookings left.
+     *
+     * @param student The student.
+     * @param schedule The schedule.
+     * @param registered Whether the student is now registered.
+     * @param ticket The student's ticket if they are now waiting, else null.
+     */
+    private void update(Student student, final CourseSchedule schedule, final boolean registered,
+            final Integer ticket) {
+        enrolments.compute(student, (s, entry) -> {
+            Enrolments updated = entry == null ? Enrolments.NONE : entry;
+            updated = updated.with(schedule, registered, ticket);
+            return updated.isEmpty() ? null : updated;
+        });
+    }
+
+    /**
+     * The queue of join tickets of one schedule.
+     */
+    private static final class TicketQueue {
+
+        /**
+         * The fewest tickets handed out before the queue is worth
+         * renumbering.
+         */
+        static final int MIN_RENUMBER = 64;
+        /**
+         * One count per ticket still held.
+         */
+        FenwickTree tickets = new FenwickTree();
+        /**
+         * The student holding each ticket, or null once it is given back.
+         */
+        Student[] holders = new Student[16];
+        /**
+         * The next ticket to hand out.
+         */
+        int nextTicket;
+        /**
+         * The number of tickets still held.
+         */
+        int held;
+
+        /**
+         * Hands out the next ticket.
+         *
+         * @param student The student taking the ticket.
+         * @return The ticket.
+         */
+        int join(Student student) {
+            if (nextTicket == holders.length) {
+                holders = Arrays.copyOf(holders, holders.length * 2);
+            }
+            holders[nextTicket] = student;
+            tickets.add(nextTicket, 1);
+            held++;
+            return nextTicket++;
+        }
+
+        /**
+         * Gives back a ticket, starting the tickets again once none are held.
+         *
+         * @param ticket The ticket.
+         */
+        void leave(int ticket) {
+            holders[ticket] = null;
+            tickets.add(ticket, -1);
+            if (--held == 0) {
+                tickets.clear();
+                nextTicket = 0;
+            }
+        }
+
+        /**
+         * Checks whether most of the tickets handed out have been given back,
+         * so the queue should be renumbered.
+         *
+         * @return The boolean result of the check.
+         */
+        boolean isSparse() {
+            return nextTicket >= MIN_RENUMBER && held < nextTicket / 2;
+        }
+
+        /**
+         * Returns the students holding a ticket, in ticket order.
+         *
+         * @return The students.
+         */
+        List<Student> waiting() {
+            List<Student> students = new ArrayList<Student>(held);
+            for (int i = 0; i < nextTicket; i++) {
+                if (holders[i] != null) {
+                    students.add(holders[i]);
+                }
+            }
+            return students;
+        }
+
+        /**
+         * Takes back every ticket, sizing the queue for those about to be
+         * handed out again.
+         */
+        void reset() {
+            tickets = new FenwickTree();
+            holders = new Student[Math.max(16, Integer.highestOneBit(Math.max(1, held)) * 2)];
+            nextTicket = 0;
+            held = 0;
+        }
+    }
+
+    /**
+     * Immutable record of one student's bookings.
+     */
+    private static final class Enrolments {
+
+        /**
+         * The record of a student with no bookings.
+         */
+        static final Enrolments NONE = new Enrolments(Collections.<CourseSchedule>emptySet(),
+                Collections.<CourseSchedule, Integer>emptyMap());
+        /**
+         * The schedules the student is registered on.
+         */
+        final Set<CourseSchedule> registered;
+        /**
+         * The student's ticket on each schedule they are waiting for.
+         */
+        final Map<CourseSchedule, Integer> waitListTickets;
+
+        /**
+         * Constructor.
+         *
+         * @param registered The schedules the student is registered on.
+         * @param waitListTickets The student's waiting list tickets.
+         */
+        Enrolments(Set<CourseSchedule> registered, Map<CourseSchedule, Integer> waitListTickets) {
+            this.registered = registered;
+            this.waitListTickets = waitListTickets;
+        }
+
+        /**
+         * Returns a copy of this record with the student's state on one
+         * schedule replaced.
+         *
+         * @param schedule The schedule.
+         * @param isRegistered Whether the student is registered.
+         * @param ticket The student's ticket if waiting, else null.
+         * @return The new record.
+         */
+        Enrolments with(CourseSchedule schedule, boolean isRegistered, Integer ticket) {
+            Set<CourseSchedule> newRegistered = new HashSet<CourseSchedule>(registered);
+            Map<CourseSchedule, Integer> newTickets = new HashMap<CourseSchedule, Integer>(waitListTickets);
+            if (isRegistered) {
+                newRegistered.add(schedule);
+            } else {
+                newRegistered.remove(schedule);
+            }
+            if (ticket != null) {
+                newTickets.put(schedule, ticket);
+            } else {
+                newTickets.remove(schedule);
+            }
+            return new Enrolments(Collections.unmodifiableSet(newRegistered),
+                    Collections.unmodifiableMap(newTickets));
+        }
+
+        /**
+         * Checks whether the student has no bookings.
+         *
+         * @return The boolean result of the check.
+         */
+        boolean isEmpty() {
+            return registered.isEmpty() && waitListTickets.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.erudine.coursebooking;
+
+import com.erudine.coursebooking.persons.Student;
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * First come, first serve queue of students waiting for a place on a course,
+ * used for the {@link WaitListPolicy#FIRST_COME_FIRST_SERVED default policy}.
+ * The queue is a doubly linked list with a hash index over its nodes, so
+ * membership checks, removal from anywhere in the queue and promotion of the
+ * head all take constant time however long the queue grows.
+ *
+ * @author Adam Harries
+ * @version 31 Jul 2013
+ */
+final class FifoWaitList extends WaitList {
+
+    /**
+     * Index from each waiting student to their node in the queue.
+     */
+    private final ConcurrentHashMap<Student, Node> index;
+    /**
+     * Sentinel node preceding the first waiting student.
+     */
+    private final Node head;
+    /**
+     * The last node in the queue, or the head sentinel if the queue is empty.
+     */
+    private Node tail;
+    /**
+     * The number of students in the queue.
+     */
+    private volatile int size;
+    /**
+     * Read-only view of the queue handed out to callers.
+     */
+    private final Collection<Student> view;
+
+    /**
+     * Constructor.
+     */
+    FifoWaitList() {
+        index = new ConcurrentHashMap<Student, Node>();
+        head = new Node(null);
+        tail = head;
+        view = new View();
+    }
+
+    /**
+     * Adds a student to the end of the queue.
+     *
+     * @param student The student to add.
+     * @return false if the student was already in the queue.
+     */
+    @Override
+    boolean add(Student student) {
+        if (index.containsKey(student)) {
+            return false;
+        }
+        Node node = new Node(student);
+        node.prev = tail;
+        tail.next = node;
+        tail = node;
+        index.put(student, node);
+        size++;
+        return true;
+    }
+
+    /**
+     * Removes a student from anywhere in the queue.
+     *
+     * @param student The student to remove.
+     * @return true if the student was in the queue.
+     */
+    @Override
+    boolean remove(Student student) {
+        Node node = index.remove(student);
+        if (node == null) {
+            return false;
+        }
+        unlink(node);
+        return true;
+    }
+
+    /**
+     * Removes and returns the student at the head of the queue.
+     *
+     * @return The first student in the queue, or null if the queue is empty.
+     */
+    @Override
+    Student poll() {
+        Node first = head.next;
+        if (first == null) {
+            return null;
+        }
+        index.remove(first.student);
+        unlink(first);
+        return first.student;
+    }
+
+    /**
+     * Returns the student at the head of the queue without removing them.
+     *
+     * @return The first student in the queue, or null if the queue is empty.
+     */
+    @Override
+    Student peek() {
+        Node first = head.next;
+        return first == null ? null : first.student;
+    }
+
+    /**
+     * Checks whether a student is in the queue.
+     *
+     * @param student The student to check.
+     * @return The boolean result of the check.
+     */
+    @Override
+    boolean contains(Student student) {
+        return index.containsKey(student);
+    }
+
+    /**
+     * Returns the number of students in the queue.
+     *
+     * @return {@link FifoWaitList#size size}.
+     */
+    @Override
+    int size() {
+        return size;
+    }
+
+    /**
+     * Checks whether the queue is empty.
+     *
+     * @return The boolean result of the check.
+     */
+    @Override
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns an ordered, read-only view of the queue.
+     *
+     * @return {@link FifoWaitList#view view}.
+     */
+    @Override
+    Collection<Student> view() {
+        return view;
+    }
+
+    /**
+     * Unlinks a node from the queue. The node keeps its forward pointer so that
+     * an iterator currently positioned on it can carry on to its successors.
+     *
+     * @param node The node to unlink.
+     */
+    private void unlink(Node node) {
+        Node prev = node.prev;
+        Node next = node.next;
+        prev.next = next;
+        if (next == null) {
+            tail = prev;
+        } else {
+            next.prev = prev;
+        }
+        node.removed = true;
+        size--;
+    }
+
+    /**
+     * A single entry in the queue.
+     */
+    private static final class Node {
+
+        /**
+         * The waiting student, or null for the head sentinel.
+         */
+        final Student student;
+        /**
+         * The next node in the queue.
+         */
+        volatile Node next;
+        /**
+         * The previous node in the queue. Only read by the lock holder.
+         */
+        Node prev;
+        /**
+         * Whether the node has been unlinked from the queue.
+         */
+        volatile boolean removed;
+
+        /**
+         * Constructor.
+         *
+         * @param student The waiting student.
+         */
+        Node(Student student) {
+            this.student = student;
+        }
+    }
+
+    /**
+     * Read-only view over the queue in first come, first serve order.
+     */
+    private final class View extends AbstractCollection<Student> {
+
+        @Override
+        public Iterator<Student> iterator() {
+            return new Iterator<Student>() {
+                private Node nextNode = advance(head);
+
+                @Override
+                public boolean hasNext() {
+                    //Skip a student who left the queue after being looked ahead to
+                    if (nextNode != null && nextNode.removed) {
+                        nextNode = advance(nextNode);
+                    }
+                    return nextNode != null;
+                }
+
+                @Override
+                public Student next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    Student student = nextNode.student;
+                    nextNode = advance(nextNode);
+                    return student;
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException("The waiting list is read-only.");
+                }
+            };
+        }
+
+        /**
+         * Returns the next node after the given one which is still queued.
+         *
+         * @param node The node to advance from.
+         * @return The next queued node, or null at the end of the queue.
+         */
+        private Node advance(Node node) {
+            Node next = node.next;
+            while (next != null && next.removed) {
+                next = next.next;
+            }
+            return next;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof Student && index.containsKey((Student) o);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return size == 0;
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package com.erudine.coursebooking;
+
+import com.erudine.coursebooking.persons.Student;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Queue of students waiting for a place on a course in the order of a {@link
+ * WaitListPolicy}, held as a binary heap with a hash index from each student
+ * to their entry. Each entry records its position in the heap, so joining the
+ * queue, promoting the best ranked student and removing a student from
+ * anywhere in the queue all take O(log n) time.
+ * <p>
+ * Entries are ordered by rank and then by the order they joined, so students
+ * of equal rank are served first come, first served. The {@link
+ * HeapWaitList#view() view} is sorted from a copy of the index when iterated.
+ *
+ * @author Adam Harries
+ * @version 31 Jul 2013
+ */
+final class HeapWaitList extends WaitList {
+
+    /**
+     * Orders entries by rank, then by the order they joined.
+     */
+    private static final Comparator<Entry> ORDER = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry a, Entry b) {
+            if (a.rank != b.rank) {
+                return a.rank < b.rank ? -1 : 1;
+            }
+            return Long.compare(a.sequence, b.sequence);
+        }
+    };
+
+    /**
+     * The schedule whose students wait.
+     */
+    private final CourseSchedule schedule;
+    /**
+     * The order in which students are offered a place.
+     */
+    private final WaitListPolicy policy;
+    /**
+     * Index from each waiting student to their entry.
+     */
+    private final ConcurrentHashMap<Student, Entry> index;
+    /**
+     * The entries, as a binary heap with the best ranked first.
+     */
+    private Entry[] heap;
+    /**
+     * The number of students in the queue.
+     */
+    private volatile int size;
+    /**
+     * The number of students who have joined the queue.
+     */
+    private long joined;
+    /**
+     * Read-only view of the queue handed out to callers.
+     */
+    private final Collection<Student> view;
+
+    /**
+     * Constructor.
+     *
+     * @param schedule The schedule whose students wait.
+     * @param policy The order in which students are offered a place.
+     */
+    HeapWaitList(CourseSchedule schedule, WaitListPolicy policy) {
+        this.schedule = schedule;
+        this.policy = policy;
+        index = new ConcurrentHashMap<Student, Entry>();
+        heap = new Entry[16];
+        view = new View();
+    }
+
+    @Override
+    boolean add(Student student) {
+        if (index.containsKey(student)) {
+            return false;
+        }
+        Entry entry = new Entry(student, policy.rank(schedule, student), joined++);
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, heap.length * 2);
+        }
+        index.put(student, entry);
+        entry.position = size;
+        heap[size] = entry;
+        size++;
+        siftUp(entry.position);
+        return true;
+    }
+
+    @Override
+    boolean remove(Student student) {
+        Entry entry = index.remove(student);
+        if (entry == null) {
+            return false;
+        }
+        removeAt(entry.position);
+        return true;
+    }
+
+    @Override
+    Student poll() {
+        if (size == 0) {
+            return null;
+        }
+        Entry first = heap[0];
+        index.remove(first.student);
+        removeAt(0);
+        return first.student;
+    }
+
+    @Override
+    Student peek() {
+        return size == 0 ? null : heap[0].student;
+    }
+
+    @Override
+    boolean contains(Student student) {
+        return index.containsKey(student);
+    }
+
+    @Override
+    int size() {
+        return size;
+    }
+
+    @Override
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    Collection<Student> view() {
+        return view;
+    }
+
+    /**
+     * Removes the entry at a position in the heap, filling the gap with the
+     * last entry.
+     *
+     * @param position The position.
+     */
+    private void removeAt(int position) {
+        int last = size - 1;
+        Entry moved = heap[last];
+        heap[last] = null;
+        size = last;
+        if (position == last) {
+            return;
+        }
+        heap[position] = moved;
+        moved.position = position;
+        siftDown(position);
+        if (heap[position] == moved) {
+            siftUp(position);
+        }
+    }
+
+    /**
+     * Moves the entry at a position up the heap until its parent is better
+     * ranked.
+     *
+     * @param position The position.
+     */
+    private void siftUp(int position) {
+        Entry entry = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (ORDER.compare(heap[parent], entry) <= 0) {
+                break;
+            }
+            place(heap[parent], position);
+            position = parent;
+        }
+        place(entry, position);
+    }
+
+    /**
+     * Moves the entry at a position down the heap until both its children are
+     * worse ranked.
+     *
+     * @param position The position.
+     */
+    private void siftDown(int position) {
+        Entry entry = heap[position];
+        int half = size >>> 1;
+        while (position < half) {
+            int child = 2 * position + 1;
+            int right = child + 1;
+            if (right < size && ORDER.compare(heap[right], heap[child]) < 0) {
+                child = right;
+            }
+            if (ORDER.compare(entry, heap[child]) <= 0) {
+                break;
+            }
+            place(heap[child], position);
+            position = child;
+        }
+        place(entry, position);
+    }
+
+    /**
+     * Puts an entry at a position in the heap.
+     *
+     * @param entry The entry.
+     * @param position The position.
+     */
+    private void place(Entry entry, int position) {
+        heap[position] = entry;
+        entry.position = position;
+    }
+
+    /**
+     * A single student in the queue.
+     */
+    private static final class Entry {
+
+        /**
+         * The waiting student.
+         */
+        final Student student;
+        /**
+         * The student's rank under the policy.
+         */
+        final long rank;
+        /**
+         * The order in which the student joined.
+         */
+        final long sequence;
+        /**
+         * The entry's position in the heap. Only used by the lock holder.
+         */
+        int position;
+
+        /**
+         * Constructor.
+         *
+         * @param student The waiting student.
+         * @param rank The student's rank under the policy.
+         * @param sequence The order in which the student joined.
+         */
+        Entry(Student student, long rank, long sequence) {
+            this.student = student;
+            this.rank = rank;
+            this.sequence = sequence;
+        }
+    }
+
+    /**
+     * Read-only view over the queue in the order places will be offered.
+     */
+    private final class View extends AbstractCollection<Student> {
+
+        @Override
+        public Iterator<Student> iterator() {
+            List<Entry> entries = new ArrayList<Entry>(index.values());
+            Collections.sort(entries, ORDER);
+            final Iterator<Entry> sorted = entries.iterator();
+            return new Iterator<Student>() {
+                @Override
+                public boolean hasNext() {
+                    return sorted.hasNext();
+                }
+
+                @Override
+                public Student next() {
+                    return sorted.next().student;
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException("The waiting list is read-only.");
+                }
+            };
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof Student && index.containsKey((Student) o);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return size == 0;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.erudine.coursebooking;
+
+import com.erudine.coursebooking.persons.Student;
+
+/**
+ * What a student is told about one schedule by a {@link NotificationPipeline}:
+ * the latest change to their booking, their place in the waiting list, or
+ * both. Several changes made in quick succession are coalesced into one
+ * notification carrying the last of them.
+ *
+ * @author Adam Harries
+ * @version 31 Jul 2013
+ */
+public final class Notification {
+
+    /**
+     * The schedule concerned.
+     */
+    private final CourseSchedule schedule;
+    /**
+     * The student notified.
+     */
+    private final Student student;
+    /**
+     * The latest change to the student's booking, or null if only their
+     * place in the waiting list moved.
+     */
+    private final BookingEvent event;
+    /**
+     * The student's 1-based place in the waiting list, or 0 if they are not
+     * waiting.
+     */
+    private final int waitListPosition;
+
+    /**
+     * Constructor.
+     *
+     * @param schedule The schedule concerned.
+     * @param student The student notified.
+     * @param event The latest change to the booking, or null.
+     * @param waitListPosition The place in the waiting list, or 0.
+     */
+    Notification(CourseSchedule schedule, Student student, BookingEvent event, int waitListPosition) {
+        this.schedule = schedule;
+        this.student = student;
+        this.event = event;
+        this.waitListPosition = waitListPosition;
+    }
+
+    /**
+     * Returns the schedule concerned.
+     *
+     * @return {@link Notification#schedule schedule}.
+     */
+    public CourseSchedule getSchedule() {
+        return schedule;
+    }
+
+    /**
+     * Returns the student notified.
+     *
+     * @return {@link Notification#student student}.
+     */
+    public Student getStudent() {
+        return student;
+    }
+
+    /**
+     * Returns the latest change to the student's booking.
+     *
+     * @return {@link Notification#event event}.
+     */
+    public BookingEvent getEvent() {
+        return event;
+    }
+
+    /**
+     * Returns the student's place in the waiting list.
+     *
+     * @return {@link Notification#waitListPosition wait list position}.
+     */
+    public int getWaitListPosition() {
+        return waitListPosition;
+    }
+}
@@ -0,0 +1,384 @@
+package com.erudine.coursebooking;
+
+import com.erudine.coursebooking.persons.Student;
+import com.erudine.coursebooking.util.MpscRingBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Tells students about changes to their bookings without slowing the
+ * bookings down. Attached to each schedule as a {@link BookingListener}, the
+ * pipeline does no more under the schedule's lock than place the change in
+ * a bounded {@link MpscRingBuffer}; if the buffer is full the change is
+ * dropped and counted rather than waited for, so a slow sink can never stall
+ * a booking.
+ * <p>
+ * A single consumer thread drains the buffer in batches. Within a batch the
+ * changes are coalesced to the latest one per student and schedule, and for
+ * each schedule whose waiting list changed the students whose place moved
+ * are found from a {@link CourseSchedule#getRoster() roster snapshot}, so a
+ * promotion reaches everyone behind it in the queue without any work inside
+ * the lock. Each student's notifications are then handed to every
+ * {@link NotificationSink} in one call. After a change has been dropped the
+ * next batch re-reads the waiting lists of every attached schedule, so places
+ * in the queue come right even though the dropped change is not reported.
+ *
+ * @author Adam Harries
+ * @version 31 Jul 2013
+ */
+public class NotificationPipeline implements BookingListener, AutoCloseable {
+
+    /**
+     * The default number of changes the buffer can hold.
+     */
+    public static final int DEFAULT_CAPACITY = 8192;
+    /**
+     * The largest number of changes coalesced into one batch.
+     */
+    private static final int MAX_BATCH = 1024;
+    /**
+     * The changes waiting to be processed.
+     */
+    private final MpscRingBuffer<Change> changes;
+    /**
+     * The sinks notifications are delivered to.
+     */
+    private final List<NotificationSink> sinks;
+    /**
+     * The last waiting-list places reported for each attached schedule.
+     */
+    private final ConcurrentHashMap<CourseSchedule, Map<Student, Integer>> positions;
+    /**
+     * The number of changes dropped because the buffer was full.
+     */
+    private final AtomicLong droppedChanges;
+    /**
+     * The number of deliveries on which a sink threw.
+     */
+    private final AtomicLong failedDeliveries;
+    /**
+     * The thread processing changes.
+     */
+    private final Thread consumer;
+    /**
+     * Whether a change has been dropped since the last batch.
+     */
+    private volatile boolean overflowed;
+    /**
+     * Whether the consumer is parked waiting for changes.
+     */
+    private volatile boolean waiting;
+    /**
+     * Whether the pipeline has been closed.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Constructor.
+     */
+    public NotificationPipeline() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param capacity The number of changes the buffer can hold before
+     * further changes are dropped, rounded up to a power of two.
+     */
+    public NotificationPipeline(int capacity) {
+        changes = new MpscRingBuffer<Change>(capacity);
+        sinks = new CopyOnWriteArrayList<NotificationSink>();
+        positions = new ConcurrentHashMap<CourseSchedule, Map<Student, Integer>>();
+        droppedChanges = new AtomicLong();
+        failedDeliveries = new AtomicLong();
+        consumer = new Thread(this::consume, "NotificationPipeline");
+        consumer.setDaemon(true);
+    }
+
+    /**
+     * Starts the consumer thread.
+     *
+     * @return This pipeline.
+     */
+    public NotificationPipeline start() {
+        consumer.start();
+        return this;
+    }
+
+    /**
+     * Adds a sink.
+     *
+     * @param sink The sink to deliver notifications to.
+     */
+    public void addSink(NotificationSink sink) {
+        sinks.add(sink);
+    }
+
+    /**
+     * Removes a sink.
+     *
+     * @param sink The sink to remove.
+     * @return false if the sink had not been added.
+     */
+    public boolean removeSink(NotificationSink sink) {
+        return sinks.remove(sink);
+    }
+
+    /**
+     * Starts notifying the students of a schedule, taking their present
+     * places in its waiting list as already known.
+     *
+     * @param schedule The schedule.
+     */
+    public void attach(final CourseSchedule schedule) {
+        schedule.runExclusively(new Runnable() {
+            @Override
+            public void run() {
+                positions.put(schedule, positionsIn(schedule.getRoster()));
+                schedule.addBookingListener(NotificationPipeline.this);
+            }
+        });
+    }
+
+    /**
+     * Stops notifying the students of a schedule. Changes already queued are
+     * still delivered.
+     *
+     * @param schedule The schedule.
+     */
+    public void detach(CourseSchedule schedule) {
+        schedule.removeBookingListener(this);
+        positions.remove(schedule);
+    }
+
+    /**
+     * Queues a change, dropping it if the buffer is full.
+     *
+     * @param schedule The schedule which changed.
+     * @param event The change.
+     * @param student The student concerned.
+     */
+    @Override
+    public void bookingChanged(CourseSchedule schedule, BookingEvent event, Student student) {
+        if (!changes.offer(new Change(schedule, event, student))) {
+            droppedChanges.incrementAndGet();
+            overflowed = true;
+        }
+        if (waiting) {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    /**
+     * Returns the number of changes dropped because the buffer was full.
+     *
+     * @return The number of changes dropped.
+     */
+    public long getDroppedChanges() {
+        return droppedChanges.get();
+    }
+
+    /**
+     * Returns the number of deliveries on which a sink threw.
+     *
+     * @return The number of failed deliveries.
+     */
+    public long getFailedDeliveries() {
+        return failedDeliveries.get();
+    }
+
+    /**
+     * Stops the consumer once it has delivered the changes already queued.
+     * An interrupt does not cut the wait short, but is kept set on the calling
+     * thread.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(consumer);
+        boolean interrupted = false;
+        while (consumer.isAlive()) {
+            try {
+                consumer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The consumer loop: drains the buffer in batches until closed.
+     */
+    private void consume() {
+        List<Change> batch = new ArrayList<Change>(MAX_BATCH);
+        for (;;) {
+            Change next;
+            while (batch.size() < MAX_BATCH && (next = changes.poll()) != null) {
+                batch.add(next);
+            }
+            boolean resync = overflowed;
+            if (!batch.isEmpty() || resync) {
+                overflowed = false;
+                deliver(batch, resync);
+                batch.clear();
+                continue;
+            }
+            if (closed) {
+                return;
+            }
+            //Nothing to do: park until a change wakes us, re-checking the
+            //buffer after advertising that we are waiting
+            waiting = true;
+            if (changes.isEmpty() && !closed && !overflowed) {
+                LockSupport.park(this);
+            }
+            waiting = false;
+        }
+    }
+
+    /**
+     * Coalesces a batch of changes and delivers the resulting notifications.
+     *
+     * @param batch The changes, in the order they were made.
+     * @param resync Whether to re-read the waiting lists of every attached
+     * schedule.
+     */
+    private void deliver(List<Change> batch, boolean resync) {
+        //Keep the latest change per student and schedule, and note the
+        //schedules whose waiting lists changed
+        Map<Student, Map<CourseSchedule, BookingEvent>> latest
+                = new LinkedHashMap<Student, Map<CourseSchedule, BookingEvent>>();
+        Set<CourseSchedule> queuesChanged = new LinkedHashSet<CourseSchedule>();
+        if (resync) {
+            queuesChanged.addAll(positions.keySet());
+        }
+        for (Change change : batch) {
+            Map<CourseSchedule, BookingEvent> events = latest.get(change.student);
+            if (events == null) {
+                events = new LinkedHashMap<CourseSchedule, BookingEvent>();
+                latest.put(change.student, events);
+            }
+            events.put(change.schedule, change.event);
+            if (change.event != BookingEvent.REGISTERED && change.event != BookingEvent.REGISTRATION_CANCELLED) {
+                queuesChanged.add(change.schedule);
+            }
+        }
+
+        //Compare each changed waiting list with the places last reported
+        Map<Student, Map<CourseSchedule, Integer>> moved = new HashMap<Student, Map<CourseSchedule, Integer>>();
+        Map<CourseSchedule, Map<Student, Integer>> current = new HashMap<CourseSchedule, Map<Student, Integer>>();
+        for (CourseSchedule schedule : queuesChanged) {
+            Map<Student, Integer> before = positions.get(schedule);
+            if (before == null) {
+                //Detached since the change was made
+                continue;
+            }
+            Map<Student, Integer> after = positionsIn(schedule.getRoster());
+            positions.replace(schedule, before, after);
+            current.put(schedule, after);
+            for (Map.Entry<Student, Integer> entry : after.entrySet()) {
+                if (!entry.getValue().equals(before.get(entry.getKey()))) {
+                    Map<CourseSchedule, Integer> places = moved.get(entry.getKey());
+                    if (places == null) {
+                        places = new HashMap<CourseSchedule, Integer>();
+                        moved.put(entry.getKey(), places);
+                        if (!latest.containsKey(entry.getKey())) {
+                            latest.put(entry.getKey(), Collections.<CourseSchedule, BookingEvent>emptyMap());
+                        }
+                    }
+                    places.put(schedule, entry.getValue());
+                }
+            }
+        }
+
+        for (Map.Entry<Student, Map<CourseSchedule, BookingEvent>> entry : latest.entrySet()) {
+            Student student = entry.getKey();
+            Map<CourseSchedule, Integer> places = moved.get(student);
+            List<Notification> notifications = new ArrayList<Notification>();
+            for (Map.Entry<CourseSchedule, BookingEvent> event : entry.getValue().entrySet()) {
+                Map<Student, Integer> queue = current.get(event.getKey());
+                Integer place = queue == null ? null : queue.get(student);
+                notifications.add(new Notification(event.getKey(), student, event.getValue(),
+                        place == null ? 0 : place));
+            }
+            if (places != null) {
+                for (Map.Entry<CourseSchedule, Integer> place : places.entrySet()) {
+                    if (!entry.getValue().containsKey(place.getKey())) {
+                        notifications.add(new Notification(place.getKey(), student, null, place.getValue()));
+                    }
+                }
+            }
+            notifications = Collections.unmodifiableList(notifications);
+            for (NotificationSink sink : sinks) {
+                try {
+                    sink.deliver(student, notifications);
+                } catch (RuntimeException e) {
+                    //A failing sink must not stop the consumer; errors still do
+                    failedDeliveries.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * Numbers the wait-listed students of a roster by their place in the
+     * queue.
+     *
+     * @param roster The roster.
+     * @return Map from student to 1-based place.
+     */
+    private static Map<Student, Integer> positionsIn(RosterSnapshot roster) {
+        Map<Student, Integer> places = new HashMap<Student, Integer>();
+        int place = 0;
+        for (Student student : roster.getWaitListedStudents()) {
+            places.put(student, ++place);
+        }
+        return places;
+    }
+
+    /**
+     * A change waiting in the buffer.
+     */
+    private static final class Change {
+
+        /**
+         * The schedule which changed.
+         */
+        final CourseSchedule schedule;
+        /**
+         * The change.
+         */
+        final BookingEvent event;
+        /**
+         * The student concerned.
+         */
+        final Student student;
+
+        /**
+         * Constructor.
+         *
+         * @param schedule The schedule which changed.
+         * @param event The change.
+         * @param student The student concerned.
+         */
+        Change(CourseSchedule schedule, BookingEvent event, Student student) {
+            this.schedule = schedule;
+            this.event = event;
+            this.student = student;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.erudine.coursebooking;
+
+import com.erudine.coursebooking.persons.Student;
+import java.util.List;
+
+/**
+ * Delivers the notifications gathered by a {@link NotificationPipeline}, by
+ * mail, message queue or whatever else. Sinks are called on the pipeline's
+ * own thread, never under a schedule's lock, once per student per batch.
+ *
+ * @author Adam Harries
+ * @version 31 Jul 2013
+ */
+public interface NotificationSink {
+
+    /**
+     * Delivers a student's notifications.
+     *
+     * @param student The student.
+     * @param notifications The notifications, one per schedule.
+     */
+    void deliver(Student student, List<Notification> notifications);
+}
@@ -0,0 +1,194 @@
+package com.erudine.coursebooking;
+
+import com.erudine.coursebooking.util.ImmutableBitSet;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The prerequisite graph of a published {@link CourseCatalog}, holding the
+ * transitive closure of each course's prerequisites as a bitset over catalog
+ * ordinals. Closures are computed with a single topological pass when the
+ * catalog is published and are then kept up to date incrementally as courses
+ * and prerequisites are added, so "everything required before course X" is a
+ * lookup rather than a walk of the graph.
+ * <p>
+ * The mutating methods must only be called while holding the catalog's lock;
+ * closures may be read from any thread.
+ *
+ * @author Adam Harries
+ * @version 31 Jul 2013
+ */
+final class PrerequisiteGraph {
+
+    /**
+     * The transitive prerequisite closure of each course, indexed by ordinal.
+     */
+    private volatile AtomicReferenceArray<ImmutableBitSet> closures;
+    /**
+     * The courses which directly require each course, indexed by ordinal.
+     */
+    private final List<List<Course>> dependents;
+
+    /**
+     * Constructor.
+     */
+    PrerequisiteGraph() {
+        closures = new AtomicReferenceArray<ImmutableBitSet>(64);
+        dependents = new ArrayList<List<Course>>();
+    }
+
+    /**
+     * Orders a batch of courses so that every course comes after those of its
+     * prerequisites which are also in the batch. Prerequisites outside the
+     * batch are ignored.
+     *
+     * @param batch The courses to order, with distinct names.
+     * @return The courses in topological order.
+     * @throws IllegalStateException if the prerequisites within the batch form
+     * a cycle.
+     */
+    static List<Course> topologicalOrder(Collection<Course> batch) {
+        //Index the batch by name, since prerequisites may not be the same
+        //instances as the courses they name
+        Map<Course, Integer> indices = new HashMap<Course, Integer>();
+        List<Course> courses = new ArrayList<Course>(batch);
+        for (int i = 0; i < courses.size(); i++) {
+            indices.put(courses.get(i), i);
+        }
+        int[] remaining = new int[courses.size()];
+        List<List<Integer>> batchDependents = new ArrayList<List<Integer>>();
+        for (int i = 0; i < courses.size(); i++) {
+            batchDependents.add(new ArrayList<Integer>());
+        }
+        for (int i = 0; i < courses.size(); i++) {
+            for (Course preRequisite : courses.get(i).getPreRequisites()) {
+                Integer p = indices.get(preRequisite);
+                if (p != null) {
+                    remaining[i]++;
+                    batchDependents.get(p).add(i);
+                }
+            }
+        }
+        //Kahn's algorithm: a course is ready once all its prerequisites are
+        ArrayDeque<Integer> ready = new ArrayDeque<Integer>();
+        for (int i = 0; i < remaining.length; i++) {
+            if (remaining[i] == 0) {
+                ready.add(i);
+            }
+        }
+        List<Course> ordered = new ArrayList<Course>(courses.size());
+        while (!ready.isEmpty()) {
+            int next = ready.poll();
+            ordered.add(courses.get(next));
+            for (int dependent : batchDependents.get(next)) {
+                if (--remaining[dependent] == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+        if (ordered.size() < courses.size()) {
+            StringBuilder cycle = new StringBuilder();
+            for (int i = 0; i < remaining.length; i++) {
+                if (remaining[i] > 0) {
+                    cycle.append(cycle.length() == 0 ? "" : ", ").append(courses.get(i).getName());
+                }
+            }
+            throw new IllegalStateException("The prerequisites of these courses form a cycle: " + cycle + ".");
+        }
+        return ordered;
+    }
+
+    /**
+     * Adds a published course whose prerequisites are all already in the
+     * graph.
+     *
+     * @param course The course to add.
+     */
+    void add(Course course) {
+        int ordinal = course.getOrdinal();
+        ensureCapacity(ordinal);
+        ImmutableBitSet closure = ImmutableBitSet.EMPTY;
+        for (Course preRequisite : course.getPreRequisites()) {
+            closure = closure.or(closureOf(preRequisite.getOrdinal()).with(preRequisite.getOrdinal()));
+            dependents.get(preRequisite.getOrdinal()).add(course);
+        }
+        closures.set(ordinal, closure);
+    }
+
+    /**
+     * Checks whether adding a prerequisite to a course would create a cycle.
+     *
+     * @param course The course gaining the prerequisite.
+     * @param preRequisite The new prerequisite.
+     * @return The boolean result of the check.
+     */
+    boolean wouldCreateCycle(Course course, Course preRequisite) {
+        return course.getOrdinal() == preRequisite.getOrdinal()
+                || closureOf(preRequisite.getOrdinal()).get(course.getOrdinal());
+    }
+
+    /**
+     * Records a new prerequisite of a course, extending the closure of the
+     * course and of every course which transitively depends on it. The walk
+     * stops at any course whose closure already covers the new requirements,
+     * since everything depending on it does too.
+     *
+     * @param course The course gaining the prerequisite.
+     * @param preRequisite The new prerequisite, which must not create a cycle.
+     */
+    void addEdge(Course course, Course preRequisite) {
+        dependents.get(preRequisite.getOrdinal()).add(course);
+        ImmutableBitSet added = closureOf(preRequisite.getOrdinal()).with(preRequisite.getOrdinal());
+        ArrayDeque<Course> pending = new ArrayDeque<Course>();
+        pending.add(course);
+        while (!pending.isEmpty()) {
+            Course next = pending.poll();
+            ImmutableBitSet closure = closureOf(next.getOrdinal());
+            ImmutableBitSet extended = closure.or(added);
+            if (extended != closure) {
+                closures.set(next.getOrdinal(), extended);
+                pending.addAll(dependents.get(next.getOrdinal()));
+            }
+        }
+    }
+
+    /**
+     * Returns the transitive prerequisite closure of a course.
+     *
+     * @param ordinal The course's ordinal.
+     * @return The ordinals of every course required, directly or indirectly.
+     */
+    ImmutableBitSet closureOf(int ordinal) {
+        AtomicReferenceArray<ImmutableBitSet> current = closures;
+        ImmutableBitSet closure = ordinal < current.length() ? current.get(ordinal) : null;
+        return closure == null ? ImmutableBitSet.EMPTY : closure;
+    }
+
+    /**
+     * Makes room for a course with the given ordinal.
+     *
+     * @param ordinal The ordinal.
+     */
+    private void ensureCapacity(int ordinal) {
+        while (dependents.size() <= ordinal) {
+            dependents.add(new ArrayList<Course>(2));
+        }
+        AtomicReferenceArray<ImmutableBitSet> current = closures;
+        if (ordinal >= current.length()) {
+            int length = current.length();
+            while (length <= ordinal) {
+                length *= 2;
+            }
+            AtomicReferenceArray<ImmutableBitSet> grown = new AtomicReferenceArray<ImmutableBitSet>(length);
+            for (int i = 0; i < current.length(); i++) {
+                grown.set(i, current.get(i));
+            }
+            closures = grown;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.erudine.coursebooking;
+
+import java.util.Date;
+
+/**
+ * The period during which students may book a {@link CourseSchedule}, held
+ * as two epoch millisecond instants so that checking it allocates nothing.
+ * The window opens and closes by itself as the schedule's clock passes its
+ * instants, with no timer to cancel or reschedule.
+ *
+ * @author Adam Harries
+ * @version 31 Jul 2013
+ */
+public final class RegistrationWindow {
+
+    /**
+     * A window which is always open.
+     */
+    public static final RegistrationWindow ALWAYS_OPEN = new RegistrationWindow(Long.MIN_VALUE, Long.MAX_VALUE);
+    /**
+     * The instant registration opens, inclusive.
+     */
+    private final long opensAt;
+    /**
+     * The instant registration closes, exclusive.
+     */
+    private final long closesAt;
+
+    /**
+     * Constructor.
+     *
+     * @param opensAt The instant registration opens, in milliseconds since the
+     * epoch.
+     * @param closesAt The instant registration closes, in milliseconds since
+     * the epoch.
+     */
+    public RegistrationWindow(long opensAt, long closesAt) {
+        if (opensAt > closesAt) {
+            throw new IllegalArgumentException("The registration window must open before it closes.");
+        }
+        this.opensAt = opensAt;
+        this.closesAt = closesAt;
+    }
+
+    /**
+     * Returns a window which is open from now until a course starts.
+     *
+     * @param startDate The start date of the course.
+     * @return The window.
+     */
+    public static RegistrationWindow until(Date startDate) {
+        return new RegistrationWindow(Long.MIN_VALUE, startDate.getTime());
+    }
+
+    /**
+     * Returns a window open between two dates.
+     *
+     * @param opens The date registration opens.
+     * @param closes The date registration closes.
+     * @return The window.
+     */
+    public static RegistrationWindow between(Date opens, Date closes) {
+        return new RegistrationWindow(opens.getTime(), closes.getTime());
+    }
+
+    /**
+     * Checks whether registration is open at an instant.
+     *
+     * @param now The instant in milliseconds since the epoch.
+     * @return The boolean result of the check.
+     */
+    public boolean isOpen(long now) {
+        return now >= opensAt && now < closesAt;
+    }
+
+    /**
+     * Returns the instant registration opens.
+     *
+     * @return {@link RegistrationWindow#opensAt opens at}.
+     */
+    public long getOpensAt() {
+        return opensAt;
+    }
+
+    /**
+     * Returns the instant registration closes.
+     *
+     * @return {@link RegistrationWindow#closesAt closes at}.
+     */
+    public long getClosesAt() {
+        return closesAt;
+    }
+}
@@ -0,0 +1,106 @@
+package com.erudine.coursebooking;
+
+import com.erudine.coursebooking.persons.Student;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Immutable copy of the roster and waiting list of a {@link CourseSchedule},
+ * consistent with each other as at one moment. Taken with {@link
+ * CourseSchedule#getRoster()}, so reports and exports can read a schedule
+ * without blocking bookings or seeing it change part way through.
+ * <p>
+ * Each snapshot carries the version of the schedule it was copied from: the
+ * number of changes made to the roster and waiting list before it. Two
+ * snapshots of one schedule with the same version hold the same students.
+ *
+ * @author Adam Harries
+ * @version 31 Jul 2013
+ */
+public final class RosterSnapshot {
+
+    /**
+     * The number of changes made to the schedule before the copy.
+     */
+    private final long version;
+    /**
+     * The students registered on the course.
+     */
+    private final Set<Student> registeredStudents;
+    /**
+     * The students waiting for a place, first in the queue first.
+     */
+    private final List<Student> waitListedStudents;
+
+    /**
+     * Constructor. Takes ownership of the collections given.
+     *
+     * @param version The number of changes made to the schedule before the
+     * copy.
+     * @param registeredStudents The students registered on the course.
+     * @param waitListedStudents The students waiting, in queue order.
+     */
+    RosterSnapshot(long version, Set<Student> registeredStudents, List<Student> waitListedStudents) {
+        this.version = version;
+        this.registeredStudents = Collections.unmodifiableSet(registeredStudents);
+        this.waitListedStudents = Collections.unmodifiableList(waitListedStudents);
+    }
+
+    /**
+     * Returns the version of the schedule copied.
+     *
+     * @return {@link RosterSnapshot#version version}.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the students registered on the course.
+     *
+     * @return {@link RosterSnapshot#registeredStudents registered students}.
+     */
+    public Set<Student> getRegisteredStudents() {
+        return registeredStudents;
+    }
+
+    /**
+     * Returns the students waiting for a place, in the order they will be
+     * offered one.
+     *
+     * @return {@link RosterSnapshot#waitListedStudents wait listed students}.
+     */
+    public List<Student> getWaitListedStudents() {
+        return waitListedStudents;
+    }
+
+    /**
+     * Returns the number of students registered on the course.
+     *
+     * @return The number of registered students.
+     */
+    public int getNumberOfRegisteredStudents() {
+        return registeredStudents.size();
+    }
+
+    /**
+     * Checks whether a student was registered on the course.
+     *
+     * @param student The student to check.
+     * @return The boolean result of the check.
+     */
+    public boolean isStudentRegistered(Student student) {
+        return registeredStudents.contains(student);
+    }
+
+    /**
+     * Checks whether a student was on the waiting list for the course.
+     *
+     * @param student The student to check.
+     * @return The boolean result of the check.
+     */
+    public boolean isStudentOnWaitingList(Student student) {
+        return waitListedStudents.contains(student);
+    }
+}
@@ -0,0 +1,275 @@
+package com.erudine.coursebooking;
+
+import com.erudine.coursebooking.persons.Student;
+import com.erudine.coursebooking.util.MpscRingBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Single-writer front end for a {@link CourseSchedule}. Callers submit
+ * bookings and cancellations to a bounded {@link MpscRingBuffer} mailbox and
+ * receive a CompletableFuture; one consumer thread drains the mailbox and
+ * applies the commands to the schedule strictly in submission order. Since the
+ * consumer is the only thread mutating the schedule its state stays in one
+ * core's cache, the schedule's lock is never contended, and first come, first
+ * serve order follows directly from mailbox order.
+ * <p>
+ * Commands are applied in batches under a single acquisition of the
+ * schedule's lock, and their futures are completed after the lock is
+ * released so that callers' continuations never run inside it.
+ *
+ * @author Adam Harries
+ * @version 31 Jul 2013
+ */
+public class ScheduleActor implements AutoCloseable {
+
+    /**
+     * The default number of commands the mailbox can hold.
+     */
+    public static final int DEFAULT_MAILBOX_CAPACITY = 1024;
+    /**
+     * The largest number of commands applied under one lock acquisition.
+     */
+    private static final int MAX_BATCH = 256;
+    /**
+     * The schedule the commands are applied to.
+     */
+    private final CourseSchedule schedule;
+    /**
+     * The mailbox of commands waiting to be applied.
+     */
+    private final MpscRingBuffer<Command<?>> mailbox;
+    /**
+     * The thread applying commands.
+     */
+    private final Thread consumer;
+    /**
+     * The number of submissions between checking for closure and placing
+     * their command in the mailbox, so the consumer does not exit under them.
+     */
+    private final AtomicInteger submitting;
+    /**
+     * Whether the consumer is parked waiting for commands.
+     */
+    private volatile boolean waiting;
+    /**
+     * Whether the actor has stopped accepting commands.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Constructor.
+     *
+     * @param schedule The schedule to apply commands to.
+     */
+    public ScheduleActor(CourseSchedule schedule) {
+        this(schedule, DEFAULT_MAILBOX_CAPACITY);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param schedule The schedule to apply commands to.
+     * @param mailboxCapacity The number of commands the mailbox can hold
+     * before submitters have to wait, rounded up to a power of two.
+     */
+    public ScheduleActor(CourseSchedule schedule, int mailboxCapacity) {
+        this.schedule = schedule;
+        this.mailbox = new MpscRingBuffer<Command<?>>(mailboxCapacity);
+        this.submitting = new AtomicInteger();
+        this.consumer = new Thread(this::consume, "ScheduleActor-" + schedule.getCourse().getName());
+        this.consumer.setDaemon(true);
+    }
+
+    /**
+     * Starts the consumer thread.
+     *
+     * @return This actor.
+     */
+    public ScheduleActor start() {
+        consumer.start();
+        return this;
+    }
+
+    /**
+     * Submits a booking.
+     *
+     * @param student The prospective student.
+     * @return A future completed with the outcome of the booking.
+     */
+    public CompletableFuture<BookingResult> book(final Student student) {
+        return submit(s -> s.book(student));
+    }
+
+    /**
+     * Submits a cancellation.
+     *
+     * @param student The student to de-register.
+     * @return A future completed with the outcome of the cancellation.
+     */
+    public CompletableFuture<CancellationResult> cancel(final Student student) {
+        return submit(s -> s.cancel(student));
+    }
+
+    /**
+     * Submits an arbitrary command, to be applied in order with the bookings
+     * and cancellations around it. Waits for space if the mailbox is full.
+     *
+     * @param <T> The type of the command's result.
+     * @param command The command to apply to the schedule.
+     * @return A future completed with the command's result, or exceptionally
+     * if the command throws or the actor has been closed.
+     */
+    public <T> CompletableFuture<T> submit(Function<CourseSchedule, T> command) {
+        Command<T> wrapped = new Command<T>(command);
+        submitting.incrementAndGet();
+        try {
+            if (closed) {
+                wrapped.future.completeExceptionally(
+                        new RejectedExecutionException("The schedule actor has been closed."));
+                return wrapped.future;
+            }
+            while (!mailbox.offer(wrapped)) {
+                //The mailbox is full: make sure the consumer is awake and back off
+                LockSupport.unpark(consumer);
+                LockSupport.parkNanos(1000L);
+            }
+        } finally {
+            submitting.decrementAndGet();
+        }
+        if (waiting) {
+            LockSupport.unpark(consumer);
+        }
+        return wrapped.future;
+    }
+
+    /**
+     * Returns the schedule the commands are applied to.
+     *
+     * @return {@link ScheduleActor#schedule schedule}.
+     */
+    public CourseSchedule getSchedule() {
+        return schedule;
+    }
+
+    /**
+     * Stops accepting commands and waits for those already submitted to be
+     * applied. An interrupt does not cut the wait short, but is kept set on
+     * the calling thread.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(consumer);
+        boolean interrupted = false;
+        while (consumer.isAlive()) {
+            try {
+                consumer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The consumer loop: drains the mailbox in batches until closed.
+     */
+    private void consume() {
+        final Command<?>[] batch = new Command<?>[MAX_BATCH];
+        for (;;) {
+            int count = 0;
+            Command<?> next;
+            while (count < MAX_BATCH && (next = mailbox.poll()) != null) {
+                batch[count++] = next;
+            }
+            if (count > 0) {
+                final int size = count;
+                schedule.runExclusively(() -> {
+                    for (int i = 0; i < size; i++) {
+                        batch[i].apply(schedule);
+                    }
+                });
+                for (int i = 0; i < size; i++) {
+                    batch[i].complete();
+                    batch[i] = null;
+                }
+                continue;
+            }
+            if (closed && submitting.get() == 0 && mailbox.isEmpty()) {
+                return;
+            }
+            //Nothing to do: park until a submitter wakes us, re-checking the
+            //mailbox after advertising that we are waiting
+            waiting = true;
+            if (mailbox.isEmpty() && !closed) {
+                LockSupport.park(this);
+            }
+            waiting = false;
+        }
+    }
+
+    /**
+     * A command waiting in the mailbox, with the future for its result.
+     *
+     * @param <T> The type of the command's result.
+     */
+    private static final class Command<T> {
+
+        /**
+         * The operation to apply.
+         */
+        private final Function<CourseSchedule, T> operation;
+        /**
+         * The future completed with the result.
+         */
+        private final CompletableFuture<T> future;
+        /**
+         * The result, held until the lock is released.
+         */
+        private T result;
+        /**
+         * The failure, held until the lock is released.
+         */
+        private Throwable failure;
+
+        /**
+         * Constructor.
+         *
+         * @param operation The operation to apply.
+         */
+        Command(Function<CourseSchedule, T> operation) {
+            this.operation = operation;
+            this.future = new CompletableFuture<T>();
+        }
+
+        /**
+         * Applies the operation, capturing its result or failure.
+         *
+         * @param schedule The schedule to apply it to.
+         */
+        void apply(CourseSchedule schedule) {
+            try {
+                result = operation.apply(schedule);
+            } catch (Throwable t) {
+                failure = t;
+            }
+        }
+
+        /**
+         * Completes the future with the captured result or failure.
+         */
+        void complete() {
+            if (failure != null) {
+                future.completeExceptionally(failure);
+            } else {
+                future.complete(result);
+            }
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.erudine.coursebooking;
+
+import java.util.Date;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the bookings, cancellations, promotions and lock contention of
+ * one {@link CourseSchedule}, exposed through JMX by {@link BookingMetrics}.
+ * <p>
+ * Each counter is a {@link LongAdder}, striped across cells so that threads
+ * booking the same popular course at once do not contend on the counter as
+ * well as the course. A schedule only counts while metrics are attached to
+ * it; otherwise each booking pays a single read of a null field.
+ *
+ * @author Adam Harries
+ * @version 31 Jul 2013
+ */
+public class ScheduleMetrics implements ScheduleMetricsMBean {
+
+    /**
+     * The schedule counted.
+     */
+    private final CourseSchedule schedule;
+    /**
+     * The number of bookings with each result, by ordinal.
+     */
+    private final LongAdder[] bookings;
+    /**
+     * The number of cancellations with each result, by ordinal.
+     */
+    private final LongAdder[] cancellations;
+    /**
+     * The number of promotions from the waiting list.
+     */
+    private final LongAdder promotions;
+    /**
+     * The number of contended acquisitions of the wait list lock.
+     */
+    private final LongAdder lockContentions;
+
+    /**
+     * Constructor.
+     *
+     * @param schedule The schedule counted.
+     */
+    ScheduleMetrics(CourseSchedule schedule) {
+        this.schedule = schedule;
+        bookings = adders(BookingResult.values().length);
+        cancellations = adders(CancellationResult.values().length);
+        promotions = new LongAdder();
+        lockContentions = new LongAdder();
+    }
+
+    /**
+     * Creates an array of counters.
+     *
+     * @param length The number of counters.
+     * @return The counters.
+     */
+    private static LongAdder[] adders(int length) {
+        LongAdder[] adders = new LongAdder[length];
+        for (int i = 0; i < length; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    /**
+     * Counts a booking attempt.
+     *
+     * @param result The outcome of the attempt.
+     */
+    void recordBooking(BookingResult result) {
+        bookings[result.ordinal()].increment();
+    }
+
+    /**
+     * Counts a cancellation.
+     *
+     * @param result The outcome of the cancellation.
+     */
+    void recordCancellation(CancellationResult result) {
+        cancellations[result.ordinal()].increment();
+    }
+
+    /**
+     * Counts a promotion from the waiting list.
+     */
+    void recordPromotion() {
+        promotions.increment();
+    }
+
+    /**
+     * Counts a batch of promotions from the waiting list.
+     *
+     * @param count The number of students promoted.
+     */
+    void recordPromotions(int count) {
+        promotions.add(count);
+    }
+
+    /**
+     * Counts a contended acquisition of the wait list lock.
+     */
+    void recordLockContention() {
+        lockContentions.increment();
+    }
+
+    /**
+     * Returns the number of booking attempts with a result.
+     *
+     * @param result The result.
+     * @return The number of attempts.
+     */
+    public long getBookings(BookingResult result) {
+        return bookings[result.ordinal()].sum();
+    }
+
+    /**
+     * Returns the number of cancellations with a result.
+     *
+     * @param result The result.
+     * @return The number of cancellations.
+     */
+    public long getCancellations(CancellationResult result) {
+        return cancellations[result.ordinal()].sum();
+    }
+
+    /**
+     * Returns the schedule counted.
+     *
+     * @return {@link ScheduleMetrics#schedule schedule}.
+     */
+    public CourseSchedule getSchedule() {
+        return schedule;
+    }
+
+    @Override
+    public String getCourseName() {
+        return schedule.getCourse().getName();
+    }
+
+    @Override
+    public Date getStartDate() {
+        return schedule.getStartDate();
+    }
+
+    @Override
+    public int getCapacity() {
+        return schedule.getCourseCapacity();
+    }
+
+    @Override
+    public int getRegisteredStudents() {
+        return schedule.getNumberOfRegisteredStudents();
+    }
+
+    @Override
+    public int getWaitListDepth() {
+        return schedule.getNumberOfWaitListedStudents();
+    }
+
+    @Override
+    public long getBookingAttempts() {
+        long attempts = 0;
+        for (LongAdder adder : bookings) {
+            attempts += adder.sum();
+        }
+        return attempts;
+    }
+
+    @Override
+    public long getRegistrations() {
+        return getBookings(BookingResult.REGISTERED);
+    }
+
+    @Override
+    public long getWaitListed() {
+        return getBookings(BookingResult.WAIT_LISTED);
+    }
+
+    @Override
+    public long getDuplicates() {
+        return getBookings(BookingResult.ALREADY_BOOKED);
+    }
+
+    @Override
+    public long getMissingPreRequisites() {
+        return getBookings(BookingResult.MISSING_PREREQUISITES);
+    }
+
+    @Override
+    public long getClashes() {
+        return getBookings(BookingResult.CLASH);
+    }
+
+    @Override
+    public long getRegistrationsClosed() {
+        return getBookings(BookingResult.REGISTRATION_CLOSED);
+    }
+
+    @Override
+    public long getCancellations() {
+        return getCancellations(CancellationResult.REGISTRATION_CANCELLED);
+    }
+
+    @Override
+    public long getWaitListWithdrawals() {
+        return getCancellations(CancellationResult.LEFT_WAITING_LIST);
+    }
+
+    @Override
+    public long getPromotions() {
+        return promotions.sum();
+    }
+
+    @Override
+    public long getLockContentions() {
+        return lockContentions.sum();
+    }
+
+    @Override
+    public void reset() {
+        for (LongAdder adder : bookings) {
+            adder.reset();
+        }
+        for (LongAdder adder : cancellations) {
+            adder.reset();
+        }
+        promotions.reset();
+        lockContentions.reset();
+    }
+}
@@ -0,0 +1,132 @@
+package com.erudine.coursebooking;
+
+import java.util.Date;
+
+/**
+ * Management interface of the metrics of one {@link CourseSchedule}.
+ *
+ * @author Adam Harries
+ * @version 31 Jul 2013
+ */
+public interface ScheduleMetricsMBean {
+
+    /**
+     * Returns the name of the course scheduled.
+     *
+     * @return The course name.
+     */
+    String getCourseName();
+
+    /**
+     * Returns the start date of the course.
+     *
+     * @return The start date.
+     */
+    Date getStartDate();
+
+    /**
+     * Returns the maximum capacity of the course.
+     *
+     * @return The capacity.
+     */
+    int getCapacity();
+
+    /**
+     * Returns the number of students registered now.
+     *
+     * @return The number of registered students.
+     */
+    int getRegisteredStudents();
+
+    /**
+     * Returns the number of students on the waiting list now.
+     *
+     * @return The depth of the waiting list.
+     */
+    int getWaitListDepth();
+
+    /**
+     * Returns the number of booking attempts, whatever their outcome.
+     *
+     * @return The number of attempts.
+     */
+    long getBookingAttempts();
+
+    /**
+     * Returns the number of bookings given a seat straight away.
+     *
+     * @return The number of registrations.
+     */
+    long getRegistrations();
+
+    /**
+     * Returns the number of bookings which found the course full and joined
+     * the waiting list.
+     *
+     * @return The number of wait-listed bookings.
+     */
+    long getWaitListed();
+
+    /**
+     * Returns the number of bookings rejected as the student was already
+     * registered or waiting.
+     *
+     * @return The number of duplicate bookings.
+     */
+    long getDuplicates();
+
+    /**
+     * Returns the number of bookings rejected for missing prerequisites.
+     *
+     * @return The number of ineligible bookings.
+     */
+    long getMissingPreRequisites();
+
+    /**
+     * Returns the number of bookings rejected for clashing dates.
+     *
+     * @return The number of clashing bookings.
+     */
+    long getClashes();
+
+    /**
+     * Returns the number of bookings rejected outside the registration window.
+     *
+     * @return The number of late or early bookings.
+     */
+    long getRegistrationsClosed();
+
+    /**
+     * Returns the number of registered students who cancelled.
+     *
+     * @return The number of cancelled registrations.
+     */
+    long getCancellations();
+
+    /**
+     * Returns the number of students who left the waiting list.
+     *
+     * @return The number of withdrawals from the waiting list.
+     */
+    long getWaitListWithdrawals();
+
+    /**
+     * Returns the number of students promoted from the waiting list.
+     *
+     * @return The number of promotions.
+     */
+    long getPromotions();
+
+    /**
+     * Returns the number of times the wait list lock was found held by another
+     * thread.
+     *
+     * @return The number of contended lock acquisitions.
+     */
+    long getLockContentions();
+
+    /**
+     * Sets every counter back to zero.
+     */
+    void reset();
+}
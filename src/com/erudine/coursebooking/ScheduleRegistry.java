@@ -0,0 +1,465 @@
+package com.erudine.coursebooking;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Registry of course schedules keyed by course name and start date, the date
+ * standing for the term the course runs in. The registry is split into
+ * partitions, several per processor, each an open-addressed table with its
+ * own lock, so registrations on different partitions never meet.
+ * <p>
+ * Lookups never lock and never allocate: the key is hashed from the course
+ * name's cached hash code and the start time, and probes compare keys held
+ * in the table itself rather than following each schedule, so a lookup
+ * costs the same at a thousand schedules as at a million. Iteration is
+ * weakly consistent, and bulk queries scan the partitions in parallel.
+ *
+ * @author Adam Harries
+ * @version 31 Jul 2013
+ */
+public class ScheduleRegistry implements Iterable<CourseSchedule> {
+
+    /**
+     * Marks a slot whose schedule was unregistered, so probes carry on past
+     * it.
+     */
+    private static final Object REMOVED = new Object();
+    /**
+     * The initial number of slots in each partition.
+     */
+    private static final int INITIAL_SLOTS = 16;
+
+    /**
+     * The partitions, a power of two in number.
+     */
+    private final Partition[] partitions;
+    /**
+     * The number of bits of the hash choosing a partition.
+     */
+    private final int partitionBits;
+
+    /**
+     * Constructor choosing four partitions per processor.
+     */
+    public ScheduleRegistry() {
+        this(4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param partitionCount The number of partitions, rounded up to a power
+     * of two.
+     */
+    public ScheduleRegistry(int partitionCount) {
+        if (partitionCount <= 0) {
+            throw new IllegalArgumentException("There must be at least one partition.");
+        }
+        int bits = 32 - Integer.numberOfLeadingZeros(partitionCount - 1);
+        partitionBits = bits;
+        partitions = new Partition[1 << bits];
+        for (int i = 0; i < partitions.length; i++) {
+            partitions[i] = new Partition();
+        }
+    }
+
+    /**
+     * Registers a schedule under its course name and start date.
+     *
+     * @param schedule The schedule.
+     * @return null if the schedule was registered, otherwise the schedule
+     * already registered under the same course name and start date.
+     */
+    public CourseSchedule register(CourseSchedule schedule) {
+        String name = schedule.getCourse().getName();
+        long start = schedule.getStartDate().getTime();
+        int hash = hash(name, start);
+        return partitionFor(hash).putIfAbsent(schedule, name, start, hash);
+    }
+
+    /**
+     * Removes a schedule from the registry.
+     *
+     * @param schedule The schedule.
+     * @return false if the schedule was not registered.
+     */
+    public boolean unregister(CourseSchedule schedule) {
+        String name = schedule.getCourse().getName();
+        long start = schedule.getStartDate().getTime();
+        int hash = hash(name, start);
+        return partitionFor(hash).remove(schedule, hash);
+    }
+
+    /**
+     * Looks up the schedule of a course starting at a date.
+     *
+     * @param courseName The name of the course.
+     * @param startDate The start date of the schedule.
+     * @return The schedule, or null if none is registered.
+     */
+    public CourseSchedule get(String courseName, Date startDate) {
+        long start = startDate.getTime();
+        int hash = hash(courseName, start);
+        return partitionFor(hash).get(courseName, start, hash);
+    }
+
+    /**
+     * Looks up the schedule of a course starting at a date.
+     *
+     * @param course The course.
+     * @param startDate The start date of the schedule.
+     * @return The schedule, or null if none is registered.
+     */
+    public CourseSchedule get(Course course, Date startDate) {
+        return get(course.getName(), startDate);
+    }
+
+    /**
+     * Returns the number of schedules registered.
+     *
+     * @return The number of schedules.
+     */
+    public int size() {
+        int size = 0;
+        for (Partition partition : partitions) {
+            size += partition.size;
+        }
+        return size;
+    }
+
+    /**
+     * Finds every schedule matching a filter, scanning the partitions in
+     * parallel.
+     *
+     * @param filter The filter, which may be called from many threads at once.
+     * @return The matching schedules, in no particular order.
+     */
+    public List<CourseSchedule> findAll(final Predicate<? super CourseSchedule> filter) {
+        return Arrays.stream(partitions).parallel()
+                .flatMap(new Function<Partition, Stream<CourseSchedule>>() {
+                    @Override
+                    public Stream<CourseSchedule> apply(Partition partition) {
+                        return partition.matching(filter).stream();
+                    }
+                })
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Finds every schedule with a free seat starting within a period.
+     *
+     * @param from The start of the period.
+     * @param until The end of the period, exclusive.
+     * @return The schedules, in no particular order.
+     */
+    public List<CourseSchedule> findWithFreeSeats(Date from, Date until) {
+        final long fromMillis = from.getTime();
+        final long untilMillis = until.getTime();
+        return findAll(new Predicate<CourseSchedule>() {
+            @Override
+            public boolean test(CourseSchedule schedule) {
+                long start = schedule.getStartDate().getTime();
+                return start >= fromMillis && start < untilMillis
+                        && schedule.getNumberOfFreeSeats() > 0;
+            }
+        });
+    }
+
+    /**
+     * Returns a weakly consistent iterator over the schedules, partition by
+     * partition.
+     *
+     * @return The iterator.
+     */
+    @Override
+    public Iterator<CourseSchedule> iterator() {
+        return new Iterator<CourseSchedule>() {
+            private int partition = -1;
+            private AtomicReferenceArray<Object> table = new AtomicReferenceArray<Object>(0);
+            private int slot;
+            private CourseSchedule next = advance();
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public CourseSchedule next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                CourseSchedule current = next;
+                next = advance();
+                return current;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("Use unregister to remove a schedule.");
+            }
+
+            /**
+             * Finds the next schedule.
+             *
+             * @return The schedule, or null if there are no more.
+             */
+            private CourseSchedule advance() {
+                for (;;) {
+                    while (slot < table.length()) {
+                        Object entry = table.get(slot++);
+                        if (entry != null && entry != REMOVED) {
+                            return (CourseSchedule) entry;
+                        }
+                    }
+                    if (++partition == partitions.length) {
+                        return null;
+                    }
+                    table = partitions[partition].table.entries;
+                    slot = 0;
+                }
+            }
+        };
+    }
+
+    /**
+     * Hashes a key, mixing the bits so both the partition and the slot
+     * depend on all of them.
+     *
+     * @param courseName The name of the course.
+     * @param start The start time of the schedule.
+     * @return The hash.
+     */
+    private static int hash(String courseName, long start) {
+        int hash = courseName.hashCode() * 31 + (int) (start ^ (start >>> 32));
+        hash ^= hash >>> 16;
+        return hash * 0x9E3779B9;
+    }
+
+    /**
+     * Returns the partition holding a hash.
+     *
+     * @param hash The hash.
+     * @return The partition.
+     */
+    private Partition partitionFor(int hash) {
+        return partitionBits == 0 ? partitions[0] : partitions[hash >>> (32 - partitionBits)];
+    }
+
+    /**
+     * The slots of a partition. Each slot's key, its hash, start time and
+     * course name, is kept alongside it, so a probe reads only the table
+     * until it finds a match. The keys are written before the schedule is
+     * set, so a reader seeing the schedule sees its key. A slot is filled
+     * only once: a removed slot is never refilled in place but cleared out by
+     * copying the table, so the key a reader matches is always the key of
+     * the schedule it read.
+     */
+    private static final class Table {
+
+        /**
+         * The slots, each null, {@link ScheduleRegistry#REMOVED REMOVED} or a
+         * schedule. A power of two in length, at most half full.
+         */
+        final AtomicReferenceArray<Object> entries;
+        /**
+         * The hash and start time of the key in each slot, side by side, so
+         * a probe finds both on one cache line.
+         */
+        final long[] keys;
+        /**
+         * The course name of the schedule in each slot.
+         */
+        final String[] names;
+
+        /**
+         * Constructor.
+         *
+         * @param length The number of slots.
+         */
+        Table(int length) {
+            entries = new AtomicReferenceArray<Object>(length);
+            keys = new long[2 * length];
+            names = new String[length];
+        }
+
+        /**
+         * Returns the number of slots.
+         *
+         * @return The number of slots.
+         */
+        int length() {
+            return names.length;
+        }
+
+        /**
+         * Fills a slot.
+         *
+         * @param slot The slot.
+         * @param schedule The schedule.
+         * @param courseName The name of its course.
+         * @param start Its start time.
+         * @param hash The hash of its key.
+         */
+        void set(int slot, CourseSchedule schedule, String courseName, long start, int hash) {
+            keys[2 * slot] = hash;
+            keys[2 * slot + 1] = start;
+            names[slot] = courseName;
+            entries.set(slot, schedule);
+        }
+    }
+
+    /**
+     * One partition: an open-addressed, linearly probed table read without
+     * locking and written under the partition's monitor. Growing the table
+     * copies it and publishes the copy, so a reader holding the old one still
+     * finds everything registered before it.
+     */
+    private static final class Partition {
+
+        /**
+         * The table.
+         */
+        volatile Table table = new Table(INITIAL_SLOTS);
+        /**
+         * The number of schedules in the table.
+         */
+        volatile int size;
+        /**
+         * The number of slots no longer null, including removed ones.
+         */
+        int used;
+
+        /**
+         * Looks up the schedule of a key.
+         *
+         * @param courseName The name of the course.
+         * @param start The start time of the schedule.
+         * @param hash The hash of the key.
+         * @return The schedule, or null if none is registered.
+         */
+        CourseSchedule get(String courseName, long start, int hash) {
+            Table slots = table;
+            int mask = slots.length() - 1;
+            for (int i = hash & mask;; i = (i + 1) & mask) {
+                Object entry = slots.entries.get(i);
+                if (entry == null) {
+                    return null;
+                }
+                if (entry != REMOVED && slots.keys[2 * i] == hash && slots.keys[2 * i + 1] == start
+                        && slots.names[i].equals(courseName)) {
+                    return (CourseSchedule) entry;
+                }
+            }
+        }
+
+        /**
+         * Adds a schedule unless its key is taken.
+         *
+         * @param schedule The schedule.
+         * @param courseName The name of its course.
+         * @param start Its start time.
+         * @param hash The hash of its key.
+         * @return null if added, otherwise the schedule holding the key.
+         */
+        synchronized CourseSchedule putIfAbsent(CourseSchedule schedule, String courseName, long start,
+                int hash) {
+            CourseSchedule existing = get(courseName, start, hash);
+            if (existing != null) {
+                return existing;
+            }
+            if (2 * (used + 1) > table.length()) {
+                //Grow only if live schedules fill the table, else just
+                //clear out the removed slots
+                rehash(4 * (size + 1) > table.length() ? table.length() * 2 : table.length());
+            }
+            //Fill only a slot never used, so no reader can pair this key with
+            //the schedule of an earlier occupant
+            Table slots = table;
+            int mask = slots.length() - 1;
+            int i = hash & mask;
+            while (slots.entries.get(i) != null) {
+                i = (i + 1) & mask;
+            }
+            used++;
+            slots.set(i, schedule, courseName, start, hash);
+            size++;
+            return null;
+        }
+
+        /**
+         * Removes a schedule.
+         *
+         * @param schedule The schedule.
+         * @param hash The hash of its key.
+         * @return false if the schedule was not in the table.
+         */
+        synchronized boolean remove(CourseSchedule schedule, int hash) {
+            Table slots = table;
+            int mask = slots.length() - 1;
+            for (int i = hash & mask;; i = (i + 1) & mask) {
+                Object entry = slots.entries.get(i);
+                if (entry == null) {
+                    return false;
+                }
+                if (entry == schedule) {
+                    slots.entries.set(i, REMOVED);
+                    size--;
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * Copies the schedules into a new table, leaving out removed slots.
+         *
+         * @param length The length of the new table.
+         */
+        private void rehash(int length) {
+            Table old = table;
+            Table slots = new Table(length);
+            int mask = length - 1;
+            for (int j = 0; j < old.length(); j++) {
+                Object entry = old.entries.get(j);
+                if (entry != null && entry != REMOVED) {
+                    int hash = (int) old.keys[2 * j];
+                    int i = hash & mask;
+                    while (slots.entries.get(i) != null) {
+                        i = (i + 1) & mask;
+                    }
+                    slots.set(i, (CourseSchedule) entry, old.names[j], old.keys[2 * j + 1], hash);
+                }
+            }
+            used = size;
+            table = slots;
+        }
+
+        /**
+         * Returns the schedules in the partition matching a filter.
+         *
+         * @param filter The filter.
+         * @return The matching schedules.
+         */
+        List<CourseSchedule> matching(Predicate<? super CourseSchedule> filter) {
+            List<CourseSchedule> matching = new ArrayList<CourseSchedule>();
+            AtomicReferenceArray<Object> slots = table.entries;
+            for (int i = 0; i < slots.length(); i++) {
+                Object entry = slots.get(i);
+                if (entry != null && entry != REMOVED && filter.test((CourseSchedule) entry)) {
+                    matching.add((CourseSchedule) entry);
+                }
+            }
+            return matching;
+        }
+    }
+}
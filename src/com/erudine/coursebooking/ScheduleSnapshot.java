@@ -0,0 +1,469 @@
+package com.erudine.coursebooking;
+
+import com.erudine.coursebooking.persons.Student;
+import com.erudine.coursebooking.persons.StudentRegistry;
+import com.erudine.coursebooking.persons.Teacher;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary snapshot of a set of {@link CourseSchedule CourseSchedules}:
+ * each schedule's course, capacity, dates, teacher, roster and ordered waiting
+ * list. Students, courses and teachers are written once each to name tables at
+ * the head of the file and referred to by their index in the table, so a
+ * roster entry is a single int.
+ * <p>
+ * Snapshots are taken without stopping bookings: each schedule is copied
+ * under its own lock in turn, and the position of a {@link BookingJournal}
+ * at the moment of the copy is recorded alongside it. Restarting is then a
+ * matter of {@link ScheduleSnapshot#load loading} the latest snapshot, which
+ * maps the file into memory and rebuilds each schedule under a single lock
+ * acquisition, and {@link ScheduleSnapshot#replayJournal replaying} only the
+ * journal records written after each schedule was copied.
+ * <p>
+ * Snapshots are written to a temporary file and renamed into place, so a
+ * crash while writing leaves the previous snapshot intact. The same format
+ * can be {@link ScheduleSnapshot#encode encoded} to memory, for handing
+ * schedules to another process.
+ *
+ * @author Adam Harries
+ * @version 31 Jul 2013
+ */
+public class ScheduleSnapshot {
+
+    /**
+     * Marks the start of a snapshot file.
+     */
+    private static final int MAGIC = 0x43534E50;
+    /**
+     * The version of the file format.
+     */
+    private static final int FORMAT_VERSION = 1;
+    /**
+     * The restored schedules.
+     */
+    private final List<CourseSchedule> schedules;
+    /**
+     * The journal position each schedule was copied at, or -1 if no journal
+     * was given when the snapshot was taken.
+     */
+    private final Map<CourseSchedule, Long> journalPositions;
+
+    /**
+     * Constructor.
+     *
+     * @param schedules The restored schedules.
+     * @param journalPositions The journal position of each schedule.
+     */
+    private ScheduleSnapshot(List<CourseSchedule> schedules, Map<CourseSchedule, Long> journalPositions) {
+        this.schedules = Collections.unmodifiableList(schedules);
+        this.journalPositions = Collections.unmodifiableMap(journalPositions);
+    }
+
+    /**
+     * Writes a snapshot of a set of schedules while they continue to take
+     * bookings.
+     *
+     * @param file The snapshot file to write.
+     * @param schedules The schedules to snapshot.
+     * @param journal The journal attached to the schedules, or null if there is
+     * none.
+     * @return The oldest journal position any schedule was copied at, before
+     * which the journal is no longer needed, or -1 if no journal was given.
+     * @throws IOException if the snapshot cannot be written.
+     */
+    public static long write(File file, Collection<CourseSchedule> schedules, BookingJournal journal)
+            throws IOException {
+        File temporary = new File(file.getPath() + ".tmp");
+        FileOutputStream fileOut = new FileOutputStream(temporary);
+        long oldestPosition;
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, 1 << 16));
+            oldestPosition = writeTo(out, schedules, journal);
+            out.flush();
+            fileOut.getFD().sync();
+        } finally {
+            fileOut.close();
+        }
+        Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        return oldestPosition;
+    }
+
+    /**
+     * Encodes a snapshot of a set of schedules in memory, in the same format
+     * as a snapshot file, for handing the schedules to another process.
+     *
+     * @param schedules The schedules to snapshot.
+     * @return The encoded snapshot.
+     */
+    public static byte[] encode(Collection<CourseSchedule> schedules) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            DataOutputStream out = new DataOutputStream(bytes);
+            writeTo(out, schedules, null);
+            out.flush();
+        } catch (IOException e) {
+            throw new IllegalStateException("Writing to memory failed.", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Copies a set of schedules and writes them to a stream.
+     *
+     * @param out The stream to write to.
+     * @param schedules The schedules to snapshot.
+     * @param journal The journal attached to the schedules, or null if there is
+     * none.
+     * @return The oldest journal position any schedule was copied at, or -1 if
+     * no journal was given.
+     * @throws IOException if the snapshot cannot be written.
+     */
+    private static long writeTo(DataOutputStream out, Collection<CourseSchedule> schedules,
+            final BookingJournal journal) throws IOException {
+        //Copy each schedule under its lock, numbering people as they are met
+        final Map<String, Integer> studentIds = new LinkedHashMap<String, Integer>();
+        Map<String, Integer> courseIds = new LinkedHashMap<String, Integer>();
+        Map<String, Integer> teacherIds = new LinkedHashMap<String, Integer>();
+        List<ScheduleCopy> copies = new ArrayList<ScheduleCopy>(schedules.size());
+        long oldestPosition = Long.MAX_VALUE;
+        for (final CourseSchedule schedule : schedules) {
+            final ScheduleCopy copy = new ScheduleCopy(schedule);
+            schedule.runExclusively(new Runnable() {
+                @Override
+                public void run() {
+                    copy.journalPosition = journal == null ? -1 : journal.getPosition();
+                    copy.capacity = schedule.getCourseCapacity();
+                    RosterSnapshot roster = schedule.getRoster();
+                    copy.registered = idsOf(roster.getRegisteredStudents(), studentIds);
+                    copy.waitListed = idsOf(roster.getWaitListedStudents(), studentIds);
+                }
+            });
+            copy.courseId = idOf(schedule.getCourse().getName(), courseIds);
+            copy.teacherId = idOf(schedule.getTeacher().getName(), teacherIds);
+            oldestPosition = Math.min(oldestPosition, copy.journalPosition);
+            copies.add(copy);
+        }
+
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        writeNames(out, studentIds.keySet());
+        writeNames(out, courseIds.keySet());
+        writeNames(out, teacherIds.keySet());
+        out.writeInt(copies.size());
+        for (ScheduleCopy copy : copies) {
+            out.writeInt(copy.courseId);
+            out.writeInt(copy.capacity);
+            out.writeLong(copy.schedule.getStartDate().getTime());
+            out.writeLong(copy.schedule.getEndDate().getTime());
+            out.writeInt(copy.teacherId);
+            out.writeLong(copy.journalPosition);
+            writeIds(out, copy.registered);
+            writeIds(out, copy.waitListed);
+        }
+        return copies.isEmpty() ? -1 : oldestPosition;
+    }
+
+    /**
+     * Loads a snapshot, rebuilding its schedules.
+     *
+     * @param file The snapshot file to load.
+     * @param studentRegistry The registry to give the restored schedules, in
+     * which students are looked up by name and registered if not found.
+     * @param catalog The catalog to intern courses into, or null to create
+     * them afresh.
+     * @return The loaded snapshot.
+     * @throws IOException if the snapshot cannot be read or is not a snapshot.
+     */
+    public static ScheduleSnapshot load(File file, StudentRegistry studentRegistry, CourseCatalog catalog)
+            throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            MappedByteBuffer in = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+            if (in.getInt() != MAGIC || in.getInt() != FORMAT_VERSION) {
+                throw new IOException(file + " is not a schedule snapshot.");
+            }
+            return readFrom(in, studentRegistry, catalog);
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Decodes a snapshot {@link ScheduleSnapshot#encode encoded} in memory,
+     * rebuilding its schedules.
+     *
+     * @param bytes The encoded snapshot.
+     * @param studentRegistry The registry to give the restored schedules, in
+     * which students are looked up by name and registered if not found.
+     * @param catalog The catalog to intern courses into, or null to create
+     * them afresh.
+     * @return The decoded snapshot.
+     * @throws IOException if the bytes are not a snapshot.
+     */
+    public static ScheduleSnapshot decode(byte[] bytes, StudentRegistry studentRegistry, CourseCatalog catalog)
+            throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        if (bytes.length < 8 || in.getInt() != MAGIC || in.getInt() != FORMAT_VERSION) {
+            throw new IOException("Not a schedule snapshot.");
+        }
+        try {
+            return readFrom(in, studentRegistry, catalog);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated schedule snapshot.", e);
+        }
+    }
+
+    /**
+     * Rebuilds the schedules of a snapshot whose header has been read.
+     *
+     * @param in The buffer to read from.
+     * @param studentRegistry The registry to give the restored schedules.
+     * @param catalog The catalog to intern courses into, or null to create
+     * them afresh.
+     * @return The snapshot.
+     */
+    private static ScheduleSnapshot readFrom(ByteBuffer in, StudentRegistry studentRegistry,
+            CourseCatalog catalog) {
+        String[] studentNames = readNames(in);
+        Student[] students = new Student[studentNames.length];
+        for (int i = 0; i < students.length; i++) {
+            students[i] = studentRegistry.getStudent(studentNames[i]);
+            if (students[i] == null) {
+                students[i] = new Student(studentNames[i]);
+            }
+        }
+        String[] courseNames = readNames(in);
+        Course[] courses = new Course[courseNames.length];
+        for (int i = 0; i < courses.length; i++) {
+            courses[i] = catalog == null ? new Course(courseNames[i]) : catalog.intern(courseNames[i]);
+        }
+        String[] teacherNames = readNames(in);
+        Teacher[] teachers = new Teacher[teacherNames.length];
+        for (int i = 0; i < teachers.length; i++) {
+            teachers[i] = new Teacher(teacherNames[i]);
+        }
+
+        int count = in.getInt();
+        List<CourseSchedule> schedules = new ArrayList<CourseSchedule>(count);
+        Map<CourseSchedule, Long> journalPositions = new HashMap<CourseSchedule, Long>();
+        for (int i = 0; i < count; i++) {
+            Course course = courses[in.getInt()];
+            int capacity = in.getInt();
+            Date startDate = new Date(in.getLong());
+            Date endDate = new Date(in.getLong());
+            Teacher teacher = teachers[in.getInt()];
+            long journalPosition = in.getLong();
+            final CourseSchedule schedule = new CourseSchedule(course, capacity, startDate, endDate, teacher,
+                    studentRegistry);
+            final Student[] registered = readStudents(in, students);
+            final Student[] waitListed = readStudents(in, students);
+            schedule.runExclusively(new Runnable() {
+                @Override
+                public void run() {
+                    for (Student student : registered) {
+                        schedule.restore(BookingEvent.REGISTERED, student);
+                    }
+                    for (Student student : waitListed) {
+                        schedule.restore(BookingEvent.WAIT_LISTED, student);
+                    }
+                }
+            });
+            schedules.add(schedule);
+            journalPositions.put(schedule, journalPosition);
+        }
+        return new ScheduleSnapshot(schedules, journalPositions);
+    }
+
+    /**
+     * Replays the journal records written after each schedule was copied,
+     * bringing the restored schedules up to date.
+     *
+     * @param directory The directory holding the journal's segment files.
+     * @return The number of records applied.
+     * @throws IOException if the journal cannot be read.
+     */
+    public int replayJournal(File directory) throws IOException {
+        Map<CourseSchedule, Long> fromPositions = new HashMap<CourseSchedule, Long>();
+        for (Map.Entry<CourseSchedule, Long> entry : journalPositions.entrySet()) {
+            fromPositions.put(entry.getKey(), Math.max(0L, entry.getValue()));
+        }
+        return BookingJournal.replay(directory, fromPositions);
+    }
+
+    /**
+     * Returns the restored schedules, in the order they were written.
+     *
+     * @return {@link ScheduleSnapshot#schedules schedules}.
+     */
+    public List<CourseSchedule> getSchedules() {
+        return schedules;
+    }
+
+    /**
+     * Returns the journal position each schedule was copied at.
+     *
+     * @return {@link ScheduleSnapshot#journalPositions journal positions}.
+     */
+    public Map<CourseSchedule, Long> getJournalPositions() {
+        return journalPositions;
+    }
+
+    /**
+     * Maps students to their snapshot ids, numbering new ones as they are met.
+     *
+     * @param students The students, from an immutable roster snapshot.
+     * @param ids The ids handed out so far.
+     * @return The students' ids, in iteration order.
+     */
+    private static int[] idsOf(Collection<Student> students, Map<String, Integer> ids) {
+        int[] result = new int[students.size()];
+        int count = 0;
+        for (Student student : students) {
+            result[count++] = idOf(student.getName(), ids);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the snapshot id of a name, numbering it if it is new.
+     *
+     * @param name The name of a student, course or teacher.
+     * @param ids The ids handed out so far.
+     * @return The name's id.
+     */
+    private static int idOf(String name, Map<String, Integer> ids) {
+        Integer id = ids.get(name);
+        if (id == null) {
+            id = ids.size();
+            ids.put(name, id);
+        }
+        return id;
+    }
+
+    /**
+     * Writes a table of names, in id order.
+     *
+     * @param out The stream to write to.
+     * @param names The names of the students, courses or teachers.
+     * @throws IOException if the table cannot be written.
+     */
+    private static void writeNames(DataOutputStream out, Collection<String> names) throws IOException {
+        out.writeInt(names.size());
+        for (String name : names) {
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            out.writeShort(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Reads a table of names.
+     *
+     * @param in The buffer to read from.
+     * @return The names, in id order.
+     */
+    private static String[] readNames(ByteBuffer in) {
+        String[] names = new String[in.getInt()];
+        for (int i = 0; i < names.length; i++) {
+            byte[] bytes = new byte[in.getShort() & 0xFFFF];
+            in.get(bytes);
+            names[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return names;
+    }
+
+    /**
+     * Writes a count followed by that many ids.
+     *
+     * @param out The stream to write to.
+     * @param ids The ids.
+     * @throws IOException if the ids cannot be written.
+     */
+    private static void writeIds(DataOutputStream out, int[] ids) throws IOException {
+        out.writeInt(ids.length);
+        for (int id : ids) {
+            out.writeInt(id);
+        }
+    }
+
+    /**
+     * Reads a count followed by that many student ids.
+     *
+     * @param in The buffer to read from.
+     * @param students The student table.
+     * @return The students.
+     */
+    private static Student[] readStudents(ByteBuffer in, Student[] students) {
+        Student[] result = new Student[in.getInt()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = students[in.getInt()];
+        }
+        return result;
+    }
+
+    /**
+     * A schedule as copied for a snapshot.
+     */
+    private static final class ScheduleCopy {
+
+        /**
+         * The schedule copied.
+         */
+        final CourseSchedule schedule;
+        /**
+         * The snapshot id of the course.
+         */
+        int courseId;
+        /**
+         * The snapshot id of the teacher.
+         */
+        int teacherId;
+        /**
+         * The capacity at the time of the copy.
+         */
+        int capacity;
+        /**
+         * The journal position at the time of the copy.
+         */
+        long journalPosition;
+        /**
+         * The snapshot ids of the registered students.
+         */
+        int[] registered;
+        /**
+         * The snapshot ids of the wait-listed students, in queue order.
+         */
+        int[] waitListed;
+
+        /**
+         * Constructor.
+         *
+         * @param schedule The schedule copied.
+         */
+        ScheduleCopy(CourseSchedule schedule) {
+            this.schedule = schedule;
+        }
+    }
+}
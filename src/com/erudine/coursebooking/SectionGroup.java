@@ -0,0 +1,366 @@
+package com.erudine.coursebooking;
+
+import com.erudine.coursebooking.persons.Student;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The parallel sections of one course, booked as a whole. A booking is routed
+ * to a section with a free seat, and students who find every section full
+ * join one waiting list shared by the group, which feeds whichever section a
+ * seat frees up in first.
+ * <p>
+ * Sections are chosen without locking by comparing two picked at random and
+ * trying the one with more free seats first, so bookings spread over the
+ * sections in proportion to their space rather than all racing for the same
+ * seats; the remaining sections are tried only if both are full. Seats are
+ * taken through each section's lock-free path, and only joining and leaving
+ * the shared waiting list take the group's lock.
+ * <p>
+ * Bookings and cancellations for grouped sections should all be made through
+ * the group, so the shared waiting list is fed as seats free up. After
+ * raising a section's capacity, call {@link
+ * SectionGroup#promoteWaitingStudents()} to fill the new seats.
+ *
+ * @author Adam Harries
+ * @version 31 Jul 2013
+ */
+public class SectionGroup {
+
+    /**
+     * The course all sections teach.
+     */
+    private final Course course;
+    /**
+     * The sections, replaced with a new array whenever one is added.
+     */
+    private volatile CourseSchedule[] sections;
+    /**
+     * The students booked through the group, registered or waiting. A student
+     * is added here before being routed, so concurrent duplicate bookings are
+     * rejected atomically.
+     */
+    private final Set<Student> bookedStudents;
+    /**
+     * The section each registered student has a seat in.
+     */
+    private final ConcurrentHashMap<Student, CourseSchedule> sectionOf;
+    /**
+     * The students waiting for a seat in any section.
+     */
+    private final WaitList waitListedStudents;
+    /**
+     * Guards the waiting list and adding sections.
+     */
+    private final ReentrantLock waitListLock;
+
+    /**
+     * Constructor.
+     *
+     * @param course The course all sections teach.
+     */
+    public SectionGroup(Course course) {
+        this.course = course;
+        sections = new CourseSchedule[0];
+        bookedStudents = ConcurrentHashMap.newKeySet();
+        sectionOf = new ConcurrentHashMap<Student, CourseSchedule>();
+        waitListedStudents = new FifoWaitList();
+        waitListLock = new ReentrantLock();
+    }
+
+    /**
+     * Adds a section to the group, filling its free seats from the waiting
+     * list.
+     *
+     * @param section The section, a schedule of the group's course.
+     */
+    public void addSection(CourseSchedule section) {
+        if (!section.getCourse().equals(course)) {
+            throw new IllegalArgumentException("The section must be a schedule of " + course.getName() + ".");
+        }
+        waitListLock.lock();
+        try {
+            List<CourseSchedule> current = Arrays.asList(sections);
+            if (current.contains(section)) {
+                throw new IllegalArgumentException("The section is already in the group.");
+            }
+            CourseSchedule[] updated = Arrays.copyOf(sections, sections.length + 1);
+            updated[sections.length] = section;
+            sections = updated;
+            promoteLocked();
+        } finally {
+            waitListLock.unlock();
+        }
+    }
+
+    /**
+     * Books a student onto a section with a free seat, or onto the shared
+     * waiting list if every section is full.
+     *
+     * @param student The prospective student.
+     * @return The outcome of the booking; {@link BookingResult#CLASH} or
+     * {@link BookingResult#REGISTRATION_CLOSED} only if every section
+     * rejected the student for that reason, none of them merely being full.
+     */
+    public BookingResult book(Student student) {
+        if (!bookedStudents.add(student)) {
+            return BookingResult.ALREADY_BOOKED;
+        }
+        //Students already waiting get first claim on any seat
+        BookingResult result = waitListedStudents.isEmpty() ? place(student) : null;
+        if (result == null) {
+            waitListLock.lock();
+            try {
+                promoteLocked();
+                if (waitListedStudents.isEmpty()) {
+                    result = place(student);
+                }
+                if (result == null) {
+                    waitListedStudents.add(student);
+                    result = BookingResult.WAIT_LISTED;
+                }
+            } finally {
+                waitListLock.unlock();
+            }
+        }
+        if (result != BookingResult.REGISTERED && result != BookingResult.WAIT_LISTED) {
+            bookedStudents.remove(student);
+        }
+        return result;
+    }
+
+    /**
+     * Removes a student from their section or the shared waiting list. A seat
+     * freed is offered to the waiting list.
+     *
+     * @param student The student to de-register.
+     * @return The outcome of the cancellation.
+     */
+    public CancellationResult cancel(Student student) {
+        if (waitListedStudents.contains(student)) {
+            boolean removed;
+            waitListLock.lock();
+            try {
+                removed = waitListedStudents.remove(student);
+            } finally {
+                waitListLock.unlock();
+            }
+            if (removed) {
+                bookedStudents.remove(student);
+                return CancellationResult.LEFT_WAITING_LIST;
+            }
+        }
+        CourseSchedule section = sectionOf.remove(student);
+        if (section == null) {
+            return CancellationResult.NOT_BOOKED;
+        }
+        CancellationResult result = section.cancel(student);
+        bookedStudents.remove(student);
+        if (!waitListedStudents.isEmpty()) {
+            promoteWaitingStudents();
+        }
+        return result;
+    }
+
+    /**
+     * Offers any free seats to the shared waiting list, in queue order.
+     *
+     * @return The number of students given a seat.
+     */
+    public int promoteWaitingStudents() {
+        waitListLock.lock();
+        try {
+            return promoteLocked();
+        } finally {
+            waitListLock.unlock();
+        }
+    }
+
+    /**
+     * Offers free seats to the waiting list in queue order, passing over a
+     * student no free section will take. Only the sections with a free seat
+     * are tried, each dropped as it fills, and the pass stops when none is
+     * left. Must be called holding the lock.
+     *
+     * @return The number of students given a seat.
+     */
+    private int promoteLocked() {
+        List<CourseSchedule> open = new ArrayList<CourseSchedule>();
+        for (CourseSchedule section : sections) {
+            if (section.getNumberOfFreeSeats() > 0) {
+                open.add(section);
+            }
+        }
+        int promoted = 0;
+        for (Student student : waitListedStudents.view()) {
+            if (open.isEmpty()) {
+                break;
+            }
+            BookingResult result = place(student, open.toArray(new CourseSchedule[open.size()]));
+            if (result == BookingResult.REGISTERED) {
+                waitListedStudents.remove(student);
+                promoted++;
+                CourseSchedule section = sectionOf.get(student);
+                if (section != null && section.getNumberOfFreeSeats() == 0) {
+                    open.remove(section);
+                }
+            } else if (result == null) {
+                //A section filled up under a concurrent booking
+                for (Iterator<CourseSchedule> i = open.iterator(); i.hasNext();) {
+                    if (i.next().getNumberOfFreeSeats() == 0) {
+                        i.remove();
+                    }
+                }
+            }
+        }
+        return promoted;
+    }
+
+    /**
+     * Routes a student to a section with a free seat.
+     *
+     * @param student The student.
+     * @return The outcome of the booking, or null if no section took the
+     * student and at least one was full.
+     */
+    private BookingResult place(Student student) {
+        return place(student, routingOrder());
+    }
+
+    /**
+     * Tries a student on sections in turn.
+     *
+     * @param student The student.
+     * @param order The sections, in the order to try them.
+     * @return The outcome of the booking, or null if no section took the
+     * student and at least one was full.
+     */
+    private BookingResult place(Student student, CourseSchedule[] order) {
+        BookingResult rejection = null;
+        boolean full = false;
+        for (CourseSchedule section : order) {
+            BookingResult result = section.bookIfFree(student);
+            if (result == null) {
+                //A seat may yet free up here, so the student should wait
+                full = true;
+                continue;
+            }
+            switch (result) {
+                case REGISTERED:
+                    sectionOf.put(student, section);
+                    return result;
+                case ALREADY_BOOKED:
+                case MISSING_PREREQUISITES:
+                    //Booked on a section directly, or ineligible for them all
+                    return result;
+                default:
+                    //Another section's dates or window may suit
+                    rejection = result;
+                    break;
+            }
+        }
+        return full ? null : rejection;
+    }
+
+    /**
+     * Returns the order in which to try the sections: of two picked at random,
+     * the one with more free seats, then the other, then the rest.
+     *
+     * @return The sections in the order to try them.
+     */
+    private CourseSchedule[] routingOrder() {
+        CourseSchedule[] order = sections.clone();
+        int n = order.length;
+        if (n < 2) {
+            return order;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(n);
+        int second = random.nextInt(n - 1);
+        if (second >= first) {
+            second++;
+        }
+        if (order[second].getNumberOfFreeSeats() > order[first].getNumberOfFreeSeats()) {
+            int swap = first;
+            first = second;
+            second = swap;
+        }
+        swap(order, 0, first);
+        swap(order, 1, second == 0 ? first : second);
+        return order;
+    }
+
+    /**
+     * Swaps two elements of an array.
+     *
+     * @param array The array.
+     * @param i The first index.
+     * @param j The second index.
+     */
+    private static void swap(CourseSchedule[] array, int i, int j) {
+        CourseSchedule swap = array[i];
+        array[i] = array[j];
+        array[j] = swap;
+    }
+
+    /**
+     * Returns the section a student has a seat in.
+     *
+     * @param student The student.
+     * @return The section, or null if the student is not registered through
+     * the group.
+     */
+    public CourseSchedule getSection(Student student) {
+        return sectionOf.get(student);
+    }
+
+    /**
+     * Checks whether a student is on the shared waiting list.
+     *
+     * @param student The student to check.
+     * @return The boolean result of the check.
+     */
+    public boolean isStudentOnWaitingList(Student student) {
+        return waitListedStudents.contains(student);
+    }
+
+    /**
+     * Returns a copy of the shared waiting list, in the order seats will be
+     * offered.
+     *
+     * @return The waiting students.
+     */
+    public List<Student> getWaitListedStudents() {
+        waitListLock.lock();
+        try {
+            return Collections.unmodifiableList(new ArrayList<Student>(waitListedStudents.view()));
+        } finally {
+            waitListLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the course all sections teach.
+     *
+     * @return {@link SectionGroup#course course}
+     */
+    public Course getCourse() {
+        return course;
+    }
+
+    /**
+     * Returns the sections.
+     *
+     * @return A read-only list of {@link SectionGroup#sections sections}.
+     */
+    public List<CourseSchedule> getSections() {
+        return Collections.unmodifiableList(Arrays.asList(sections));
+    }
+}
@@ -0,0 +1,221 @@
+package com.erudine.coursebooking;
+
+import com.erudine.coursebooking.persons.Teacher;
+import com.erudine.coursebooking.util.IntervalSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Directory of teachers and the schedules they run. Teachers are interned by
+ * name so that each is represented by one instance, and each teacher's
+ * assigned schedules are held in an {@link IntervalSet} by date, so an
+ * assignment overlapping one the teacher already has is rejected in
+ * logarithmic time, and a teacher's workload over any date range is found
+ * without looking at their other schedules. A schedule runs from its start
+ * date up to but not including its end date.
+ *
+ * @author Adam Harries
+ * @version 31 Jul 2013
+ */
+public class TeacherDirectory {
+
+    /**
+     * The teachers, by name.
+     */
+    private final ConcurrentHashMap<String, Teacher> teachers;
+    /**
+     * The schedules assigned to each teacher.
+     */
+    private final ConcurrentHashMap<Teacher, IntervalSet<CourseSchedule>> assignments;
+
+    /**
+     * Constructor.
+     */
+    public TeacherDirectory() {
+        teachers = new ConcurrentHashMap<String, Teacher>();
+        assignments = new ConcurrentHashMap<Teacher, IntervalSet<CourseSchedule>>();
+    }
+
+    /**
+     * Returns the teacher with a name, adding them if they are new.
+     *
+     * @param name The teacher's name.
+     * @return The directory's instance of the teacher.
+     */
+    public Teacher intern(String name) {
+        Teacher teacher = teachers.get(name);
+        if (teacher == null) {
+            Teacher created = new Teacher(name);
+            teacher = teachers.putIfAbsent(name, created);
+            if (teacher == null) {
+                teacher = created;
+            }
+        }
+        return teacher;
+    }
+
+    /**
+     * Returns the directory's instance of a teacher, adding them if they are
+     * new.
+     *
+     * @param teacher The teacher.
+     * @return The directory's instance of the teacher.
+     */
+    public Teacher intern(Teacher teacher) {
+        Teacher existing = teachers.putIfAbsent(teacher.getName(), teacher);
+        return existing == null ? teacher : existing;
+    }
+
+    /**
+     * Returns the teacher with a name.
+     *
+     * @param name The teacher's name.
+     * @return The teacher, or null if the directory does not hold them.
+     */
+    public Teacher getTeacher(String name) {
+        return teachers.get(name);
+    }
+
+    /**
+     * Returns every teacher in the directory.
+     *
+     * @return A read-only view of the teachers.
+     */
+    public Collection<Teacher> getTeachers() {
+        return Collections.unmodifiableCollection(teachers.values());
+    }
+
+    /**
+     * Creates a schedule and assigns it to its teacher.
+     *
+     * @param course The course.
+     * @param courseCapacity The maximum capacity of the course.
+     * @param startDate The start date of the course.
+     * @param endDate The end date of the course.
+     * @param teacher The teacher of the course.
+     * @return The new schedule, whose teacher is the directory's instance.
+     * @throws IllegalArgumentException if the teacher is already teaching
+     * during the course's dates.
+     */
+    public CourseSchedule createSchedule(Course course, int courseCapacity, Date startDate, Date endDate,
+            Teacher teacher) {
+        CourseSchedule schedule = new CourseSchedule(course, courseCapacity, startDate, endDate, intern(teacher));
+        assign(schedule);
+        return schedule;
+    }
+
+    /**
+     * Assigns an existing schedule to its teacher.
+     *
+     * @param schedule The schedule.
+     * @throws IllegalArgumentException if the teacher is already teaching
+     * during the schedule's dates.
+     */
+    public void assign(CourseSchedule schedule) {
+        IntervalSet<CourseSchedule> timetable = timetableOf(intern(schedule.getTeacher()));
+        long start = schedule.getStartDate().getTime();
+        long end = schedule.getEndDate().getTime();
+        CourseSchedule clash;
+        synchronized (timetable) {
+            clash = timetable.findOverlap(start, end);
+            if (clash == null) {
+                timetable.add(start, end, schedule);
+            }
+        }
+        if (clash != null) {
+            throw new IllegalArgumentException(schedule.getTeacher().getName() + " is already teaching "
+                    + clash.getCourse().getName() + " during those dates.");
+        }
+    }
+
+    /**
+     * Removes a schedule from its teacher's assignments.
+     *
+     * @param schedule The schedule.
+     * @return true if the schedule was assigned.
+     */
+    public boolean unassign(CourseSchedule schedule) {
+        IntervalSet<CourseSchedule> timetable = assignments.get(schedule.getTeacher());
+        if (timetable == null) {
+            return false;
+        }
+        synchronized (timetable) {
+            return timetable.remove(schedule.getStartDate().getTime(), schedule);
+        }
+    }
+
+    /**
+     * Returns the schedule a teacher is already running during some dates.
+     *
+     * @param teacher The teacher.
+     * @param startDate The start of the dates, inclusive.
+     * @param endDate The end of the dates, exclusive.
+     * @return The clashing schedule, or null if the teacher is free.
+     */
+    public CourseSchedule findClash(Teacher teacher, Date startDate, Date endDate) {
+        IntervalSet<CourseSchedule> timetable = assignments.get(teacher);
+        if (timetable == null) {
+            return null;
+        }
+        synchronized (timetable) {
+            return timetable.findOverlap(startDate.getTime(), endDate.getTime());
+        }
+    }
+
+    /**
+     * Returns every schedule assigned to a teacher.
+     *
+     * @param teacher The teacher.
+     * @return The schedules, in order of start date.
+     */
+    public List<CourseSchedule> getSchedules(Teacher teacher) {
+        IntervalSet<CourseSchedule> timetable = assignments.get(teacher);
+        if (timetable == null) {
+            return Collections.emptyList();
+        }
+        synchronized (timetable) {
+            return timetable.values();
+        }
+    }
+
+    /**
+     * Returns the schedules a teacher runs during a date range.
+     *
+     * @param teacher The teacher.
+     * @param from The start of the range, inclusive.
+     * @param to The end of the range, exclusive.
+     * @return The schedules running at any point in the range, in order of
+     * start date.
+     */
+    public List<CourseSchedule> getSchedules(Teacher teacher, Date from, Date to) {
+        IntervalSet<CourseSchedule> timetable = assignments.get(teacher);
+        if (timetable == null) {
+            return Collections.emptyList();
+        }
+        synchronized (timetable) {
+            return timetable.findOverlapping(from.getTime(), to.getTime());
+        }
+    }
+
+    /**
+     * Returns the schedules assigned to a teacher, creating the empty set of
+     * assignments if needed.
+     *
+     * @param teacher The teacher.
+     * @return The teacher's schedules.
+     */
+    private IntervalSet<CourseSchedule> timetableOf(Teacher teacher) {
+        IntervalSet<CourseSchedule> timetable = assignments.get(teacher);
+        if (timetable == null) {
+            IntervalSet<CourseSchedule> created = new IntervalSet<CourseSchedule>();
+            timetable = assignments.putIfAbsent(teacher, created);
+            if (timetable == null) {
+                timetable = created;
+            }
+        }
+        return timetable;
+    }
+}
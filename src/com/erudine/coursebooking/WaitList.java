@@ -0,0 +1,95 @@
+package com.erudine.coursebooking;
+
+import com.erudine.coursebooking.persons.Student;
+import java.util.Collection;
+
+/**
+ * Queue of students waiting for a place on a course, ordered by the
+ * schedule's {@link WaitListPolicy}.
+ * <p>
+ * The mutating methods must only be called while holding the lock of the
+ * owning {@link CourseSchedule}. {@link WaitList#contains(Student) contains},
+ * {@link WaitList#size() size} and iteration of the {@link WaitList#view()
+ * view} may be called from any thread without locking; iteration is weakly
+ * consistent and never throws a ConcurrentModificationException.
+ *
+ * @author Adam Harries
+ * @version 31 Jul 2013
+ */
+abstract class WaitList {
+
+    /**
+     * Creates an empty queue ordered by a policy: a linked queue for the
+     * first come, first served policy, and an indexed heap for any other.
+     *
+     * @param schedule The schedule whose students wait.
+     * @param policy The order in which students are offered a place.
+     * @return The queue.
+     */
+    static WaitList create(CourseSchedule schedule, WaitListPolicy policy) {
+        if (policy == WaitListPolicy.FIRST_COME_FIRST_SERVED) {
+            return new FifoWaitList();
+        }
+        return new HeapWaitList(schedule, policy);
+    }
+
+    /**
+     * Adds a student to the queue.
+     *
+     * @param student The student to add.
+     * @return false if the student was already in the queue.
+     */
+    abstract boolean add(Student student);
+
+    /**
+     * Removes a student from anywhere in the queue.
+     *
+     * @param student The student to remove.
+     * @return true if the student was in the queue.
+     */
+    abstract boolean remove(Student student);
+
+    /**
+     * Removes and returns the student to be offered the next place.
+     *
+     * @return The first student in the queue, or null if the queue is empty.
+     */
+    abstract Student poll();
+
+    /**
+     * Returns the student to be offered the next place without removing them.
+     *
+     * @return The first student in the queue, or null if the queue is empty.
+     */
+    abstract Student peek();
+
+    /**
+     * Checks whether a student is in the queue.
+     *
+     * @param student The student to check.
+     * @return The boolean result of the check.
+     */
+    abstract boolean contains(Student student);
+
+    /**
+     * Returns the number of students in the queue.
+     *
+     * @return The number of students.
+     */
+    abstract int size();
+
+    /**
+     * Checks whether the queue is empty.
+     *
+     * @return The boolean result of the check.
+     */
+    abstract boolean isEmpty();
+
+    /**
+     * Returns a read-only view of the queue, in the order places will be
+     * offered.
+     *
+     * @return The view.
+     */
+    abstract Collection<Student> view();
+}
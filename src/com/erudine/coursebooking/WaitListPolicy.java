@@ -0,0 +1,47 @@
+package com.erudine.coursebooking;
+
+import com.erudine.coursebooking.persons.Student;
+
+/**
+ * The order in which a {@link CourseSchedule} offers places to the students
+ * on its waiting list. Each student is ranked once, as they join the list;
+ * lower ranks are offered a place first, and students of equal rank in the
+ * order they joined.
+ *
+ * @author Adam Harries
+ * @version 31 Jul 2013
+ */
+public interface WaitListPolicy {
+
+    /**
+     * Offers places in the order students joined the waiting list. The
+     * default policy.
+     */
+    WaitListPolicy FIRST_COME_FIRST_SERVED = new WaitListPolicy() {
+        @Override
+        public long rank(CourseSchedule schedule, Student student) {
+            return 0;
+        }
+    };
+
+    /**
+     * Offers places to the students who have taken the most courses first,
+     * favouring those in their final year.
+     */
+    WaitListPolicy MOST_COURSES_TAKEN = new WaitListPolicy() {
+        @Override
+        public long rank(CourseSchedule schedule, Student student) {
+            return -student.getCoursesTaken().size();
+        }
+    };
+
+    /**
+     * Ranks a student joining the waiting list. The rank must not depend on
+     * the other students waiting.
+     *
+     * @param schedule The schedule being joined.
+     * @param student The student joining.
+     * @return The student's rank, lower ranks being offered a place first.
+     */
+    long rank(CourseSchedule schedule, Student student);
+}
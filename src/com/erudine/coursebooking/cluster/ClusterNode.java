@@ -0,0 +1,695 @@
+package com.erudine.coursebooking.cluster;
+
+import com.erudine.coursebooking.BookingResult;
+import com.erudine.coursebooking.CancellationResult;
+import com.erudine.coursebooking.Course;
+import com.erudine.coursebooking.CourseCatalog;
+import com.erudine.coursebooking.CourseSchedule;
+import com.erudine.coursebooking.RosterSnapshot;
+import com.erudine.coursebooking.ScheduleRegistry;
+import com.erudine.coursebooking.ScheduleSnapshot;
+import com.erudine.coursebooking.persons.Student;
+import com.erudine.coursebooking.persons.StudentRegistry;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * One node of a cluster sharing out schedules by a {@link HashRing}. Each
+ * schedule lives on exactly one node, in that node's {@link ScheduleRegistry};
+ * bookings and cancellations may be made on any node and are forwarded over
+ * the {@link Transport} to the node holding the schedule.
+ * <p>
+ * Membership is changed from outside: when a node joins or leaves, every node
+ * is given the new ring by {@link ClusterNode#setRing setRing} and then
+ * {@link ClusterNode#rebalance rebalances}, handing the schedules it no longer
+ * owns to their new owners in the {@link ScheduleSnapshot} format. The old
+ * node copies and drops the schedules under its lock, so no booking is made
+ * on them after the copy, and sends them on once the lock is released, so
+ * no node waits on another while holding it. Only one copy of a schedule
+ * ever takes bookings.
+ * <p>
+ * Each handover carries an id, and the receiver records whether it took the
+ * schedules, so delivering a handover twice adopts them once. If sending a
+ * handover fails, the sender asks the receiver to recall it: the receiver
+ * either reports that it already holds the schedules, or records the
+ * handover as recalled and refuses it should it arrive later. Only then does
+ * the sender take the schedules back. If the receiver cannot be asked, the
+ * schedules stay fenced, held by neither node, until a later
+ * {@link ClusterNode#rebalance rebalance} settles the handover.
+ * <p>
+ * Until every node has rebalanced, a node asked for a
+ * schedule it should own but does not yet hold forwards the request to the
+ * schedule's owner under the previous ring; a request arriving while the
+ * schedule is on its way may fail and should be retried.
+ * <p>
+ * Only rosters and waiting lists move with a schedule: listeners, metrics,
+ * registration windows and wait-list policies stay with the node they were
+ * set on. Course prerequisites are taken from each node's own catalog. A
+ * forwarded request carries the student's transcript, and eligibility is
+ * checked against that transcript rather than any record the owner holds;
+ * schedules handed over carry the transcripts of their students likewise.
+ * Course names from other nodes are only looked up, never added to the
+ * catalog.
+ *
+ * @author Adam Harries
+ * @version 31 Jul 2013
+ */
+public class ClusterNode {
+
+    /**
+     * Request to book a student on a schedule.
+     */
+    private static final byte BOOK = 1;
+    /**
+     * Request to cancel a student's booking.
+     */
+    private static final byte CANCEL = 2;
+    /**
+     * Request to take over schedules.
+     */
+    private static final byte TRANSFER = 3;
+    /**
+     * Request to recall a handover whose sending failed.
+     */
+    private static final byte RECALL = 4;
+    /**
+     * Response to a request carried out.
+     */
+    private static final byte OK = 0;
+    /**
+     * Response to a request refused with an IllegalArgumentException.
+     */
+    private static final byte REJECTED = 1;
+    /**
+     * Response to a request failed with an IllegalStateException.
+     */
+    private static final byte FAILED = 2;
+    /**
+     * The most times a request is forwarded before giving up on finding the
+     * schedule.
+     */
+    private static final int MAX_HOPS = 3;
+
+    /**
+     * The id of this node.
+     */
+    private final String nodeId;
+    /**
+     * The transport to the other nodes.
+     */
+    private final Transport transport;
+    /**
+     * The registry students are resolved in.
+     */
+    private final StudentRegistry studentRegistry;
+    /**
+     * The catalog courses are resolved in.
+     */
+    private final CourseCatalog catalog;
+    /**
+     * The schedules held by this node.
+     */
+    private final ScheduleRegistry schedules = new ScheduleRegistry();
+    /**
+     * Held for reading while a held schedule is used, and for writing while
+     * schedules are handed to other nodes.
+     */
+    private final ReentrantReadWriteLock handoverLock = new ReentrantReadWriteLock();
+    /**
+     * The current ring.
+     */
+    private volatile HashRing ring;
+    /**
+     * The ring before the last change of membership, or null if there has
+     * been none.
+     */
+    private volatile HashRing previousRing;
+    /**
+     * The handovers sent whose outcome is unknown. Their schedules are held
+     * by neither node until they are settled.
+     */
+    private final List<Handover> unsettled = new ArrayList<Handover>();
+    /**
+     * The outcome of each handover received, by id: true if its schedules
+     * were adopted, false if it was recalled before it arrived. Guarded by
+     * {@link ClusterNode#schedules schedules}' monitor.
+     */
+    private final Map<String, Boolean> handovers = new HashMap<String, Boolean>();
+
+    /**
+     * Constructor, registering the node with the transport.
+     *
+     * @param nodeId The id of this node.
+     * @param ring The ring, which should include this node.
+     * @param transport The transport to the other nodes.
+     * @param studentRegistry The registry students are resolved in.
+     * @param catalog The catalog courses are resolved in.
+     */
+    public ClusterNode(String nodeId, HashRing ring, Transport transport, StudentRegistry studentRegistry,
+            CourseCatalog catalog) {
+        this.nodeId = nodeId;
+        this.ring = ring;
+        this.transport = transport;
+        this.studentRegistry = studentRegistry;
+        this.catalog = catalog;
+        transport.register(nodeId, new MessageHandler() {
+            @Override
+            public byte[] handle(byte[] request) throws IOException {
+                return ClusterNode.this.handle(request);
+            }
+        });
+    }
+
+    /**
+     * Adds a schedule to the cluster, handing it to its owner if that is
+     * another node.
+     *
+     * @param schedule The schedule, which must not be in use elsewhere.
+     * @throws IOException if the owner cannot be reached. The schedule should
+     * then no longer be used, as the owner may hold it after all; a later
+     * {@link ClusterNode#rebalance rebalance} settles where it is held.
+     */
+    public void addSchedule(CourseSchedule schedule) throws IOException {
+        String owner = ring.ownerOf(schedule.getCourse().getName(), schedule.getStartDate());
+        if (owner.equals(nodeId)) {
+            adopt(Collections.singletonList(schedule));
+        } else {
+            handOver(Collections.singletonList(new Handover(owner, Collections.singletonList(schedule), false)));
+        }
+    }
+
+    /**
+     * Books a student on a schedule, wherever in the cluster it is held.
+     *
+     * @param courseName The name of the course.
+     * @param startDate The start date of the schedule.
+     * @param student The student.
+     * @return The result of the booking.
+     * @throws IOException if the node holding the schedule cannot be reached.
+     */
+    public BookingResult book(String courseName, Date startDate, Student student) throws IOException {
+        return BookingResult.values()[route(BOOK, courseName, startDate, student, 0)];
+    }
+
+    /**
+     * Cancels a student's booking on a schedule, wherever in the cluster it
+     * is held.
+     *
+     * @param courseName The name of the course.
+     * @param startDate The start date of the schedule.
+     * @param student The student.
+     * @return The result of the cancellation.
+     * @throws IOException if the node holding the schedule cannot be reached.
+     */
+    public CancellationResult cancel(String courseName, Date startDate, Student student) throws IOException {
+        return CancellationResult.values()[route(CANCEL, courseName, startDate, student, 0)];
+    }
+
+    /**
+     * Hands the schedules this node no longer owns under the current ring to
+     * their owners, after first settling any handover left unsettled by an
+     * earlier failure. No bookings are made on this node's schedules
+     * meanwhile.
+     *
+     * @return The number of schedules handed over.
+     * @throws IOException if a new owner cannot be reached, in which case the
+     * schedules known not to have been handed over are taken back, and any
+     * whose handover cannot be settled stay fenced.
+     */
+    public int rebalance() throws IOException {
+        Map<String, List<CourseSchedule>> leaving = new LinkedHashMap<String, List<CourseSchedule>>();
+        List<Handover> sending;
+        synchronized (unsettled) {
+            sending = new ArrayList<Handover>(unsettled);
+            unsettled.clear();
+        }
+        handoverLock.writeLock().lock();
+        try {
+            HashRing current = ring;
+            for (CourseSchedule schedule : schedules) {
+                String owner = current.ownerOf(schedule.getCourse().getName(), schedule.getStartDate());
+                if (!owner.equals(nodeId)) {
+                    List<CourseSchedule> moving = leaving.get(owner);
+                    if (moving == null) {
+                        moving = new ArrayList<CourseSchedule>();
+                        leaving.put(owner, moving);
+                    }
+                    moving.add(schedule);
+                }
+            }
+            for (Map.Entry<String, List<CourseSchedule>> entry : leaving.entrySet()) {
+                sending.add(new Handover(entry.getKey(), entry.getValue(), true));
+                for (CourseSchedule schedule : entry.getValue()) {
+                    schedules.unregister(schedule);
+                }
+            }
+        } finally {
+            handoverLock.writeLock().unlock();
+        }
+        //Send without the lock, so no node waits on another while holding it
+        return handOver(sending);
+    }
+
+    /**
+     * Leaves the cluster: hands every schedule to its owner under a ring
+     * without this node, and unregisters from the transport. The other nodes
+     * should be given the same ring.
+     *
+     * @return The number of schedules handed over.
+     * @throws IOException if a new owner cannot be reached, in which case the
+     * node stays registered.
+     */
+    public int leave() throws IOException {
+        setRing(ring.withoutNode(nodeId));
+        int moved = rebalance();
+        transport.unregister(nodeId);
+        return moved;
+    }
+
+    /**
+     * Replaces the ring after a change of membership. Call
+     * {@link ClusterNode#rebalance rebalance} afterwards.
+     *
+     * @param ring The new ring.
+     */
+    public void setRing(HashRing ring) {
+        previousRing = this.ring;
+        this.ring = ring;
+    }
+
+    /**
+     * Returns the current ring.
+     *
+     * @return {@link ClusterNode#ring ring}.
+     */
+    public HashRing getRing() {
+        return ring;
+    }
+
+    /**
+     * Returns the id of this node.
+     *
+     * @return {@link ClusterNode#nodeId node id}.
+     */
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Returns the schedules held by this node.
+     *
+     * @return {@link ClusterNode#schedules schedules}.
+     */
+    public ScheduleRegistry getSchedules() {
+        return schedules;
+    }
+
+    /**
+     * Sends handovers in turn, stopping at the first failure. A handover
+     * known not to have arrived is taken back, or simply dropped if it was
+     * never held here; one whose outcome is unknown is kept to be settled
+     * later.
+     *
+     * @param sending The handovers.
+     * @return The number of schedules handed over.
+     * @throws IOException if a node cannot be reached.
+     */
+    private int handOver(List<Handover> sending) throws IOException {
+        int moved = 0;
+        Exception failure = null;
+        for (Handover handover : sending) {
+            if (failure == null) {
+                handover.sent = true;
+                try {
+                    send(handover.owner, handover.request);
+                    moved += handover.schedules.size();
+                    continue;
+                } catch (IOException e) {
+                    failure = e;
+                } catch (RuntimeException e) {
+                    //Refused: the response proves nothing was adopted
+                    failure = e;
+                    handover.sent = false;
+                }
+                if (handover.sent) {
+                    //The handover may have arrived with only the response
+                    //lost: ask before taking the schedules back
+                    try {
+                        if (send(handover.owner, recallRequest(handover.id)) != 0) {
+                            moved += handover.schedules.size();
+                            failure = null;
+                            continue;
+                        }
+                        handover.sent = false;
+                    } catch (IOException | RuntimeException e) {
+                        //Unknown: keep the schedules fenced
+                    }
+                }
+            }
+            if (handover.sent) {
+                //Taken back here should a later recall succeed
+                handover.takeBack = true;
+                synchronized (unsettled) {
+                    unsettled.add(handover);
+                }
+            } else if (handover.takeBack) {
+                //Not handed over: nobody has booked on them since
+                adopt(handover.schedules);
+            }
+        }
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        }
+        if (failure != null) {
+            throw (RuntimeException) failure;
+        }
+        return moved;
+    }
+
+    /**
+     * Carries out a booking or cancellation here if the schedule is held
+     * here, or forwards it towards the node holding it.
+     *
+     * @param operation {@link ClusterNode#BOOK BOOK} or
+     * {@link ClusterNode#CANCEL CANCEL}.
+     * @param courseName The name of the course.
+     * @param startDate The start date of the schedule.
+     * @param student The student.
+     * @param hops The number of times the request has been forwarded.
+     * @return The ordinal of the result.
+     * @throws IOException if the request cannot be forwarded.
+     */
+    private int route(byte operation, String courseName, Date startDate, Student student, int hops)
+            throws IOException {
+        handoverLock.readLock().lock();
+        try {
+            CourseSchedule schedule = schedules.get(courseName, startDate);
+            if (schedule != null) {
+                return operation == BOOK ? schedule.book(student).ordinal() : schedule.cancel(student).ordinal();
+            }
+        } finally {
+            handoverLock.readLock().unlock();
+        }
+        String owner = ring.ownerOf(courseName, startDate);
+        if (owner.equals(nodeId)) {
+            //A schedule moving here may still be with its previous owner
+            HashRing previous = previousRing;
+            if (previous != null) {
+                owner = previous.ownerOf(courseName, startDate);
+            }
+            if (owner.equals(nodeId)) {
+                throw new IllegalArgumentException("There is no schedule of " + courseName + " starting "
+                        + startDate + ".");
+            }
+        }
+        if (hops == MAX_HOPS) {
+            throw new IllegalStateException("The schedule of " + courseName + " starting " + startDate
+                    + " could not be found after " + hops + " hops.");
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(operation);
+        out.writeInt(hops + 1);
+        out.writeUTF(courseName);
+        out.writeLong(startDate.getTime());
+        writeStudent(out, student);
+        return send(owner, bytes.toByteArray());
+    }
+
+    /**
+     * Handles a request from another node.
+     *
+     * @param request The request.
+     * @return The response.
+     * @throws IOException if the request cannot be read.
+     */
+    private byte[] handle(byte[] request) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(request));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            int result;
+            byte operation = in.readByte();
+            if (operation == TRANSFER) {
+                result = receive(in);
+            } else if (operation == RECALL) {
+                String id = in.readUTF();
+                synchronized (schedules) {
+                    Boolean adopted = handovers.get(id);
+                    if (adopted == null) {
+                        handovers.put(id, false);
+                    }
+                    result = adopted != null && adopted ? 1 : 0;
+                }
+            } else if (operation == BOOK || operation == CANCEL) {
+                int hops = in.readInt();
+                String courseName = in.readUTF();
+                Date startDate = new Date(in.readLong());
+                //Check eligibility against the transcript sent, not any
+                //record of the student held here
+                Student student = new Student(in.readUTF(), readCourses(in));
+                result = route(operation, courseName, startDate, student, hops);
+            } else {
+                throw new IOException("Unknown request " + operation + ".");
+            }
+            out.writeByte(OK);
+            out.writeInt(result);
+        } catch (IllegalArgumentException e) {
+            out.writeByte(REJECTED);
+            out.writeUTF(String.valueOf(e.getMessage()));
+        } catch (IllegalStateException e) {
+            out.writeByte(FAILED);
+            out.writeUTF(String.valueOf(e.getMessage()));
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Takes over the schedules of a handover, once only. A handover already
+     * adopted is acknowledged again, and one already recalled is refused.
+     *
+     * @param in The request, after its operation.
+     * @return The number of schedules adopted, 0 if the handover had already
+     * been adopted.
+     * @throws IOException if the request cannot be read.
+     */
+    private int receive(DataInputStream in) throws IOException {
+        String id = in.readUTF();
+        Map<String, List<Course>> transcripts = new LinkedHashMap<String, List<Course>>();
+        for (int i = in.readInt(); i > 0; i--) {
+            transcripts.put(in.readUTF(), readCourses(in));
+        }
+        byte[] snapshot = new byte[in.readInt()];
+        in.readFully(snapshot);
+        synchronized (schedules) {
+            Boolean adopted = handovers.get(id);
+            if (adopted != null && !adopted) {
+                throw new IllegalStateException("Handover " + id + " was recalled by its sender.");
+            }
+            if (adopted != null) {
+                return 0;
+            }
+            //Record the students' transcripts before the snapshot restores
+            //them by name
+            for (Map.Entry<String, List<Course>> transcript : transcripts.entrySet()) {
+                Student student = studentRegistry.getStudent(transcript.getKey());
+                if (student == null) {
+                    studentRegistry.intern(new Student(transcript.getKey(), transcript.getValue()));
+                } else {
+                    student.addCoursesTaken(transcript.getValue());
+                }
+            }
+            List<CourseSchedule> arriving = ScheduleSnapshot.decode(snapshot, studentRegistry, catalog)
+                    .getSchedules();
+            adopt(arriving);
+            handovers.put(id, true);
+            return arriving.size();
+        }
+    }
+
+    /**
+     * Sends a request and unpacks the response, rethrowing a failure on the
+     * other node.
+     *
+     * @param node The id of the node.
+     * @param request The request.
+     * @return The result carried by the response.
+     * @throws IOException if the node cannot be reached.
+     */
+    private int send(String node, byte[] request) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(transport.send(node, request)));
+        byte status = in.readByte();
+        if (status == REJECTED) {
+            throw new IllegalArgumentException(in.readUTF());
+        }
+        if (status == FAILED) {
+            throw new IllegalStateException(in.readUTF());
+        }
+        return in.readInt();
+    }
+
+    /**
+     * Builds a request recalling a handover.
+     *
+     * @param id The id of the handover.
+     * @return The request.
+     * @throws IOException if the request cannot be written.
+     */
+    private static byte[] recallRequest(String id) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(RECALL);
+        out.writeUTF(id);
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Builds a request handing schedules to another node.
+     *
+     * @param id The id of the handover.
+     * @param moving The schedules.
+     * @return The request.
+     * @throws IOException if the request cannot be written.
+     */
+    private static byte[] transferRequest(String id, List<CourseSchedule> moving) throws IOException {
+        Map<String, Student> students = new LinkedHashMap<String, Student>();
+        for (CourseSchedule schedule : moving) {
+            RosterSnapshot roster = schedule.getRoster();
+            for (Student student : roster.getRegisteredStudents()) {
+                students.put(student.getName(), student);
+            }
+            for (Student student : roster.getWaitListedStudents()) {
+                students.put(student.getName(), student);
+            }
+        }
+        byte[] snapshot = ScheduleSnapshot.encode(moving);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(snapshot.length + 64 * students.size() + 9);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(TRANSFER);
+        out.writeUTF(id);
+        out.writeInt(students.size());
+        for (Student student : students.values()) {
+            writeStudent(out, student);
+        }
+        out.writeInt(snapshot.length);
+        out.write(snapshot);
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Writes a student's name and transcript.
+     *
+     * @param out The stream to write to.
+     * @param student The student.
+     * @throws IOException if the student cannot be written.
+     */
+    private static void writeStudent(DataOutputStream out, Student student) throws IOException {
+        out.writeUTF(student.getName());
+        Set<Course> coursesTaken = student.getCoursesTaken();
+        out.writeInt(coursesTaken.size());
+        for (Course course : coursesTaken) {
+            out.writeUTF(course.getName());
+        }
+    }
+
+    /**
+     * Reads a transcript, keeping the courses this node's catalog knows. A
+     * course unknown here cannot be a prerequisite of any course here.
+     *
+     * @param in The stream to read from.
+     * @return The courses taken.
+     * @throws IOException if the transcript cannot be read.
+     */
+    private List<Course> readCourses(DataInputStream in) throws IOException {
+        List<Course> coursesTaken = new ArrayList<Course>();
+        for (int i = in.readInt(); i > 0; i--) {
+            Course course = catalog.getCourse(in.readUTF());
+            if (course != null) {
+                coursesTaken.add(course);
+            }
+        }
+        return coursesTaken;
+    }
+
+    /**
+     * Takes over schedules, refusing them all if any is already held here.
+     *
+     * @param arriving The schedules.
+     */
+    private void adopt(List<CourseSchedule> arriving) {
+        synchronized (schedules) {
+            for (CourseSchedule schedule : arriving) {
+                if (schedules.get(schedule.getCourse(), schedule.getStartDate()) != null) {
+                    throw new IllegalArgumentException("Node " + nodeId + " already holds a schedule of "
+                            + schedule.getCourse().getName() + " starting " + schedule.getStartDate() + ".");
+                }
+            }
+            for (CourseSchedule schedule : arriving) {
+                schedules.register(schedule);
+            }
+        }
+    }
+
+    /**
+     * Schedules sent to another node, with the request carrying them.
+     */
+    private static final class Handover {
+
+        /**
+         * The node the schedules are sent to.
+         */
+        final String owner;
+        /**
+         * The id of the handover, unique across the cluster.
+         */
+        final String id;
+        /**
+         * The schedules.
+         */
+        final List<CourseSchedule> schedules;
+        /**
+         * The request carrying the schedules.
+         */
+        final byte[] request;
+        /**
+         * Whether the schedules are taken back here if the handover is known
+         * not to have arrived.
+         */
+        boolean takeBack;
+        /**
+         * Whether the handover has been sent and the receiver may have
+         * adopted the schedules.
+         */
+        boolean sent;
+
+        /**
+         * Constructor, copying the schedules into the request.
+         *
+         * @param owner The node the schedules are sent to.
+         * @param schedules The schedules.
+         * @param takeBack Whether the schedules are taken back here if the
+         * handover is known not to have arrived.
+         * @throws IOException if the request cannot be written.
+         */
+        Handover(String owner, List<CourseSchedule> schedules, boolean takeBack) throws IOException {
+            this.owner = owner;
+            this.id = UUID.randomUUID().toString();
+            this.schedules = schedules;
+            this.request = transferRequest(id, schedules);
+            this.takeBack = takeBack;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.erudine.coursebooking.cluster;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Consistent-hash ring assigning each schedule, by course name and start
+ * date, to one node of a cluster. Each node is placed on the ring at a number
+ * of virtual points, and a schedule belongs to the node owning the first
+ * point at or after the schedule's own hash, so a node joining or leaving
+ * moves only the schedules next to its points.
+ * <p>
+ * Rings are immutable: nodes join and leave by building a new ring. The
+ * hashes depend only on the names and dates, so every node computes the same
+ * owner from the same membership.
+ *
+ * @author Adam Harries
+ * @version 31 Jul 2013
+ */
+public final class HashRing {
+
+    /**
+     * The number of points each node is placed at by default.
+     */
+    public static final int DEFAULT_VIRTUAL_NODES = 128;
+    /**
+     * The node ids, in sorted order.
+     */
+    private final Set<String> nodes;
+    /**
+     * The number of points each node is placed at.
+     */
+    private final int virtualNodes;
+    /**
+     * The points on the ring, in ascending order.
+     */
+    private final long[] points;
+    /**
+     * The node owning each point.
+     */
+    private final String[] owners;
+
+    /**
+     * Constructor for a ring using the default number of points per node.
+     *
+     * @param nodes The ids of the nodes.
+     */
+    public HashRing(Collection<String> nodes) {
+        this(nodes, DEFAULT_VIRTUAL_NODES);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param nodes The ids of the nodes.
+     * @param virtualNodes The number of points each node is placed at.
+     */
+    public HashRing(Collection<String> nodes, int virtualNodes) {
+        if (virtualNodes <= 0) {
+            throw new IllegalArgumentException("Each node needs at least one point on the ring.");
+        }
+        this.nodes = Collections.unmodifiableSet(new TreeSet<String>(nodes));
+        this.virtualNodes = virtualNodes;
+        int count = this.nodes.size() * virtualNodes;
+        //Sort the points packed with their node's index, so that ties between
+        //points break the same way on every node
+        String[] sorted = this.nodes.toArray(new String[this.nodes.size()]);
+        long[][] placed = new long[count][];
+        int i = 0;
+        for (int n = 0; n < sorted.length; n++) {
+            for (int v = 0; v < virtualNodes; v++) {
+                placed[i++] = new long[]{mix(hash(sorted[n]) + v * 0x9E3779B97F4A7C15L), n};
+            }
+        }
+        Arrays.sort(placed, (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+        points = new long[count];
+        owners = new String[count];
+        for (i = 0; i < count; i++) {
+            points[i] = placed[i][0];
+            owners[i] = sorted[(int) placed[i][1]];
+        }
+    }
+
+    /**
+     * Returns a ring with a node added.
+     *
+     * @param node The id of the node joining.
+     * @return The new ring, or this ring if the node is already on it.
+     */
+    public HashRing withNode(String node) {
+        if (nodes.contains(node)) {
+            return this;
+        }
+        Set<String> joined = new TreeSet<String>(nodes);
+        joined.add(node);
+        return new HashRing(joined, virtualNodes);
+    }
+
+    /**
+     * Returns a ring with a node removed.
+     *
+     * @param node The id of the node leaving.
+     * @return The new ring, or this ring if the node is not on it.
+     */
+    public HashRing withoutNode(String node) {
+        if (!nodes.contains(node)) {
+            return this;
+        }
+        Set<String> left = new TreeSet<String>(nodes);
+        left.remove(node);
+        return new HashRing(left, virtualNodes);
+    }
+
+    /**
+     * Returns the node owning the schedule of a course starting at a date.
+     *
+     * @param courseName The name of the course.
+     * @param startDate The start date of the schedule.
+     * @return The id of the owning node.
+     */
+    public String ownerOf(String courseName, Date startDate) {
+        if (points.length == 0) {
+            throw new IllegalStateException("The ring has no nodes.");
+        }
+        long key = mix(hash(courseName) ^ startDate.getTime());
+        int i = Arrays.binarySearch(points, key);
+        if (i < 0) {
+            i = -i - 1;
+        }
+        return owners[i == points.length ? 0 : i];
+    }
+
+    /**
+     * Returns the nodes on the ring.
+     *
+     * @return {@link HashRing#nodes nodes}.
+     */
+    public Set<String> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Returns the number of points each node is placed at.
+     *
+     * @return {@link HashRing#virtualNodes virtual nodes}.
+     */
+    public int getVirtualNodes() {
+        return virtualNodes;
+    }
+
+    /**
+     * Hashes a string with 64-bit FNV-1a over its characters.
+     *
+     * @param value The string.
+     * @return The hash.
+     */
+    private static long hash(String value) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Spreads the bits of a hash, so that nearby inputs land far apart on the
+     * ring.
+     *
+     * @param hash The hash.
+     * @return The mixed hash.
+     */
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        return hash ^ (hash >>> 33);
+    }
+}
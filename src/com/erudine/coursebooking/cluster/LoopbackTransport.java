@@ -0,0 +1,45 @@
+package com.erudine.coursebooking.cluster;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * {@link Transport} between nodes in the same JVM, calling the receiving
+ * node's handler on the sender's thread. Requests and responses are copied,
+ * so nodes share no state through the transport, and a whole cluster can
+ * run in one test.
+ *
+ * @author Adam Harries
+ * @version 31 Jul 2013
+ */
+public class LoopbackTransport implements Transport {
+
+    /**
+     * The handler of each reachable node.
+     */
+    private final ConcurrentMap<String, MessageHandler> handlers = new ConcurrentHashMap<String, MessageHandler>();
+
+    @Override
+    public void register(String nodeId, MessageHandler handler) {
+        if (handlers.putIfAbsent(nodeId, handler) != null) {
+            throw new IllegalArgumentException("Node " + nodeId + " is already registered.");
+        }
+    }
+
+    @Override
+    public void unregister(String nodeId) {
+        handlers.remove(nodeId);
+    }
+
+    @Override
+    public byte[] send(String nodeId, byte[] request) throws IOException {
+        MessageHandler handler = handlers.get(nodeId);
+        if (handler == null) {
+            throw new IOException("Node " + nodeId + " is not reachable.");
+        }
+        byte[] response = handler.handle(Arrays.copyOf(request, request.length));
+        return Arrays.copyOf(response, response.length);
+    }
+}
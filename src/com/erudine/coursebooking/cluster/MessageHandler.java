@@ -0,0 +1,21 @@
+package com.erudine.coursebooking.cluster;
+
+import java.io.IOException;
+
+/**
+ * Handles the requests a {@link Transport} delivers to a node.
+ *
+ * @author Adam Harries
+ * @version 31 Jul 2013
+ */
+public interface MessageHandler {
+
+    /**
+     * Handles a request.
+     *
+     * @param request The request.
+     * @return The response.
+     * @throws IOException if the request cannot be read.
+     */
+    byte[] handle(byte[] request) throws IOException;
+}
@@ -0,0 +1,48 @@
+package com.erudine.coursebooking.cluster;
+
+import java.io.IOException;
+
+/**
+ * Carries requests between the nodes of a cluster. A request is an opaque
+ * message sent to a node by id, and the call returns the node's response,
+ * so an implementation need only move bytes and find nodes.
+ * <p>
+ * A send which fails with an {@link IOException} may or may not have been
+ * handled: the request may have been delivered and only the response lost.
+ * A sender must therefore not take a failed request as undone. A request
+ * which changes state on the receiver must be safe to deliver more than
+ * once, or its outcome must be asked for before the sender acts on the
+ * failure.
+ *
+ * @author Adam Harries
+ * @version 31 Jul 2013
+ */
+public interface Transport {
+
+    /**
+     * Makes a node reachable.
+     *
+     * @param nodeId The id of the node.
+     * @param handler The handler for requests sent to the node.
+     */
+    void register(String nodeId, MessageHandler handler);
+
+    /**
+     * Makes a node unreachable.
+     *
+     * @param nodeId The id of the node.
+     */
+    void unregister(String nodeId);
+
+    /**
+     * Sends a request to a node and waits for its response.
+     *
+     * @param nodeId The id of the node.
+     * @param request The request.
+     * @return The response.
+     * @throws IOException if the node cannot be reached or fails to handle
+     * the request, or the response is lost; the request may still have been
+     * handled.
+     */
+    byte[] send(String nodeId, byte[] request) throws IOException;
+}
@@ -1,7 +1,10 @@
 package com.erudine.coursebooking.persons;
 
 import com.erudine.coursebooking.Course;
+import com.erudine.coursebooking.CourseCatalog;
+import com.erudine.coursebooking.util.ImmutableBitSet;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -17,6 +20,29 @@ public class Student extends Person {
      * A set of courses which the student has already taken.
      */
     private Set<Course> coursesTaken;
+    /**
+     * The catalog ordinals of the courses taken. Only used while every course
+     * taken belongs to {@link Student#coursesTakenCatalog coursesTakenCatalog}.
+     */
+    private volatile ImmutableBitSet coursesTakenBits;
+    /**
+     * The catalog the courses taken belong to, or null if none have been taken.
+     */
+    private volatile CourseCatalog coursesTakenCatalog;
+    /**
+     * Whether any course taken was not interned in
+     * {@link Student#coursesTakenCatalog coursesTakenCatalog}, in which case
+     * prerequisite checks fall back to comparing courses.
+     */
+    private volatile boolean coursesTakenUnresolved;
+    /**
+     * The registry which has interned this student, or null if none has.
+     */
+    private volatile StudentRegistry registry;
+    /**
+     * The id given to this student by {@link Student#registry registry}.
+     */
+    private int registryId;
 
     /**
      * Constructor.
@@ -26,6 +52,7 @@ public class Student extends Person {
     public Student(String name) {
         super(name);
         coursesTaken = new HashSet<Course>();
+        coursesTakenBits = ImmutableBitSet.EMPTY;
     }
 
     /**
@@ -47,7 +74,11 @@ public class Student extends Person {
      * @return The boolean result of attempting to add the course to the set.
      */
     public final boolean addCourseTaken(Course courseTaken) {
-        return coursesTaken.add(courseTaken);
+        if (!coursesTaken.add(courseTaken)) {
+            return false;
+        }
+        addCourseTakenBit(courseTaken);
+        return true;
     }
 
     /**
@@ -59,34 +90,123 @@ public class Student extends Person {
      * underlying set.
      */
     public final boolean addCoursesTaken(Collection<Course> coursesTaken) {
-        return this.coursesTaken.addAll(coursesTaken);
+        boolean changed = false;
+        for (Course courseTaken : coursesTaken) {
+            changed |= addCourseTaken(courseTaken);
+        }
+        return changed;
+    }
+
+    /**
+     * Records the catalog ordinal of a course taken.
+     *
+     * @param courseTaken A course which the student has taken.
+     */
+    private synchronized void addCourseTakenBit(Course courseTaken) {
+        CourseCatalog catalog = courseTaken.getCatalog();
+        if (coursesTakenCatalog == null) {
+            coursesTakenCatalog = catalog;
+        }
+        if (catalog == null || catalog != coursesTakenCatalog) {
+            coursesTakenUnresolved = true;
+        } else {
+            coursesTakenBits = coursesTakenBits.with(courseTaken.getOrdinal());
+        }
     }
 
     /**
      * Logical check of whether the student has already taken the specified
-     * {@link Course course}: Loops over the underlying set of courses taken and
-     * compares for equality.
+     * {@link Course course}: Looks the course up in the underlying set of
+     * courses taken.
      *
      * @param course The course to check.
      * @return The boolean result of the check.
      */
     public boolean hasTakenCourse(Course course) {
-        for (Course courseTaken : coursesTaken) {
-            //Note that the overridden equals method is called here.
-            if (courseTaken.equals(course)) {
-                return true;
+        //Note that the overridden equals and hashCode methods are called here.
+        return coursesTaken.contains(course);
+    }
+
+    /**
+     * Logical check of whether the student has taken every prerequisite of the
+     * specified {@link Course course}. When the course's catalog is published
+     * and every course the student has taken belongs to it, this is a single
+     * bitset comparison over catalog ordinals; otherwise each prerequisite is
+     * looked up in turn.
+     *
+     * @param course The course to check.
+     * @return The boolean result of the check.
+     */
+    public boolean hasTakenPreRequisites(Course course) {
+        ImmutableBitSet required = course.getPreRequisiteBits();
+        if (required != null && !coursesTakenUnresolved) {
+            CourseCatalog catalog = coursesTakenCatalog;
+            if (catalog == null || catalog == course.getCatalog()) {
+                return coursesTakenBits.containsAll(required);
+            }
+        }
+        for (Course preRequisite : course.getPreRequisites()) {
+            if (!hasTakenCourse(preRequisite)) {
+                return false;
             }
         }
-        return false;
+        return true;
+    }
+
+    /**
+     * Returns the catalog ordinals of the courses the student has taken.
+     *
+     * @return {@link Student#coursesTakenBits coursesTakenBits}.
+     */
+    public ImmutableBitSet getCoursesTakenBits() {
+        return coursesTakenBits;
     }
 
     /**
-     * Returns the set of courses which the student has already taken.
+     * Returns the set of courses which the student has already taken. The set
+     * is read-only, so that every course taken is added through {@link
+     * Student#addCourseTaken(Course) addCourseTaken} and recorded in {@link
+     * Student#coursesTakenBits coursesTakenBits}.
      *
-     * @return {@link Student#coursesTaken coursesTaken}.
+     * @return A read-only view of {@link Student#coursesTaken coursesTaken}.
      */
     public Set<Course> getCoursesTaken() {
-        return coursesTaken;
+        return Collections.unmodifiableSet(coursesTaken);
+    }
+
+    /**
+     * Returns the registry which has interned this student.
+     *
+     * @return {@link Student#registry registry}, or null.
+     */
+    StudentRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * Returns the id given to this student by its registry. Only meaningful
+     * once {@link Student#getRegistry() getRegistry} is non-null.
+     *
+     * @return {@link Student#registryId registry id}.
+     */
+    int getRegistryId() {
+        return registryId;
+    }
+
+    /**
+     * Records the id given to this student by a registry. Only the first
+     * registry to intern the student is remembered; other registries fall
+     * back to looking the student up by name.
+     *
+     * @param registry The registry which interned the student.
+     * @param registryId The id it gave the student.
+     */
+    synchronized void setRegistryId(StudentRegistry registry, int registryId) {
+        if (this.registry == null) {
+            //Write the id before publishing the registry through the volatile
+            this.registryId = registryId;
+            this.registry = registry;
+        }
     }
 
     /**
@@ -114,10 +234,17 @@ public class Student extends Person {
         return true;
     }
 
+    /**
+     * Overridden hash method: consistent with {@link Student#equals(Object)
+     * equals}, so only the immutable name is hashed and the hash never changes
+     * as courses are added to the student's record.
+     *
+     * @return The hash code.
+     */
     @Override
     public int hashCode() {
         int hash = 7;
-        hash = 11 * hash + (this.coursesTaken != null ? this.coursesTaken.hashCode() : 0);
+        hash = 11 * hash + (this.name != null ? this.name.hashCode() : 0);
         return hash;
     }
 }
@@ -0,0 +1,132 @@
+package com.erudine.coursebooking.persons;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns {@link Student Students} into dense int ids, starting from 0 and
+ * assigned in order of first registration. Students with the same name are
+ * equal and so share an id. Each interned Student remembers its id, so looking
+ * up the id of a registered student is a field read rather than a hash lookup,
+ * and mapping an id back to its Student is an array read.
+ *
+ * @author Adam Harries
+ * @version 31 Jul 2013
+ */
+public class StudentRegistry {
+
+    /**
+     * The registry used by schedules which are not given one explicitly.
+     */
+    private static final StudentRegistry DEFAULT = new StudentRegistry();
+    /**
+     * Index from student name to id, used the first time a Student instance
+     * is seen.
+     */
+    private final ConcurrentHashMap<String, Integer> idsByName;
+    /**
+     * The interned students, indexed by id. Replaced with a larger copy when
+     * full, so readers never need the lock.
+     */
+    private volatile Student[] studentsById;
+    /**
+     * The number of ids handed out.
+     */
+    private volatile int size;
+
+    /**
+     * Constructor.
+     */
+    public StudentRegistry() {
+        idsByName = new ConcurrentHashMap<String, Integer>();
+        studentsById = new Student[64];
+    }
+
+    /**
+     * Returns the registry shared by schedules which are not given one
+     * explicitly.
+     *
+     * @return {@link StudentRegistry#DEFAULT default registry}.
+     */
+    public static StudentRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Returns the id of a student, registering them if they have not been seen
+     * before.
+     *
+     * @param student The student to intern.
+     * @return The student's id.
+     */
+    public int intern(Student student) {
+        int id = idOf(student);
+        if (id >= 0) {
+            return id;
+        }
+        synchronized (this) {
+            Integer existing = idsByName.get(student.getName());
+            if (existing != null) {
+                id = existing;
+            } else {
+                id = size;
+                if (id == studentsById.length) {
+                    studentsById = Arrays.copyOf(studentsById, id * 2);
+                }
+                studentsById[id] = student;
+                idsByName.put(student.getName(), id);
+                size = id + 1;
+            }
+        }
+        student.setRegistryId(this, id);
+        return id;
+    }
+
+    /**
+     * Returns the id of a student without registering them.
+     *
+     * @param student The student to look up.
+     * @return The student's id, or -1 if they have not been registered.
+     */
+    public int idOf(Student student) {
+        if (student.getRegistry() == this) {
+            return student.getRegistryId();
+        }
+        Integer id = idsByName.get(student.getName());
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Returns the student with the given id.
+     *
+     * @param id The student's id.
+     * @return The interned student.
+     */
+    public Student getStudent(int id) {
+        if (id < 0 || id >= size) {
+            throw new IllegalArgumentException("Unknown student id " + id + ".");
+        }
+        return studentsById[id];
+    }
+
+    /**
+     * Returns the student registered under a name.
+     *
+     * @param name The student's name.
+     * @return The interned student, or null if no student of that name has
+     * been registered.
+     */
+    public Student getStudent(String name) {
+        Integer id = idsByName.get(name);
+        return id == null ? null : studentsById[id];
+    }
+
+    /**
+     * Returns the number of students registered.
+     *
+     * @return {@link StudentRegistry#size size}.
+     */
+    public int size() {
+        return size;
+    }
+}
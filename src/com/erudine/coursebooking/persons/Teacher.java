@@ -8,6 +8,11 @@ package com.erudine.coursebooking.persons;
  */
 public class Teacher extends Person {
 
+    /**
+     * The hash code, computed once from the immutable name.
+     */
+    private final int hash;
+
     /**
      * Constructor.
      *
@@ -15,6 +20,9 @@ public class Teacher extends Person {
      */
     public Teacher(String name) {
         super(name);
+        int h = 3;
+        h = 37 * h + (name != null ? name.hashCode() : 0);
+        this.hash = h;
     }
 
     /**
@@ -43,9 +51,14 @@ public class Teacher extends Person {
         return true;
     }
 
+    /**
+     * Overridden hash method: consistent with {@link Teacher#equals(Object)
+     * equals}, so teachers with different names spread across hash buckets.
+     *
+     * @return The hash code.
+     */
     @Override
     public int hashCode() {
-        int hash = 3;
         return hash;
     }
 }
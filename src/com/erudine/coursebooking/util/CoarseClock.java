@@ -0,0 +1,111 @@
+package com.erudine.coursebooking.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Clock whose time is refreshed by a background thread at a fixed
+ * resolution, so that reading it is a single volatile read rather than a call
+ * into the system clock. The time read may be up to one resolution behind.
+ *
+ * @author Adam Harries
+ * @version 31 Jul 2013
+ */
+public final class CoarseClock implements EpochClock, AutoCloseable {
+
+    /**
+     * The resolution of the shared clock in milliseconds.
+     */
+    public static final long DEFAULT_RESOLUTION_MILLIS = 10;
+    /**
+     * The time at the last tick.
+     */
+    private volatile long now;
+    /**
+     * Whether the clock has been stopped.
+     */
+    private volatile boolean closed;
+    /**
+     * Whether this is the shared clock, which cannot be stopped.
+     */
+    private final boolean shared;
+    /**
+     * The thread refreshing the time.
+     */
+    private final Thread ticker;
+
+    /**
+     * Constructor. Starts the clock ticking.
+     *
+     * @param resolutionMillis The interval between ticks in milliseconds.
+     */
+    public CoarseClock(long resolutionMillis) {
+        this(resolutionMillis, false);
+    }
+
+    /**
+     * Constructor. Starts the clock ticking.
+     *
+     * @param resolutionMillis The interval between ticks in milliseconds.
+     * @param shared Whether this is the shared clock.
+     */
+    private CoarseClock(long resolutionMillis, boolean shared) {
+        if (resolutionMillis <= 0) {
+            throw new IllegalArgumentException("The resolution must be greater than 0.");
+        }
+        final long resolutionNanos = TimeUnit.MILLISECONDS.toNanos(resolutionMillis);
+        this.shared = shared;
+        now = System.currentTimeMillis();
+        ticker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (!closed) {
+                    LockSupport.parkNanos(resolutionNanos);
+                    now = System.currentTimeMillis();
+                }
+            }
+        }, "CoarseClock");
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    /**
+     * Returns the clock shared by everything not given its own, started the
+     * first time it is asked for. Closing it has no effect, since every
+     * schedule without a clock of its own reads it.
+     *
+     * @return The shared clock.
+     */
+    public static CoarseClock getDefault() {
+        return DefaultHolder.DEFAULT;
+    }
+
+    @Override
+    public long millis() {
+        return now;
+    }
+
+    /**
+     * Stops the clock ticking. The time read afterwards no longer advances.
+     * Does nothing on the {@link #getDefault() shared clock}.
+     */
+    @Override
+    public void close() {
+        if (shared) {
+            return;
+        }
+        closed = true;
+        LockSupport.unpark(ticker);
+    }
+
+    /**
+     * Holds the shared clock, so that its thread only starts when first used.
+     */
+    private static final class DefaultHolder {
+
+        /**
+         * The shared clock.
+         */
+        static final CoarseClock DEFAULT = new CoarseClock(DEFAULT_RESOLUTION_MILLIS, true);
+    }
+}
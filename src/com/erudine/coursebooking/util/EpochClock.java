@@ -0,0 +1,29 @@
+package com.erudine.coursebooking.util;
+
+/**
+ * Source of the current time as milliseconds since the epoch, so that code
+ * checking the time on a hot path can be given a cheap clock in production
+ * and a {@link ManualClock} in tests.
+ *
+ * @author Adam Harries
+ * @version 31 Jul 2013
+ */
+public interface EpochClock {
+
+    /**
+     * The system clock, read on every call.
+     */
+    EpochClock SYSTEM = new EpochClock() {
+        @Override
+        public long millis() {
+            return System.currentTimeMillis();
+        }
+    };
+
+    /**
+     * Returns the current time.
+     *
+     * @return Milliseconds since the epoch.
+     */
+    long millis();
+}
@@ -0,0 +1,116 @@
+package com.erudine.coursebooking.util;
+
+import java.util.Arrays;
+
+/**
+ * Binary indexed (Fenwick) tree of int counts over the indices 0 upwards, so
+ * that updating a count and summing the counts up to an index both take
+ * logarithmic time. Grows as higher indices are used.
+ * <p>
+ * This class is not thread-safe.
+ *
+ * @author Adam Harries
+ * @version 31 Jul 2013
+ */
+public final class FenwickTree {
+
+    /**
+     * The smallest number of indices held.
+     */
+    private static final int MIN_CAPACITY = 16;
+    /**
+     * The tree, 1-based: slot i holds the sum of the counts of the
+     * (i &amp; -i) indices ending at i - 1.
+     */
+    private int[] tree;
+
+    /**
+     * Constructor.
+     */
+    public FenwickTree() {
+        tree = new int[MIN_CAPACITY + 1];
+    }
+
+    /**
+     * Adds to the count at an index.
+     *
+     * @param index The non-negative index.
+     * @param delta The amount to add.
+     */
+    public void add(int index, int delta) {
+        if (index < 0) {
+            throw new IllegalArgumentException("Index must not be negative: " + index);
+        }
+        if (index >= capacity()) {
+            grow(index + 1);
+        }
+        for (int i = index + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /**
+     * Sums the counts at all indices up to and including an index.
+     *
+     * @param index The index to sum to; negative gives 0.
+     * @return The sum.
+     */
+    public int prefixSum(int index) {
+        int sum = 0;
+        for (int i = Math.min(index + 1, tree.length - 1); i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Returns the count at an index.
+     *
+     * @param index The index.
+     * @return The count.
+     */
+    public int get(int index) {
+        return prefixSum(index) - prefixSum(index - 1);
+    }
+
+    /**
+     * Sets every count back to zero, keeping the current capacity.
+     */
+    public void clear() {
+        Arrays.fill(tree, 0);
+    }
+
+    /**
+     * Returns the number of indices held before the tree needs to grow.
+     *
+     * @return The capacity.
+     */
+    public int capacity() {
+        return tree.length - 1;
+    }
+
+    /**
+     * Grows the tree to hold at least the given number of indices, rebuilding
+     * it since the higher slots of a larger tree cover the old ones.
+     *
+     * @param minCapacity The number of indices needed.
+     */
+    private void grow(int minCapacity) {
+        int capacity = capacity();
+        while (capacity < minCapacity) {
+            capacity *= 2;
+        }
+        int[] counts = new int[capacity + 1];
+        for (int i = 1; i < tree.length; i++) {
+            counts[i] = get(i - 1);
+        }
+        //Linear build: push each slot's sum up to its parent
+        for (int i = 1; i <= capacity; i++) {
+            int parent = i + (i & -i);
+            if (parent <= capacity) {
+                counts[parent] += counts[i];
+            }
+        }
+        tree = counts;
+    }
+}
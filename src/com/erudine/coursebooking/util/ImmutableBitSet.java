@@ -0,0 +1,186 @@
+package com.erudine.coursebooking.util;
+
+import java.util.Arrays;
+
+/**
+ * Immutable set of small non-negative ints held as a packed array of 64-bit
+ * words. Subset tests are a single word-wise AND and compare over the arrays,
+ * so they never allocate and touch only a handful of cache lines.
+ *
+ * @author Adam Harries
+ * @version 31 Jul 2013
+ */
+public final class ImmutableBitSet {
+
+    /**
+     * The empty set.
+     */
+    public static final ImmutableBitSet EMPTY = new ImmutableBitSet(new long[0]);
+    /**
+     * The packed bits; bit i of word i / 64 is set if i is in the set. Trailing
+     * zero words are trimmed so that equal sets have equal arrays.
+     */
+    private final long[] words;
+
+    /**
+     * Constructor.
+     *
+     * @param words The packed bits, which must not be modified afterwards.
+     */
+    private ImmutableBitSet(long[] words) {
+        this.words = words;
+    }
+
+    /**
+     * Returns the set of the given values.
+     *
+     * @param values The non-negative values.
+     * @return The set.
+     */
+    public static ImmutableBitSet of(int... values) {
+        int max = -1;
+        for (int value : values) {
+            if (value < 0) {
+                throw new IllegalArgumentException("Only non-negative values may be stored.");
+            }
+            max = Math.max(max, value);
+        }
+        if (max < 0) {
+            return EMPTY;
+        }
+        long[] words = new long[(max >>> 6) + 1];
+        for (int value : values) {
+            words[value >>> 6] |= 1L << value;
+        }
+        return new ImmutableBitSet(words);
+    }
+
+    /**
+     * Checks whether a value is in the set.
+     *
+     * @param value The value to check.
+     * @return The boolean result of the check.
+     */
+    public boolean get(int value) {
+        int word = value >>> 6;
+        return value >= 0 && word < words.length && (words[word] & (1L << value)) != 0;
+    }
+
+    /**
+     * Returns this set with a value added.
+     *
+     * @param value The non-negative value to add.
+     * @return A set containing the value, which is this set if it already did.
+     */
+    public ImmutableBitSet with(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Only non-negative values may be stored.");
+        }
+        if (get(value)) {
+            return this;
+        }
+        long[] newWords = Arrays.copyOf(words, Math.max(words.length, (value >>> 6) + 1));
+        newWords[value >>> 6] |= 1L << value;
+        return new ImmutableBitSet(newWords);
+    }
+
+    /**
+     * Returns the union of this set and another.
+     *
+     * @param other The other set.
+     * @return The union, which is this set if it already contained the other.
+     */
+    public ImmutableBitSet or(ImmutableBitSet other) {
+        if (containsAll(other)) {
+            return this;
+        }
+        long[] longer = words.length >= other.words.length ? words : other.words;
+        long[] shorter = longer == words ? other.words : words;
+        long[] newWords = longer.clone();
+        for (int i = 0; i < shorter.length; i++) {
+            newWords[i] |= shorter[i];
+        }
+        return new ImmutableBitSet(newWords);
+    }
+
+    /**
+     * Checks whether every value in another set is also in this set.
+     *
+     * @param other The other set.
+     * @return The boolean result of the check.
+     */
+    public boolean containsAll(ImmutableBitSet other) {
+        long[] required = other.words;
+        //Trailing words are never zero, so a longer set cannot be a subset
+        if (required.length > words.length) {
+            return false;
+        }
+        for (int i = 0; i < required.length; i++) {
+            if ((required[i] & ~words[i]) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of values in the set.
+     *
+     * @return The number of values.
+     */
+    public int cardinality() {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Checks whether the set is empty.
+     *
+     * @return The boolean result of the check.
+     */
+    public boolean isEmpty() {
+        return words.length == 0;
+    }
+
+    /**
+     * Returns the values in the set in ascending order.
+     *
+     * @return A new array of the values.
+     */
+    public int[] toArray() {
+        int[] values = new int[cardinality()];
+        int i = 0;
+        for (int word = 0; word < words.length; word++) {
+            long bits = words[word];
+            while (bits != 0) {
+                values[i++] = (word << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (!(obj instanceof ImmutableBitSet)) {
+            return false;
+        }
+        return Arrays.equals(words, ((ImmutableBitSet) obj).words);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(words);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+}
@@ -0,0 +1,237 @@
+package com.erudine.coursebooking.util;
+
+import java.util.Arrays;
+
+/**
+ * Set of non-negative int values held in a single open-addressed array, so
+ * that adding, removing and looking up a value never allocates and never boxes.
+ * Collisions are resolved by linear probing and removal shifts later entries
+ * back into the freed slot, so there are no tombstones to slow lookups down as
+ * values come and go.
+ * <p>
+ * This class is not thread-safe.
+ *
+ * @author Adam Harries
+ * @version 31 Jul 2013
+ */
+public final class IntHashSet {
+
+    /**
+     * Marker for an unused slot.
+     */
+    private static final int EMPTY = -1;
+    /**
+     * The smallest table size.
+     */
+    private static final int MIN_CAPACITY = 8;
+    /**
+     * The open-addressed table of values.
+     */
+    private int[] table;
+    /**
+     * The number of values in the set.
+     */
+    private int size;
+
+    /**
+     * Constructor.
+     */
+    public IntHashSet() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param expectedSize The number of values the set should hold before it
+     * needs to grow.
+     */
+    public IntHashSet(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("The expected size must not be negative.");
+        }
+        table = newTable(tableSizeFor(expectedSize));
+    }
+
+    /**
+     * Adds a value to the set.
+     *
+     * @param value The non-negative value to add.
+     * @return false if the value was already present.
+     */
+    public boolean add(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Only non-negative values may be stored.");
+        }
+        int mask = table.length - 1;
+        int slot = mix(value) & mask;
+        while (table[slot] != EMPTY) {
+            if (table[slot] == value) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = value;
+        //Keep the load factor at or below one half
+        if (++size * 2 > table.length) {
+            rehash(table.length * 2);
+        }
+        return true;
+    }
+
+    /**
+     * Removes a value from the set.
+     *
+     * @param value The value to remove.
+     * @return true if the value was present.
+     */
+    public boolean remove(int value) {
+        int slot = indexOf(value);
+        if (slot < 0) {
+            return false;
+        }
+        int mask = table.length - 1;
+        //Shift back any entries which probed past the freed slot
+        int free = slot;
+        int next = (free + 1) & mask;
+        while (table[next] != EMPTY) {
+            int home = mix(table[next]) & mask;
+            if (((next - home) & mask) >= ((next - free) & mask)) {
+                table[free] = table[next];
+                free = next;
+            }
+            next = (next + 1) & mask;
+        }
+        table[free] = EMPTY;
+        size--;
+        return true;
+    }
+
+    /**
+     * Checks whether a value is in the set.
+     *
+     * @param value The value to check.
+     * @return The boolean result of the check.
+     */
+    public boolean contains(int value) {
+        return value >= 0 && indexOf(value) >= 0;
+    }
+
+    /**
+     * Returns the number of values in the set.
+     *
+     * @return {@link IntHashSet#size size}.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks whether the set is empty.
+     *
+     * @return The boolean result of the check.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes every value from the set.
+     */
+    public void clear() {
+        Arrays.fill(table, EMPTY);
+        size = 0;
+    }
+
+    /**
+     * Copies the values of the set into an array, in no particular order.
+     *
+     * @return A new array containing every value in the set.
+     */
+    public int[] toArray() {
+        int[] values = new int[size];
+        int i = 0;
+        for (int value : table) {
+            if (value != EMPTY) {
+                values[i++] = value;
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Returns the slot holding a value.
+     *
+     * @param value The value to find.
+     * @return The slot index, or -1 if the value is not present.
+     */
+    private int indexOf(int value) {
+        int mask = table.length - 1;
+        int slot = mix(value) & mask;
+        while (table[slot] != EMPTY) {
+            if (table[slot] == value) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Moves every value into a new table of the given size.
+     *
+     * @param newLength The new table size, a power of two.
+     */
+    private void rehash(int newLength) {
+        int[] old = table;
+        table = newTable(newLength);
+        int mask = newLength - 1;
+        for (int value : old) {
+            if (value != EMPTY) {
+                int slot = mix(value) & mask;
+                while (table[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = value;
+            }
+        }
+    }
+
+    /**
+     * Scrambles a value so that runs of dense ids spread across the table.
+     *
+     * @param value The value to scramble.
+     * @return The scrambled hash.
+     */
+    static int mix(int value) {
+        int h = value * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Returns the table size needed to hold a number of values at the
+     * maximum load factor.
+     *
+     * @param expectedSize The number of values.
+     * @return A power of two table size.
+     */
+    private static int tableSizeFor(int expectedSize) {
+        int length = MIN_CAPACITY;
+        while (length < expectedSize * 2) {
+            length <<= 1;
+        }
+        return length;
+    }
+
+    /**
+     * Creates a table with every slot empty.
+     *
+     * @param length The table size.
+     * @return The new table.
+     */
+    private static int[] newTable(int length) {
+        int[] newTable = new int[length];
+        Arrays.fill(newTable, EMPTY);
+        return newTable;
+    }
+}
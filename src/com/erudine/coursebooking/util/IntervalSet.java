@@ -0,0 +1,174 @@
+package com.erudine.coursebooking.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Set of non-overlapping half-open intervals [start, end) over longs, each
+ * carrying a value. Intervals are kept sorted by start, so checking a new
+ * interval against every interval held takes logarithmic time: since none
+ * overlap, only the interval starting latest before the new one ends can
+ * overlap it.
+ * <p>
+ * This class is not thread-safe.
+ *
+ * @param <V> The type of the values carried.
+ * @author Adam Harries
+ * @version 31 Jul 2013
+ */
+public final class IntervalSet<V> {
+
+    /**
+     * The intervals, keyed by start.
+     */
+    private final TreeMap<Long, Interval<V>> intervals;
+
+    /**
+     * Constructor.
+     */
+    public IntervalSet() {
+        intervals = new TreeMap<Long, Interval<V>>();
+    }
+
+    /**
+     * Finds an interval overlapping the given one.
+     *
+     * @param start The start of the interval, inclusive.
+     * @param end The end of the interval, exclusive.
+     * @return The value of an overlapping interval, or null if none overlaps.
+     */
+    public V findOverlap(long start, long end) {
+        checkInterval(start, end);
+        Map.Entry<Long, Interval<V>> latest = intervals.lowerEntry(end);
+        if (latest != null && latest.getValue().end > start) {
+            return latest.getValue().value;
+        }
+        return null;
+    }
+
+    /**
+     * Finds every interval overlapping the given one.
+     *
+     * @param start The start of the interval, inclusive.
+     * @param end The end of the interval, exclusive.
+     * @return The values of the overlapping intervals, in order of start.
+     */
+    public List<V> findOverlapping(long start, long end) {
+        checkInterval(start, end);
+        List<V> found = new ArrayList<V>();
+        //Only the interval starting latest before the range can reach into it
+        Map.Entry<Long, Interval<V>> earlier = intervals.lowerEntry(start);
+        if (earlier != null && earlier.getValue().end > start) {
+            found.add(earlier.getValue().value);
+        }
+        for (Interval<V> interval : intervals.subMap(start, true, end, false).values()) {
+            found.add(interval.value);
+        }
+        return found;
+    }
+
+    /**
+     * Returns the values of every interval held.
+     *
+     * @return The values, in order of start.
+     */
+    public List<V> values() {
+        List<V> found = new ArrayList<V>(intervals.size());
+        for (Interval<V> interval : intervals.values()) {
+            found.add(interval.value);
+        }
+        return found;
+    }
+
+    /**
+     * Adds an interval unless it overlaps one already held.
+     *
+     * @param start The start of the interval, inclusive.
+     * @param end The end of the interval, exclusive.
+     * @param value The value carried by the interval.
+     * @return false if the interval overlaps one already held.
+     */
+    public boolean add(long start, long end, V value) {
+        if (findOverlap(start, end) != null) {
+            return false;
+        }
+        intervals.put(start, new Interval<V>(end, value));
+        return true;
+    }
+
+    /**
+     * Removes the interval starting at a point if it carries the given value.
+     *
+     * @param start The start of the interval.
+     * @param value The value carried by the interval.
+     * @return true if the interval was removed.
+     */
+    public boolean remove(long start, V value) {
+        Interval<V> interval = intervals.get(start);
+        if (interval == null || !interval.value.equals(value)) {
+            return false;
+        }
+        intervals.remove(start);
+        return true;
+    }
+
+    /**
+     * Returns the number of intervals held.
+     *
+     * @return The number of intervals.
+     */
+    public int size() {
+        return intervals.size();
+    }
+
+    /**
+     * Checks whether no intervals are held.
+     *
+     * @return The boolean result of the check.
+     */
+    public boolean isEmpty() {
+        return intervals.isEmpty();
+    }
+
+    /**
+     * Checks that an interval is not empty.
+     *
+     * @param start The start of the interval.
+     * @param end The end of the interval.
+     */
+    private static void checkInterval(long start, long end) {
+        if (start >= end) {
+            throw new IllegalArgumentException("The interval must start before it ends.");
+        }
+    }
+
+    /**
+     * The end and value of one interval.
+     *
+     * @param <V> The type of the value.
+     */
+    private static final class Interval<V> {
+
+        /**
+         * The end of the interval, exclusive.
+         */
+        final long end;
+        /**
+         * The value carried.
+         */
+        final V value;
+
+        /**
+         * Constructor.
+         *
+         * @param end The end of the interval, exclusive.
+         * @param value The value carried.
+         */
+        Interval(long end, V value) {
+            this.end = end;
+            this.value = value;
+        }
+    }
+}
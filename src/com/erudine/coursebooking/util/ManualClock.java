@@ -0,0 +1,48 @@
+package com.erudine.coursebooking.util;
+
+/**
+ * Clock which only moves when told to, for deterministic tests of
+ * time-dependent behaviour.
+ *
+ * @author Adam Harries
+ * @version 31 Jul 2013
+ */
+public final class ManualClock implements EpochClock {
+
+    /**
+     * The current time.
+     */
+    private volatile long now;
+
+    /**
+     * Constructor.
+     *
+     * @param now The starting time in milliseconds since the epoch.
+     */
+    public ManualClock(long now) {
+        this.now = now;
+    }
+
+    @Override
+    public long millis() {
+        return now;
+    }
+
+    /**
+     * Sets the current time.
+     *
+     * @param now The new time in milliseconds since the epoch.
+     */
+    public void set(long now) {
+        this.now = now;
+    }
+
+    /**
+     * Moves the clock forward.
+     *
+     * @param millis The number of milliseconds to advance by.
+     */
+    public synchronized void advance(long millis) {
+        now += millis;
+    }
+}
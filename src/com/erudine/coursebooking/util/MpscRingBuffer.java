@@ -0,0 +1,134 @@
+package com.erudine.coursebooking.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded, lock-free ring buffer for many producer threads and a single
+ * consumer thread. Each slot carries a sequence number which tells producers
+ * when it is free to fill and the consumer when it is ready to read, so
+ * producers only contend on claiming the next slot and the consumer never
+ * contends at all.
+ *
+ * @param <E> The type of element held.
+ * @author Adam Harries
+ * @version 31 Jul 2013
+ */
+public final class MpscRingBuffer<E> {
+
+    /**
+     * The slots, a power of two in number.
+     */
+    private final Object[] buffer;
+    /**
+     * The sequence number of each slot. A slot at position p is free for the
+     * producer claiming p when its sequence is p, and ready for the consumer
+     * when its sequence is p + 1.
+     */
+    private final AtomicLongArray sequences;
+    /**
+     * Mask mapping a position to its slot.
+     */
+    private final int mask;
+    /**
+     * The next position to be claimed by a producer.
+     */
+    private final AtomicLong tail;
+    /**
+     * The next position to be read by the consumer. Only touched by the
+     * consumer thread.
+     */
+    private long head;
+
+    /**
+     * Constructor.
+     *
+     * @param capacity The minimum number of elements the buffer can hold,
+     * rounded up to a power of two.
+     */
+    public MpscRingBuffer(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("The capacity must be between 1 and 2^30.");
+        }
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        buffer = new Object[size];
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        mask = size - 1;
+        tail = new AtomicLong();
+    }
+
+    /**
+     * Adds an element to the buffer if there is room. May be called from any
+     * thread.
+     *
+     * @param element The element to add.
+     * @return false if the buffer was full.
+     */
+    public boolean offer(E element) {
+        if (element == null) {
+            throw new NullPointerException("Null elements are not permitted.");
+        }
+        for (;;) {
+            long position = tail.get();
+            int slot = (int) position & mask;
+            long difference = sequences.get(slot) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    buffer[slot] = element;
+                    //Publish the element to the consumer
+                    sequences.lazySet(slot, position + 1);
+                    return true;
+                }
+            } else if (difference < 0) {
+                //The consumer has not yet freed this slot from the last lap
+                return false;
+            }
+            //Another producer claimed the position first; try the next one
+        }
+    }
+
+    /**
+     * Removes the element at the head of the buffer. Must only be called from
+     * the consumer thread.
+     *
+     * @return The element, or null if the buffer is empty.
+     */
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        int slot = (int) head & mask;
+        if (sequences.get(slot) != head + 1) {
+            return null;
+        }
+        E element = (E) buffer[slot];
+        buffer[slot] = null;
+        //Hand the slot back to producers for the next lap
+        sequences.lazySet(slot, head + buffer.length);
+        head++;
+        return element;
+    }
+
+    /**
+     * Checks whether the buffer is empty. Exact when called from the consumer
+     * thread; a hint from any other thread.
+     *
+     * @return The boolean result of the check.
+     */
+    public boolean isEmpty() {
+        return tail.get() == head;
+    }
+
+    /**
+     * Returns the number of elements the buffer can hold.
+     *
+     * @return The capacity.
+     */
+    public int capacity() {
+        return buffer.length;
+    }
+}
@@ -0,0 +1,141 @@
+package com.erudine.coursebooking.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread-safe set of non-negative int values split into a number of
+ * independently locked {@link IntHashSet} stripes. Threads working on
+ * different values rarely meet on the same stripe, so the set scales with the
+ * number of writers while keeping the allocation-free storage of IntHashSet.
+ *
+ * @author Adam Harries
+ * @version 31 Jul 2013
+ */
+public final class StripedIntSet {
+
+    /**
+     * The largest number of stripes used.
+     */
+    private static final int MAX_STRIPES = 16;
+    /**
+     * The stripes, each guarded by its own monitor.
+     */
+    private final IntHashSet[] stripes;
+    /**
+     * The total number of values across all stripes.
+     */
+    private final AtomicInteger size;
+
+    /**
+     * Constructor.
+     *
+     * @param expectedSize The number of values the set is expected to hold,
+     * used to choose the number and size of stripes.
+     */
+    public StripedIntSet(int expectedSize) {
+        int stripeCount = 1;
+        while (stripeCount < MAX_STRIPES && stripeCount * 64 < expectedSize) {
+            stripeCount <<= 1;
+        }
+        stripes = new IntHashSet[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new IntHashSet(expectedSize / stripeCount);
+        }
+        size = new AtomicInteger();
+    }
+
+    /**
+     * Adds a value to the set.
+     *
+     * @param value The non-negative value to add.
+     * @return false if the value was already present.
+     */
+    public boolean add(int value) {
+        IntHashSet stripe = stripeFor(value);
+        boolean added;
+        synchronized (stripe) {
+            added = stripe.add(value);
+        }
+        if (added) {
+            size.incrementAndGet();
+        }
+        return added;
+    }
+
+    /**
+     * Removes a value from the set.
+     *
+     * @param value The value to remove.
+     * @return true if the value was present.
+     */
+    public boolean remove(int value) {
+        IntHashSet stripe = stripeFor(value);
+        boolean removed;
+        synchronized (stripe) {
+            removed = stripe.remove(value);
+        }
+        if (removed) {
+            size.decrementAndGet();
+        }
+        return removed;
+    }
+
+    /**
+     * Checks whether a value is in the set.
+     *
+     * @param value The value to check.
+     * @return The boolean result of the check.
+     */
+    public boolean contains(int value) {
+        IntHashSet stripe = stripeFor(value);
+        synchronized (stripe) {
+            return stripe.contains(value);
+        }
+    }
+
+    /**
+     * Returns the number of values in the set.
+     *
+     * @return {@link StripedIntSet#size size}.
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Copies the values of the set into an array, in no particular order.
+     * Each stripe is copied atomically, but the set as a whole may change
+     * while the copy is taken.
+     *
+     * @return A new array containing the values of the set.
+     */
+    public int[] toArray() {
+        int[][] parts = new int[stripes.length][];
+        int total = 0;
+        for (int i = 0; i < stripes.length; i++) {
+            synchronized (stripes[i]) {
+                parts[i] = stripes[i].toArray();
+            }
+            total += parts[i].length;
+        }
+        int[] values = new int[total];
+        int offset = 0;
+        for (int[] part : parts) {
+            System.arraycopy(part, 0, values, offset, part.length);
+            offset += part.length;
+        }
+        return values;
+    }
+
+    /**
+     * Returns the stripe a value belongs to.
+     *
+     * @param value The value.
+     * @return The stripe.
+     */
+    private IntHashSet stripeFor(int value) {
+        //Use the high bits of the hash so the stripe and the slot within it
+        //are chosen independently
+        return stripes[(IntHashSet.mix(value) >>> 24) & (stripes.length - 1)];
+    }
+}
@@ -0,0 +1,244 @@
+package com.erudine.coursebooking;
+
+import com.erudine.coursebooking.persons.Student;
+import com.erudine.coursebooking.persons.StudentRegistry;
+import com.erudine.coursebooking.persons.Teacher;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for the {@link BookingJournal} class.
+ *
+ * @author Adam Harries
+ * @version 31 July 2013
+ */
+public class BookingJournalTest {
+
+    public static final Teacher TEACHER = new Teacher("Mr Harries");
+    public static final Course COURSE = new Course("Journalled Course");
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    private File directory;
+
+    @Before
+    public void setUp() {
+        directory = new File(folder.getRoot(), "journal");
+    }
+
+    /**
+     * Creates a fresh schedule, with its own registry as after a restart.
+     */
+    private static CourseSchedule newSchedule(int capacity) {
+        return new CourseSchedule(COURSE, capacity, new Date(0), new Date(1000), TEACHER, new StudentRegistry());
+    }
+
+    /**
+     * Test of replay method, of class BookingJournal: rosters and waiting list
+     * order are rebuilt after bookings, cancellations and promotions.
+     */
+    @Test
+    public void testReplay1() throws Exception {
+        CourseSchedule schedule = newSchedule(2);
+        BookingJournal journal = new BookingJournal(directory);
+        journal.attach(schedule);
+        List<Student> students = new ArrayList<Student>();
+        for (int i = 0; i < 6; i++) {
+            students.add(new Student("Student " + i));
+            schedule.book(students.get(i));
+        }
+        schedule.cancel(students.get(0));
+        schedule.cancel(students.get(4));
+        journal.sync();
+        journal.close();
+
+        CourseSchedule restored = newSchedule(2);
+        assertEquals(9, BookingJournal.replay(directory, Collections.singleton(restored)));
+        assertEquals(new HashSet<Student>(schedule.getRegisteredStudents()),
+                new HashSet<Student>(restored.getRegisteredStudents()));
+        assertEquals(new ArrayList<Student>(schedule.getWaitListedStudents()),
+                new ArrayList<Student>(restored.getWaitListedStudents()));
+        assertEquals(BookingResult.ALREADY_BOOKED, restored.book(new Student("Student 5")));
+        assertEquals(BookingResult.WAIT_LISTED, restored.book(new Student("Student 6")));
+    }
+
+    /**
+     * Test of replay method, of class BookingJournal, after a change of
+     * capacity: the new capacity is restored before the promotions it
+     * caused, and later changes of capacity win.
+     */
+    @Test
+    public void testReplay4() throws Exception {
+        CourseSchedule schedule = newSchedule(1);
+        BookingJournal journal = new BookingJournal(directory);
+        journal.attach(schedule);
+        for (int i = 0; i < 5; i++) {
+            schedule.book(new Student("Student " + i));
+        }
+        assertEquals(2, schedule.setCourseCapacity(3, CapacityOverflowRule.REJECT));
+        schedule.setCourseCapacity(2, CapacityOverflowRule.KEEP_REGISTERED);
+        schedule.cancel(new Student("Student 0"));
+        journal.close();
+
+        CourseSchedule restored = newSchedule(1);
+        BookingJournal.replay(directory, Collections.singleton(restored));
+        assertEquals(2, restored.getCourseCapacity());
+        assertEquals(new HashSet<Student>(schedule.getRegisteredStudents()),
+                new HashSet<Student>(restored.getRegisteredStudents()));
+        assertEquals(new ArrayList<Student>(schedule.getWaitListedStudents()),
+                new ArrayList<Student>(restored.getWaitListedStudents()));
+        assertEquals(0, restored.getNumberOfFreeSeats());
+        assertEquals(BookingResult.WAIT_LISTED, restored.book(new Student("Student 5")));
+    }
+
+    /**
+     * Test of replay method, of class BookingJournal, across several segments
+     * and a reopened journal.
+     */
+    @Test
+    public void testReplay2() throws Exception {
+        CourseSchedule schedule = newSchedule(50);
+        BookingJournal journal = new BookingJournal(directory, 1024);
+        journal.attach(schedule);
+        for (int i = 0; i < 40; i++) {
+            schedule.book(new Student("First run " + i));
+        }
+        journal.close();
+        journal = new BookingJournal(directory, 1024);
+        journal.attach(schedule);
+        for (int i = 0; i < 40; i++) {
+            schedule.book(new Student("Second run " + i));
+        }
+        journal.close();
+        assertTrue(directory.listFiles().length > 1);
+
+        CourseSchedule restored = newSchedule(50);
+        assertEquals(80, BookingJournal.replay(directory, Arrays.asList(restored,
+                new CourseSchedule(COURSE, 1, new Date(500), new Date(1000), TEACHER))));
+        assertEquals(50, restored.getNumberOfRegisteredStudents());
+        assertEquals(new ArrayList<Student>(schedule.getWaitListedStudents()),
+                new ArrayList<Student>(restored.getWaitListedStudents()));
+    }
+
+    /**
+     * Test of the constructor, of class BookingJournal, reopening a journal
+     * whose last record was torn by a crash: the torn record is cleared.
+     */
+    @Test
+    public void testBookingJournal() throws Exception {
+        CourseSchedule schedule = newSchedule(5);
+        BookingJournal journal = new BookingJournal(directory, 1024);
+        journal.attach(schedule);
+        schedule.book(new Student("Student A"));
+        journal.close();
+        File segment = directory.listFiles()[0];
+        int end = endOf(Files.readAllBytes(segment.toPath()));
+        journal = new BookingJournal(directory, 1024);
+        journal.attach(schedule);
+        schedule.book(new Student("Student B"));
+        journal.close();
+
+        //Tear the second record, keeping its header and last bytes
+        byte[] bytes = Files.readAllBytes(segment.toPath());
+        Arrays.fill(bytes, end + 8, endOf(bytes) - 2, (byte) 0);
+        Files.write(segment.toPath(), bytes);
+        new BookingJournal(directory, 1024).close();
+
+        bytes = Files.readAllBytes(segment.toPath());
+        assertEquals(end, endOf(bytes));
+        assertEquals(1, BookingJournal.replay(directory, Collections.singleton(newSchedule(5))));
+    }
+
+    /**
+     * Returns the offset after the last non-zero byte.
+     */
+    private static int endOf(byte[] bytes) {
+        int end = bytes.length;
+        while (end > 0 && bytes[end - 1] == 0) {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * Test of replay method, of class BookingJournal: replaying the same
+     * journal twice leaves the schedule unchanged.
+     */
+    @Test
+    public void testReplay3() throws Exception {
+        CourseSchedule schedule = newSchedule(1);
+        BookingJournal journal = new BookingJournal(directory);
+        journal.attach(schedule);
+        schedule.book(new Student("Student A"));
+        schedule.book(new Student("Student B"));
+        journal.close();
+
+        CourseSchedule restored = newSchedule(1);
+        BookingJournal.replay(directory, Collections.singleton(restored));
+        BookingJournal.replay(directory, Collections.singleton(restored));
+        assertEquals(1, restored.getNumberOfRegisteredStudents());
+        assertEquals(1, restored.getWaitListedStudents().size());
+    }
+
+    /**
+     * Test of close method, of class BookingJournal: later changes are not
+     * recorded.
+     */
+    @Test
+    public void testClose1() throws Exception {
+        CourseSchedule schedule = newSchedule(1);
+        BookingJournal journal = new BookingJournal(directory);
+        journal.attach(schedule);
+        schedule.book(new Student("Student A"));
+        journal.close();
+        schedule.book(new Student("Student B"));
+
+        assertEquals(1, BookingJournal.replay(directory, Collections.singleton(newSchedule(1))));
+    }
+
+    /**
+     * Test of close method, of class BookingJournal, from an interrupted
+     * thread: the journal is still forced and the interrupt kept.
+     */
+    @Test
+    public void testClose2() throws Exception {
+        CourseSchedule schedule = newSchedule(1);
+        BookingJournal journal = new BookingJournal(directory);
+        journal.attach(schedule);
+        schedule.book(new Student("Student A"));
+        Thread.currentThread().interrupt();
+        journal.close();
+        assertTrue(Thread.interrupted());
+
+        assertEquals(1, BookingJournal.replay(directory, Collections.singleton(newSchedule(1))));
+    }
+
+    /**
+     * Test of deleteSegmentsBefore method, of class BookingJournal.
+     */
+    @Test
+    public void testDeleteSegmentsBefore() throws Exception {
+        CourseSchedule schedule = newSchedule(100);
+        BookingJournal journal = new BookingJournal(directory, 1024);
+        journal.attach(schedule);
+        for (int i = 0; i < 60; i++) {
+            schedule.book(new Student("Student " + i));
+        }
+        int segments = directory.listFiles().length;
+        assertTrue(segments > 2);
+        assertEquals(segments - 1, journal.deleteSegmentsBefore(journal.getPosition()));
+        assertEquals(1, directory.listFiles().length);
+        schedule.book(new Student("Student 60"));
+        journal.close();
+    }
+}
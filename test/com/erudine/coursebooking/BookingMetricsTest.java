@@ -0,0 +1,145 @@
+package com.erudine.coursebooking;
+
+import com.erudine.coursebooking.persons.Student;
+import com.erudine.coursebooking.persons.Teacher;
+import java.util.Date;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link BookingMetrics} class.
+ *
+ * @author Adam Harries
+ * @version 31 July 2013
+ */
+public class BookingMetricsTest {
+
+    public static final Teacher TEACHER = new Teacher("Mr Harries");
+    private MBeanServer server;
+    private BookingMetrics testMetrics;
+    private CourseSchedule maths;
+    private CourseSchedule physics;
+
+    @Before
+    public void setUp() {
+        server = MBeanServerFactory.newMBeanServer();
+        testMetrics = new BookingMetrics(server, "test");
+        maths = new CourseSchedule(new Course("Maths"), 1, new Date(0), new Date(100), TEACHER);
+        physics = new CourseSchedule(new Course("Physics"), 5, new Date(0), new Date(100), TEACHER);
+    }
+
+    @After
+    public void tearDown() {
+        testMetrics.close();
+    }
+
+    /**
+     * Test of attach method, of class BookingMetrics.
+     *
+     * @throws Exception If the MBean cannot be read.
+     */
+    @Test
+    public void testAttach1() throws Exception {
+        ScheduleMetrics metrics = testMetrics.attach(maths);
+        assertSame(metrics, maths.getMetrics());
+        maths.book(new Student("First"));
+        maths.book(new Student("Second"));
+        ObjectName name = testMetrics.getObjectName(maths);
+        assertEquals("CourseSchedule", name.getKeyProperty("type"));
+        assertEquals(1L, server.getAttribute(name, "Registrations"));
+        assertEquals(1L, server.getAttribute(name, "WaitListed"));
+        assertEquals(1, server.getAttribute(name, "WaitListDepth"));
+        assertEquals("Maths", server.getAttribute(name, "CourseName"));
+    }
+
+    /**
+     * Test of attach method, of class BookingMetrics, with a schedule already
+     * attached.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testAttach2() {
+        testMetrics.attach(maths);
+        new BookingMetrics(null, "other").attach(maths);
+    }
+
+    /**
+     * Test of detach method, of class BookingMetrics.
+     */
+    @Test
+    public void testDetach() {
+        testMetrics.attach(maths);
+        ObjectName name = testMetrics.getObjectName(maths);
+        assertTrue(testMetrics.detach(maths));
+        assertFalse(testMetrics.detach(maths));
+        assertNull(maths.getMetrics());
+        assertFalse(server.isRegistered(name));
+        assertEquals(0, testMetrics.getScheduleCount());
+    }
+
+    /**
+     * Test of the aggregate counters, of class BookingMetrics.
+     *
+     * @throws Exception If the MBean cannot be read.
+     */
+    @Test
+    public void testAggregate() throws Exception {
+        testMetrics.attach(maths);
+        testMetrics.attach(physics);
+        Student student = new Student("Student");
+        maths.book(student);
+        maths.book(student);
+        physics.book(student);
+        physics.book(new Student("Other"));
+        physics.cancel(student);
+        assertEquals(4, testMetrics.getBookingAttempts());
+        assertEquals(3, testMetrics.getRegistrations());
+        assertEquals(1, testMetrics.getDuplicates());
+        assertEquals(1, testMetrics.getCancellations());
+        assertEquals(2L, testMetrics.getRegisteredStudents());
+        ObjectName name = testMetrics.getObjectName();
+        assertEquals("BookingMetrics", name.getKeyProperty("type"));
+        assertEquals(2, server.getAttribute(name, "ScheduleCount"));
+        String[] busiest = testMetrics.getBusiestSchedules();
+        assertEquals(2, busiest.length);
+        assertTrue(busiest[0].startsWith("Maths") || busiest[0].startsWith("Physics"));
+        testMetrics.reset();
+        assertEquals(0, testMetrics.getBookingAttempts());
+    }
+
+    /**
+     * Test of close method, of class BookingMetrics.
+     */
+    @Test
+    public void testClose() {
+        testMetrics.attach(maths);
+        testMetrics.close();
+        assertNull(maths.getMetrics());
+        assertFalse(server.isRegistered(testMetrics.getObjectName()));
+    }
+
+    /**
+     * Test of getObjectName method, of class BookingMetrics, with two
+     * instances publishing to the same domain.
+     *
+     * @throws Exception If the MBean cannot be read.
+     */
+    @Test
+    public void testGetObjectName() throws Exception {
+        BookingMetrics other = new BookingMetrics(server, "test");
+        try {
+            testMetrics.attach(maths);
+            other.attach(physics);
+            assertFalse(testMetrics.getObjectName().equals(other.getObjectName()));
+            assertEquals(1, server.getAttribute(testMetrics.getObjectName(), "ScheduleCount"));
+            assertEquals(1, server.getAttribute(other.getObjectName(), "ScheduleCount"));
+        } finally {
+            other.close();
+        }
+        assertTrue(server.isRegistered(testMetrics.getObjectName()));
+    }
+}
@@ -0,0 +1,263 @@
+package com.erudine.coursebooking;
+
+import com.erudine.coursebooking.persons.Student;
+import com.erudine.coursebooking.persons.Teacher;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link BookingService} class.
+ *
+ * @author Adam Harries
+ * @version 31 July 2013
+ */
+public class BookingServiceTest {
+
+    public static final Teacher TEACHER = new Teacher("Mr Harries");
+    private CourseSchedule schedule;
+    private BookingService testService;
+
+    @Before
+    public void setUp() {
+        schedule = new CourseSchedule(new Course("Service Course"), 10, new Date(0), new Date(1000), TEACHER);
+        testService = new BookingService();
+        testService.addSchedule(schedule);
+    }
+
+    @After
+    public void tearDown() {
+        testService.close();
+    }
+
+    /**
+     * Test of addSchedule method, of class BookingService.
+     */
+    @Test
+    public void testAddSchedule() {
+        assertFalse(testService.addSchedule(schedule));
+        assertEquals(1, testService.getSchedules().size());
+        assertEquals(1, testService.getSchedules(schedule.getCourse()).size());
+        assertTrue(testService.getSchedules(new Course("Other Course")).isEmpty());
+    }
+
+    /**
+     * Test of book method, of class BookingService.
+     */
+    @Test
+    public void testBook1() {
+        Student student = new Student("Service Student");
+        assertEquals(BookingResult.REGISTERED, testService.book(schedule, student));
+        assertEquals(BookingResult.ALREADY_BOOKED, testService.book(schedule, student));
+        assertTrue(testService.query(schedule, s -> s.isStudentRegistered(student)));
+    }
+
+    /**
+     * Test of book method, of class BookingService, with a schedule the
+     * service does not own.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testBook2() {
+        CourseSchedule other = new CourseSchedule(new Course("Other Course"), 10, new Date(0), new Date(1000), TEACHER);
+        testService.book(other, new Student("Service Student"));
+    }
+
+    /**
+     * Test of cancel method, of class BookingService.
+     */
+    @Test
+    public void testCancel() {
+        Student student = new Student("Service Student");
+        testService.book(schedule, student);
+        assertEquals(CancellationResult.REGISTRATION_CANCELLED, testService.cancel(schedule, student));
+        assertEquals(CancellationResult.NOT_BOOKED, testService.cancel(schedule, student));
+    }
+
+    /**
+     * Test of bookAsync method, of class BookingService, with many requests in
+     * flight at once.
+     */
+    @Test
+    public void testBookAsync() {
+        List<CompletableFuture<BookingResult>> results = new ArrayList<CompletableFuture<BookingResult>>();
+        for (int i = 0; i < 1000; i++) {
+            results.add(testService.bookAsync(schedule, new Student("Async " + i)));
+        }
+        int registered = 0;
+        int waitListed = 0;
+        for (CompletableFuture<BookingResult> result : results) {
+            if (result.join() == BookingResult.REGISTERED) {
+                registered++;
+            } else if (result.join() == BookingResult.WAIT_LISTED) {
+                waitListed++;
+            }
+        }
+        assertEquals(10, registered);
+        assertEquals(990, waitListed);
+        assertEquals(Integer.valueOf(990), testService.queryAsync(schedule, s -> s.getWaitListedStudents().size()).join());
+    }
+
+    /**
+     * Test of bookAsync method, of class BookingService: requests waiting for
+     * admission hold no thread.
+     */
+    @Test
+    public void testBookAsync2() throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        schedule.addBookingListener(new BookingListener() {
+            @Override
+            public void bookingChanged(CourseSchedule changed, BookingEvent event, Student student) {
+                if (student.getName().equals("Slow Student")) {
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        });
+        ThreadPoolExecutor executor = (ThreadPoolExecutor) Executors.newCachedThreadPool();
+        BookingService service = new BookingService(executor, 1);
+        service.addSchedule(schedule);
+        List<CompletableFuture<BookingResult>> results = new ArrayList<CompletableFuture<BookingResult>>();
+        results.add(service.bookAsync(schedule, new Student("Slow Student")));
+        started.await();
+        for (int i = 0; i < 100; i++) {
+            results.add(service.bookAsync(schedule, new Student("Queued " + i)));
+        }
+        assertEquals(1, executor.getPoolSize());
+        release.countDown();
+        for (CompletableFuture<BookingResult> result : results) {
+            assertNotNull(result.join());
+        }
+        service.close();
+        assertEquals(10, schedule.getNumberOfRegisteredStudents());
+        assertEquals(91, schedule.getNumberOfWaitListedStudents());
+    }
+
+    /**
+     * Test of bookAsync method, of class BookingService: a long queue of
+     * requests refused by a shut-down executor is failed without overflowing
+     * the stack.
+     */
+    @Test
+    public void testBookAsync3() throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        schedule.addBookingListener(new BookingListener() {
+            @Override
+            public void bookingChanged(CourseSchedule changed, BookingEvent event, Student student) {
+                if (student.getName().equals("Slow Student")) {
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        });
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        BookingService service = new BookingService(executor, 1);
+        service.addSchedule(schedule);
+        CompletableFuture<BookingResult> slow = service.bookAsync(schedule, new Student("Slow Student"));
+        started.await();
+        List<CompletableFuture<BookingResult>> queued = new ArrayList<CompletableFuture<BookingResult>>();
+        Student student = new Student("Queued Student");
+        for (int i = 0; i < 100000; i++) {
+            queued.add(service.bookAsync(schedule, student));
+        }
+        executor.shutdown();
+        release.countDown();
+        assertEquals(BookingResult.REGISTERED, slow.join());
+        for (CompletableFuture<BookingResult> result : queued) {
+            try {
+                result.join();
+                fail("The request should have been refused.");
+            } catch (CompletionException e) {
+                assertTrue(e.getCause() instanceof RejectedExecutionException);
+            }
+        }
+    }
+
+    /**
+     * Test of close method, of class BookingService, from an interrupted
+     * thread.
+     */
+    @Test
+    public void testClose1() {
+        CompletableFuture<BookingResult> result = testService.bookAsync(schedule, new Student("Closing Student"));
+        Thread.currentThread().interrupt();
+        testService.close();
+        assertTrue(Thread.interrupted());
+        assertEquals(BookingResult.REGISTERED, result.join());
+    }
+
+    /**
+     * Test of close method, of class BookingService, with requests still
+     * waiting for admission: they are run, and later requests refused.
+     */
+    @Test
+    public void testClose2() throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        schedule.addBookingListener(new BookingListener() {
+            @Override
+            public void bookingChanged(CourseSchedule changed, BookingEvent event, Student student) {
+                if (student.getName().equals("Slow Student")) {
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        });
+        final BookingService service = new BookingService(Executors.newCachedThreadPool(), 1);
+        service.addSchedule(schedule);
+        service.bookAsync(schedule, new Student("Slow Student"));
+        started.await();
+        List<CompletableFuture<BookingResult>> queued = new ArrayList<CompletableFuture<BookingResult>>();
+        for (int i = 0; i < 20; i++) {
+            queued.add(service.bookAsync(schedule, new Student("Queued " + i)));
+        }
+        Thread closer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                service.close();
+            }
+        });
+        closer.start();
+        while (closer.getState() != Thread.State.WAITING) {
+            Thread.yield();
+        }
+        try {
+            service.bookAsync(schedule, new Student("Too Late")).join();
+            fail("The request should have been refused.");
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+        release.countDown();
+        closer.join();
+        for (CompletableFuture<BookingResult> result : queued) {
+            assertTrue(result.isDone());
+            assertNotNull(result.join());
+        }
+        assertEquals(10, schedule.getNumberOfRegisteredStudents());
+        assertEquals(11, schedule.getNumberOfWaitListedStudents());
+    }
+}
@@ -0,0 +1,104 @@
+package com.erudine.coursebooking;
+
+import com.erudine.coursebooking.persons.Student;
+import com.erudine.coursebooking.persons.Teacher;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicBoolean;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link ClashDetector} class.
+ *
+ * @author Adam Harries
+ * @version 31 July 2013
+ */
+public class ClashDetectorTest {
+
+    public static final Teacher TEACHER = new Teacher("Mr Harries");
+    public static final Student STUDENT = new Student("Timetabled Student");
+    private CourseSchedule spring;
+    private CourseSchedule springOverlap;
+    private CourseSchedule summer;
+    private ClashDetector testDetector;
+
+    @Before
+    public void setUp() {
+        spring = new CourseSchedule(new Course("Spring"), 5, new Date(0), new Date(100), TEACHER);
+        springOverlap = new CourseSchedule(new Course("Spring Overlap"), 5, new Date(50), new Date(150), TEACHER);
+        summer = new CourseSchedule(new Course("Summer"), 5, new Date(100), new Date(200), TEACHER);
+        testDetector = new ClashDetector();
+    }
+
+    /**
+     * Test of reserve method, of class ClashDetector.
+     */
+    @Test
+    public void testReserve1() {
+        assertNull(testDetector.reserve(STUDENT, spring));
+        assertSame(spring, testDetector.reserve(STUDENT, springOverlap));
+        assertNull(testDetector.reserve(STUDENT, summer));
+        assertNull(testDetector.reserve(new Student("Other Student"), springOverlap));
+    }
+
+    /**
+     * Test of reserve method, of class ClashDetector, with many bookings.
+     */
+    @Test
+    public void testReserve2() {
+        for (int year = 0; year < 50; year++) {
+            CourseSchedule schedule = new CourseSchedule(new Course("Year " + year), 5,
+                    new Date(year * 1000L), new Date(year * 1000L + 500), TEACHER);
+            assertNull(testDetector.reserve(STUDENT, schedule));
+        }
+        CourseSchedule clashing = new CourseSchedule(new Course("Clashing"), 5,
+                new Date(25400), new Date(25600), TEACHER);
+        assertEquals("Year 25", testDetector.reserve(STUDENT, clashing).getCourse().getName());
+    }
+
+    /**
+     * Test of release method, of class ClashDetector.
+     */
+    @Test
+    public void testRelease1() {
+        testDetector.reserve(STUDENT, spring);
+        testDetector.release(STUDENT, springOverlap);
+        assertSame(spring, testDetector.findClash(STUDENT, springOverlap));
+        testDetector.release(STUDENT, spring);
+        assertNull(testDetector.findClash(STUDENT, springOverlap));
+        assertEquals(0, testDetector.size());
+    }
+
+    /**
+     * Test of release method, of class ClashDetector, racing reservations of
+     * the same student: no reservation is lost to a dropped timetable.
+     */
+    @Test
+    public void testRelease2() throws InterruptedException {
+        final AtomicBoolean lost = new AtomicBoolean();
+        Thread[] threads = new Thread[2];
+        final CourseSchedule[] schedules = {spring, summer};
+        for (int t = 0; t < threads.length; t++) {
+            final CourseSchedule schedule = schedules[t];
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 10000; i++) {
+                        if (testDetector.reserve(STUDENT, schedule) != null
+                                || testDetector.findClash(STUDENT, schedule) != schedule) {
+                            lost.set(true);
+                        }
+                        testDetector.release(STUDENT, schedule);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertFalse(lost.get());
+        assertEquals(0, testDetector.size());
+    }
+}
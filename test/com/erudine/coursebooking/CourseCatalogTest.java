@@ -0,0 +1,223 @@
+package com.erudine.coursebooking;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link CourseCatalog} class.
+ *
+ * @author Adam Harries
+ * @version 31 July 2013
+ */
+public class CourseCatalogTest {
+
+    private CourseCatalog testCatalog;
+
+    @Before
+    public void setUp() {
+        testCatalog = new CourseCatalog();
+    }
+
+    /**
+     * Test that courses are given dense ordinals in order of interning.
+     */
+    @Test
+    public void testIntern1() {
+        Course maths = testCatalog.intern("Maths");
+        Course french = testCatalog.intern("French");
+        assertEquals(0, maths.getOrdinal());
+        assertEquals(1, french.getOrdinal());
+        assertSame(testCatalog, maths.getCatalog());
+    }
+
+    /**
+     * Test that equal courses intern to the same instance.
+     */
+    @Test
+    public void testIntern2() {
+        Course maths = testCatalog.intern(new Course("Maths"));
+        assertSame(maths, testCatalog.intern(new Course("Maths")));
+        assertSame(maths, testCatalog.intern("Maths"));
+        assertEquals(1, testCatalog.size());
+    }
+
+    /**
+     * Test that interning a course interns its prerequisites.
+     */
+    @Test
+    public void testIntern3() {
+        Course algebra = new Course("Algebra");
+        Course calculus = new Course("Calculus", Arrays.asList(algebra));
+        Course mechanics = new Course("Mechanics", Arrays.asList(calculus));
+        testCatalog.intern(mechanics);
+        assertEquals(3, testCatalog.size());
+        assertSame(algebra, testCatalog.getCourse("Algebra"));
+    }
+
+    /**
+     * Test that a course from another catalog is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testIntern4() {
+        Course maths = new CourseCatalog().intern("Maths");
+        testCatalog.intern(maths);
+    }
+
+    /**
+     * Test that publishing freezes the prerequisites.
+     */
+    @Test(expected = UnsupportedOperationException.class)
+    public void testPublish1() {
+        Course maths = testCatalog.intern("Maths");
+        testCatalog.publish();
+        assertTrue(maths.isPublished());
+        maths.getPreRequisites().add(new Course("Arithmetic"));
+    }
+
+    /**
+     * Test that publishing replaces prerequisites with their canonical
+     * instances.
+     */
+    @Test
+    public void testPublish2() {
+        Course maths = testCatalog.intern("Maths");
+        Course physics = testCatalog.intern("Physics");
+        physics.addPreRequisite(new Course("Maths"));
+        testCatalog.publish();
+        assertSame(maths, physics.getPreRequisites().iterator().next());
+    }
+
+    /**
+     * Test that courses interned after publishing are frozen straight away.
+     */
+    @Test
+    public void testPublish3() {
+        testCatalog.publish();
+        Course physics = testCatalog.intern(new Course("Physics", Arrays.asList(new Course("Maths"))));
+        assertTrue(physics.isPublished());
+        assertSame(testCatalog.getCourse("Maths"), physics.getPreRequisites().iterator().next());
+    }
+
+    /**
+     * Test of getCourse method, of class CourseCatalog.
+     */
+    @Test
+    public void testGetCourse() {
+        Course maths = testCatalog.intern("Maths");
+        assertSame(maths, testCatalog.getCourse(0));
+        assertNull(testCatalog.getCourse("French"));
+    }
+
+    /**
+     * Test of getCourses method, of class CourseCatalog.
+     */
+    @Test
+    public void testGetCourses() {
+        testCatalog.intern("Maths");
+        testCatalog.intern("French");
+        assertEquals(Arrays.asList(new Course("Maths"), new Course("French")), testCatalog.getCourses());
+    }
+
+    /**
+     * Test that publishing rejects a prerequisite cycle and leaves the catalog
+     * unpublished.
+     */
+    @Test
+    public void testPublish4() {
+        Course algebra = testCatalog.intern("Algebra");
+        Course calculus = testCatalog.intern(new Course("Calculus", Arrays.asList(algebra)));
+        algebra.addPreRequisite(calculus);
+        try {
+            testCatalog.publish();
+            fail("The cycle should have been rejected.");
+        } catch (IllegalStateException e) {
+            assertFalse(testCatalog.isPublished());
+            assertFalse(algebra.isPublished());
+        }
+    }
+
+    /**
+     * Test that publishing rejects a cycle through a prerequisite not yet in
+     * the catalog without adding that prerequisite.
+     */
+    @Test
+    public void testPublish5() {
+        Course algebra = testCatalog.intern("Algebra");
+        testCatalog.intern(new Course("Calculus", Arrays.asList(algebra)));
+        Course topology = new Course("Topology", Arrays.asList(new Course("Calculus")));
+        algebra.addPreRequisite(topology);
+        try {
+            testCatalog.publish();
+            fail("The cycle should have been rejected.");
+        } catch (IllegalStateException e) {
+            assertEquals(2, testCatalog.size());
+            assertNull(testCatalog.getCourse("Topology"));
+            assertNull(topology.getCatalog());
+        }
+    }
+
+    /**
+     * Test of getTransitivePreRequisites method, of class CourseCatalog.
+     */
+    @Test
+    public void testGetTransitivePreRequisites1() {
+        Course algebra = testCatalog.intern("Algebra");
+        Course geometry = testCatalog.intern("Geometry");
+        Course calculus = testCatalog.intern(new Course("Calculus", Arrays.asList(algebra)));
+        Course mechanics = testCatalog.intern(new Course("Mechanics", Arrays.asList(calculus, geometry)));
+        testCatalog.publish();
+
+        assertEquals(new HashSet<Course>(Arrays.asList(algebra, calculus, geometry)),
+                testCatalog.getTransitivePreRequisites(mechanics));
+        assertTrue(testCatalog.getTransitivePreRequisites(algebra).isEmpty());
+        assertTrue(testCatalog.isTransitivePreRequisite(mechanics, algebra));
+        assertFalse(testCatalog.isTransitivePreRequisite(calculus, geometry));
+    }
+
+    /**
+     * Test that adding a prerequisite after publishing updates the transitive
+     * prerequisites of every dependent course.
+     */
+    @Test
+    public void testGetTransitivePreRequisites2() {
+        Course algebra = testCatalog.intern("Algebra");
+        Course calculus = testCatalog.intern(new Course("Calculus", Arrays.asList(algebra)));
+        Course mechanics = testCatalog.intern(new Course("Mechanics", Arrays.asList(calculus)));
+        testCatalog.publish();
+
+        assertTrue(algebra.addPreRequisite(new Course("Arithmetic")));
+        Course arithmetic = testCatalog.getCourse("Arithmetic");
+        assertTrue(testCatalog.isTransitivePreRequisite(mechanics, arithmetic));
+        assertTrue(testCatalog.isTransitivePreRequisite(calculus, arithmetic));
+        assertTrue(algebra.getPreRequisiteBits().get(arithmetic.getOrdinal()));
+    }
+
+    /**
+     * Test that adding a prerequisite after publishing rejects a cycle.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddPreRequisiteCycle() {
+        Course algebra = testCatalog.intern("Algebra");
+        Course calculus = testCatalog.intern(new Course("Calculus", Arrays.asList(algebra)));
+        Course mechanics = testCatalog.intern(new Course("Mechanics", Arrays.asList(calculus)));
+        testCatalog.publish();
+
+        algebra.addPreRequisite(mechanics);
+    }
+
+    /**
+     * Test the closure of a long prerequisite chain.
+     */
+    @Test
+    public void testLongChain() {
+        Course previous = testCatalog.intern("Level 0");
+        for (int i = 1; i < 5000; i++) {
+            previous = testCatalog.intern(new Course("Level " + i, Arrays.asList(previous)));
+        }
+        testCatalog.publish();
+        assertEquals(4999, testCatalog.getTransitivePreRequisiteBits(previous).cardinality());
+    }
+}
@@ -2,9 +2,12 @@ package com.erudine.coursebooking;
 
 import com.erudine.coursebooking.persons.Student;
 import com.erudine.coursebooking.persons.Teacher;
+import com.erudine.coursebooking.util.ManualClock;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 import static org.junit.Assert.*;
 import org.junit.Before;
 import org.junit.Test;
@@ -123,8 +126,8 @@ public class CourseScheduleTest {
      */
     @Test
     public void testIsCourseFull2() {
-        testCourseSchedule.getRegisteredStudents().add(STUDENT1);
-        testCourseSchedule.getRegisteredStudents().add(STUDENT2);
+        testCourseSchedule.bookCourse(STUDENT1);
+        testCourseSchedule.bookCourse(STUDENT2);
         assertTrue(testCourseSchedule.isCourseFull());
     }
 
@@ -141,7 +144,7 @@ public class CourseScheduleTest {
      */
     @Test
     public void testIsStudentRegistered2() {
-        testCourseSchedule.getRegisteredStudents().add(STUDENT1);
+        testCourseSchedule.bookCourse(STUDENT1);
         assertTrue(testCourseSchedule.isStudentRegistered(STUDENT1));
     }
 
@@ -158,8 +161,10 @@ public class CourseScheduleTest {
      */
     @Test
     public void testIsStudentOnWaitingList2() {
-        testCourseSchedule.getWaitListedStudents().add(STUDENT1);
-        assertTrue(testCourseSchedule.isStudentOnWaitingList(STUDENT1));
+        testCourseSchedule.bookCourse(STUDENT1);
+        testCourseSchedule.bookCourse(STUDENT2);
+        testCourseSchedule.bookCourse(STUDENT3);
+        assertTrue(testCourseSchedule.isStudentOnWaitingList(STUDENT3));
     }
 
     /**
@@ -290,6 +295,196 @@ public class CourseScheduleTest {
         assertFalse(testCourseSchedule.isStudentOnWaitingList(STUDENT3));
     }
 
+    /**
+     * Test of book method, of class CourseSchedule.
+     */
+    @Test
+    public void testBook() {
+        testCourseSchedule.getCourse().addPreRequisite(FRENCH);
+        Student linguist = new Student("Linguist", Arrays.asList(FRENCH));
+
+        assertEquals(BookingResult.MISSING_PREREQUISITES, testCourseSchedule.book(STUDENT4));
+        assertEquals(BookingResult.REGISTERED, testCourseSchedule.book(linguist));
+        assertEquals(BookingResult.ALREADY_BOOKED, testCourseSchedule.book(linguist));
+    }
+
+    /**
+     * Test of book method, of class CourseSchedule, with clash detection.
+     */
+    @Test
+    public void testBookClash() {
+        ClashDetector detector = new ClashDetector();
+        testCourseSchedule.setClashDetector(detector);
+        CourseSchedule overlapping = new CourseSchedule(MATHS, COURSE_CAPACITY,
+                new Date(startDate.getTime() + 1000), new Date(startDate.getTime() + 2000), TEACHER);
+        overlapping.setClashDetector(detector);
+        CourseSchedule before = new CourseSchedule(FRENCH, COURSE_CAPACITY,
+                new Date(startDate.getTime() - 2000), startDate, TEACHER);
+        before.setClashDetector(detector);
+
+        assertEquals(BookingResult.REGISTERED, testCourseSchedule.book(STUDENT1));
+        assertEquals(BookingResult.CLASH, overlapping.book(STUDENT1));
+        assertFalse(overlapping.isStudentRegistered(STUDENT1));
+        assertEquals(BookingResult.REGISTERED, before.book(STUDENT1));
+
+        testCourseSchedule.cancelBooking(STUDENT1);
+        assertEquals(BookingResult.REGISTERED, overlapping.book(STUDENT1));
+    }
+
+    /**
+     * Test of book method, of class CourseSchedule, with a registration
+     * window.
+     */
+    @Test
+    public void testBookRegistrationWindow() {
+        ManualClock clock = new ManualClock(startDate.getTime() - 2000);
+        testCourseSchedule.setClock(clock);
+        testCourseSchedule.setRegistrationWindow(
+                new RegistrationWindow(startDate.getTime() - 1000, startDate.getTime()));
+
+        assertEquals(BookingResult.REGISTRATION_CLOSED, testCourseSchedule.book(STUDENT1));
+        clock.advance(1000);
+        assertEquals(BookingResult.REGISTERED, testCourseSchedule.book(STUDENT1));
+        clock.set(startDate.getTime());
+        assertEquals(BookingResult.REGISTRATION_CLOSED, testCourseSchedule.book(STUDENT2));
+        testCourseSchedule.setRegistrationWindow(null);
+        assertEquals(BookingResult.REGISTERED, testCourseSchedule.book(STUDENT2));
+    }
+
+    /**
+     * Test of bookCourses method, of class CourseSchedule.
+     */
+    @Test
+    public void testBookCourses() {
+        BookingResult[] results = testCourseSchedule.bookCourses(
+                Arrays.asList(STUDENT1, STUDENT2, STUDENT3, STUDENT1, STUDENT4));
+
+        assertArrayEquals(new BookingResult[]{BookingResult.REGISTERED, BookingResult.REGISTERED,
+            BookingResult.WAIT_LISTED, BookingResult.ALREADY_BOOKED, BookingResult.WAIT_LISTED}, results);
+        Iterator<Student> waiting = testCourseSchedule.getWaitListedStudents().iterator();
+        assertEquals(STUDENT3, waiting.next());
+        assertEquals(STUDENT4, waiting.next());
+    }
+
+    /**
+     * Test of cancelBookings method, of class CourseSchedule.
+     */
+    @Test
+    public void testCancelBookings() {
+        testCourseSchedule.bookCourses(Arrays.asList(STUDENT1, STUDENT2, STUDENT3, STUDENT4));
+
+        CancellationResult[] results = testCourseSchedule.cancelBookings(
+                Arrays.asList(STUDENT4, STUDENT1, STUDENT1));
+
+        assertArrayEquals(new CancellationResult[]{CancellationResult.LEFT_WAITING_LIST,
+            CancellationResult.REGISTRATION_CANCELLED, CancellationResult.NOT_BOOKED}, results);
+        assertTrue(testCourseSchedule.isStudentRegistered(STUDENT3));
+        assertFalse(testCourseSchedule.isWaitingList());
+    }
+
+    /**
+     * Test that a large cohort is booked in arrival order.
+     */
+    @Test
+    public void testBookCoursesCohort() {
+        CourseSchedule schedule = new CourseSchedule(course, 3000, startDate, endDate, TEACHER);
+        List<Student> cohort = new ArrayList<Student>();
+        for (int i = 0; i < 5000; i++) {
+            cohort.add(new Student("Cohort " + i));
+        }
+        BookingResult[] results = schedule.bookCourses(cohort);
+
+        assertEquals(BookingResult.REGISTERED, results[2999]);
+        assertEquals(BookingResult.WAIT_LISTED, results[3000]);
+        assertEquals(3000, schedule.getNumberOfRegisteredStudents());
+        assertEquals(cohort.get(3000), schedule.getWaitListedStudents().iterator().next());
+    }
+
+    /**
+     * Test that concurrent bookings never overbook the course and that every
+     * student who misses out is wait-listed exactly once.
+     */
+    @Test
+    public void testConcurrentBookCourse() throws InterruptedException {
+        final int threads = 8;
+        final int studentsPerThread = 250;
+        final CourseSchedule schedule = new CourseSchedule(course, 100, startDate, endDate, TEACHER);
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicInteger duplicatesAccepted = new AtomicInteger();
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int offset = t * studentsPerThread;
+            workers[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < studentsPerThread; i++) {
+                        Student student = new Student("Concurrent " + (offset + i));
+                        schedule.bookCourse(student);
+                        //A repeated attempt must never succeed
+                        if (schedule.bookCourse(student)) {
+                            duplicatesAccepted.incrementAndGet();
+                        }
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertEquals(0, duplicatesAccepted.get());
+        assertEquals(100, schedule.getNumberOfRegisteredStudents());
+        assertEquals(threads * studentsPerThread - 100, schedule.getWaitListedStudents().size());
+        for (Student student : schedule.getRegisteredStudents()) {
+            assertFalse(schedule.isStudentOnWaitingList(student));
+        }
+    }
+
+    /**
+     * Test that concurrent cancellations promote wait-listed students in first
+     * come first serve order without losing or overbooking seats.
+     */
+    @Test
+    public void testConcurrentCancelBooking() throws InterruptedException {
+        final CourseSchedule schedule = new CourseSchedule(course, 50, startDate, endDate, TEACHER);
+        final List<Student> students = new ArrayList<Student>();
+        for (int i = 0; i < 150; i++) {
+            Student student = new Student("Cancelling " + i);
+            students.add(student);
+            schedule.bookCourse(student);
+        }
+        Thread[] workers = new Thread[5];
+        for (int t = 0; t < workers.length; t++) {
+            final int offset = t * 10;
+            workers[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = offset; i < offset + 10; i++) {
+                        schedule.cancelBooking(students.get(i));
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertEquals(50, schedule.getNumberOfRegisteredStudents());
+        assertEquals(50, schedule.getWaitListedStudents().size());
+        for (int i = 50; i < 100; i++) {
+            assertTrue(schedule.isStudentRegistered(students.get(i)));
+        }
+        assertEquals(students.get(100), schedule.getWaitListedStudents().iterator().next());
+    }
+
     /**
      * Test of isWaitingList method, of class CourseSchedule.
      */
@@ -303,7 +498,9 @@ public class CourseScheduleTest {
      */
     @Test
     public void testIsWaitingList2() {
-        testCourseSchedule.getWaitListedStudents().add(STUDENT1);
+        testCourseSchedule.bookCourse(STUDENT1);
+        testCourseSchedule.bookCourse(STUDENT2);
+        testCourseSchedule.bookCourse(STUDENT3);
         assertTrue(testCourseSchedule.isWaitingList());
     }
 
@@ -320,7 +517,7 @@ public class CourseScheduleTest {
      */
     @Test
     public void testGetNumberOfRegisteredStudents2() {
-        testCourseSchedule.getRegisteredStudents().add(STUDENT1);
+        testCourseSchedule.bookCourse(STUDENT1);
         assertEquals(testCourseSchedule.getNumberOfRegisteredStudents(), 1);
     }
 
@@ -356,6 +553,81 @@ public class CourseScheduleTest {
         assertTrue(testCourseSchedule.getRegisteredStudents().isEmpty());
     }
 
+    /**
+     * Test that the registered students cannot be modified by callers.
+     */
+    @Test(expected = UnsupportedOperationException.class)
+    public void testGetRegisteredStudents2() {
+        testCourseSchedule.getRegisteredStudents().add(STUDENT1);
+    }
+
+    /**
+     * Test of getRoster method, of class CourseSchedule.
+     */
+    @Test
+    public void testGetRoster1() {
+        testCourseSchedule.bookCourse(STUDENT1);
+        RosterSnapshot roster = testCourseSchedule.getRoster();
+        assertSame(roster, testCourseSchedule.getRoster());
+        testCourseSchedule.bookCourse(STUDENT2);
+        testCourseSchedule.bookCourse(STUDENT3);
+        assertEquals(1, roster.getNumberOfRegisteredStudents());
+        assertTrue(roster.getWaitListedStudents().isEmpty());
+
+        RosterSnapshot updated = testCourseSchedule.getRoster();
+        assertTrue(updated.getVersion() > roster.getVersion());
+        assertTrue(updated.isStudentRegistered(STUDENT2));
+        assertEquals(Arrays.asList(STUDENT3), updated.getWaitListedStudents());
+    }
+
+    /**
+     * Test that each roster snapshot is consistent while bookings and
+     * cancellations are made concurrently.
+     */
+    @Test
+    public void testGetRoster2() throws InterruptedException {
+        final CourseSchedule schedule = new CourseSchedule(course, 20, startDate, endDate, TEACHER);
+        final AtomicInteger inconsistent = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(4);
+        Thread[] writers = new Thread[4];
+        for (int t = 0; t < writers.length; t++) {
+            final int offset = t * 1000;
+            writers[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 1000; i++) {
+                        Student student = new Student("Snapshot " + (offset + i));
+                        schedule.bookCourse(student);
+                        if (i % 2 == 0) {
+                            schedule.cancelBooking(student);
+                        }
+                    }
+                    done.countDown();
+                }
+            });
+            writers[t].start();
+        }
+        while (done.getCount() > 0) {
+            RosterSnapshot roster = schedule.getRoster();
+            int registered = roster.getNumberOfRegisteredStudents();
+            List<Student> waiting = roster.getWaitListedStudents();
+            if (registered > 20 || (!waiting.isEmpty() && registered < 20)) {
+                inconsistent.incrementAndGet();
+            }
+            for (Student student : waiting) {
+                if (roster.isStudentRegistered(student)) {
+                    inconsistent.incrementAndGet();
+                }
+            }
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        assertEquals(0, inconsistent.get());
+        assertEquals(20, schedule.getRoster().getNumberOfRegisteredStudents());
+        assertEquals(1980, schedule.getRoster().getWaitListedStudents().size());
+    }
+
     /**
      * Test of getStartDate method, of class CourseSchedule.
      */
@@ -376,7 +648,205 @@ public class CourseScheduleTest {
      * Test of getWaitListedStudents method, of class CourseSchedule.
      */
     @Test
-    public void testGetWaitListedStudents() {
+    public void testGetWaitListedStudents1() {
         assertTrue(testCourseSchedule.getWaitListedStudents().isEmpty());
     }
+
+    /**
+     * Test that the waiting list is returned in first come first serve order.
+     */
+    @Test
+    public void testGetWaitListedStudents2() {
+        testCourseSchedule.bookCourse(STUDENT1);
+        testCourseSchedule.bookCourse(STUDENT2);
+        testCourseSchedule.bookCourse(STUDENT3);
+        testCourseSchedule.bookCourse(STUDENT4);
+
+        Iterator<Student> waiting = testCourseSchedule.getWaitListedStudents().iterator();
+        assertEquals(STUDENT3, waiting.next());
+        assertEquals(STUDENT4, waiting.next());
+        assertFalse(waiting.hasNext());
+    }
+
+    /**
+     * Test that the waiting list cannot be modified by callers.
+     */
+    @Test(expected = UnsupportedOperationException.class)
+    public void testGetWaitListedStudents3() {
+        testCourseSchedule.getWaitListedStudents().add(STUDENT1);
+    }
+
+    /**
+     * Test of setCourseCapacity method, of class CourseSchedule, raising the
+     * capacity.
+     */
+    @Test
+    public void testSetCourseCapacity1() {
+        testCourseSchedule.bookCourse(STUDENT1);
+        testCourseSchedule.bookCourse(STUDENT2);
+        testCourseSchedule.bookCourse(STUDENT3);
+        testCourseSchedule.bookCourse(STUDENT4);
+        assertEquals(1, testCourseSchedule.setCourseCapacity(3, CapacityOverflowRule.REJECT));
+        assertEquals(3, testCourseSchedule.getCourseCapacity());
+        assertTrue(testCourseSchedule.isStudentRegistered(STUDENT3));
+        assertEquals(Arrays.asList(STUDENT4), testCourseSchedule.getWaitListedStudents());
+
+        assertEquals(1, testCourseSchedule.setCourseCapacity(10, CapacityOverflowRule.REJECT));
+        assertEquals(4, testCourseSchedule.getNumberOfRegisteredStudents());
+        assertEquals(BookingResult.REGISTERED, testCourseSchedule.book(new Student("Student 5")));
+    }
+
+    /**
+     * Test of setCourseCapacity method, of class CourseSchedule, lowering the
+     * capacity below the students registered.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testSetCourseCapacity2() {
+        testCourseSchedule.bookCourse(STUDENT1);
+        testCourseSchedule.bookCourse(STUDENT2);
+        testCourseSchedule.setCourseCapacity(1, CapacityOverflowRule.REJECT);
+    }
+
+    /**
+     * Test of setCourseCapacity method, of class CourseSchedule, keeping the
+     * students registered over a lowered capacity.
+     */
+    @Test
+    public void testSetCourseCapacity3() {
+        CourseSchedule schedule = new CourseSchedule(course, 3, startDate, endDate, TEACHER);
+        schedule.bookCourse(STUDENT1);
+        schedule.bookCourse(STUDENT2);
+        schedule.bookCourse(STUDENT3);
+        schedule.bookCourse(STUDENT4);
+        assertEquals(0, schedule.setCourseCapacity(1, CapacityOverflowRule.KEEP_REGISTERED));
+        assertEquals(3, schedule.getNumberOfRegisteredStudents());
+
+        //Seats given up while over capacity are withdrawn
+        schedule.cancelBooking(STUDENT1);
+        schedule.cancelBooking(STUDENT2);
+        assertTrue(schedule.isStudentOnWaitingList(STUDENT4));
+        schedule.cancelBooking(STUDENT3);
+        assertTrue(schedule.isStudentRegistered(STUDENT4));
+        assertTrue(schedule.getWaitListedStudents().isEmpty());
+    }
+
+    /**
+     * Test that raising the capacity while bookings are made concurrently
+     * neither overbooks the course nor leaves students waiting for free
+     * seats.
+     */
+    @Test
+    public void testSetCourseCapacity4() throws InterruptedException {
+        final CourseSchedule schedule = new CourseSchedule(course, 10, startDate, endDate, TEACHER);
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] bookers = new Thread[4];
+        for (int t = 0; t < bookers.length; t++) {
+            final int offset = t * 500;
+            bookers[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < 500; i++) {
+                        schedule.bookCourse(new Student("Resized " + (offset + i)));
+                    }
+                }
+            });
+            bookers[t].start();
+        }
+        start.countDown();
+        int promoted = 0;
+        for (int capacity = 20; capacity <= 1000; capacity += 10) {
+            promoted += schedule.setCourseCapacity(capacity, CapacityOverflowRule.REJECT);
+        }
+        for (Thread booker : bookers) {
+            booker.join();
+        }
+        assertEquals(1000, schedule.getNumberOfRegisteredStudents());
+        assertEquals(1000, schedule.getWaitListedStudents().size());
+        assertTrue(promoted <= 990);
+    }
+
+    /**
+     * Test of setWaitListPolicy method, of class CourseSchedule.
+     */
+    @Test
+    public void testSetWaitListPolicy1() {
+        Student senior = new Student("Senior", Arrays.asList(MATHS, FRENCH));
+        testCourseSchedule.setWaitListPolicy(WaitListPolicy.MOST_COURSES_TAKEN);
+        testCourseSchedule.bookCourse(STUDENT1);
+        testCourseSchedule.bookCourse(STUDENT2);
+        testCourseSchedule.bookCourse(STUDENT3);
+        testCourseSchedule.bookCourse(senior);
+        assertEquals(Arrays.asList(senior, STUDENT3), testCourseSchedule.getWaitListedStudents());
+
+        testCourseSchedule.cancelBooking(STUDENT1);
+        assertTrue(testCourseSchedule.isStudentRegistered(senior));
+        assertEquals(Arrays.asList(STUDENT3), testCourseSchedule.getWaitListedStudents());
+    }
+
+    /**
+     * Test that setting a policy re-orders the students already waiting.
+     */
+    @Test
+    public void testSetWaitListPolicy2() {
+        Student senior = new Student("Senior", Arrays.asList(MATHS));
+        testCourseSchedule.bookCourse(STUDENT1);
+        testCourseSchedule.bookCourse(STUDENT2);
+        testCourseSchedule.bookCourse(STUDENT3);
+        testCourseSchedule.bookCourse(senior);
+        testCourseSchedule.bookCourse(STUDENT4);
+        assertSame(WaitListPolicy.FIRST_COME_FIRST_SERVED, testCourseSchedule.getWaitListPolicy());
+
+        testCourseSchedule.setWaitListPolicy(WaitListPolicy.MOST_COURSES_TAKEN);
+        assertEquals(Arrays.asList(senior, STUDENT3, STUDENT4), testCourseSchedule.getWaitListedStudents());
+        assertTrue(testCourseSchedule.isStudentOnWaitingList(STUDENT4));
+    }
+
+    /**
+     * Test of addBookingListener method, of class CourseSchedule.
+     */
+    @Test
+    public void testAddBookingListener() {
+        final List<String> events = new ArrayList<String>();
+        BookingListener listener = new BookingListener() {
+            @Override
+            public void bookingChanged(CourseSchedule schedule, BookingEvent event, Student student) {
+                events.add(event + " " + student.getName());
+            }
+        };
+        testCourseSchedule.addBookingListener(listener);
+        testCourseSchedule.bookCourse(STUDENT1);
+        testCourseSchedule.bookCourse(STUDENT2);
+        testCourseSchedule.bookCourse(STUDENT3);
+        testCourseSchedule.bookCourse(STUDENT4);
+        testCourseSchedule.cancelBooking(STUDENT1);
+        testCourseSchedule.cancelBooking(STUDENT4);
+        assertEquals(Arrays.asList("REGISTERED Student 1", "REGISTERED Student 2", "WAIT_LISTED Student 3",
+                "WAIT_LISTED Student 4", "REGISTRATION_CANCELLED Student 1", "PROMOTED Student 3",
+                "LEFT_WAITING_LIST Student 4"), events);
+    }
+
+    /**
+     * Test of removeBookingListener method, of class CourseSchedule.
+     */
+    @Test
+    public void testRemoveBookingListener() {
+        final AtomicInteger count = new AtomicInteger();
+        BookingListener listener = new BookingListener() {
+            @Override
+            public void bookingChanged(CourseSchedule schedule, BookingEvent event, Student student) {
+                count.incrementAndGet();
+            }
+        };
+        testCourseSchedule.addBookingListener(listener);
+        testCourseSchedule.bookCourse(STUDENT1);
+        assertTrue(testCourseSchedule.removeBookingListener(listener));
+        assertFalse(testCourseSchedule.removeBookingListener(listener));
+        testCourseSchedule.bookCourse(STUDENT2);
+        assertEquals(1, count.get());
+    }
 }
@@ -153,4 +153,22 @@ public class CourseTest {
         Course sameCourse = new Course(MY_COURSE);
         assertTrue(testCourse.equals(sameCourse));
     }
+
+    /**
+     * Test of hashCode method, of class Course.
+     */
+    @Test
+    public void testHashCode1() {
+        assertEquals(testCourse.hashCode(), new Course(MY_COURSE).hashCode());
+    }
+
+    /**
+     * Test that the hash code does not change as prerequisites are added.
+     */
+    @Test
+    public void testHashCode2() {
+        int hash = testCourse.hashCode();
+        testCourse.addPreRequisite(HISTORY);
+        assertEquals(hash, testCourse.hashCode());
+    }
 }
@@ -0,0 +1,194 @@
+package com.erudine.coursebooking;
+
+import com.erudine.coursebooking.persons.Student;
+import com.erudine.coursebooking.persons.Teacher;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link EnrolmentIndex} class.
+ *
+ * @author Adam Harries
+ * @version 31 July 2013
+ */
+public class EnrolmentIndexTest {
+
+    public static final Teacher TEACHER = new Teacher("Mr Harries");
+    public static final Student STUDENT1 = new Student("Index Student 1");
+    public static final Student STUDENT2 = new Student("Index Student 2");
+    public static final Student STUDENT3 = new Student("Index Student 3");
+    public static final Student STUDENT4 = new Student("Index Student 4");
+    private CourseSchedule maths;
+    private CourseSchedule french;
+    private EnrolmentIndex testIndex;
+
+    @Before
+    public void setUp() {
+        maths = new CourseSchedule(new Course("Maths"), 1, new Date(0), new Date(1000), TEACHER);
+        french = new CourseSchedule(new Course("French"), 1, new Date(0), new Date(1000), TEACHER);
+        testIndex = new EnrolmentIndex();
+        testIndex.attach(maths);
+        testIndex.attach(french);
+    }
+
+    /**
+     * Test of getRegistrations method, of class EnrolmentIndex.
+     */
+    @Test
+    public void testGetRegistrations() {
+        maths.bookCourse(STUDENT1);
+        french.bookCourse(STUDENT1);
+        assertEquals(2, testIndex.getRegistrations(STUDENT1).size());
+        maths.cancelBooking(STUDENT1);
+        assertEquals(Collections.singleton(french), testIndex.getRegistrations(STUDENT1));
+        assertTrue(testIndex.getRegistrations(STUDENT2).isEmpty());
+    }
+
+    /**
+     * Test of getWaitListPositions method, of class EnrolmentIndex, as students
+     * leave and are promoted.
+     */
+    @Test
+    public void testGetWaitListPositions() {
+        maths.bookCourse(STUDENT1);
+        maths.bookCourse(STUDENT2);
+        maths.bookCourse(STUDENT3);
+        maths.bookCourse(STUDENT4);
+        french.bookCourse(STUDENT2);
+        french.bookCourse(STUDENT4);
+        assertEquals(Integer.valueOf(3), testIndex.getWaitListPositions(STUDENT4).get(maths));
+        assertEquals(Integer.valueOf(1), testIndex.getWaitListPositions(STUDENT4).get(french));
+
+        maths.cancelBooking(STUDENT3);
+        assertEquals(2, testIndex.getWaitListPosition(STUDENT4, maths));
+        maths.cancelBooking(STUDENT1);
+        assertEquals(1, testIndex.getWaitListPosition(STUDENT4, maths));
+        assertTrue(testIndex.getRegistrations(STUDENT2).contains(maths));
+        assertEquals(0, testIndex.getWaitListPosition(STUDENT2, maths));
+        assertTrue(testIndex.getWaitListPositions(STUDENT1).isEmpty());
+    }
+
+    /**
+     * Test of getWaitListPosition method, of class EnrolmentIndex, on a
+     * schedule with a priority policy.
+     */
+    @Test
+    public void testGetWaitListPosition1() {
+        Student senior = new Student("Index Senior", Collections.singleton(new Course("Basic")));
+        maths.setWaitListPolicy(WaitListPolicy.MOST_COURSES_TAKEN);
+        maths.bookCourse(STUDENT1);
+        maths.bookCourse(STUDENT2);
+        maths.bookCourse(senior);
+        assertEquals(1, testIndex.getWaitListPosition(senior, maths));
+        assertEquals(2, testIndex.getWaitListPosition(STUDENT2, maths));
+        assertEquals(0, testIndex.getWaitListPosition(STUDENT1, maths));
+    }
+
+    /**
+     * Test of getWaitListPosition method, of class EnrolmentIndex, after a
+     * schedule goes back to first come, first served.
+     */
+    @Test
+    public void testGetWaitListPosition2() {
+        Student senior = new Student("Index Senior", Collections.singleton(new Course("Basic")));
+        maths.setWaitListPolicy(WaitListPolicy.MOST_COURSES_TAKEN);
+        maths.bookCourse(STUDENT1);
+        maths.bookCourse(STUDENT2);
+        maths.bookCourse(senior);
+        maths.setWaitListPolicy(WaitListPolicy.FIRST_COME_FIRST_SERVED);
+        maths.bookCourse(STUDENT3);
+        assertEquals(1, testIndex.getWaitListPosition(senior, maths));
+        assertEquals(2, testIndex.getWaitListPosition(STUDENT2, maths));
+        assertEquals(3, testIndex.getWaitListPosition(STUDENT3, maths));
+    }
+
+    /**
+     * Test of getWaitListPosition method, of class EnrolmentIndex, on a waiting
+     * list which never empties while many students come and go.
+     */
+    @Test
+    public void testGetWaitListPosition3() {
+        maths.bookCourse(STUDENT1);
+        maths.bookCourse(STUDENT2);
+        for (int i = 0; i < 1000; i++) {
+            Student passing = new Student("Index Passing " + i);
+            maths.bookCourse(passing);
+            assertEquals(2, testIndex.getWaitListPosition(passing, maths));
+            maths.cancelBooking(passing);
+        }
+        maths.bookCourse(STUDENT3);
+        assertEquals(1, testIndex.getWaitListPosition(STUDENT2, maths));
+        assertEquals(2, testIndex.getWaitListPosition(STUDENT3, maths));
+        maths.cancelBooking(STUDENT1);
+        assertEquals(1, testIndex.getWaitListPosition(STUDENT3, maths));
+    }
+
+    /**
+     * Test of attach method, of class EnrolmentIndex, on a schedule which
+     * already holds bookings.
+     */
+    @Test
+    public void testAttach() {
+        CourseSchedule german = new CourseSchedule(new Course("German"), 1, new Date(0), new Date(1000), TEACHER);
+        german.bookCourse(STUDENT1);
+        german.bookCourse(STUDENT2);
+        german.bookCourse(STUDENT3);
+        testIndex.attach(german);
+        assertTrue(testIndex.getRegistrations(STUDENT1).contains(german));
+        assertEquals(2, testIndex.getWaitListPosition(STUDENT3, german));
+    }
+
+    /**
+     * Test that the index agrees with the schedule after concurrent bookings
+     * and cancellations.
+     */
+    @Test
+    public void testConcurrentUpdates() throws InterruptedException {
+        final CourseSchedule busy = new CourseSchedule(new Course("Busy"), 20, new Date(0), new Date(1000), TEACHER);
+        testIndex.attach(busy);
+        final List<Student> students = new ArrayList<Student>();
+        for (int i = 0; i < 200; i++) {
+            students.add(new Student("Busy Student " + i));
+        }
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < 4; t++) {
+            final int offset = t;
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = offset; i < students.size(); i += 4) {
+                        busy.bookCourse(students.get(i));
+                        if (i % 3 == 0) {
+                            busy.cancelBooking(students.get(i));
+                        }
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (Student student : students) {
+            assertEquals(busy.isStudentRegistered(student), testIndex.getRegistrations(student).contains(busy));
+        }
+        int position = 1;
+        for (Student student : busy.getWaitListedStudents()) {
+            assertEquals(position++, testIndex.getWaitListPosition(student, busy));
+        }
+    }
+}
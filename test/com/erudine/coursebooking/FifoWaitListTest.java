@@ -0,0 +1,127 @@
+package com.erudine.coursebooking;
+
+import com.erudine.coursebooking.persons.Student;
+import java.util.Iterator;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link FifoWaitList} class.
+ *
+ * @author Adam Harries
+ * @version 31 July 2013
+ */
+public class FifoWaitListTest {
+
+    public static final Student STUDENT1 = new Student("Student 1");
+    public static final Student STUDENT2 = new Student("Student 2");
+    public static final Student STUDENT3 = new Student("Student 3");
+    private FifoWaitList testWaitList;
+
+    @Before
+    public void setUp() {
+        testWaitList = new FifoWaitList();
+        testWaitList.add(STUDENT1);
+        testWaitList.add(STUDENT2);
+        testWaitList.add(STUDENT3);
+    }
+
+    /**
+     * Test of add method, of class FifoWaitList.
+     */
+    @Test
+    public void testAdd1() {
+        assertEquals(3, testWaitList.size());
+        assertTrue(testWaitList.contains(STUDENT2));
+    }
+
+    /**
+     * Test that adding a student who is already queued fails.
+     */
+    @Test
+    public void testAdd2() {
+        assertFalse(testWaitList.add(new Student("Student 2")));
+        assertEquals(3, testWaitList.size());
+    }
+
+    /**
+     * Test of remove method, of class FifoWaitList.
+     */
+    @Test
+    public void testRemove1() {
+        assertTrue(testWaitList.remove(STUDENT2));
+        assertFalse(testWaitList.contains(STUDENT2));
+        assertEquals(2, testWaitList.size());
+        assertEquals(STUDENT1, testWaitList.poll());
+        assertEquals(STUDENT3, testWaitList.poll());
+    }
+
+    /**
+     * Test of remove method, of class FifoWaitList.
+     */
+    @Test
+    public void testRemove2() {
+        assertFalse(testWaitList.remove(new Student("Not queued")));
+    }
+
+    /**
+     * Test of poll method, of class FifoWaitList.
+     */
+    @Test
+    public void testPoll() {
+        assertEquals(STUDENT1, testWaitList.poll());
+        assertEquals(STUDENT2, testWaitList.poll());
+        assertEquals(STUDENT3, testWaitList.poll());
+        assertNull(testWaitList.poll());
+        assertTrue(testWaitList.isEmpty());
+    }
+
+    /**
+     * Test that the tail can be removed and the queue appended to again.
+     */
+    @Test
+    public void testRemoveTail() {
+        testWaitList.remove(STUDENT3);
+        Student student4 = new Student("Student 4");
+        testWaitList.add(student4);
+        testWaitList.poll();
+        testWaitList.poll();
+        assertEquals(student4, testWaitList.peek());
+    }
+
+    /**
+     * Test of view method, of class FifoWaitList.
+     */
+    @Test
+    public void testView1() {
+        Iterator<Student> waiting = testWaitList.view().iterator();
+        assertEquals(STUDENT1, waiting.next());
+        assertEquals(STUDENT2, waiting.next());
+        assertEquals(STUDENT3, waiting.next());
+        assertFalse(waiting.hasNext());
+    }
+
+    /**
+     * Test that an iterator carries on past a student removed after it was
+     * positioned on them.
+     */
+    @Test
+    public void testView2() {
+        Iterator<Student> waiting = testWaitList.view().iterator();
+        assertEquals(STUDENT1, waiting.next());
+        testWaitList.remove(STUDENT2);
+        assertEquals(STUDENT3, waiting.next());
+        assertFalse(waiting.hasNext());
+    }
+
+    /**
+     * Test that the view cannot be modified.
+     */
+    @Test(expected = UnsupportedOperationException.class)
+    public void testView3() {
+        Iterator<Student> waiting = testWaitList.view().iterator();
+        waiting.next();
+        waiting.remove();
+    }
+}
@@ -0,0 +1,127 @@
+package com.erudine.coursebooking;
+
+import com.erudine.coursebooking.persons.Student;
+import com.erudine.coursebooking.persons.Teacher;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link HeapWaitList} class.
+ *
+ * @author Adam Harries
+ * @version 31 July 2013
+ */
+public class HeapWaitListTest {
+
+    public static final Student STUDENT1 = new Student("Student 1");
+    public static final Student STUDENT2 = new Student("Student 2");
+    public static final Student STUDENT3 = new Student("Student 3");
+    public static final Student STUDENT4 = new Student("Student 4");
+    private Map<Student, Long> ranks;
+    private HeapWaitList testWaitList;
+
+    @Before
+    public void setUp() {
+        ranks = new HashMap<Student, Long>();
+        ranks.put(STUDENT1, 3L);
+        ranks.put(STUDENT2, 1L);
+        ranks.put(STUDENT3, 3L);
+        ranks.put(STUDENT4, 2L);
+        CourseSchedule schedule = new CourseSchedule(new Course("Ranked"), 1, new Date(0), new Date(100),
+                new Teacher("Mr Harries"));
+        testWaitList = new HeapWaitList(schedule, new WaitListPolicy() {
+            @Override
+            public long rank(CourseSchedule schedule, Student student) {
+                return ranks.get(student);
+            }
+        });
+        testWaitList.add(STUDENT1);
+        testWaitList.add(STUDENT2);
+        testWaitList.add(STUDENT3);
+        testWaitList.add(STUDENT4);
+    }
+
+    /**
+     * Test of add method, of class HeapWaitList.
+     */
+    @Test
+    public void testAdd() {
+        assertFalse(testWaitList.add(new Student("Student 2")));
+        assertEquals(4, testWaitList.size());
+        assertTrue(testWaitList.contains(STUDENT3));
+    }
+
+    /**
+     * Test of poll method, of class HeapWaitList, serving equal ranks first
+     * come, first served.
+     */
+    @Test
+    public void testPoll() {
+        assertEquals(STUDENT2, testWaitList.peek());
+        assertEquals(STUDENT2, testWaitList.poll());
+        assertEquals(STUDENT4, testWaitList.poll());
+        assertEquals(STUDENT1, testWaitList.poll());
+        assertEquals(STUDENT3, testWaitList.poll());
+        assertNull(testWaitList.poll());
+        assertTrue(testWaitList.isEmpty());
+    }
+
+    /**
+     * Test of remove method, of class HeapWaitList.
+     */
+    @Test
+    public void testRemove() {
+        assertTrue(testWaitList.remove(STUDENT4));
+        assertFalse(testWaitList.remove(STUDENT4));
+        assertFalse(testWaitList.contains(STUDENT4));
+        assertEquals(Arrays.asList(STUDENT2, STUDENT1, STUDENT3), new ArrayList<Student>(testWaitList.view()));
+    }
+
+    /**
+     * Test of view method, of class HeapWaitList.
+     */
+    @Test
+    public void testView() {
+        assertEquals(Arrays.asList(STUDENT2, STUDENT4, STUDENT1, STUDENT3),
+                new ArrayList<Student>(testWaitList.view()));
+        assertTrue(testWaitList.view().contains(STUDENT1));
+    }
+
+    /**
+     * Test of poll and remove methods, of class HeapWaitList, against a
+     * sorted list for a deep queue.
+     */
+    @Test
+    public void testPollAndRemove() {
+        Random random = new Random(7);
+        List<Student> expected = new ArrayList<Student>();
+        for (int i = 0; i < 50000; i++) {
+            Student student = new Student("Deep " + i);
+            ranks.put(student, (long) random.nextInt(100));
+            testWaitList.add(student);
+            expected.add(student);
+        }
+        for (int i = 0; i < 10000; i++) {
+            Student student = expected.remove(random.nextInt(expected.size()));
+            assertTrue(testWaitList.remove(student));
+        }
+        //A stable sort by rank keeps equal ranks in the order they joined
+        expected.addAll(0, Arrays.asList(STUDENT1, STUDENT2, STUDENT3, STUDENT4));
+        Collections.sort(expected, (a, b) -> Long.compare(ranks.get(a), ranks.get(b)));
+        List<Student> polled = new ArrayList<Student>();
+        Student next;
+        while ((next = testWaitList.poll()) != null) {
+            polled.add(next);
+        }
+        assertEquals(expected, polled);
+    }
+}
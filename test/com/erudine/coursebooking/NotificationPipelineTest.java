@@ -0,0 +1,191 @@
+package com.erudine.coursebooking;
+
+import com.erudine.coursebooking.persons.Student;
+import com.erudine.coursebooking.persons.Teacher;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link NotificationPipeline} class.
+ *
+ * @author Adam Harries
+ * @version 31 July 2013
+ */
+public class NotificationPipelineTest {
+
+    public static final Teacher TEACHER = new Teacher("Mr Harries");
+    public static final Student STUDENT1 = new Student("Notified Student 1");
+    public static final Student STUDENT2 = new Student("Notified Student 2");
+    public static final Student STUDENT3 = new Student("Notified Student 3");
+    private CourseSchedule schedule;
+    private List<List<Notification>> delivered;
+    private NotificationPipeline testPipeline;
+
+    @Before
+    public void setUp() {
+        schedule = new CourseSchedule(new Course("Java Messaging"), 1, new Date(0), new Date(100), TEACHER);
+        delivered = new ArrayList<List<Notification>>();
+        testPipeline = new NotificationPipeline(16);
+        testPipeline.addSink(new NotificationSink() {
+            @Override
+            public void deliver(Student student, List<Notification> notifications) {
+                for (Notification notification : notifications) {
+                    assertSame(student, notification.getStudent());
+                }
+                synchronized (delivered) {
+                    delivered.add(notifications);
+                }
+            }
+        });
+        testPipeline.attach(schedule);
+    }
+
+    /**
+     * Returns the single notification delivered to a student.
+     */
+    private Notification deliveredTo(Student student) {
+        Notification found = null;
+        for (List<Notification> notifications : delivered) {
+            for (Notification notification : notifications) {
+                if (notification.getStudent() == student) {
+                    assertNull("More than one notification for " + student.getName(), found);
+                    found = notification;
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Test of bookingChanged method, of class NotificationPipeline: a
+     * promotion is reported to the student promoted and to those moving up
+     * behind them.
+     */
+    @Test
+    public void testBookingChanged1() {
+        //Attach once the queue has formed, taking the places as known
+        testPipeline.detach(schedule);
+        schedule.book(STUDENT1);
+        schedule.book(STUDENT2);
+        schedule.book(STUDENT3);
+        testPipeline.attach(schedule);
+        schedule.cancel(STUDENT1);
+        testPipeline.start();
+        testPipeline.close();
+        assertEquals(3, delivered.size());
+        assertEquals(BookingEvent.REGISTRATION_CANCELLED, deliveredTo(STUDENT1).getEvent());
+        assertEquals(BookingEvent.PROMOTED, deliveredTo(STUDENT2).getEvent());
+        assertEquals(0, deliveredTo(STUDENT2).getWaitListPosition());
+        assertNull(deliveredTo(STUDENT3).getEvent());
+        assertEquals(1, deliveredTo(STUDENT3).getWaitListPosition());
+    }
+
+    /**
+     * Test of bookingChanged method, of class NotificationPipeline: changes
+     * made before the consumer catches up are coalesced.
+     */
+    @Test
+    public void testBookingChanged2() {
+        schedule.book(STUDENT1);
+        schedule.book(STUDENT2);
+        schedule.cancel(STUDENT2);
+        schedule.book(STUDENT2);
+        testPipeline.start();
+        testPipeline.close();
+        assertEquals(2, delivered.size());
+        assertEquals(BookingEvent.REGISTERED, deliveredTo(STUDENT1).getEvent());
+        assertEquals(BookingEvent.WAIT_LISTED, deliveredTo(STUDENT2).getEvent());
+        assertEquals(1, deliveredTo(STUDENT2).getWaitListPosition());
+    }
+
+    /**
+     * Test of bookingChanged method, of class NotificationPipeline, with the
+     * buffer full: bookings go ahead, and waiting-list places are re-read.
+     */
+    @Test
+    public void testBookingChanged3() {
+        List<Student> students = new ArrayList<Student>();
+        for (int i = 0; i < 20; i++) {
+            Student student = new Student("Overflow " + i);
+            students.add(student);
+            assertNotNull(schedule.book(student));
+        }
+        assertEquals(4, testPipeline.getDroppedChanges());
+        testPipeline.start();
+        testPipeline.close();
+        for (int i = 1; i < 20; i++) {
+            assertEquals(i, deliveredTo(students.get(i)).getWaitListPosition());
+        }
+        assertNull(deliveredTo(students.get(19)).getEvent());
+    }
+
+    /**
+     * Test of addSink method, of class NotificationPipeline, with a sink
+     * which throws.
+     */
+    @Test
+    public void testAddSink1() {
+        testPipeline.addSink(new NotificationSink() {
+            @Override
+            public void deliver(Student student, List<Notification> notifications) {
+                throw new IllegalStateException("Mail server down");
+            }
+        });
+        schedule.book(STUDENT1);
+        schedule.book(STUDENT2);
+        testPipeline.start();
+        testPipeline.close();
+        assertEquals(2, testPipeline.getFailedDeliveries());
+        assertEquals(2, delivered.size());
+    }
+
+    /**
+     * Test of addSink method, of class NotificationPipeline, with a sink
+     * which throws an error: the error is not counted as a failed delivery,
+     * and close still returns once the consumer has died of it.
+     */
+    @Test
+    public void testAddSink2() {
+        testPipeline.addSink(new NotificationSink() {
+            @Override
+            public void deliver(Student student, List<Notification> notifications) {
+                throw new StackOverflowError();
+            }
+        });
+        schedule.book(STUDENT1);
+        schedule.book(STUDENT2);
+        testPipeline.start();
+        testPipeline.close();
+        assertEquals(0, testPipeline.getFailedDeliveries());
+    }
+
+    /**
+     * Test of detach method, of class NotificationPipeline.
+     */
+    @Test
+    public void testDetach() {
+        testPipeline.detach(schedule);
+        schedule.book(STUDENT1);
+        testPipeline.start();
+        testPipeline.close();
+        assertTrue(delivered.isEmpty());
+    }
+
+    /**
+     * Test of close method, of class NotificationPipeline, from an interrupted
+     * thread.
+     */
+    @Test
+    public void testClose() {
+        schedule.book(STUDENT1);
+        testPipeline.start();
+        Thread.currentThread().interrupt();
+        testPipeline.close();
+        assertTrue(Thread.interrupted());
+        assertEquals(BookingEvent.REGISTERED, deliveredTo(STUDENT1).getEvent());
+    }
+}
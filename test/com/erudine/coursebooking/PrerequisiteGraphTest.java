@@ -0,0 +1,58 @@
+package com.erudine.coursebooking;
+
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link PrerequisiteGraph} class.
+ *
+ * @author Adam Harries
+ * @version 31 July 2013
+ */
+public class PrerequisiteGraphTest {
+
+    /**
+     * Test that prerequisites are ordered before the courses requiring them.
+     */
+    @Test
+    public void testTopologicalOrder1() {
+        Course algebra = new Course("Algebra");
+        Course calculus = new Course("Calculus", Arrays.asList(algebra));
+        Course mechanics = new Course("Mechanics", Arrays.asList(calculus, algebra));
+        List<Course> ordered = PrerequisiteGraph.topologicalOrder(Arrays.asList(mechanics, calculus, algebra));
+        assertEquals(Arrays.asList(algebra, calculus, mechanics), ordered);
+    }
+
+    /**
+     * Test that prerequisites outside the batch are ignored.
+     */
+    @Test
+    public void testTopologicalOrder2() {
+        Course algebra = new Course("Algebra");
+        Course calculus = new Course("Calculus", Arrays.asList(algebra));
+        assertEquals(Arrays.asList(calculus), PrerequisiteGraph.topologicalOrder(Arrays.asList(calculus)));
+    }
+
+    /**
+     * Test that a cycle is rejected.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testTopologicalOrder3() {
+        Course algebra = new Course("Algebra");
+        Course calculus = new Course("Calculus", Arrays.asList(algebra));
+        algebra.addPreRequisite(calculus);
+        PrerequisiteGraph.topologicalOrder(Arrays.asList(algebra, calculus));
+    }
+
+    /**
+     * Test that a course cannot be its own prerequisite.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testTopologicalOrder4() {
+        Course algebra = new Course("Algebra");
+        algebra.addPreRequisite(algebra);
+        PrerequisiteGraph.topologicalOrder(Arrays.asList(algebra));
+    }
+}
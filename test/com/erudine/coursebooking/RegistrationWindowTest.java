@@ -0,0 +1,57 @@
+package com.erudine.coursebooking;
+
+import java.util.Date;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link RegistrationWindow} class.
+ *
+ * @author Adam Harries
+ * @version 31 July 2013
+ */
+public class RegistrationWindowTest {
+
+    /**
+     * Test of isOpen method, of class RegistrationWindow.
+     */
+    @Test
+    public void testIsOpen1() {
+        RegistrationWindow window = new RegistrationWindow(100, 200);
+        assertFalse(window.isOpen(99));
+        assertTrue(window.isOpen(100));
+        assertTrue(window.isOpen(199));
+        assertFalse(window.isOpen(200));
+    }
+
+    /**
+     * Test of isOpen method, of class RegistrationWindow, for a window open
+     * until a course starts.
+     */
+    @Test
+    public void testIsOpen2() {
+        RegistrationWindow window = RegistrationWindow.until(new Date(1000));
+        assertTrue(window.isOpen(Long.MIN_VALUE));
+        assertTrue(window.isOpen(999));
+        assertFalse(window.isOpen(1000));
+        assertTrue(RegistrationWindow.ALWAYS_OPEN.isOpen(Long.MAX_VALUE - 1));
+    }
+
+    /**
+     * Test of between method, of class RegistrationWindow.
+     */
+    @Test
+    public void testBetween() {
+        RegistrationWindow window = RegistrationWindow.between(new Date(10), new Date(20));
+        assertEquals(10, window.getOpensAt());
+        assertEquals(20, window.getClosesAt());
+    }
+
+    /**
+     * Constructor test with the window closing before it opens.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor() {
+        new RegistrationWindow(200, 100);
+    }
+}
@@ -0,0 +1,130 @@
+package com.erudine.coursebooking;
+
+import com.erudine.coursebooking.persons.Student;
+import com.erudine.coursebooking.persons.Teacher;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link ScheduleActor} class.
+ *
+ * @author Adam Harries
+ * @version 31 July 2013
+ */
+public class ScheduleActorTest {
+
+    public static final Teacher TEACHER = new Teacher("Mr Harries");
+    private CourseSchedule schedule;
+    private ScheduleActor testActor;
+
+    @Before
+    public void setUp() {
+        schedule = new CourseSchedule(new Course("Actor Course"), 2, new Date(0), new Date(1000), TEACHER);
+        testActor = new ScheduleActor(schedule, 8).start();
+    }
+
+    @After
+    public void tearDown() {
+        testActor.close();
+    }
+
+    /**
+     * Test of book method, of class ScheduleActor.
+     */
+    @Test
+    public void testBook() throws Exception {
+        Student student = new Student("Actor Student");
+        assertEquals(BookingResult.REGISTERED, testActor.book(student).get());
+        assertEquals(BookingResult.ALREADY_BOOKED, testActor.book(student).get());
+        assertTrue(schedule.isStudentRegistered(student));
+    }
+
+    /**
+     * Test of cancel method, of class ScheduleActor.
+     */
+    @Test
+    public void testCancel() throws Exception {
+        Student student = new Student("Actor Student");
+        testActor.book(student);
+        assertEquals(CancellationResult.REGISTRATION_CANCELLED, testActor.cancel(student).get());
+    }
+
+    /**
+     * Test that commands are applied in submission order, well beyond the
+     * mailbox capacity.
+     */
+    @Test
+    public void testOrdering() throws Exception {
+        List<Student> students = new ArrayList<Student>();
+        List<CompletableFuture<BookingResult>> results = new ArrayList<CompletableFuture<BookingResult>>();
+        for (int i = 0; i < 100; i++) {
+            Student student = new Student("Ordered " + i);
+            students.add(student);
+            results.add(testActor.book(student));
+        }
+        testActor.cancel(students.get(0)).get();
+
+        assertEquals(BookingResult.WAIT_LISTED, results.get(99).get());
+        assertTrue(schedule.isStudentRegistered(students.get(2)));
+        Iterator<Student> waiting = schedule.getWaitListedStudents().iterator();
+        for (int i = 3; i < 100; i++) {
+            assertEquals(students.get(i), waiting.next());
+        }
+    }
+
+    /**
+     * Test that a failing command completes its future exceptionally without
+     * stopping the actor.
+     */
+    @Test
+    public void testSubmitFailure() throws Exception {
+        CompletableFuture<Object> failed = testActor.submit(s -> {
+            throw new IllegalStateException("Failed");
+        });
+        try {
+            failed.get();
+            fail("The command should have failed.");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        assertEquals(BookingResult.REGISTERED, testActor.book(new Student("After failure")).get());
+    }
+
+    /**
+     * Test that commands submitted after closing are rejected.
+     */
+    @Test
+    public void testClose1() throws Exception {
+        CompletableFuture<BookingResult> before = testActor.book(new Student("Before close"));
+        testActor.close();
+        assertTrue(before.isDone());
+        try {
+            testActor.book(new Student("After close")).get();
+            fail("The command should have been rejected.");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+    }
+
+    /**
+     * Test that closing from an interrupted thread still applies the commands
+     * already submitted and leaves the interrupt set.
+     */
+    @Test
+    public void testClose2() {
+        CompletableFuture<BookingResult> before = testActor.book(new Student("Before interrupt"));
+        Thread.currentThread().interrupt();
+        testActor.close();
+        assertTrue(Thread.interrupted());
+        assertTrue(before.isDone());
+    }
+}
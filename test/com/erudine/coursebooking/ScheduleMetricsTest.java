@@ -0,0 +1,130 @@
+package com.erudine.coursebooking;
+
+import com.erudine.coursebooking.persons.Student;
+import com.erudine.coursebooking.persons.Teacher;
+import java.util.Date;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link ScheduleMetrics} class.
+ *
+ * @author Adam Harries
+ * @version 31 July 2013
+ */
+public class ScheduleMetricsTest {
+
+    public static final Teacher TEACHER = new Teacher("Mr Harries");
+    private CourseSchedule testSchedule;
+    private ScheduleMetrics testMetrics;
+
+    @Before
+    public void setUp() {
+        testSchedule = new CourseSchedule(new Course("Counted"), 1, new Date(0), new Date(100), TEACHER);
+        testMetrics = new ScheduleMetrics(testSchedule);
+        testSchedule.setMetrics(testMetrics);
+    }
+
+    /**
+     * Test of recordBooking method, of class ScheduleMetrics.
+     */
+    @Test
+    public void testRecordBooking() {
+        Student first = new Student("First");
+        Course advanced = new Course("Advanced");
+        advanced.addPreRequisite(new Course("Basic"));
+        CourseSchedule advancedSchedule = new CourseSchedule(advanced, 1, new Date(0), new Date(100), TEACHER);
+        ScheduleMetrics advancedMetrics = new ScheduleMetrics(advancedSchedule);
+        advancedSchedule.setMetrics(advancedMetrics);
+
+        testSchedule.book(first);
+        testSchedule.book(new Student("Second"));
+        testSchedule.book(first);
+        advancedSchedule.book(first);
+        assertEquals(3, testMetrics.getBookingAttempts());
+        assertEquals(1, testMetrics.getRegistrations());
+        assertEquals(1, testMetrics.getWaitListed());
+        assertEquals(1, testMetrics.getDuplicates());
+        assertEquals(0, testMetrics.getMissingPreRequisites());
+        assertEquals(1, advancedMetrics.getMissingPreRequisites());
+        assertEquals(1, testMetrics.getRegisteredStudents());
+        assertEquals(1, testMetrics.getWaitListDepth());
+    }
+
+    /**
+     * Test of recordCancellation method, of class ScheduleMetrics, including
+     * the promotion a cancellation causes.
+     */
+    @Test
+    public void testRecordCancellation() {
+        Student first = new Student("First");
+        Student second = new Student("Second");
+        Student third = new Student("Third");
+        testSchedule.book(first);
+        testSchedule.book(second);
+        testSchedule.book(third);
+        testSchedule.cancel(first);
+        testSchedule.cancel(third);
+        testSchedule.cancel(third);
+        assertEquals(1, testMetrics.getCancellations());
+        assertEquals(1, testMetrics.getWaitListWithdrawals());
+        assertEquals(1, testMetrics.getCancellations(CancellationResult.NOT_BOOKED));
+        assertEquals(1, testMetrics.getPromotions());
+        assertEquals(0, testMetrics.getWaitListDepth());
+    }
+
+    /**
+     * Test of recordLockContention method, of class ScheduleMetrics.
+     *
+     * @throws InterruptedException If interrupted.
+     */
+    @Test
+    public void testRecordLockContention() throws InterruptedException {
+        testSchedule.book(new Student("Seated"));
+        final Thread booker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                testSchedule.book(new Student("Waiting"));
+            }
+        });
+        testSchedule.runExclusively(new Runnable() {
+            @Override
+            public void run() {
+                booker.start();
+                //Hold the lock until the booker is blocked on it
+                while (booker.getState() != Thread.State.WAITING) {
+                    Thread.yield();
+                }
+            }
+        });
+        booker.join();
+        assertEquals(1, testMetrics.getLockContentions());
+        assertEquals(1, testMetrics.getWaitListed());
+    }
+
+    /**
+     * Test of reset method, of class ScheduleMetrics.
+     */
+    @Test
+    public void testReset() {
+        Student student = new Student("Student");
+        testSchedule.book(student);
+        testSchedule.cancel(student);
+        testMetrics.reset();
+        assertEquals(0, testMetrics.getBookingAttempts());
+        assertEquals(0, testMetrics.getCancellations());
+    }
+
+    /**
+     * Test of getMetrics method, of class CourseSchedule, once metrics are
+     * disabled.
+     */
+    @Test
+    public void testDisabled() {
+        testSchedule.setMetrics(null);
+        assertNull(testSchedule.getMetrics());
+        testSchedule.book(new Student("Uncounted"));
+        assertEquals(0, testMetrics.getBookingAttempts());
+    }
+}
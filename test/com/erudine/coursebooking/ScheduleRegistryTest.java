@@ -0,0 +1,240 @@
+package com.erudine.coursebooking;
+
+import com.erudine.coursebooking.persons.Student;
+import com.erudine.coursebooking.persons.Teacher;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link ScheduleRegistry} class.
+ *
+ * @author Adam Harries
+ * @version 31 July 2013
+ */
+public class ScheduleRegistryTest {
+
+    public static final Teacher TEACHER = new Teacher("Mr Harries");
+    public static final Student STUDENT = new Student("Registry Student");
+    public static final Date AUTUMN = new Date(1000);
+    public static final Date SPRING = new Date(2000);
+    public static final Date SUMMER = new Date(3000);
+    public static final Date END = new Date(100000);
+    private Course java;
+    private Course databases;
+    private CourseSchedule javaAutumn;
+    private CourseSchedule javaSpring;
+    private CourseSchedule databasesSpring;
+    private ScheduleRegistry testRegistry;
+
+    @Before
+    public void setUp() {
+        java = new Course("Java Basics");
+        databases = new Course("Databases");
+        javaAutumn = new CourseSchedule(java, 1, AUTUMN, SPRING, TEACHER);
+        javaSpring = new CourseSchedule(java, 1, SPRING, SUMMER, TEACHER);
+        databasesSpring = new CourseSchedule(databases, 1, SPRING, SUMMER, TEACHER);
+        testRegistry = new ScheduleRegistry(4);
+        testRegistry.register(javaAutumn);
+        testRegistry.register(javaSpring);
+        testRegistry.register(databasesSpring);
+    }
+
+    /**
+     * Test of get method, of class ScheduleRegistry.
+     */
+    @Test
+    public void testGet() {
+        assertSame(javaAutumn, testRegistry.get("Java Basics", AUTUMN));
+        assertSame(javaSpring, testRegistry.get(java, new Date(SPRING.getTime())));
+        assertSame(databasesSpring, testRegistry.get(databases, SPRING));
+        assertNull(testRegistry.get(databases, AUTUMN));
+        assertNull(testRegistry.get("Compilers", SPRING));
+    }
+
+    /**
+     * Test of register method, of class ScheduleRegistry, for a key already
+     * taken.
+     */
+    @Test
+    public void testRegister1() {
+        CourseSchedule duplicate = new CourseSchedule(java, 5, AUTUMN, SPRING, TEACHER);
+        assertSame(javaAutumn, testRegistry.register(duplicate));
+        assertSame(javaAutumn, testRegistry.get(java, AUTUMN));
+        assertEquals(3, testRegistry.size());
+    }
+
+    /**
+     * Test of register method, of class ScheduleRegistry, growing the
+     * partitions well past their initial size.
+     */
+    @Test
+    public void testRegister2() {
+        List<CourseSchedule> schedules = new ArrayList<CourseSchedule>();
+        for (int i = 0; i < 20000; i++) {
+            CourseSchedule schedule = new CourseSchedule(new Course("Course " + (i % 100)), 1,
+                    new Date(10000 + i / 100), END, TEACHER);
+            schedules.add(schedule);
+            assertNull(testRegistry.register(schedule));
+        }
+        assertEquals(20003, testRegistry.size());
+        for (CourseSchedule schedule : schedules) {
+            assertSame(schedule, testRegistry.get(schedule.getCourse(), schedule.getStartDate()));
+        }
+    }
+
+    /**
+     * Test of unregister method, of class ScheduleRegistry.
+     */
+    @Test
+    public void testUnregister() {
+        assertTrue(testRegistry.unregister(javaSpring));
+        assertFalse(testRegistry.unregister(javaSpring));
+        assertNull(testRegistry.get(java, SPRING));
+        assertSame(javaAutumn, testRegistry.get(java, AUTUMN));
+        assertEquals(2, testRegistry.size());
+        assertNull(testRegistry.register(javaSpring));
+        assertSame(javaSpring, testRegistry.get(java, SPRING));
+    }
+
+    /**
+     * Test of iterator method, of class ScheduleRegistry.
+     */
+    @Test
+    public void testIterator() {
+        testRegistry.unregister(javaAutumn);
+        Set<CourseSchedule> seen = new HashSet<CourseSchedule>();
+        for (CourseSchedule schedule : testRegistry) {
+            assertTrue(seen.add(schedule));
+        }
+        assertEquals(2, seen.size());
+        assertTrue(seen.contains(javaSpring));
+        assertTrue(seen.contains(databasesSpring));
+    }
+
+    /**
+     * Test of findAll method, of class ScheduleRegistry.
+     */
+    @Test
+    public void testFindAll() {
+        List<CourseSchedule> found = testRegistry.findAll(s -> s.getCourse() == java);
+        assertEquals(2, found.size());
+        assertTrue(found.contains(javaAutumn));
+        assertTrue(found.contains(javaSpring));
+    }
+
+    /**
+     * Test of findWithFreeSeats method, of class ScheduleRegistry.
+     */
+    @Test
+    public void testFindWithFreeSeats() {
+        databasesSpring.book(STUDENT);
+        List<CourseSchedule> found = testRegistry.findWithFreeSeats(SPRING, SUMMER);
+        assertEquals(1, found.size());
+        assertSame(javaSpring, found.get(0));
+        assertTrue(testRegistry.findWithFreeSeats(SUMMER, new Date(4000)).isEmpty());
+    }
+
+    /**
+     * Test of register method, of class ScheduleRegistry, from several
+     * threads while others look schedules up.
+     */
+    @Test
+    public void testRegister3() throws InterruptedException {
+        final int threads = 4;
+        final int perThread = 5000;
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Throwable> failures = new ArrayList<Throwable>();
+        List<Thread> workers = new ArrayList<Thread>();
+        for (int t = 0; t < threads; t++) {
+            final int offset = t * perThread;
+            workers.add(new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = offset; i < offset + perThread; i++) {
+                            CourseSchedule schedule = new CourseSchedule(java, 1, new Date(10000 + i), END,
+                                    TEACHER);
+                            assertNull(testRegistry.register(schedule));
+                            assertSame(schedule, testRegistry.get(java, schedule.getStartDate()));
+                            assertSame(javaAutumn, testRegistry.get(java, AUTUMN));
+                        }
+                    } catch (Throwable e) {
+                        synchronized (failures) {
+                            failures.add(e);
+                        }
+                    }
+                }
+            });
+        }
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertTrue(failures.toString(), failures.isEmpty());
+        assertEquals(3 + threads * perThread, testRegistry.size());
+    }
+
+    /**
+     * Test of get method, of class ScheduleRegistry, while other threads
+     * register and unregister schedules: a lookup never returns a schedule
+     * under another key.
+     */
+    @Test
+    public void testGet2() throws InterruptedException {
+        final int keys = 8;
+        final long deadline = System.currentTimeMillis() + 500;
+        final List<Throwable> failures = new ArrayList<Throwable>();
+        final ScheduleRegistry registry = new ScheduleRegistry(1);
+        List<Thread> workers = new ArrayList<Thread>();
+        for (int t = 0; t < 4; t++) {
+            final boolean writer = t < 2;
+            final int offset = t;
+            workers.add(new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        int i = offset;
+                        while (System.currentTimeMillis() < deadline) {
+                            Date start = new Date(10000 + i % keys);
+                            if (writer) {
+                                CourseSchedule schedule = new CourseSchedule(java, 1, start, END, TEACHER);
+                                if (registry.register(schedule) == null) {
+                                    registry.unregister(schedule);
+                                }
+                            } else {
+                                CourseSchedule found = registry.get(java, start);
+                                if (found != null) {
+                                    assertEquals(start, found.getStartDate());
+                                }
+                            }
+                            i += 7;
+                        }
+                    } catch (Throwable e) {
+                        synchronized (failures) {
+                            failures.add(e);
+                        }
+                    }
+                }
+            });
+        }
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertTrue(failures.toString(), failures.isEmpty());
+        assertEquals(0, registry.size());
+    }
+}
@@ -0,0 +1,171 @@
+package com.erudine.coursebooking;
+
+import com.erudine.coursebooking.persons.Student;
+import com.erudine.coursebooking.persons.StudentRegistry;
+import com.erudine.coursebooking.persons.Teacher;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for the {@link ScheduleSnapshot} class.
+ *
+ * @author Adam Harries
+ * @version 31 July 2013
+ */
+public class ScheduleSnapshotTest {
+
+    public static final Teacher TEACHER = new Teacher("Mr Harries");
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    private File snapshotFile;
+    private File journalDirectory;
+    private CourseSchedule maths;
+    private CourseSchedule french;
+
+    @Before
+    public void setUp() {
+        snapshotFile = new File(folder.getRoot(), "schedules.snapshot");
+        journalDirectory = new File(folder.getRoot(), "journal");
+        maths = new CourseSchedule(new Course("Maths"), 2, new Date(0), new Date(1000), TEACHER,
+                new StudentRegistry());
+        french = new CourseSchedule(new Course("French"), 3, new Date(500), new Date(2000), TEACHER,
+                new StudentRegistry());
+    }
+
+    /**
+     * Checks that a restored schedule matches the original.
+     */
+    private static void assertSameSchedule(CourseSchedule expected, CourseSchedule actual) {
+        assertEquals(expected.getCourse(), actual.getCourse());
+        assertEquals(expected.getCourseCapacity(), actual.getCourseCapacity());
+        assertEquals(expected.getStartDate(), actual.getStartDate());
+        assertEquals(expected.getEndDate(), actual.getEndDate());
+        assertEquals(expected.getTeacher(), actual.getTeacher());
+        assertEquals(new HashSet<Student>(expected.getRegisteredStudents()),
+                new HashSet<Student>(actual.getRegisteredStudents()));
+        assertEquals(new ArrayList<Student>(expected.getWaitListedStudents()),
+                new ArrayList<Student>(actual.getWaitListedStudents()));
+    }
+
+    /**
+     * Test of write and load methods, of class ScheduleSnapshot.
+     */
+    @Test
+    public void testLoad1() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            Student student = new Student("Student " + i);
+            maths.book(student);
+            french.book(student);
+        }
+        maths.cancel(new Student("Student 3"));
+        assertEquals(-1, ScheduleSnapshot.write(snapshotFile, Arrays.asList(maths, french), null));
+
+        StudentRegistry registry = new StudentRegistry();
+        ScheduleSnapshot snapshot = ScheduleSnapshot.load(snapshotFile, registry, null);
+        List<CourseSchedule> restored = snapshot.getSchedules();
+        assertEquals(2, restored.size());
+        assertSameSchedule(maths, restored.get(0));
+        assertSameSchedule(french, restored.get(1));
+        assertSame(registry, restored.get(0).getStudentRegistry());
+        assertTrue(restored.get(1).isStudentRegistered(registry.getStudent("Student 0")));
+    }
+
+    /**
+     * Test of load method, of class ScheduleSnapshot, interning courses into a
+     * catalog.
+     */
+    @Test
+    public void testLoad2() throws Exception {
+        ScheduleSnapshot.write(snapshotFile, Arrays.asList(maths, french), null);
+        CourseCatalog catalog = new CourseCatalog();
+        ScheduleSnapshot snapshot = ScheduleSnapshot.load(snapshotFile, new StudentRegistry(), catalog);
+        assertSame(catalog.getCourse("Maths"), snapshot.getSchedules().get(0).getCourse());
+    }
+
+    /**
+     * Test of replayJournal method, of class ScheduleSnapshot: changes made
+     * after the snapshot are replayed from the journal, and those before it
+     * are not applied twice.
+     */
+    @Test
+    public void testReplayJournal() throws Exception {
+        BookingJournal journal = new BookingJournal(journalDirectory);
+        journal.attach(maths);
+        journal.attach(french);
+        for (int i = 0; i < 4; i++) {
+            maths.book(new Student("Before " + i));
+        }
+        long position = ScheduleSnapshot.write(snapshotFile, Arrays.asList(maths, french), journal);
+        assertEquals(journal.getPosition(), position);
+        maths.cancel(new Student("Before 0"));
+        maths.cancel(new Student("Before 3"));
+        maths.book(new Student("After 0"));
+        french.book(new Student("After 1"));
+        journal.close();
+
+        ScheduleSnapshot snapshot = ScheduleSnapshot.load(snapshotFile, new StudentRegistry(), null);
+        assertEquals(5, snapshot.replayJournal(journalDirectory));
+        assertSameSchedule(maths, snapshot.getSchedules().get(0));
+        assertSameSchedule(french, snapshot.getSchedules().get(1));
+    }
+
+    /**
+     * Test of write method, of class ScheduleSnapshot, replacing an earlier
+     * snapshot.
+     */
+    @Test
+    public void testWrite() throws Exception {
+        ScheduleSnapshot.write(snapshotFile, Arrays.asList(maths, french), null);
+        maths.book(new Student("Late Student"));
+        ScheduleSnapshot.write(snapshotFile, Arrays.asList(maths), null);
+
+        ScheduleSnapshot snapshot = ScheduleSnapshot.load(snapshotFile, new StudentRegistry(), null);
+        assertEquals(1, snapshot.getSchedules().size());
+        assertSameSchedule(maths, snapshot.getSchedules().get(0));
+        assertFalse(new File(snapshotFile.getPath() + ".tmp").exists());
+    }
+
+    /**
+     * Test of encode and decode methods, of class ScheduleSnapshot.
+     */
+    @Test
+    public void testDecode1() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            maths.book(new Student("Student " + i));
+        }
+        byte[] bytes = ScheduleSnapshot.encode(Arrays.asList(maths, french));
+        ScheduleSnapshot snapshot = ScheduleSnapshot.decode(bytes, new StudentRegistry(), null);
+        assertEquals(2, snapshot.getSchedules().size());
+        assertSameSchedule(maths, snapshot.getSchedules().get(0));
+        assertSameSchedule(french, snapshot.getSchedules().get(1));
+    }
+
+    /**
+     * Test of decode method, of class ScheduleSnapshot, for a truncated
+     * snapshot.
+     */
+    @Test(expected = IOException.class)
+    public void testDecode2() throws Exception {
+        byte[] bytes = ScheduleSnapshot.encode(Arrays.asList(maths));
+        ScheduleSnapshot.decode(Arrays.copyOf(bytes, bytes.length - 1), new StudentRegistry(), null);
+    }
+
+    /**
+     * Test of decode method, of class ScheduleSnapshot, for bytes which are
+     * not a snapshot.
+     */
+    @Test(expected = IOException.class)
+    public void testDecode3() throws Exception {
+        ScheduleSnapshot.decode(new byte[4], new StudentRegistry(), null);
+    }
+}
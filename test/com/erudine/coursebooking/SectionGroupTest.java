@@ -0,0 +1,212 @@
+package com.erudine.coursebooking;
+
+import com.erudine.coursebooking.persons.Student;
+import com.erudine.coursebooking.persons.Teacher;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link SectionGroup} class.
+ *
+ * @author Adam Harries
+ * @version 31 July 2013
+ */
+public class SectionGroupTest {
+
+    public static final Teacher TEACHER = new Teacher("Mr Harries");
+    public static final Student STUDENT1 = new Student("Section Student 1");
+    public static final Student STUDENT2 = new Student("Section Student 2");
+    public static final Student STUDENT3 = new Student("Section Student 3");
+    public static final Student STUDENT4 = new Student("Section Student 4");
+    private Course course;
+    private CourseSchedule morning;
+    private CourseSchedule afternoon;
+    private SectionGroup testGroup;
+
+    @Before
+    public void setUp() {
+        course = new Course("Java Data Structures");
+        morning = new CourseSchedule(course, 1, new Date(0), new Date(100), TEACHER);
+        afternoon = new CourseSchedule(course, 1, new Date(0), new Date(100), TEACHER);
+        testGroup = new SectionGroup(course);
+        testGroup.addSection(morning);
+        testGroup.addSection(afternoon);
+    }
+
+    /**
+     * Test of book method, of class SectionGroup.
+     */
+    @Test
+    public void testBook1() {
+        assertEquals(BookingResult.REGISTERED, testGroup.book(STUDENT1));
+        assertEquals(BookingResult.REGISTERED, testGroup.book(STUDENT2));
+        assertEquals(BookingResult.WAIT_LISTED, testGroup.book(STUDENT3));
+        assertNotSame(testGroup.getSection(STUDENT1), testGroup.getSection(STUDENT2));
+        assertTrue(testGroup.isStudentOnWaitingList(STUDENT3));
+        //The sections keep no waiting list of their own
+        assertTrue(morning.getWaitListedStudents().isEmpty());
+        assertTrue(afternoon.getWaitListedStudents().isEmpty());
+    }
+
+    /**
+     * Test of book method, of class SectionGroup, for a student already booked.
+     */
+    @Test
+    public void testBook2() {
+        testGroup.book(STUDENT1);
+        testGroup.book(STUDENT2);
+        testGroup.book(STUDENT3);
+        assertEquals(BookingResult.ALREADY_BOOKED, testGroup.book(STUDENT1));
+        assertEquals(BookingResult.ALREADY_BOOKED, testGroup.book(STUDENT3));
+    }
+
+    /**
+     * Test of book method, of class SectionGroup, for an ineligible student.
+     */
+    @Test
+    public void testBook3() {
+        course.addPreRequisite(new Course("Java Basics"));
+        assertEquals(BookingResult.MISSING_PREREQUISITES, testGroup.book(STUDENT1));
+        assertNull(testGroup.getSection(STUDENT1));
+    }
+
+    /**
+     * Test of book method, of class SectionGroup, for a student who clashes
+     * with the only section that still has a seat.
+     */
+    @Test
+    public void testBook4() {
+        ClashDetector detector = new ClashDetector();
+        morning.setClashDetector(detector);
+        CourseSchedule french = new CourseSchedule(new Course("French"), 1, new Date(0), new Date(100), TEACHER);
+        french.setClashDetector(detector);
+        assertEquals(BookingResult.REGISTERED, french.book(STUDENT1));
+        assertEquals(BookingResult.REGISTERED, afternoon.book(STUDENT2));
+        assertEquals(BookingResult.WAIT_LISTED, testGroup.book(STUDENT1));
+        assertTrue(testGroup.isStudentOnWaitingList(STUDENT1));
+        assertEquals(1, morning.getNumberOfFreeSeats());
+    }
+
+    /**
+     * Test of cancel method, of class SectionGroup, feeding the freed section
+     * from the shared waiting list.
+     */
+    @Test
+    public void testCancel1() {
+        testGroup.book(STUDENT1);
+        testGroup.book(STUDENT2);
+        testGroup.book(STUDENT3);
+        testGroup.book(STUDENT4);
+        CourseSchedule freed = testGroup.getSection(STUDENT2);
+        assertEquals(CancellationResult.REGISTRATION_CANCELLED, testGroup.cancel(STUDENT2));
+        assertSame(freed, testGroup.getSection(STUDENT3));
+        assertEquals(Arrays.asList(STUDENT4), testGroup.getWaitListedStudents());
+    }
+
+    /**
+     * Test of cancel method, of class SectionGroup, leaving the waiting list.
+     */
+    @Test
+    public void testCancel2() {
+        testGroup.book(STUDENT1);
+        testGroup.book(STUDENT2);
+        testGroup.book(STUDENT3);
+        assertEquals(CancellationResult.LEFT_WAITING_LIST, testGroup.cancel(STUDENT3));
+        assertEquals(CancellationResult.NOT_BOOKED, testGroup.cancel(STUDENT3));
+        assertEquals(BookingResult.WAIT_LISTED, testGroup.book(STUDENT3));
+    }
+
+    /**
+     * Test of addSection method, of class SectionGroup.
+     */
+    @Test
+    public void testAddSection1() {
+        testGroup.book(STUDENT1);
+        testGroup.book(STUDENT2);
+        testGroup.book(STUDENT3);
+        CourseSchedule evening = new CourseSchedule(course, 5, new Date(0), new Date(100), TEACHER);
+        testGroup.addSection(evening);
+        assertSame(evening, testGroup.getSection(STUDENT3));
+        assertEquals(3, testGroup.getSections().size());
+    }
+
+    /**
+     * Test of addSection method, of class SectionGroup, with a schedule of
+     * another course.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddSection2() {
+        testGroup.addSection(new CourseSchedule(new Course("French"), 1, new Date(0), new Date(100), TEACHER));
+    }
+
+    /**
+     * Test of promoteWaitingStudents method, of class SectionGroup, after a
+     * section's capacity is raised.
+     */
+    @Test
+    public void testPromoteWaitingStudents() {
+        testGroup.book(STUDENT1);
+        testGroup.book(STUDENT2);
+        testGroup.book(STUDENT3);
+        testGroup.book(STUDENT4);
+        morning.setCourseCapacity(3, CapacityOverflowRule.REJECT);
+        assertEquals(2, testGroup.promoteWaitingStudents());
+        assertSame(morning, testGroup.getSection(STUDENT4));
+    }
+
+    /**
+     * Test that concurrent bookings fill every section without booking anyone
+     * twice.
+     */
+    @Test
+    public void testConcurrentBook() throws InterruptedException {
+        final SectionGroup group = new SectionGroup(course);
+        final List<CourseSchedule> sections = new ArrayList<CourseSchedule>();
+        for (int i = 0; i < 4; i++) {
+            CourseSchedule section = new CourseSchedule(course, 50, new Date(0), new Date(100), TEACHER);
+            sections.add(section);
+            group.addSection(section);
+        }
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] bookers = new Thread[4];
+        for (int t = 0; t < bookers.length; t++) {
+            final int offset = t * 100;
+            bookers[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < 100; i++) {
+                        Student student = new Student("Routed " + (offset + i));
+                        group.book(student);
+                        group.book(student);
+                        if (i % 4 == 0) {
+                            group.cancel(student);
+                        }
+                    }
+                }
+            });
+            bookers[t].start();
+        }
+        start.countDown();
+        for (Thread booker : bookers) {
+            booker.join();
+        }
+        int registered = 0;
+        for (CourseSchedule section : sections) {
+            assertEquals(50, section.getNumberOfRegisteredStudents());
+            registered += section.getNumberOfRegisteredStudents();
+        }
+        assertEquals(200, registered);
+        assertEquals(100, group.getWaitListedStudents().size());
+    }
+}
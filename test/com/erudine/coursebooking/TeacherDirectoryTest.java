@@ -0,0 +1,92 @@
+package com.erudine.coursebooking;
+
+import com.erudine.coursebooking.persons.Teacher;
+import java.util.Arrays;
+import java.util.Date;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link TeacherDirectory} class.
+ *
+ * @author Adam Harries
+ * @version 31 July 2013
+ */
+public class TeacherDirectoryTest {
+
+    public static final Course MATHS = new Course("Maths");
+    public static final Course FRENCH = new Course("French");
+    private TeacherDirectory testDirectory;
+    private Teacher teacher;
+
+    @Before
+    public void setUp() {
+        testDirectory = new TeacherDirectory();
+        teacher = testDirectory.intern("Mr Harries");
+    }
+
+    /**
+     * Test of intern method, of class TeacherDirectory.
+     */
+    @Test
+    public void testIntern() {
+        assertSame(teacher, testDirectory.intern("Mr Harries"));
+        assertSame(teacher, testDirectory.intern(new Teacher("Mr Harries")));
+        assertSame(teacher, testDirectory.getTeacher("Mr Harries"));
+        assertNull(testDirectory.getTeacher("Mrs Smith"));
+        assertEquals(1, testDirectory.getTeachers().size());
+    }
+
+    /**
+     * Test of createSchedule method, of class TeacherDirectory.
+     */
+    @Test
+    public void testCreateSchedule1() {
+        CourseSchedule maths = testDirectory.createSchedule(MATHS, 10, new Date(0), new Date(100),
+                new Teacher("Mr Harries"));
+        assertSame(teacher, maths.getTeacher());
+        CourseSchedule french = testDirectory.createSchedule(FRENCH, 10, new Date(100), new Date(200), teacher);
+        assertEquals(Arrays.asList(maths, french), testDirectory.getSchedules(teacher));
+    }
+
+    /**
+     * Test of createSchedule method, of class TeacherDirectory, with
+     * overlapping dates.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testCreateSchedule2() {
+        testDirectory.createSchedule(MATHS, 10, new Date(0), new Date(100), teacher);
+        testDirectory.createSchedule(FRENCH, 10, new Date(50), new Date(150), teacher);
+    }
+
+    /**
+     * Test of unassign method, of class TeacherDirectory.
+     */
+    @Test
+    public void testUnassign() {
+        CourseSchedule maths = testDirectory.createSchedule(MATHS, 10, new Date(0), new Date(100), teacher);
+        assertSame(maths, testDirectory.findClash(teacher, new Date(50), new Date(150)));
+        assertTrue(testDirectory.unassign(maths));
+        assertFalse(testDirectory.unassign(maths));
+        assertNull(testDirectory.findClash(teacher, new Date(50), new Date(150)));
+        testDirectory.createSchedule(FRENCH, 10, new Date(50), new Date(150), teacher);
+    }
+
+    /**
+     * Test of getSchedules method, of class TeacherDirectory, over a date
+     * range.
+     */
+    @Test
+    public void testGetSchedules() {
+        CourseSchedule[] terms = new CourseSchedule[6];
+        for (int i = 0; i < terms.length; i++) {
+            terms[i] = testDirectory.createSchedule(new Course("Term " + i), 10,
+                    new Date(i * 100L), new Date(i * 100L + 90), teacher);
+        }
+        assertEquals(Arrays.asList(terms[1], terms[2], terms[3]),
+                testDirectory.getSchedules(teacher, new Date(150), new Date(350)));
+        assertTrue(testDirectory.getSchedules(teacher, new Date(95), new Date(100)).isEmpty());
+        assertTrue(testDirectory.getSchedules(new Teacher("Mrs Smith"), new Date(0), new Date(1000)).isEmpty());
+    }
+}
@@ -0,0 +1,395 @@
+package com.erudine.coursebooking.cluster;
+
+import com.erudine.coursebooking.BookingResult;
+import com.erudine.coursebooking.CancellationResult;
+import com.erudine.coursebooking.Course;
+import com.erudine.coursebooking.CourseCatalog;
+import com.erudine.coursebooking.CourseSchedule;
+import com.erudine.coursebooking.persons.Student;
+import com.erudine.coursebooking.persons.StudentRegistry;
+import com.erudine.coursebooking.persons.Teacher;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link ClusterNode} class, running a cluster over a
+ * {@link LoopbackTransport}.
+ *
+ * @author Adam Harries
+ * @version 31 July 2013
+ */
+public class ClusterNodeTest {
+
+    public static final Teacher TEACHER = new Teacher("Mr Harries");
+    public static final Date START = new Date(1000);
+    public static final Date END = new Date(2000);
+    public static final int COURSES = 60;
+    private FaultyTransport transport;
+    private List<ClusterNode> nodes;
+
+    @Before
+    public void setUp() throws IOException {
+        transport = new FaultyTransport();
+        nodes = new ArrayList<ClusterNode>();
+        HashRing ring = new HashRing(Arrays.asList("a", "b", "c"), 16);
+        for (String id : ring.getNodes()) {
+            nodes.add(new ClusterNode(id, ring, transport, new StudentRegistry(), newCatalog()));
+        }
+        for (int i = 0; i < COURSES; i++) {
+            nodes.get(i % 3).addSchedule(new CourseSchedule(new Course("Course " + i), 2, START, END, TEACHER));
+        }
+    }
+
+    /**
+     * Builds a node's catalog, in which Advanced requires Basics.
+     */
+    private static CourseCatalog newCatalog() {
+        CourseCatalog catalog = new CourseCatalog();
+        catalog.intern("Advanced").addPreRequisite(catalog.intern("Basics"));
+        return catalog;
+    }
+
+    /**
+     * Returns the number of nodes holding the schedule of a course, checking
+     * that the holder is its owner.
+     */
+    private int holders(String courseName) {
+        int holders = 0;
+        for (ClusterNode node : nodes) {
+            if (node.getSchedules().get(courseName, START) != null) {
+                assertEquals(node.getNodeId(), node.getRing().ownerOf(courseName, START));
+                holders++;
+            }
+        }
+        return holders;
+    }
+
+    /**
+     * Returns the number of schedules held across the cluster.
+     */
+    private int held() {
+        int held = 0;
+        for (ClusterNode node : nodes) {
+            held += node.getSchedules().size();
+        }
+        return held;
+    }
+
+    /**
+     * Adds node d to every node's ring, without rebalancing.
+     */
+    private ClusterNode join() throws IOException {
+        HashRing joined = nodes.get(0).getRing().withNode("d");
+        ClusterNode newcomer = new ClusterNode("d", joined, transport, new StudentRegistry(), newCatalog());
+        nodes.add(newcomer);
+        for (ClusterNode node : nodes) {
+            node.setRing(joined);
+        }
+        return newcomer;
+    }
+
+    /**
+     * Changes every node's ring and rebalances them all.
+     */
+    private void changeRing(HashRing ring) throws IOException {
+        for (ClusterNode node : nodes) {
+            node.setRing(ring);
+        }
+        for (ClusterNode node : nodes) {
+            node.rebalance();
+        }
+    }
+
+    /**
+     * Test of addSchedule method, of class ClusterNode: each schedule is held
+     * by its owner alone.
+     */
+    @Test
+    public void testAddSchedule1() {
+        int held = 0;
+        for (ClusterNode node : nodes) {
+            assertTrue(node.getSchedules().size() > 0);
+            held += node.getSchedules().size();
+        }
+        assertEquals(COURSES, held);
+        for (int i = 0; i < COURSES; i++) {
+            assertEquals(1, holders("Course " + i));
+        }
+    }
+
+    /**
+     * Test of addSchedule method, of class ClusterNode, for a schedule the
+     * cluster already holds.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddSchedule2() throws IOException {
+        nodes.get(1).addSchedule(new CourseSchedule(new Course("Course 0"), 5, START, END, TEACHER));
+    }
+
+    /**
+     * Test of book and cancel methods, of class ClusterNode, from every node.
+     */
+    @Test
+    public void testBook1() throws IOException {
+        Student first = new Student("First");
+        Student second = new Student("Second");
+        Student third = new Student("Third");
+        for (int i = 0; i < COURSES; i++) {
+            String course = "Course " + i;
+            assertEquals(BookingResult.REGISTERED, nodes.get(0).book(course, START, first));
+            assertEquals(BookingResult.REGISTERED, nodes.get(1).book(course, START, second));
+            assertEquals(BookingResult.WAIT_LISTED, nodes.get(2).book(course, START, third));
+            assertEquals(BookingResult.ALREADY_BOOKED, nodes.get(1).book(course, START, first));
+            assertEquals(CancellationResult.REGISTRATION_CANCELLED, nodes.get(2).cancel(course, START, first));
+            assertEquals(CancellationResult.NOT_BOOKED, nodes.get(0).cancel(course, START, first));
+        }
+        for (ClusterNode node : nodes) {
+            for (CourseSchedule schedule : node.getSchedules()) {
+                assertEquals(2, schedule.getNumberOfRegisteredStudents());
+                assertEquals(0, schedule.getNumberOfWaitListedStudents());
+            }
+        }
+    }
+
+    /**
+     * Test of book method, of class ClusterNode, checking prerequisites
+     * against the transcript sent with a forwarded request.
+     */
+    @Test
+    public void testBook2() throws IOException {
+        Course advanced = newCatalog().getCourse("Advanced");
+        nodes.get(0).addSchedule(new CourseSchedule(advanced, 5, START, END, TEACHER));
+        Student novice = new Student("Novice");
+        Student graduate = new Student("Graduate", Collections.singletonList(new Course("Basics")));
+        for (ClusterNode node : nodes) {
+            if (node.getSchedules().get("Advanced", START) == null) {
+                assertEquals(BookingResult.MISSING_PREREQUISITES, node.book("Advanced", START, novice));
+                assertEquals(BookingResult.REGISTERED, node.book("Advanced", START, graduate));
+                return;
+            }
+        }
+        fail("Every node holds the schedule.");
+    }
+
+    /**
+     * Test of book method, of class ClusterNode, for a schedule the cluster
+     * does not hold.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testBook3() throws IOException {
+        nodes.get(0).book("Unknown", START, new Student("Lost"));
+    }
+
+    /**
+     * Test of rebalance method, of class ClusterNode, as a node joins: the
+     * rosters move with the schedules, and each schedule keeps one holder.
+     */
+    @Test
+    public void testRebalance1() throws IOException {
+        for (int i = 0; i < COURSES; i++) {
+            nodes.get(0).book("Course " + i, START, new Student("Early " + i));
+        }
+        HashRing joined = nodes.get(0).getRing().withNode("d");
+        nodes.add(new ClusterNode("d", joined, transport, new StudentRegistry(), newCatalog()));
+        changeRing(joined);
+        assertTrue(nodes.get(3).getSchedules().size() > 0);
+        for (int i = 0; i < COURSES; i++) {
+            assertEquals(1, holders("Course " + i));
+            assertEquals(BookingResult.ALREADY_BOOKED, nodes.get(i % 4).book("Course " + i, START,
+                    new Student("Early " + i)));
+        }
+    }
+
+    /**
+     * Test of book method, of class ClusterNode, between a change of ring and
+     * the rebalance: a new owner forwards to the previous one.
+     */
+    @Test
+    public void testRebalance2() throws IOException {
+        HashRing ring = nodes.get(0).getRing();
+        HashRing joined = ring.withNode("d");
+        ClusterNode newcomer = new ClusterNode("d", ring, transport, new StudentRegistry(), newCatalog());
+        nodes.add(newcomer);
+        for (ClusterNode node : nodes) {
+            node.setRing(joined);
+        }
+        for (int i = 0; i < COURSES; i++) {
+            assertEquals(BookingResult.REGISTERED, newcomer.book("Course " + i, START, new Student("Mid " + i)));
+        }
+        for (ClusterNode node : nodes) {
+            node.rebalance();
+        }
+        for (int i = 0; i < COURSES; i++) {
+            assertEquals(1, holders("Course " + i));
+            assertEquals(BookingResult.ALREADY_BOOKED, newcomer.book("Course " + i, START,
+                    new Student("Mid " + i)));
+        }
+    }
+
+    /**
+     * Test of rebalance method, of class ClusterNode, moving a schedule with
+     * prerequisites: the students arrive with their transcripts, and a
+     * booking forwarded afterwards is checked against the transcript sent.
+     */
+    @Test
+    public void testRebalance3() throws IOException {
+        Course advanced = newCatalog().getCourse("Advanced");
+        nodes.get(0).addSchedule(new CourseSchedule(advanced, 5, START, END, TEACHER));
+        Student graduate = new Student("Graduate", Collections.singletonList(newCatalog().getCourse("Basics")));
+        assertEquals(BookingResult.REGISTERED, nodes.get(0).book("Advanced", START, graduate));
+        ClusterNode holder = null;
+        for (ClusterNode node : nodes) {
+            if (node.getSchedules().get("Advanced", START) != null) {
+                holder = node;
+            }
+        }
+        HashRing left = holder.getRing().withoutNode(holder.getNodeId());
+        nodes.remove(holder);
+        for (ClusterNode node : nodes) {
+            node.setRing(left);
+        }
+        holder.leave();
+        assertEquals(1, holders("Advanced"));
+
+        for (ClusterNode node : nodes) {
+            assertEquals(CancellationResult.REGISTRATION_CANCELLED, node.cancel("Advanced", START, graduate));
+            assertEquals(BookingResult.REGISTERED, node.book("Advanced", START, graduate));
+            assertEquals(BookingResult.MISSING_PREREQUISITES, node.book("Advanced", START,
+                    new Student("Novice " + node.getNodeId())));
+        }
+    }
+
+    /**
+     * Test of leave method, of class ClusterNode.
+     */
+    @Test
+    public void testLeave() throws IOException {
+        ClusterNode leaving = nodes.get(1);
+        int held = leaving.getSchedules().size();
+        HashRing left = leaving.getRing().withoutNode(leaving.getNodeId());
+        for (ClusterNode node : nodes) {
+            if (node != leaving) {
+                node.setRing(left);
+            }
+        }
+        assertEquals(held, leaving.leave());
+        nodes.remove(leaving);
+        assertEquals(0, leaving.getSchedules().size());
+        for (int i = 0; i < COURSES; i++) {
+            assertEquals(1, holders("Course " + i));
+        }
+        try {
+            transport.send(leaving.getNodeId(), new byte[]{1});
+            fail("A node which has left should not be reachable.");
+        } catch (IOException e) {
+            //Expected
+        }
+    }
+
+    /**
+     * Test of rebalance method, of class ClusterNode, when a handover arrives
+     * but its response is lost: the schedules are not taken back.
+     */
+    @Test
+    public void testRebalance4() throws IOException {
+        ClusterNode newcomer = join();
+        transport.failures = 1;
+        transport.responseLost = true;
+        int moved = nodes.get(0).rebalance();
+        assertEquals(moved, newcomer.getSchedules().size());
+        assertTrue(moved > 0);
+        assertEquals(COURSES, held());
+        for (ClusterNode node : nodes) {
+            node.rebalance();
+        }
+        for (int i = 0; i < COURSES; i++) {
+            assertEquals(1, holders("Course " + i));
+        }
+    }
+
+    /**
+     * Test of rebalance method, of class ClusterNode, when a handover is lost
+     * before it arrives: the schedules are recalled and taken back.
+     */
+    @Test
+    public void testRebalance5() throws IOException {
+        ClusterNode newcomer = join();
+        int before = nodes.get(0).getSchedules().size();
+        transport.failures = 1;
+        try {
+            nodes.get(0).rebalance();
+            fail("The handover should have failed.");
+        } catch (IOException e) {
+            //Expected
+        }
+        assertEquals(before, nodes.get(0).getSchedules().size());
+        assertEquals(0, newcomer.getSchedules().size());
+        for (ClusterNode node : nodes) {
+            node.rebalance();
+        }
+        for (int i = 0; i < COURSES; i++) {
+            assertEquals(1, holders("Course " + i));
+        }
+    }
+
+    /**
+     * Test of rebalance method, of class ClusterNode, when the new owner
+     * cannot be reached at all: the schedules stay fenced until a later
+     * rebalance settles the handover.
+     */
+    @Test
+    public void testRebalance6() throws IOException {
+        ClusterNode newcomer = join();
+        transport.failures = 2;
+        try {
+            nodes.get(0).rebalance();
+            fail("The handover should have failed.");
+        } catch (IOException e) {
+            //Expected
+        }
+        assertEquals(0, newcomer.getSchedules().size());
+        assertTrue(held() < COURSES);
+        for (ClusterNode node : nodes) {
+            node.rebalance();
+        }
+        assertEquals(COURSES, held());
+        for (int i = 0; i < COURSES; i++) {
+            assertEquals(1, holders("Course " + i));
+        }
+    }
+
+    /**
+     * Loopback transport failing a given number of sends, either before or
+     * after delivering them.
+     */
+    private static final class FaultyTransport extends LoopbackTransport {
+
+        /**
+         * The number of sends still to fail.
+         */
+        int failures;
+        /**
+         * Whether a failing send is delivered and only its response lost.
+         */
+        boolean responseLost;
+
+        @Override
+        public byte[] send(String nodeId, byte[] request) throws IOException {
+            if (failures == 0) {
+                return super.send(nodeId, request);
+            }
+            failures--;
+            if (responseLost) {
+                super.send(nodeId, request);
+            }
+            throw new IOException("Connection to " + nodeId + " lost.");
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.erudine.coursebooking.cluster;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link HashRing} class.
+ *
+ * @author Adam Harries
+ * @version 31 July 2013
+ */
+public class HashRingTest {
+
+    public static final int KEYS = 10000;
+    private HashRing testRing;
+
+    @Before
+    public void setUp() {
+        testRing = new HashRing(Arrays.asList("a", "b", "c"));
+    }
+
+    /**
+     * Test of ownerOf method, of class HashRing: every node owns a fair share
+     * of the keys, and rings built alike agree.
+     */
+    @Test
+    public void testOwnerOf1() {
+        HashRing same = new HashRing(Arrays.asList("c", "a", "b"));
+        Map<String, Integer> counts = new HashMap<String, Integer>();
+        for (int i = 0; i < KEYS; i++) {
+            Date start = new Date(i % 10 * 1000L);
+            String owner = testRing.ownerOf("Course " + i / 10, start);
+            assertEquals(owner, same.ownerOf("Course " + i / 10, start));
+            Integer count = counts.get(owner);
+            counts.put(owner, count == null ? 1 : count + 1);
+        }
+        assertEquals(3, counts.size());
+        for (int count : counts.values()) {
+            assertTrue(counts.toString(), count > KEYS / 5 && count < KEYS / 2);
+        }
+    }
+
+    /**
+     * Test of ownerOf method, of class HashRing, for an empty ring.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testOwnerOf2() {
+        new HashRing(Arrays.<String>asList()).ownerOf("Course", new Date(0));
+    }
+
+    /**
+     * Test of withNode method, of class HashRing: only keys moving to the new
+     * node change owner.
+     */
+    @Test
+    public void testWithNode() {
+        HashRing joined = testRing.withNode("d");
+        assertEquals(4, joined.getNodes().size());
+        assertSame(joined, joined.withNode("d"));
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            String before = testRing.ownerOf("Course " + i, new Date(0));
+            String after = joined.ownerOf("Course " + i, new Date(0));
+            if (!before.equals(after)) {
+                assertEquals("d", after);
+                moved++;
+            }
+        }
+        assertTrue(moved > KEYS / 8 && moved < KEYS / 2);
+    }
+
+    /**
+     * Test of withoutNode method, of class HashRing: only keys of the node
+     * leaving change owner.
+     */
+    @Test
+    public void testWithoutNode() {
+        HashRing left = testRing.withoutNode("b");
+        assertEquals(2, left.getNodes().size());
+        assertSame(left, left.withoutNode("b"));
+        for (int i = 0; i < KEYS; i++) {
+            String before = testRing.ownerOf("Course " + i, new Date(0));
+            String after = left.ownerOf("Course " + i, new Date(0));
+            if (!before.equals("b")) {
+                assertEquals(before, after);
+            }
+        }
+    }
+}
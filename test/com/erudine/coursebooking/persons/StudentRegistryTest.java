@@ -0,0 +1,92 @@
+package com.erudine.coursebooking.persons;
+
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link StudentRegistry} class.
+ *
+ * @author Adam Harries
+ * @version 31 July 2013
+ */
+public class StudentRegistryTest {
+
+    private StudentRegistry testRegistry;
+
+    @Before
+    public void setUp() {
+        testRegistry = new StudentRegistry();
+    }
+
+    /**
+     * Test that ids are dense and handed out in order of registration.
+     */
+    @Test
+    public void testIntern1() {
+        assertEquals(0, testRegistry.intern(new Student("Student 1")));
+        assertEquals(1, testRegistry.intern(new Student("Student 2")));
+        assertEquals(2, testRegistry.size());
+    }
+
+    /**
+     * Test that equal students share an id.
+     */
+    @Test
+    public void testIntern2() {
+        Student student = new Student("Student 1");
+        int id = testRegistry.intern(student);
+        assertEquals(id, testRegistry.intern(student));
+        assertEquals(id, testRegistry.intern(new Student("Student 1")));
+        assertEquals(1, testRegistry.size());
+    }
+
+    /**
+     * Test that a student can be interned by more than one registry.
+     */
+    @Test
+    public void testIntern3() {
+        StudentRegistry otherRegistry = new StudentRegistry();
+        otherRegistry.intern(new Student("Someone else"));
+        Student student = new Student("Student 1");
+        assertEquals(1, otherRegistry.intern(student));
+        assertEquals(0, testRegistry.intern(student));
+        assertEquals(1, otherRegistry.idOf(student));
+    }
+
+    /**
+     * Test that the registry grows beyond its initial size.
+     */
+    @Test
+    public void testIntern4() {
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, testRegistry.intern(new Student("Student " + i)));
+        }
+        assertEquals(new Student("Student 999"), testRegistry.getStudent(999));
+    }
+
+    /**
+     * Test of idOf method, of class StudentRegistry.
+     */
+    @Test
+    public void testIdOf() {
+        assertEquals(-1, testRegistry.idOf(new Student("Student 1")));
+    }
+
+    /**
+     * Test of getStudent method, of class StudentRegistry.
+     */
+    @Test
+    public void testGetStudent1() {
+        Student student = new Student("Student 1");
+        assertSame(student, testRegistry.getStudent(testRegistry.intern(student)));
+    }
+
+    /**
+     * Test of getStudent method, of class StudentRegistry.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testGetStudent2() {
+        testRegistry.getStudent(0);
+    }
+}
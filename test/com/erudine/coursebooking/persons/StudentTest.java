@@ -1,6 +1,8 @@
 package com.erudine.coursebooking.persons;
 
 import com.erudine.coursebooking.Course;
+import com.erudine.coursebooking.CourseCatalog;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
@@ -100,10 +102,19 @@ public class StudentTest {
      * Test of getCoursesTaken method, of class Student.
      */
     @Test
-    public void testGetCoursesTaken() {
+    public void testGetCoursesTaken1() {
         assertEquals(testStudent.getCoursesTaken(), coursesTaken);
     }
 
+    /**
+     * Test of getCoursesTaken method, of class Student: the set cannot be
+     * changed behind the student's back.
+     */
+    @Test(expected = UnsupportedOperationException.class)
+    public void testGetCoursesTaken2() {
+        testStudent.getCoursesTaken().add(HISTORY);
+    }
+
     /**
      * Test of equals method, of class Student.
      */
@@ -146,4 +157,71 @@ public class StudentTest {
         Student sameStudent = new Student(ADAM_HARRIES);
         assertTrue(testStudent.equals(sameStudent));
     }
+
+    /**
+     * Test of hashCode method, of class Student.
+     */
+    @Test
+    public void testHashCode1() {
+        Student sameStudent = new Student(ADAM_HARRIES);
+        assertEquals(testStudent.hashCode(), sameStudent.hashCode());
+    }
+
+    /**
+     * Test that the hash code does not change as courses are taken.
+     */
+    @Test
+    public void testHashCode2() {
+        int hash = testStudent.hashCode();
+        testStudent.addCourseTaken(HISTORY);
+        assertEquals(hash, testStudent.hashCode());
+    }
+
+    /**
+     * Test of hasTakenPreRequisites method, of class Student, for courses
+     * outside any catalog.
+     */
+    @Test
+    public void testHasTakenPreRequisites1() {
+        Course course = new Course("Advanced", coursesTaken);
+        assertTrue(testStudent.hasTakenPreRequisites(course));
+        course.addPreRequisite(HISTORY);
+        assertFalse(testStudent.hasTakenPreRequisites(course));
+    }
+
+    /**
+     * Test of hasTakenPreRequisites method, of class Student, for courses in
+     * a published catalog.
+     */
+    @Test
+    public void testHasTakenPreRequisites2() {
+        CourseCatalog catalog = new CourseCatalog();
+        Course algebra = catalog.intern("Algebra");
+        Course geometry = catalog.intern("Geometry");
+        Course calculus = catalog.intern(new Course("Calculus", Arrays.asList(algebra, geometry)));
+        catalog.publish();
+
+        Student student = new Student("Catalog Student");
+        student.addCourseTaken(algebra);
+        assertFalse(student.hasTakenPreRequisites(calculus));
+        student.addCourseTaken(geometry);
+        assertTrue(student.hasTakenPreRequisites(calculus));
+        assertEquals(2, student.getCoursesTakenBits().cardinality());
+    }
+
+    /**
+     * Test that a student whose record holds a course from outside the
+     * catalog is still checked correctly.
+     */
+    @Test
+    public void testHasTakenPreRequisites3() {
+        CourseCatalog catalog = new CourseCatalog();
+        Course algebra = catalog.intern("Algebra");
+        Course calculus = catalog.intern(new Course("Calculus", Arrays.asList(algebra)));
+        catalog.publish();
+
+        Student student = new Student("Uncatalogued Student");
+        student.addCourseTaken(new Course("Algebra"));
+        assertTrue(student.hasTakenPreRequisites(calculus));
+    }
 }
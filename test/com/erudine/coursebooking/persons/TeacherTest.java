@@ -70,4 +70,20 @@ public class TeacherTest {
         Teacher sameTeacher = new Teacher(MR_HARRIES);
         assertTrue(testTeacher.equals(sameTeacher));
     }
+
+    /**
+     * Test of hashCode method, of class Teacher.
+     */
+    @Test
+    public void testHashCode1() {
+        assertEquals(testTeacher.hashCode(), new Teacher(MR_HARRIES).hashCode());
+    }
+
+    /**
+     * Test that teachers with different names do not all share one hash code.
+     */
+    @Test
+    public void testHashCode2() {
+        assertTrue(testTeacher.hashCode() != new Teacher("Mrs Smith").hashCode());
+    }
 }
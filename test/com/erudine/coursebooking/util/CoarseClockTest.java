@@ -0,0 +1,56 @@
+package com.erudine.coursebooking.util;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link CoarseClock} class.
+ *
+ * @author Adam Harries
+ * @version 31 July 2013
+ */
+public class CoarseClockTest {
+
+    /**
+     * Test of millis method, of class CoarseClock.
+     */
+    @Test
+    public void testMillis() throws InterruptedException {
+        CoarseClock clock = new CoarseClock(1);
+        try {
+            long first = clock.millis();
+            assertTrue(Math.abs(System.currentTimeMillis() - first) < 1000);
+            long deadline = System.currentTimeMillis() + 5000;
+            while (clock.millis() == first && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            assertTrue(clock.millis() > first);
+        } finally {
+            clock.close();
+        }
+    }
+
+    /**
+     * Test of close method, of class CoarseClock, on the shared clock: it
+     * keeps ticking.
+     */
+    @Test
+    public void testClose() throws InterruptedException {
+        CoarseClock clock = CoarseClock.getDefault();
+        clock.close();
+        long first = clock.millis();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (clock.millis() == first && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(clock.millis() > first);
+    }
+
+    /**
+     * Constructor test with a resolution of zero.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor() {
+        new CoarseClock(0);
+    }
+}
@@ -0,0 +1,78 @@
+package com.erudine.coursebooking.util;
+
+import java.util.Random;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link FenwickTree} class.
+ *
+ * @author Adam Harries
+ * @version 31 July 2013
+ */
+public class FenwickTreeTest {
+
+    private FenwickTree testTree;
+
+    @Before
+    public void setUp() {
+        testTree = new FenwickTree();
+    }
+
+    /**
+     * Test of add and prefixSum methods, of class FenwickTree.
+     */
+    @Test
+    public void testPrefixSum1() {
+        testTree.add(0, 1);
+        testTree.add(3, 2);
+        testTree.add(5, 1);
+        assertEquals(0, testTree.prefixSum(-1));
+        assertEquals(1, testTree.prefixSum(0));
+        assertEquals(1, testTree.prefixSum(2));
+        assertEquals(3, testTree.prefixSum(3));
+        assertEquals(4, testTree.prefixSum(100));
+        assertEquals(2, testTree.get(3));
+    }
+
+    /**
+     * Test of prefixSum method, of class FenwickTree, against a plain array
+     * while the tree grows.
+     */
+    @Test
+    public void testPrefixSum2() {
+        Random random = new Random(42);
+        int[] counts = new int[1000];
+        for (int i = 0; i < 5000; i++) {
+            int index = random.nextInt(counts.length);
+            int delta = random.nextInt(5) - 2;
+            counts[index] += delta;
+            testTree.add(index, delta);
+        }
+        int sum = 0;
+        for (int i = 0; i < counts.length; i++) {
+            sum += counts[i];
+            assertEquals(sum, testTree.prefixSum(i));
+        }
+        assertTrue(testTree.capacity() >= counts.length);
+    }
+
+    /**
+     * Test of add method, of class FenwickTree, with a negative index.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testAdd() {
+        testTree.add(-1, 1);
+    }
+
+    /**
+     * Test of clear method, of class FenwickTree.
+     */
+    @Test
+    public void testClear() {
+        testTree.add(7, 3);
+        testTree.clear();
+        assertEquals(0, testTree.prefixSum(7));
+    }
+}
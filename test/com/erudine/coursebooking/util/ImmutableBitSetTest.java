@@ -0,0 +1,76 @@
+package com.erudine.coursebooking.util;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link ImmutableBitSet} class.
+ *
+ * @author Adam Harries
+ * @version 31 July 2013
+ */
+public class ImmutableBitSetTest {
+
+    /**
+     * Test of of method, of class ImmutableBitSet.
+     */
+    @Test
+    public void testOf() {
+        ImmutableBitSet bits = ImmutableBitSet.of(1, 64, 200);
+        assertTrue(bits.get(1));
+        assertTrue(bits.get(64));
+        assertTrue(bits.get(200));
+        assertFalse(bits.get(2));
+        assertFalse(bits.get(1000));
+        assertEquals(3, bits.cardinality());
+    }
+
+    /**
+     * Test of with method, of class ImmutableBitSet.
+     */
+    @Test
+    public void testWith() {
+        ImmutableBitSet bits = ImmutableBitSet.EMPTY.with(130);
+        assertTrue(bits.get(130));
+        assertTrue(ImmutableBitSet.EMPTY.isEmpty());
+        assertSame(bits, bits.with(130));
+    }
+
+    /**
+     * Test of or method, of class ImmutableBitSet.
+     */
+    @Test
+    public void testOr() {
+        ImmutableBitSet union = ImmutableBitSet.of(1, 2).or(ImmutableBitSet.of(100));
+        assertEquals(ImmutableBitSet.of(1, 2, 100), union);
+    }
+
+    /**
+     * Test of containsAll method, of class ImmutableBitSet.
+     */
+    @Test
+    public void testContainsAll1() {
+        ImmutableBitSet taken = ImmutableBitSet.of(1, 5, 70, 300);
+        assertTrue(taken.containsAll(ImmutableBitSet.of(5, 300)));
+        assertTrue(taken.containsAll(ImmutableBitSet.EMPTY));
+    }
+
+    /**
+     * Test of containsAll method, of class ImmutableBitSet.
+     */
+    @Test
+    public void testContainsAll2() {
+        ImmutableBitSet taken = ImmutableBitSet.of(1, 5, 70);
+        assertFalse(taken.containsAll(ImmutableBitSet.of(5, 6)));
+        assertFalse(taken.containsAll(ImmutableBitSet.of(500)));
+        assertFalse(ImmutableBitSet.EMPTY.containsAll(taken));
+    }
+
+    /**
+     * Test of toArray method, of class ImmutableBitSet.
+     */
+    @Test
+    public void testToArray() {
+        assertArrayEquals(new int[]{3, 64, 65}, ImmutableBitSet.of(65, 3, 64).toArray());
+    }
+}
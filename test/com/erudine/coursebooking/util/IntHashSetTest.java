@@ -0,0 +1,101 @@
+package com.erudine.coursebooking.util;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link IntHashSet} class.
+ *
+ * @author Adam Harries
+ * @version 31 July 2013
+ */
+public class IntHashSetTest {
+
+    private IntHashSet testSet;
+
+    @Before
+    public void setUp() {
+        testSet = new IntHashSet();
+    }
+
+    /**
+     * Test of add method, of class IntHashSet.
+     */
+    @Test
+    public void testAdd1() {
+        assertTrue(testSet.add(5));
+        assertFalse(testSet.add(5));
+        assertEquals(1, testSet.size());
+    }
+
+    /**
+     * Test of add method, of class IntHashSet.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testAdd2() {
+        testSet.add(-1);
+    }
+
+    /**
+     * Test of remove method, of class IntHashSet.
+     */
+    @Test
+    public void testRemove() {
+        testSet.add(5);
+        assertTrue(testSet.remove(5));
+        assertFalse(testSet.remove(5));
+        assertFalse(testSet.contains(5));
+        assertTrue(testSet.isEmpty());
+    }
+
+    /**
+     * Test of contains method, of class IntHashSet.
+     */
+    @Test
+    public void testContains() {
+        testSet.add(5);
+        assertTrue(testSet.contains(5));
+        assertFalse(testSet.contains(6));
+        assertFalse(testSet.contains(-1));
+    }
+
+    /**
+     * Test of toArray method, of class IntHashSet.
+     */
+    @Test
+    public void testToArray() {
+        testSet.add(3);
+        testSet.add(1);
+        testSet.add(2);
+        int[] values = testSet.toArray();
+        Arrays.sort(values);
+        assertArrayEquals(new int[]{1, 2, 3}, values);
+    }
+
+    /**
+     * Test that the set agrees with a HashSet through a long run of random
+     * additions and removals, exercising growth and removal shifting.
+     */
+    @Test
+    public void testRandomOperations() {
+        Set<Integer> expected = new HashSet<Integer>();
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            int value = random.nextInt(2000);
+            if (random.nextBoolean()) {
+                assertEquals(expected.add(value), testSet.add(value));
+            } else {
+                assertEquals(expected.remove(value), testSet.remove(value));
+            }
+        }
+        assertEquals(expected.size(), testSet.size());
+        for (int value = 0; value < 2000; value++) {
+            assertEquals(expected.contains(value), testSet.contains(value));
+        }
+    }
+}
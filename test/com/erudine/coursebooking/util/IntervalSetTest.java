@@ -0,0 +1,80 @@
+package com.erudine.coursebooking.util;
+
+import java.util.Arrays;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link IntervalSet} class.
+ *
+ * @author Adam Harries
+ * @version 31 July 2013
+ */
+public class IntervalSetTest {
+
+    private IntervalSet<String> testSet;
+
+    @Before
+    public void setUp() {
+        testSet = new IntervalSet<String>();
+        testSet.add(10, 20, "A");
+        testSet.add(30, 40, "B");
+    }
+
+    /**
+     * Test of findOverlap method, of class IntervalSet.
+     */
+    @Test
+    public void testFindOverlap1() {
+        assertEquals("A", testSet.findOverlap(15, 16));
+        assertEquals("A", testSet.findOverlap(0, 11));
+        assertEquals("B", testSet.findOverlap(19, 31));
+        assertNotNull(testSet.findOverlap(0, 100));
+        assertNull(testSet.findOverlap(20, 30));
+        assertNull(testSet.findOverlap(0, 10));
+        assertNull(testSet.findOverlap(40, 50));
+    }
+
+    /**
+     * Test of findOverlap method, of class IntervalSet, with an empty
+     * interval.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testFindOverlap2() {
+        testSet.findOverlap(5, 5);
+    }
+
+    /**
+     * Test of add method, of class IntervalSet.
+     */
+    @Test
+    public void testAdd() {
+        assertFalse(testSet.add(35, 45, "C"));
+        assertTrue(testSet.add(20, 30, "C"));
+        assertEquals(3, testSet.size());
+    }
+
+    /**
+     * Test of remove method, of class IntervalSet.
+     */
+    @Test
+    public void testRemove() {
+        assertFalse(testSet.remove(10, "B"));
+        assertTrue(testSet.remove(10, "A"));
+        assertNull(testSet.findOverlap(10, 20));
+        assertEquals(1, testSet.size());
+    }
+
+    /**
+     * Test of findOverlapping method, of class IntervalSet.
+     */
+    @Test
+    public void testFindOverlapping() {
+        testSet.add(50, 60, "C");
+        assertEquals(Arrays.asList("A", "B"), testSet.findOverlapping(15, 35));
+        assertEquals(Arrays.asList("B", "C"), testSet.findOverlapping(30, 51));
+        assertTrue(testSet.findOverlapping(20, 30).isEmpty());
+        assertEquals(Arrays.asList("A", "B", "C"), testSet.values());
+    }
+}
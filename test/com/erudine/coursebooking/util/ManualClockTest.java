@@ -0,0 +1,26 @@
+package com.erudine.coursebooking.util;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link ManualClock} class.
+ *
+ * @author Adam Harries
+ * @version 31 July 2013
+ */
+public class ManualClockTest {
+
+    /**
+     * Test of set and advance methods, of class ManualClock.
+     */
+    @Test
+    public void testAdvance() {
+        ManualClock clock = new ManualClock(100);
+        assertEquals(100, clock.millis());
+        clock.advance(50);
+        assertEquals(150, clock.millis());
+        clock.set(10);
+        assertEquals(10, clock.millis());
+    }
+}
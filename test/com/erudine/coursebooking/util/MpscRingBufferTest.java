@@ -0,0 +1,100 @@
+package com.erudine.coursebooking.util;
+
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link MpscRingBuffer} class.
+ *
+ * @author Adam Harries
+ * @version 31 July 2013
+ */
+public class MpscRingBufferTest {
+
+    private MpscRingBuffer<Integer> testBuffer;
+
+    @Before
+    public void setUp() {
+        testBuffer = new MpscRingBuffer<Integer>(3);
+    }
+
+    /**
+     * Test that the capacity is rounded up to a power of two.
+     */
+    @Test
+    public void testCapacity() {
+        assertEquals(4, testBuffer.capacity());
+    }
+
+    /**
+     * Test that elements come out in the order they went in.
+     */
+    @Test
+    public void testOfferPoll() {
+        assertTrue(testBuffer.isEmpty());
+        testBuffer.offer(1);
+        testBuffer.offer(2);
+        assertEquals(Integer.valueOf(1), testBuffer.poll());
+        assertEquals(Integer.valueOf(2), testBuffer.poll());
+        assertNull(testBuffer.poll());
+    }
+
+    /**
+     * Test that offers fail when the buffer is full and succeed once the
+     * consumer makes room.
+     */
+    @Test
+    public void testFull() {
+        for (int i = 0; i < 4; i++) {
+            assertTrue(testBuffer.offer(i));
+        }
+        assertFalse(testBuffer.offer(4));
+        testBuffer.poll();
+        assertTrue(testBuffer.offer(4));
+    }
+
+    /**
+     * Test that every element from several producers reaches the consumer
+     * exactly once, and in order per producer.
+     */
+    @Test
+    public void testConcurrentProducers() throws InterruptedException {
+        final MpscRingBuffer<Integer> buffer = new MpscRingBuffer<Integer>(64);
+        final int producers = 4;
+        final int perProducer = 50000;
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            final int id = p;
+            threads[p] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < perProducer; i++) {
+                        while (!buffer.offer(id * perProducer + i)) {
+                            Thread.yield();
+                        }
+                    }
+                }
+            });
+            threads[p].start();
+        }
+        int[] lastSeen = new int[producers];
+        java.util.Arrays.fill(lastSeen, -1);
+        int received = 0;
+        while (received < producers * perProducer) {
+            Integer value = buffer.poll();
+            if (value == null) {
+                Thread.yield();
+                continue;
+            }
+            int producer = value / perProducer;
+            assertTrue(value % perProducer > lastSeen[producer]);
+            lastSeen[producer] = value % perProducer;
+            received++;
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(buffer.poll());
+    }
+}
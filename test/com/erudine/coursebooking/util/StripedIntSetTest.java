@@ -0,0 +1,85 @@
+package com.erudine.coursebooking.util;
+
+import java.util.Arrays;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link StripedIntSet} class.
+ *
+ * @author Adam Harries
+ * @version 31 July 2013
+ */
+public class StripedIntSetTest {
+
+    private StripedIntSet testSet;
+
+    @Before
+    public void setUp() {
+        testSet = new StripedIntSet(1000);
+    }
+
+    /**
+     * Test of add method, of class StripedIntSet.
+     */
+    @Test
+    public void testAdd() {
+        assertTrue(testSet.add(7));
+        assertFalse(testSet.add(7));
+        assertTrue(testSet.contains(7));
+        assertEquals(1, testSet.size());
+    }
+
+    /**
+     * Test of remove method, of class StripedIntSet.
+     */
+    @Test
+    public void testRemove() {
+        testSet.add(7);
+        assertTrue(testSet.remove(7));
+        assertFalse(testSet.remove(7));
+        assertEquals(0, testSet.size());
+    }
+
+    /**
+     * Test of toArray method, of class StripedIntSet.
+     */
+    @Test
+    public void testToArray() {
+        for (int i = 0; i < 100; i++) {
+            testSet.add(i);
+        }
+        int[] values = testSet.toArray();
+        Arrays.sort(values);
+        assertEquals(100, values.length);
+        assertEquals(0, values[0]);
+        assertEquals(99, values[99]);
+    }
+
+    /**
+     * Test that concurrent writers each see their own values added exactly
+     * once.
+     */
+    @Test
+    public void testConcurrentAdd() throws InterruptedException {
+        Thread[] writers = new Thread[4];
+        for (int t = 0; t < writers.length; t++) {
+            final int offset = t * 10000;
+            writers[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = offset; i < offset + 10000; i++) {
+                        testSet.add(i);
+                    }
+                }
+            });
+            writers[t].start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        assertEquals(40000, testSet.size());
+        assertEquals(40000, testSet.toArray().length);
+    }
+}